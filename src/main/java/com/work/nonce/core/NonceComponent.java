@@ -3,19 +3,33 @@ package com.work.nonce.core;
 import com.work.nonce.core.execution.NonceExecutionHandler;
 import com.work.nonce.core.execution.NonceExecutionResult;
 import com.work.nonce.core.execution.NonceExecutionTemplate;
+import com.work.nonce.core.model.BlockReceipt;
 import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.model.ReceiptIngestResult;
+import com.work.nonce.core.service.NonceAllocator;
 import com.work.nonce.core.service.NonceService;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * 门面（Facade）层，对业务侧暴露最少的调用面。
  */
 public class NonceComponent {
 
     private final NonceExecutionTemplate executionTemplate;
+    private final NonceAllocator nonceAllocator;
     private final NonceService nonceService;
 
     public NonceComponent(NonceExecutionTemplate executionTemplate, NonceService nonceService) {
+        this(executionTemplate, nonceService, nonceService);
+    }
+
+    public NonceComponent(NonceExecutionTemplate executionTemplate,
+                          NonceAllocator nonceAllocator,
+                          NonceService nonceService) {
         this.executionTemplate = executionTemplate;
+        this.nonceAllocator = nonceAllocator;
         this.nonceService = nonceService;
     }
 
@@ -26,11 +40,25 @@ public class NonceComponent {
         return executionTemplate.execute(submitter, handler);
     }
 
+    /**
+     * 批量版本的 withNonce：一次领取 count 个 nonce，按 nonce 升序逐个执行 handler。
+     */
+    public List<NonceExecutionResult> withNonces(String submitter, int count, NonceExecutionHandler handler) {
+        return executionTemplate.executeBatch(submitter, count, handler);
+    }
+
     /**
      * 低阶接口，允许业务先领取 nonce，再在合适的时机显式标记 USED/RECYCLABLE。
      */
     public NonceAllocation allocate(String submitter) {
-        return nonceService.allocate(submitter);
+        return nonceAllocator.allocate(submitter);
+    }
+
+    /**
+     * 低阶批量接口：同一把锁、同一个事务内领取 count 个 nonce（优先复用空洞）。
+     */
+    public List<NonceAllocation> allocateBatch(String submitter, int count) {
+        return nonceService.allocateBatch(submitter, count);
     }
 
     public void markUsed(String submitter, long nonce, String txHash) {
@@ -40,5 +68,17 @@ public class NonceComponent {
     public void markRecyclable(String submitter, long nonce, String reason) {
         nonceService.markRecyclable(submitter, nonce, reason);
     }
+
+    /**
+     * 按区块回执批量确认：业务侧的区块监听把每个区块中属于本组件 submitter 的回执交给组件，
+     * 不必再在每个 handler 中调用 markUsed。区块可重复或乱序提交。
+     */
+    public ReceiptIngestResult ingestBlockReceipts(long blockNumber, List<BlockReceipt> receipts) {
+        return nonceService.ingestBlockReceipts(blockNumber, receipts);
+    }
+
+    public Optional<NonceAllocation> findByTxHash(String txHash) {
+        return nonceService.findAllocationByTxHash(txHash);
+    }
 }
 
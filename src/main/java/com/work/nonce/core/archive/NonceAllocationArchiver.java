@@ -0,0 +1,163 @@
+package com.work.nonce.core.archive;
+
+import com.work.nonce.core.config.NonceArchiverConfig;
+import com.work.nonce.core.service.NonceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 后台归档器：定时把已结算（nonce 不大于 last_chain_nonce）的 USED 记录从分配表移入只追加的归档表，
+ * 使分配表只保留活跃记录，(submitter, nonce) 索引与按 status 过滤的查询不随时间变慢。
+ * <p>
+ * 注意：
+ * 1. 按 hash(submitter) 切分为 partitions 个分区逐个处理，每批一个短事务，
+ *    FOR UPDATE SKIP LOCKED 跳过正在被其他事务持有的行
+ * 2. 一批归档满 batchSize 说明仍有积压，继续下一批，直到不足一批或达到 maxBatchesPerRun
+ * 3. 多实例同时运行也是安全的：同一行只会被其中一个实例锁定并迁移
+ * 4. 归档后的记录仍可通过 {@code findBySubmitterAndNonce} 与 markUsed 的幂等回查访问
+ * 5. 压缩模式（{@link NonceArchiverConfig#isCompact()}）不写归档表：锁定水位已推进的状态行后，
+ *    直接删除水位以下的全部分配记录；一批删除了记录就继续下一批，计数为删除的记录数
+ */
+public class NonceAllocationArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(NonceAllocationArchiver.class);
+
+    private final NonceService nonceService;
+    private final NonceArchiverConfig config;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder archivedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder failedBatchCount = new LongAdder();
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong lastRunArchived = new AtomicLong();
+    private final AtomicLong lastRunNanos = new AtomicLong();
+
+    public NonceAllocationArchiver(NonceService nonceService, NonceArchiverConfig config) {
+        this.nonceService = requireNonNull(nonceService, "nonceService");
+        this.config = requireNonNull(config, "config");
+        if (!config.isEnabled()) {
+            this.scheduler = null;
+            return;
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nonce-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = config.getInterval().toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::runSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public boolean isCompact() {
+        return config.isCompact();
+    }
+
+    /**
+     * 执行一轮归档：逐个分区处理，返回本轮归档总数。
+     */
+    public long runOnce() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long total = 0;
+        for (int partition = 0; partition < config.getPartitions(); partition++) {
+            total += archivePartition(partition);
+        }
+
+        runCount.incrementAndGet();
+        lastRunArchived.set(total);
+        lastRunNanos.set(System.nanoTime() - start);
+        if (total > 0) {
+            log.debug("后台归档完成, archived={}, costMs={}", total, lastRunNanos.get() / 1_000_000);
+        }
+        return total;
+    }
+
+    private long archivePartition(int partition) {
+        long archived = 0;
+        for (int i = 0; i < config.getMaxBatchesPerRun(); i++) {
+            int batch;
+            try {
+                batch = config.isCompact()
+                        ? nonceService.compactSettledAllocations(partition, config.getPartitions(),
+                                config.getBatchSize(), config.getCompactSpan())
+                        : nonceService.archiveSettledAllocations(partition, config.getPartitions(), config.getBatchSize());
+            } catch (Exception e) {
+                // 单批失败只影响本分区本轮，下一轮重试
+                failedBatchCount.increment();
+                log.warn("后台归档失败, partition={}", partition, e);
+                break;
+            }
+            batchCount.increment();
+            archived += batch;
+            archivedCount.add(batch);
+            // 压缩模式的 batchSize 限制的是 submitter 数，只能以"本批没有删除记录"判断积压已清空
+            if (config.isCompact() ? batch == 0 : batch < config.getBatchSize()) {
+                break;
+            }
+        }
+        return archived;
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (Exception e) {
+            log.error("后台归档异常", e);
+        }
+    }
+
+    /**
+     * 停止后台线程，供应用关闭时调用；未归档的记录由下次启动或其他实例继续处理。
+     */
+    public void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(config.getInterval().toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getArchivedCount() {
+        return archivedCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatchCount.sum();
+    }
+
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    public long getLastRunArchived() {
+        return lastRunArchived.get();
+    }
+
+    public double getLastRunLatencyMillis() {
+        return lastRunNanos.get() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,49 @@
+package com.work.nonce.core.cluster;
+
+import java.util.Objects;
+
+/**
+ * 集群成员：节点标识与对外访问地址（用于给调用方返回 owner 提示）。
+ */
+public final class ClusterMember {
+
+    private final String nodeId;
+    private final String endpoint;
+
+    public ClusterMember(String nodeId, String endpoint) {
+        if (nodeId == null || nodeId.trim().isEmpty()) {
+            throw new IllegalArgumentException("nodeId 不能为空");
+        }
+        this.nodeId = nodeId;
+        this.endpoint = endpoint;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClusterMember)) {
+            return false;
+        }
+        return nodeId.equals(((ClusterMember) o).nodeId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nodeId);
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterMember{nodeId='" + nodeId + "', endpoint='" + endpoint + "'}";
+    }
+}
@@ -0,0 +1,234 @@
+package com.work.nonce.core.cluster;
+
+import com.work.nonce.core.config.NonceClusterConfig;
+import com.work.nonce.core.repository.entity.ClusterMemberEntity;
+import com.work.nonce.core.repository.mapper.ClusterMemberMapper;
+import com.work.nonce.core.support.ConsistentHashRing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 基于 Postgres 心跳表的集群成员管理：每个节点按一致性哈希（带虚拟节点）拥有一段 submitter。
+ * <p>
+ * 单个后台线程每隔 heartbeatInterval：
+ * 1. 刷新本节点心跳，被剔除时重新加入
+ * 2. 剔除心跳超过 memberTtl 的成员（成员变化时 epoch 加 1）
+ * 3. 重新读取 (epoch, 成员集合) 并构建哈希环
+ * <p>
+ * 注意：
+ * 1. 本节点超过 memberTtl / 2 未能成功心跳时视为视图不可用，{@link #resolve} 返回 unavailable，
+ *    调用方回退到分布式锁路径，避免在可能已被剔除的情况下继续以 owner 身份跳过加锁
+ * 2. 视图只是路由依据，正确性由 submitter_nonce_state.owner_epoch 的 fencing 与行锁保证：
+ *    新 owner 以更大的 epoch 写入后，持有旧 epoch 的节点再写入会被拒绝
+ */
+public class NonceClusterMembership {
+
+    private static final Logger log = LoggerFactory.getLogger(NonceClusterMembership.class);
+
+    private final NonceClusterConfig config;
+    private final ClusterMemberMapper memberMapper;
+    private final ClusterMember self;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile View view;
+    private volatile long lastHeartbeatNanos;
+
+    private final LongAdder ownedCount = new LongAdder();
+    private final LongAdder forwardedCount = new LongAdder();
+    private final LongAdder unavailableCount = new LongAdder();
+    private final LongAdder heartbeatFailures = new LongAdder();
+    private final AtomicLong rejoinCount = new AtomicLong();
+    private final AtomicLong evictedEpochs = new AtomicLong();
+
+    public NonceClusterMembership(NonceClusterConfig config, ClusterMemberMapper memberMapper) {
+        this.config = requireNonNull(config, "config");
+        if (!config.isEnabled()) {
+            this.memberMapper = null;
+            this.self = null;
+            this.scheduler = null;
+            return;
+        }
+        this.memberMapper = requireNonNull(memberMapper, "memberMapper");
+        this.self = new ClusterMember(config.getNodeId(), config.getEndpoint());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nonce-cluster-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = config.getHeartbeatInterval().toNanos();
+        this.scheduler.scheduleWithFixedDelay(this::tickSafely, 0, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 未开启集群归属时使用，resolve 始终返回 unavailable
+     */
+    public static NonceClusterMembership disabled() {
+        return new NonceClusterMembership(NonceClusterConfig.disabled(), null);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 按当前视图判定 submitter 的归属
+     */
+    public SubmitterOwnership resolve(String submitter) {
+        if (!isEnabled()) {
+            return SubmitterOwnership.unavailable();
+        }
+        View current = view;
+        if (current == null || !isHealthy()) {
+            unavailableCount.increment();
+            return SubmitterOwnership.unavailable();
+        }
+        ClusterMember owner = current.ring.locate(submitter);
+        if (owner == null) {
+            unavailableCount.increment();
+            return SubmitterOwnership.unavailable();
+        }
+        if (owner.equals(self)) {
+            ownedCount.increment();
+            return SubmitterOwnership.owned(self, current.epoch);
+        }
+        forwardedCount.increment();
+        return SubmitterOwnership.notOwned(owner, current.epoch);
+    }
+
+    /**
+     * 执行一轮心跳、剔除与视图刷新，通常由后台线程调用
+     */
+    public void tick() {
+        Instant now = Instant.now();
+        if (memberMapper.heartbeat(self.getNodeId(), now) == 0) {
+            memberMapper.join(self.getNodeId(), self.getEndpoint(), now);
+            rejoinCount.incrementAndGet();
+            log.info("节点加入集群: {}", self);
+        }
+        lastHeartbeatNanos = System.nanoTime();
+
+        Long evictedEpoch = memberMapper.evictExpired(now.minus(config.getMemberTtl()), now);
+        if (evictedEpoch != null) {
+            evictedEpochs.incrementAndGet();
+            log.info("剔除心跳超时的集群成员, epoch={}", evictedEpoch);
+        }
+        refreshView();
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (Exception e) {
+            heartbeatFailures.increment();
+            log.warn("集群心跳失败, nodeId={}", config.getNodeId(), e);
+        }
+    }
+
+    private void refreshView() {
+        List<ClusterMemberEntity> rows = memberMapper.loadView();
+        if (rows.isEmpty()) {
+            return;
+        }
+        long epoch = rows.get(0).getEpoch();
+        View current = view;
+        if (current != null && current.epoch == epoch) {
+            return;
+        }
+        List<ClusterMember> members = new ArrayList<>(rows.size());
+        for (ClusterMemberEntity row : rows) {
+            if (row.getNodeId() != null) {
+                members.add(new ClusterMember(row.getNodeId(), row.getEndpoint()));
+            }
+        }
+        view = new View(epoch, new ConsistentHashRing<>(members, ClusterMember::getNodeId, config.getVirtualNodes()));
+        log.info("集群视图更新, epoch={}, members={}", epoch, members);
+    }
+
+    private boolean isHealthy() {
+        long sinceHeartbeat = System.nanoTime() - lastHeartbeatNanos;
+        return sinceHeartbeat < config.getMemberTtl().toNanos() / 2;
+    }
+
+    /**
+     * 停止心跳并主动离开集群，其余节点随即接管本节点的 submitter
+     */
+    public void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(config.getHeartbeatInterval().toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            memberMapper.leave(self.getNodeId(), Instant.now());
+        } catch (Exception e) {
+            log.warn("离开集群失败，等待其他节点按心跳超时剔除, nodeId={}", self.getNodeId(), e);
+        }
+    }
+
+    public String getNodeId() {
+        return config.getNodeId();
+    }
+
+    public long getEpoch() {
+        View current = view;
+        return current == null ? -1 : current.epoch;
+    }
+
+    public int getMemberCount() {
+        View current = view;
+        return current == null ? 0 : current.ring.getNodes().size();
+    }
+
+    public boolean isViewHealthy() {
+        return isEnabled() && view != null && isHealthy();
+    }
+
+    public long getOwnedCount() {
+        return ownedCount.sum();
+    }
+
+    public long getForwardedCount() {
+        return forwardedCount.sum();
+    }
+
+    public long getUnavailableCount() {
+        return unavailableCount.sum();
+    }
+
+    public long getHeartbeatFailures() {
+        return heartbeatFailures.sum();
+    }
+
+    public long getRejoinCount() {
+        return rejoinCount.get();
+    }
+
+    public long getEvictions() {
+        return evictedEpochs.get();
+    }
+
+    private static final class View {
+        private final long epoch;
+        private final ConsistentHashRing<ClusterMember> ring;
+
+        private View(long epoch, ConsistentHashRing<ClusterMember> ring) {
+            this.epoch = epoch;
+            this.ring = ring;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.work.nonce.core.cluster;
+
+import com.work.nonce.core.exception.NonceException;
+import com.work.nonce.core.model.LockOwner;
+import com.work.nonce.core.repository.entity.NonceNodeEntity;
+import com.work.nonce.core.repository.mapper.NonceNodeMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 节点注册：启动时在 nonce_node 表中登记节点名，得到整型 node_id，之后每次加锁 / 租约只需自增序号生成
+ * {@link LockOwner}，不再拼接主机名、线程号与 UUID。
+ * <p>
+ * 注意：
+ * 1. 每次注册 incarnation 加 1，序号从 incarnation << 32 开始，重启后的序号不会与重启前的重复
+ * 2. 同名节点同时运行时共享 node_id，但 incarnation 不同，序号区间仍不重叠
+ * 3. 由容器在全部单例初始化完成后（迁移已执行）调用 {@link #register()}，且必须在独立事务中提交；
+ *    {@link #nextOwner()} 不会触发注册，避免注册混入某次分配事务、随其回滚后 incarnation 递增丢失而序号重复
+ */
+public class NonceNodeRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(NonceNodeRegistry.class);
+
+    private static final int SEQUENCE_SHIFT = 32;
+
+    private final String nodeName;
+    private final NonceNodeMapper nodeMapper;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private volatile boolean registered;
+    private int nodeId;
+    private long incarnation;
+
+    public NonceNodeRegistry(String nodeName, NonceNodeMapper nodeMapper) {
+        this.nodeName = requireNonEmpty(nodeName, "nodeName");
+        this.nodeMapper = requireNonNull(nodeMapper, "nodeMapper");
+    }
+
+    private NonceNodeRegistry(int nodeId, long incarnation) {
+        this.nodeName = null;
+        this.nodeMapper = null;
+        this.nodeId = nodeId;
+        this.incarnation = incarnation;
+        this.sequence.set(incarnation << SEQUENCE_SHIFT);
+        this.registered = true;
+    }
+
+    /**
+     * 不访问数据库的注册（手工装配或单进程使用）：随机的负数 node_id，不会与注册表分配的 node_id 冲突，
+     * 但多个进程之间不保证唯一
+     */
+    public static NonceNodeRegistry ephemeral() {
+        int nodeId = -1 - ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE - 1);
+        return new NonceNodeRegistry(nodeId, System.currentTimeMillis() & 0x7FFFFFFFL);
+    }
+
+    /**
+     * 生成新的锁持有者标识
+     */
+    public LockOwner nextOwner() {
+        if (!registered) {
+            throw new NonceException("节点尚未注册: " + nodeName);
+        }
+        return new LockOwner(nodeId, sequence.incrementAndGet());
+    }
+
+    /**
+     * 在 nonce_node 表中登记节点并递增 incarnation，重复调用无效果。
+     * 调用方需保证在独立事务中执行（不能处于分配事务内）。
+     */
+    public synchronized void register() {
+        if (registered) {
+            return;
+        }
+        NonceNodeEntity node = nodeMapper.register(nodeName, Instant.now());
+        if (node == null || node.getNodeId() == null || node.getIncarnation() == null) {
+            throw new NonceException("节点注册失败: " + nodeName);
+        }
+        nodeId = node.getNodeId();
+        incarnation = node.getIncarnation();
+        sequence.set(incarnation << SEQUENCE_SHIFT);
+        registered = true;
+        log.info("节点注册完成, nodeName={}, nodeId={}, incarnation={}", nodeName, nodeId, incarnation);
+    }
+
+    public boolean isRegistered() {
+        return registered;
+    }
+
+    /**
+     * 注册前返回 0
+     */
+    public int getNodeId() {
+        return registered ? nodeId : 0;
+    }
+
+    public long getIncarnation() {
+        return registered ? incarnation : 0;
+    }
+
+    /**
+     * 本次注册以来发放的标识数
+     */
+    public long getIssuedCount() {
+        return registered ? sequence.get() - (incarnation << SEQUENCE_SHIFT) : 0;
+    }
+}
@@ -0,0 +1,54 @@
+package com.work.nonce.core.cluster;
+
+/**
+ * 某个 submitter 在当前成员视图下的归属判定结果。
+ * <p>
+ * 三种情况：
+ * 1. owned：本节点是 owner，可跳过分布式锁，以 epoch 作为 fencing 值
+ * 2. not owned：其他节点是 owner，应拒绝并返回 owner 提示
+ * 3. unavailable：未开启或视图不可用（心跳失败、环为空），回退到分布式锁路径
+ */
+public final class SubmitterOwnership {
+
+    private static final SubmitterOwnership UNAVAILABLE = new SubmitterOwnership(false, false, null, 0L);
+
+    private final boolean resolved;
+    private final boolean owned;
+    private final ClusterMember owner;
+    private final long epoch;
+
+    private SubmitterOwnership(boolean resolved, boolean owned, ClusterMember owner, long epoch) {
+        this.resolved = resolved;
+        this.owned = owned;
+        this.owner = owner;
+        this.epoch = epoch;
+    }
+
+    public static SubmitterOwnership owned(ClusterMember self, long epoch) {
+        return new SubmitterOwnership(true, true, self, epoch);
+    }
+
+    public static SubmitterOwnership notOwned(ClusterMember owner, long epoch) {
+        return new SubmitterOwnership(true, false, owner, epoch);
+    }
+
+    public static SubmitterOwnership unavailable() {
+        return UNAVAILABLE;
+    }
+
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    public boolean isOwned() {
+        return owned;
+    }
+
+    public ClusterMember getOwner() {
+        return owner;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+}
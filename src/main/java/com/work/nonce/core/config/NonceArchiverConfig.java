@@ -0,0 +1,91 @@
+package com.work.nonce.core.config;
+
+import java.time.Duration;
+
+/**
+ * 后台归档（archiver）配置：定时把已结算的 USED 记录分批移入归档表；
+ * 压缩模式下改为直接删除水位以下的分配记录，已结算前缀只由 last_chain_nonce 表示。
+ */
+public class NonceArchiverConfig {
+
+    private final boolean enabled;
+    private final Duration interval;
+    private final int batchSize;
+    private final int partitions;
+    private final int maxBatchesPerRun;
+    private final boolean compact;
+    private final long compactSpan;
+
+    /**
+     * @param enabled          是否开启后台归档
+     * @param interval         两轮归档之间的间隔
+     * @param batchSize        单个事务归档的最大条数
+     * @param partitions       按 hash(submitter) 切分的分区数，逐个分区处理
+     * @param maxBatchesPerRun 单个分区每轮最多执行的批次数，避免积压时长时间占用连接
+     */
+    public NonceArchiverConfig(boolean enabled, Duration interval, int batchSize, int partitions, int maxBatchesPerRun) {
+        this(enabled, interval, batchSize, partitions, maxBatchesPerRun, false, 0);
+    }
+
+    /**
+     * @param compact     是否为压缩模式：batchSize 表示单个事务处理的 submitter 数，不再写归档表
+     * @param compactSpan 压缩模式下单个 submitter 每批最多推进的 nonce 数，限制单个事务删除的行数
+     */
+    public NonceArchiverConfig(boolean enabled, Duration interval, int batchSize, int partitions, int maxBatchesPerRun,
+                               boolean compact, long compactSpan) {
+        if (enabled && (interval == null || interval.isNegative() || interval.isZero())) {
+            throw new IllegalArgumentException("interval 必须大于0");
+        }
+        if (enabled && batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize 必须大于0");
+        }
+        if (enabled && partitions <= 0) {
+            throw new IllegalArgumentException("partitions 必须大于0");
+        }
+        if (enabled && maxBatchesPerRun <= 0) {
+            throw new IllegalArgumentException("maxBatchesPerRun 必须大于0");
+        }
+        if (enabled && compact && compactSpan <= 0) {
+            throw new IllegalArgumentException("compactSpan 必须大于0");
+        }
+        this.enabled = enabled;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.partitions = partitions;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.compact = compact;
+        this.compactSpan = compactSpan;
+    }
+
+    public static NonceArchiverConfig disabled() {
+        return new NonceArchiverConfig(false, null, 0, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int getMaxBatchesPerRun() {
+        return maxBatchesPerRun;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public long getCompactSpan() {
+        return compactSpan;
+    }
+}
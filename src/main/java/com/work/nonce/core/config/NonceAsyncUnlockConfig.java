@@ -0,0 +1,44 @@
+package com.work.nonce.core.config;
+
+/**
+ * Redis 异步解锁配置：事务提交后的解锁请求入队，由后台线程合并为一次 pipeline 执行。
+ */
+public class NonceAsyncUnlockConfig {
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    /**
+     * @param enabled       是否开启异步解锁
+     * @param batchSize     单次 pipeline 最多包含的解锁数
+     * @param queueCapacity 队列容量，队列满时回退到同步解锁
+     */
+    public NonceAsyncUnlockConfig(boolean enabled, int batchSize, int queueCapacity) {
+        if (enabled && batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize 必须大于0");
+        }
+        if (enabled && queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity 必须大于0");
+        }
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public static NonceAsyncUnlockConfig disabled() {
+        return new NonceAsyncUnlockConfig(false, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+}
@@ -0,0 +1,87 @@
+package com.work.nonce.core.config;
+
+import java.time.Duration;
+
+/**
+ * Redis 熔断器配置：滚动窗口内错误率超过阈值后熔断，熔断期间加锁直接走纯 Postgres 路径。
+ */
+public class NonceCircuitBreakerConfig {
+
+    private final boolean enabled;
+    private final Duration window;
+    private final int windowBuckets;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final Duration openDuration;
+    private final int halfOpenProbes;
+
+    /**
+     * @param enabled              是否开启熔断
+     * @param window               统计错误率的滚动窗口长度
+     * @param windowBuckets        窗口切分的桶数，桶越多滚动越平滑
+     * @param minimumCalls         窗口内调用数达到该值才计算错误率，避免少量调用误熔断
+     * @param failureRateThreshold 熔断的错误率阈值（百分比，1-100）
+     * @param openDuration         熔断持续时间，到期后进入半开状态放行探测请求
+     * @param halfOpenProbes       半开状态下允许的并发探测数，也是恢复所需的连续成功次数
+     */
+    public NonceCircuitBreakerConfig(boolean enabled, Duration window, int windowBuckets, int minimumCalls,
+                                     int failureRateThreshold, Duration openDuration, int halfOpenProbes) {
+        if (enabled && (window == null || window.isNegative() || window.isZero())) {
+            throw new IllegalArgumentException("window 必须大于0");
+        }
+        if (enabled && windowBuckets <= 0) {
+            throw new IllegalArgumentException("windowBuckets 必须大于0");
+        }
+        if (enabled && minimumCalls <= 0) {
+            throw new IllegalArgumentException("minimumCalls 必须大于0");
+        }
+        if (enabled && (failureRateThreshold <= 0 || failureRateThreshold > 100)) {
+            throw new IllegalArgumentException("failureRateThreshold 必须在 1-100 之间");
+        }
+        if (enabled && (openDuration == null || openDuration.isNegative() || openDuration.isZero())) {
+            throw new IllegalArgumentException("openDuration 必须大于0");
+        }
+        if (enabled && halfOpenProbes <= 0) {
+            throw new IllegalArgumentException("halfOpenProbes 必须大于0");
+        }
+        this.enabled = enabled;
+        this.window = window;
+        this.windowBuckets = windowBuckets;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    public static NonceCircuitBreakerConfig disabled() {
+        return new NonceCircuitBreakerConfig(false, null, 0, 0, 0, null, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public int getWindowBuckets() {
+        return windowBuckets;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+}
@@ -0,0 +1,74 @@
+package com.work.nonce.core.config;
+
+import java.time.Duration;
+
+/**
+ * 集群归属配置：节点按一致性哈希拥有一部分 submitter，owner 节点分配时跳过分布式锁。
+ */
+public class NonceClusterConfig {
+
+    private final boolean enabled;
+    private final String nodeId;
+    private final String endpoint;
+    private final Duration heartbeatInterval;
+    private final Duration memberTtl;
+    private final int virtualNodes;
+
+    /**
+     * @param enabled           是否开启集群归属
+     * @param nodeId            本节点标识，集群内唯一
+     * @param endpoint          本节点对外地址，作为 owner 提示返回给调用方
+     * @param heartbeatInterval 心跳与成员视图刷新间隔
+     * @param memberTtl         成员心跳超时时间，超时的成员被剔除并推进 epoch
+     * @param virtualNodes      每个节点在哈希环上的虚拟节点数
+     */
+    public NonceClusterConfig(boolean enabled, String nodeId, String endpoint,
+                              Duration heartbeatInterval, Duration memberTtl, int virtualNodes) {
+        if (enabled && (nodeId == null || nodeId.trim().isEmpty())) {
+            throw new IllegalArgumentException("nodeId 不能为空");
+        }
+        if (enabled && (heartbeatInterval == null || heartbeatInterval.isNegative() || heartbeatInterval.isZero())) {
+            throw new IllegalArgumentException("heartbeatInterval 必须大于0");
+        }
+        if (enabled && (memberTtl == null || memberTtl.compareTo(heartbeatInterval.multipliedBy(2)) < 0)) {
+            throw new IllegalArgumentException("memberTtl 至少为 heartbeatInterval 的 2 倍");
+        }
+        if (enabled && virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes 必须大于0");
+        }
+        this.enabled = enabled;
+        this.nodeId = nodeId;
+        this.endpoint = endpoint;
+        this.heartbeatInterval = heartbeatInterval;
+        this.memberTtl = memberTtl;
+        this.virtualNodes = virtualNodes;
+    }
+
+    public static NonceClusterConfig disabled() {
+        return new NonceClusterConfig(false, null, null, null, null, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public Duration getMemberTtl() {
+        return memberTtl;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+}
@@ -12,19 +12,47 @@ public class NonceConfig {
     private final Duration lockTtl;
     private final Duration reservedTimeout;
     private final boolean degradeOnRedisFailure;
+    private final boolean inlineRecycleEnabled;
+    private final boolean fencingEnabled;
+    private final Duration lockWait;
 
+    /**
+     * @param inlineRecycleEnabled 分配时是否顺带回收该 submitter 过期的 RESERVED；
+     *                             由后台回收（reaper）接管时可关闭，分配路径不再扫描
+     * @param fencingEnabled       锁实现支持 fencing token 时，持锁分配不再 SELECT FOR UPDATE，
+     *                             改为无锁读取 + 按 token 的乐观更新（仅 statement 实现生效）
+     * @param lockWait             锁被占用时的最长等待时间；为 0 时只尝试一次，失败后按 degradeOnRedisFailure 抛异常或降级，
+     *                             应小于分配事务的超时时间
+     */
     public NonceConfig(boolean redisEnabled,
                        Duration lockTtl,
                        Duration reservedTimeout,
-                       boolean degradeOnRedisFailure) {
+                       boolean degradeOnRedisFailure,
+                       boolean inlineRecycleEnabled,
+                       boolean fencingEnabled,
+                       Duration lockWait) {
+        if (lockWait == null || lockWait.isNegative()) {
+            throw new IllegalArgumentException("lockWait 不能为负数");
+        }
         this.redisEnabled = redisEnabled;
         this.lockTtl = lockTtl;
         this.reservedTimeout = reservedTimeout;
         this.degradeOnRedisFailure = degradeOnRedisFailure;
+        this.inlineRecycleEnabled = inlineRecycleEnabled;
+        this.fencingEnabled = fencingEnabled;
+        this.lockWait = lockWait;
+    }
+
+    /**
+     * 未设置的项取默认值：启用 Redis 锁、lockTtl 10s、reservedTimeout 30s、Redis 故障时降级、
+     * 开启 inline 回收、关闭 fencing、不等待锁
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     public static NonceConfig defaultConfig() {
-        return new NonceConfig(true, Duration.ofSeconds(10), Duration.ofSeconds(30), true);
+        return builder().build();
     }
 
     public boolean isRedisEnabled() {
@@ -42,5 +70,70 @@ public class NonceConfig {
     public boolean isDegradeOnRedisFailure() {
         return degradeOnRedisFailure;
     }
-}
 
+    public boolean isInlineRecycleEnabled() {
+        return inlineRecycleEnabled;
+    }
+
+    public boolean isFencingEnabled() {
+        return fencingEnabled;
+    }
+
+    public Duration getLockWait() {
+        return lockWait;
+    }
+
+    public static class Builder {
+
+        private boolean redisEnabled = true;
+        private Duration lockTtl = Duration.ofSeconds(10);
+        private Duration reservedTimeout = Duration.ofSeconds(30);
+        private boolean degradeOnRedisFailure = true;
+        private boolean inlineRecycleEnabled = true;
+        private boolean fencingEnabled;
+        private Duration lockWait = Duration.ZERO;
+
+        private Builder() {
+        }
+
+        public Builder redisEnabled(boolean redisEnabled) {
+            this.redisEnabled = redisEnabled;
+            return this;
+        }
+
+        public Builder lockTtl(Duration lockTtl) {
+            this.lockTtl = lockTtl;
+            return this;
+        }
+
+        public Builder reservedTimeout(Duration reservedTimeout) {
+            this.reservedTimeout = reservedTimeout;
+            return this;
+        }
+
+        public Builder degradeOnRedisFailure(boolean degradeOnRedisFailure) {
+            this.degradeOnRedisFailure = degradeOnRedisFailure;
+            return this;
+        }
+
+        public Builder inlineRecycleEnabled(boolean inlineRecycleEnabled) {
+            this.inlineRecycleEnabled = inlineRecycleEnabled;
+            return this;
+        }
+
+        public Builder fencingEnabled(boolean fencingEnabled) {
+            this.fencingEnabled = fencingEnabled;
+            return this;
+        }
+
+        public Builder lockWait(Duration lockWait) {
+            this.lockWait = lockWait;
+            return this;
+        }
+
+        public NonceConfig build() {
+            return new NonceConfig(redisEnabled, lockTtl, reservedTimeout, degradeOnRedisFailure,
+                    inlineRecycleEnabled, fencingEnabled, lockWait);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.work.nonce.core.config;
+
+import java.time.Duration;
+
+/**
+ * 异步确认队列配置：USED / RECYCLABLE 状态转换先入队，再按时间或数量批量落库。
+ */
+public class NonceConfirmationConfig {
+
+    private final boolean enabled;
+    private final Duration flushInterval;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    /**
+     * @param enabled       是否开启异步确认
+     * @param flushInterval 最长刷盘间隔
+     * @param batchSize     单次刷盘的最大条数，积压达到该值时立即刷盘
+     * @param queueCapacity 队列容量，队列满时退化为同步落库
+     */
+    public NonceConfirmationConfig(boolean enabled, Duration flushInterval, int batchSize, int queueCapacity) {
+        if (enabled && (flushInterval == null || flushInterval.isNegative() || flushInterval.isZero())) {
+            throw new IllegalArgumentException("flushInterval 必须大于0");
+        }
+        if (enabled && batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize 必须大于0");
+        }
+        if (enabled && queueCapacity < batchSize) {
+            throw new IllegalArgumentException("queueCapacity 不能小于 batchSize");
+        }
+        this.enabled = enabled;
+        this.flushInterval = flushInterval;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public static NonceConfirmationConfig disabled() {
+        return new NonceConfirmationConfig(false, null, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+}
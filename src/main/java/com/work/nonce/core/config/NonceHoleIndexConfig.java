@@ -0,0 +1,47 @@
+package com.work.nonce.core.config;
+
+import java.time.Duration;
+
+/**
+ * 空洞索引配置：JVM 内按 submitter 缓存 RECYCLABLE nonce，分配时无需每次扫描分配表。
+ */
+public class NonceHoleIndexConfig {
+
+    private final boolean enabled;
+    private final Duration refreshInterval;
+    private final int maxLoadedHoles;
+
+    /**
+     * @param enabled         是否开启空洞索引
+     * @param refreshInterval 索引有效期，到期后下一次分配重新从数据库加载，
+     *                        其他节点产生的空洞最迟在该时间内可见
+     * @param maxLoadedHoles  每个 submitter 单次加载的最大空洞数，超出部分在索引取空后再加载
+     */
+    public NonceHoleIndexConfig(boolean enabled, Duration refreshInterval, int maxLoadedHoles) {
+        if (enabled && (refreshInterval == null || refreshInterval.isNegative() || refreshInterval.isZero())) {
+            throw new IllegalArgumentException("refreshInterval 必须大于0");
+        }
+        if (enabled && maxLoadedHoles <= 0) {
+            throw new IllegalArgumentException("maxLoadedHoles 必须大于0");
+        }
+        this.enabled = enabled;
+        this.refreshInterval = refreshInterval;
+        this.maxLoadedHoles = maxLoadedHoles;
+    }
+
+    public static NonceHoleIndexConfig disabled() {
+        return new NonceHoleIndexConfig(false, null, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public int getMaxLoadedHoles() {
+        return maxLoadedHoles;
+    }
+}
@@ -0,0 +1,69 @@
+package com.work.nonce.core.config;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 区间租约（range lease）配置：热点 submitter 一次预留一段 nonce，在 JVM 内逐个发放。
+ */
+public class NonceLeaseConfig {
+
+    private final boolean enabled;
+    private final int leaseSize;
+    private final Duration leaseTtl;
+    private final Set<String> submitters;
+
+    /**
+     * @param enabled    是否开启租约模式
+     * @param leaseSize  每次租约预留的 nonce 数量
+     * @param leaseTtl   租约有效期，到期后剩余 nonce 不再发放并回收为 RECYCLABLE
+     * @param submitters 启用租约的热点 submitter，为空表示对所有 submitter 生效
+     */
+    public NonceLeaseConfig(boolean enabled,
+                            int leaseSize,
+                            Duration leaseTtl,
+                            Collection<String> submitters) {
+        if (enabled && leaseSize <= 0) {
+            throw new IllegalArgumentException("leaseSize 必须大于0");
+        }
+        if (enabled && (leaseTtl == null || leaseTtl.isNegative() || leaseTtl.isZero())) {
+            throw new IllegalArgumentException("leaseTtl 必须大于0");
+        }
+        this.enabled = enabled;
+        this.leaseSize = leaseSize;
+        this.leaseTtl = leaseTtl;
+        this.submitters = submitters == null
+                ? Collections.<String>emptySet()
+                : Collections.unmodifiableSet(new HashSet<>(submitters));
+    }
+
+    public static NonceLeaseConfig disabled() {
+        return new NonceLeaseConfig(false, 0, null, null);
+    }
+
+    /**
+     * 判断某个 submitter 是否走租约模式。
+     */
+    public boolean appliesTo(String submitter) {
+        return enabled && (submitters.isEmpty() || submitters.contains(submitter));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getLeaseSize() {
+        return leaseSize;
+    }
+
+    public Duration getLeaseTtl() {
+        return leaseTtl;
+    }
+
+    public Set<String> getSubmitters() {
+        return submitters;
+    }
+}
@@ -0,0 +1,46 @@
+package com.work.nonce.core.config;
+
+import java.time.Duration;
+
+/**
+ * Redis 锁续期看门狗配置：持锁期间由后台线程定期续期，使 lock-ttl 可以设置得很短。
+ */
+public class NonceLockWatchdogConfig {
+
+    private final boolean enabled;
+    private final Duration interval;
+    private final Duration maxHold;
+
+    /**
+     * @param enabled  是否开启续期
+     * @param interval 续期间隔，应不超过 lock-ttl 的 1/3
+     * @param maxHold  单把锁的最长续期时间，超过后不再续期，锁随 TTL 自然过期
+     */
+    public NonceLockWatchdogConfig(boolean enabled, Duration interval, Duration maxHold) {
+        if (enabled && (interval == null || interval.isNegative() || interval.isZero())) {
+            throw new IllegalArgumentException("interval 必须大于0");
+        }
+        if (enabled && (maxHold == null || maxHold.compareTo(interval) <= 0)) {
+            throw new IllegalArgumentException("maxHold 必须大于 interval");
+        }
+        this.enabled = enabled;
+        this.interval = interval;
+        this.maxHold = maxHold;
+    }
+
+    public static NonceLockWatchdogConfig disabled() {
+        return new NonceLockWatchdogConfig(false, null, null);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public Duration getMaxHold() {
+        return maxHold;
+    }
+}
@@ -0,0 +1,66 @@
+package com.work.nonce.core.config;
+
+import java.time.Duration;
+
+/**
+ * 后台回收（reaper）配置：定时跨 submitter 批量回收过期的 RESERVED。
+ */
+public class NonceReaperConfig {
+
+    private final boolean enabled;
+    private final Duration interval;
+    private final int batchSize;
+    private final int partitions;
+    private final int maxBatchesPerRun;
+
+    /**
+     * @param enabled          是否开启后台回收
+     * @param interval         两轮回收之间的间隔
+     * @param batchSize        单个事务回收的最大条数
+     * @param partitions       按 hash(submitter) 切分的分区数，各分区并行回收
+     * @param maxBatchesPerRun 单个分区每轮最多执行的批次数，避免积压时长时间占用连接
+     */
+    public NonceReaperConfig(boolean enabled, Duration interval, int batchSize, int partitions, int maxBatchesPerRun) {
+        if (enabled && (interval == null || interval.isNegative() || interval.isZero())) {
+            throw new IllegalArgumentException("interval 必须大于0");
+        }
+        if (enabled && batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize 必须大于0");
+        }
+        if (enabled && partitions <= 0) {
+            throw new IllegalArgumentException("partitions 必须大于0");
+        }
+        if (enabled && maxBatchesPerRun <= 0) {
+            throw new IllegalArgumentException("maxBatchesPerRun 必须大于0");
+        }
+        this.enabled = enabled;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.partitions = partitions;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    public static NonceReaperConfig disabled() {
+        return new NonceReaperConfig(false, null, 0, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int getMaxBatchesPerRun() {
+        return maxBatchesPerRun;
+    }
+}
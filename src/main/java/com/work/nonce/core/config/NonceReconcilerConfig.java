@@ -0,0 +1,77 @@
+package com.work.nonce.core.config;
+
+import java.time.Duration;
+
+/**
+ * 链上对账（reconciler）配置：定时查询活跃 submitter 的链上 nonce，批量推进 last_chain_nonce。
+ */
+public class NonceReconcilerConfig {
+
+    private final boolean enabled;
+    private final Duration interval;
+    private final int pageSize;
+    private final int queryBatchSize;
+    private final int concurrency;
+    private final Duration queryTimeout;
+
+    /**
+     * @param enabled        是否开启链上对账
+     * @param interval       两轮对账之间的间隔
+     * @param pageSize       每页遍历的 submitter 数，一页的对账结果在一个事务内落库
+     * @param queryBatchSize 单次链上查询包含的 submitter 数（客户端支持批量查询时生效）
+     * @param concurrency    并发执行链上查询的线程数
+     * @param queryTimeout   一页链上查询的最长等待时间，超时的查询本轮放弃
+     */
+    public NonceReconcilerConfig(boolean enabled, Duration interval, int pageSize, int queryBatchSize,
+                                 int concurrency, Duration queryTimeout) {
+        if (enabled && (interval == null || interval.isNegative() || interval.isZero())) {
+            throw new IllegalArgumentException("interval 必须大于0");
+        }
+        if (enabled && pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize 必须大于0");
+        }
+        if (enabled && queryBatchSize <= 0) {
+            throw new IllegalArgumentException("queryBatchSize 必须大于0");
+        }
+        if (enabled && concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency 必须大于0");
+        }
+        if (enabled && (queryTimeout == null || queryTimeout.isNegative() || queryTimeout.isZero())) {
+            throw new IllegalArgumentException("queryTimeout 必须大于0");
+        }
+        this.enabled = enabled;
+        this.interval = interval;
+        this.pageSize = pageSize;
+        this.queryBatchSize = queryBatchSize;
+        this.concurrency = concurrency;
+        this.queryTimeout = queryTimeout;
+    }
+
+    public static NonceReconcilerConfig disabled() {
+        return new NonceReconcilerConfig(false, null, 0, 0, 0, null);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getQueryBatchSize() {
+        return queryBatchSize;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public Duration getQueryTimeout() {
+        return queryTimeout;
+    }
+}
@@ -0,0 +1,102 @@
+package com.work.nonce.core.config;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Redis 分配引擎配置：指定 submitter 的分配完全在 Redis 内完成，预留记录异步批量写入 Postgres。
+ */
+public class NonceRedisEngineConfig {
+
+    private final boolean enabled;
+    private final Set<String> submitters;
+    private final Duration reservedTimeout;
+    private final Duration flushInterval;
+    private final int batchSize;
+    private final int partitions;
+    private final int maxLoadedHoles;
+
+    /**
+     * @param enabled         是否开启 Redis 分配引擎
+     * @param submitters      由 Redis 引擎负责的 submitter，其余仍走数据库分配
+     * @param reservedTimeout Redis 内预留的超时时间，超时后回到空洞集合
+     * @param flushInterval   落库线程的轮询间隔
+     * @param batchSize       每次从待落库队列取出的最大事件数
+     * @param partitions      待落库队列分区数（按 hash(submitter)），同一分区同一时刻只有一个节点在落库
+     * @param maxLoadedHoles  从 Postgres 重建时最多加载的空洞 / 预留数
+     */
+    public NonceRedisEngineConfig(boolean enabled,
+                                  List<String> submitters,
+                                  Duration reservedTimeout,
+                                  Duration flushInterval,
+                                  int batchSize,
+                                  int partitions,
+                                  int maxLoadedHoles) {
+        if (enabled && (reservedTimeout == null || reservedTimeout.isNegative() || reservedTimeout.isZero())) {
+            throw new IllegalArgumentException("reservedTimeout 必须大于0");
+        }
+        if (enabled && (flushInterval == null || flushInterval.isNegative() || flushInterval.isZero())) {
+            throw new IllegalArgumentException("flushInterval 必须大于0");
+        }
+        if (enabled && batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize 必须大于0");
+        }
+        if (enabled && partitions <= 0) {
+            throw new IllegalArgumentException("partitions 必须大于0");
+        }
+        if (enabled && maxLoadedHoles <= 0) {
+            throw new IllegalArgumentException("maxLoadedHoles 必须大于0");
+        }
+        this.enabled = enabled;
+        this.submitters = submitters == null
+                ? Collections.<String>emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<>(submitters));
+        this.reservedTimeout = reservedTimeout;
+        this.flushInterval = flushInterval;
+        this.batchSize = batchSize;
+        this.partitions = partitions;
+        this.maxLoadedHoles = maxLoadedHoles;
+    }
+
+    public static NonceRedisEngineConfig disabled() {
+        return new NonceRedisEngineConfig(false, null, null, null, 0, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * submitter 是否由 Redis 引擎负责
+     */
+    public boolean isEngineSubmitter(String submitter) {
+        return enabled && submitters.contains(submitter);
+    }
+
+    public Set<String> getSubmitters() {
+        return submitters;
+    }
+
+    public Duration getReservedTimeout() {
+        return reservedTimeout;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int getMaxLoadedHoles() {
+        return maxLoadedHoles;
+    }
+}
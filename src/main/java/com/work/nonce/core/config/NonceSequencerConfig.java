@@ -0,0 +1,67 @@
+package com.work.nonce.core.config;
+
+import java.time.Duration;
+
+/**
+ * 单写者合并分配（sequencer）配置：同一 submitter 的并发分配请求排队后批量处理。
+ */
+public class NonceSequencerConfig {
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final int queueCapacity;
+    private final int workerThreads;
+    private final Duration requestTimeout;
+
+    /**
+     * @param enabled        是否开启合并分配
+     * @param maxBatchSize   单次事务最多合并的请求数
+     * @param queueCapacity  每个 submitter 的排队上限，队列满时请求直接走单次分配
+     * @param workerThreads  处理队列的工作线程数，即同时处理的 submitter 上限
+     * @param requestTimeout 调用方等待结果的最长时间
+     */
+    public NonceSequencerConfig(boolean enabled, int maxBatchSize, int queueCapacity,
+                                int workerThreads, Duration requestTimeout) {
+        if (enabled && maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize 必须大于0");
+        }
+        if (enabled && queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity 必须大于0");
+        }
+        if (enabled && workerThreads <= 0) {
+            throw new IllegalArgumentException("workerThreads 必须大于0");
+        }
+        if (enabled && (requestTimeout == null || requestTimeout.isNegative() || requestTimeout.isZero())) {
+            throw new IllegalArgumentException("requestTimeout 必须大于0");
+        }
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.queueCapacity = queueCapacity;
+        this.workerThreads = workerThreads;
+        this.requestTimeout = requestTimeout;
+    }
+
+    public static NonceSequencerConfig disabled() {
+        return new NonceSequencerConfig(false, 0, 0, 0, null);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+}
@@ -0,0 +1,270 @@
+package com.work.nonce.core.confirm;
+
+import com.work.nonce.core.config.NonceConfirmationConfig;
+import com.work.nonce.core.exception.NonceException;
+import com.work.nonce.core.model.NonceStatusUpdate;
+import com.work.nonce.core.service.NonceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 异步确认队列（write-behind）：模板把 USED / RECYCLABLE 状态转换放入队列后立即返回，
+ * 由单个后台线程每隔 flushInterval 或积压达到 batchSize 时，跨 submitter 合并为批量 UPDATE 落库。
+ * <p>
+ * 注意：
+ * 1. USED 入队前先同步把 txHash 写到 RESERVED 记录上：刷盘前进程崩溃时该记录仍为 RESERVED，
+ *    但所有回收路径都会跳过带 txHash 的 RESERVED，不会把已广播的 nonce 再次发放，由重启后的链上对账或区块回执确认
+ * 2. 批量语句只转换仍为 RESERVED 的记录，其余（已 USED / 已回收）计入 skipped，不再抛给调用方
+ * 3. 队列满时退化为同步落库，保证不丢失状态转换
+ * 4. 队列深度、刷盘耗时等指标通过 getter 暴露，便于容量评估
+ * 5. shutdown 之后提交的状态转换直接同步落库
+ */
+public class NonceConfirmationQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(NonceConfirmationQueue.class);
+
+    private final NonceService nonceService;
+    private final NonceConfirmationConfig config;
+    private final BlockingQueue<NonceStatusUpdate> queue;
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private volatile boolean closed;
+
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder appliedCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder syncFallbackCount = new LongAdder();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    public NonceConfirmationQueue(NonceService nonceService, NonceConfirmationConfig config) {
+        this.nonceService = requireNonNull(nonceService, "nonceService");
+        this.config = requireNonNull(config, "config");
+        if (!config.isEnabled()) {
+            this.queue = null;
+            this.flusher = null;
+            return;
+        }
+
+        this.queue = new LinkedBlockingQueue<>(config.getQueueCapacity());
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nonce-confirmation-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = config.getFlushInterval().toNanos();
+        this.flusher.scheduleWithFixedDelay(this::flushSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 提交 USED 转换；未开启异步确认时同步落库。
+     * 开启时先同步把 txHash 写到 RESERVED 记录上，作为刷盘前崩溃的持久化兜底，再入队批量转换为 USED
+     */
+    public void markUsed(String submitter, long nonce, String txHash) {
+        if (!isEnabled()) {
+            nonceService.markUsed(submitter, nonce, txHash);
+            return;
+        }
+        boolean attached;
+        try {
+            attached = nonceService.attachTxHash(submitter, nonce, txHash);
+        } catch (NonceException e) {
+            throw e;
+        } catch (Exception e) {
+            // 以 NonceException 抛出：调用方不得因此回收已广播的 nonce
+            throw new NonceException("写入 txHash 失败: " + submitter + "#" + nonce, e);
+        }
+        if (!attached) {
+            // 记录已不是 RESERVED，或由 Redis 引擎负责：同步处理，幂等与异常语义与未开启时一致
+            nonceService.markUsed(submitter, nonce, txHash);
+            return;
+        }
+        enqueue(NonceStatusUpdate.used(submitter, nonce, txHash));
+    }
+
+    /**
+     * 提交 RECYCLABLE 转换；未开启异步确认时同步落库。
+     */
+    public void markRecyclable(String submitter, long nonce, String reason) {
+        if (!isEnabled()) {
+            nonceService.markRecyclable(submitter, nonce, reason);
+            return;
+        }
+        enqueue(NonceStatusUpdate.recyclable(submitter, nonce, reason));
+    }
+
+    private void enqueue(NonceStatusUpdate update) {
+        submittedCount.increment();
+        if (closed) {
+            // 已关闭：刷盘线程已停止，直接同步落库
+            syncFallbackCount.increment();
+            applySynchronously(update);
+            return;
+        }
+        if (!queue.offer(update)) {
+            // 队列已满：退化为同步落库，相当于对调用方施加背压
+            syncFallbackCount.increment();
+            applySynchronously(update);
+            return;
+        }
+        // 积压达到一批，立即触发刷盘，不必等待下一个周期
+        if (queue.size() >= config.getBatchSize() && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushSafely);
+            } catch (RejectedExecutionException e) {
+                // 与 shutdown 并发：刷盘线程已停止，由当前线程刷盘
+                flushSafely();
+            }
+        }
+        if (closed) {
+            // 入队与 shutdown 的最终刷盘并发时，确保本条不会滞留在队列中
+            flushSafely();
+        }
+    }
+
+    /**
+     * 把队列中已有的状态转换全部刷盘，每批最多 batchSize 条。
+     */
+    public synchronized void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+        flushRequested.set(false);
+        List<NonceStatusUpdate> batch = new ArrayList<>(config.getBatchSize());
+        while (queue.drainTo(batch, config.getBatchSize()) > 0) {
+            flushBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("异步确认刷盘异常", e);
+        }
+    }
+
+    private void flushBatch(List<NonceStatusUpdate> batch) {
+        long start = System.nanoTime();
+        try {
+            int applied = nonceService.applyStatusUpdates(batch);
+            appliedCount.add(applied);
+            skippedCount.add(batch.size() - applied);
+        } catch (Exception e) {
+            // 批量失败时逐条落库，避免单条异常数据拖累整批
+            log.warn("批量确认失败，退化为逐条落库, size={}", batch.size(), e);
+            for (NonceStatusUpdate update : batch) {
+                applySynchronously(update);
+            }
+        } finally {
+            recordFlushLatency(System.nanoTime() - start);
+        }
+    }
+
+    private void applySynchronously(NonceStatusUpdate update) {
+        try {
+            switch (update.getTargetStatus()) {
+                case USED:
+                    nonceService.markUsed(update.getSubmitter(), update.getNonce(), update.getTxHash());
+                    break;
+                case RECYCLABLE:
+                    nonceService.markRecyclable(update.getSubmitter(), update.getNonce(), update.getReason());
+                    break;
+                default:
+                    throw new IllegalStateException("不支持的目标状态: " + update.getTargetStatus());
+            }
+            appliedCount.increment();
+        } catch (Exception e) {
+            // RESERVED 记录仍在库中，交由链上对账 / 超时回收兜底
+            failedCount.increment();
+            log.warn("确认落库失败: {}", update, e);
+        }
+    }
+
+    private void recordFlushLatency(long nanos) {
+        flushCount.incrementAndGet();
+        totalFlushNanos.addAndGet(nanos);
+        lastFlushNanos.set(nanos);
+        maxFlushNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * 停止后台线程并把剩余的状态转换刷盘，供应用关闭时调用。
+     */
+    public void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(config.getFlushInterval().toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+    }
+
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    public long getAppliedCount() {
+        return appliedCount.sum();
+    }
+
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getSyncFallbackCount() {
+        return syncFallbackCount.sum();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public double getLastFlushLatencyMillis() {
+        return lastFlushNanos.get() / 1_000_000.0;
+    }
+
+    public double getMaxFlushLatencyMillis() {
+        return maxFlushNanos.get() / 1_000_000.0;
+    }
+
+    public double getAvgFlushLatencyMillis() {
+        long count = flushCount.get();
+        return count == 0 ? 0 : totalFlushNanos.get() / 1_000_000.0 / count;
+    }
+}
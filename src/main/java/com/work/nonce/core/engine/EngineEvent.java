@@ -0,0 +1,49 @@
+package com.work.nonce.core.engine;
+
+/**
+ * Redis 引擎写入待落库队列的事件，编码为 {@code 类型|nonce|submitter|附加信息}：
+ * R（预留，附加信息为 lockedUntil 毫秒）、U（已使用，附加 txHash）、C（回收，附加原因）。
+ * submitter 不能包含 '|'，附加信息可以包含任意字符。
+ */
+final class EngineEvent {
+
+    static final char RESERVED = 'R';
+    static final char USED = 'U';
+    static final char RECYCLABLE = 'C';
+
+    private final char type;
+    private final long nonce;
+    private final String submitter;
+    private final String payload;
+
+    private EngineEvent(char type, long nonce, String submitter, String payload) {
+        this.type = type;
+        this.nonce = nonce;
+        this.submitter = submitter;
+        this.payload = payload;
+    }
+
+    static EngineEvent parse(String encoded) {
+        String[] parts = encoded.split("\\|", 4);
+        if (parts.length != 4 || parts[0].length() != 1) {
+            throw new IllegalArgumentException("无效的引擎事件: " + encoded);
+        }
+        return new EngineEvent(parts[0].charAt(0), Long.parseLong(parts[1]), parts[2], parts[3]);
+    }
+
+    char getType() {
+        return type;
+    }
+
+    long getNonce() {
+        return nonce;
+    }
+
+    String getSubmitter() {
+        return submitter;
+    }
+
+    String getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,432 @@
+package com.work.nonce.core.engine;
+
+import com.work.nonce.core.config.NonceRedisEngineConfig;
+import com.work.nonce.core.exception.NonceException;
+import com.work.nonce.core.model.LockOwner;
+import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.model.SubmitterNonceState;
+import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.support.HashUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+import static com.work.nonce.core.support.ValidationUtils.requirePositive;
+
+/**
+ * Redis 分配引擎：为配置中的 submitter 在 Redis 内完成分配，不访问数据库。
+ * <p>
+ * 每个 submitter 三个键：
+ * 1. nonce:state:{submitter}   Hash，next 字段为下一个新号
+ * 2. nonce:holes:{submitter}   ZSet，可复用的空洞（score = nonce）
+ * 3. nonce:resv:{submitter}    ZSet，尚未确认的预留（score = 到期毫秒）
+ * <p>
+ * 一次分配为单个 Lua 脚本：回收到期预留 → 弹出最小空洞或对 next 自增 → 记录预留 →
+ * 向 hash(submitter) 对应分区的待落库队列追加事件，由 {@link RedisNoncePersister} 批量写入 Postgres。
+ * <p>
+ * 注意：
+ * 1. state 键不存在（首次使用、Redis 数据丢失）时从 Postgres 经 {@link NonceRepository} 重建，
+ *    重建只在键不存在时生效，不会覆盖其他节点已写入的状态
+ * 2. Redis 整体丢失时，尚未落库的事件随之丢失，重建后可能重发这部分 nonce，需由链上对账兜底；
+ *    Redis 应关闭淘汰（maxmemory-policy noeviction）并开启持久化
+ * 3. Redis 不可用时直接抛出异常，不回退到数据库分配（数据库中的 next_local_nonce 可能落后于 Redis）
+ */
+public class RedisNonceEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisNonceEngine.class);
+
+    private static final String STATE_KEY_PREFIX = "nonce:state:";
+    private static final String HOLES_KEY_PREFIX = "nonce:holes:";
+    private static final String RESERVATIONS_KEY_PREFIX = "nonce:resv:";
+    private static final String PENDING_KEY_PREFIX = "nonce:engine:pending:";
+    private static final String INFLIGHT_KEY_PREFIX = "nonce:engine:inflight:";
+    private static final String PARTITION_LEASE_KEY_PREFIX = "nonce:engine:lease:";
+
+    private static final int MAX_EXPIRED_PER_CALL = 16;
+    private static final String EXPIRED_REASON = "Redis 引擎预留超时";
+
+    // 返回 {-1} 表示 state 键不存在，需要重建
+    private static final String ALLOCATE_SCRIPT =
+            "if redis.call('exists', KEYS[1]) == 0 then return {-1} end " +
+            "local expired = redis.call('zrangebyscore', KEYS[3], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[5])) " +
+            "for _, n in ipairs(expired) do " +
+            "    redis.call('zrem', KEYS[3], n) " +
+            "    redis.call('zadd', KEYS[2], n, n) " +
+            "    redis.call('rpush', KEYS[4], 'C|' .. n .. '|' .. ARGV[3] .. '|' .. ARGV[6]) " +
+            "end " +
+            "local result = {} " +
+            "for i = 1, tonumber(ARGV[4]) do " +
+            "    local nonce " +
+            "    local hole = redis.call('zpopmin', KEYS[2]) " +
+            "    if hole[1] then " +
+            "        nonce = hole[1] " +
+            "    else " +
+            "        nonce = string.format('%d', redis.call('hincrby', KEYS[1], 'next', 1) - 1) " +
+            "    end " +
+            "    redis.call('zadd', KEYS[3], ARGV[2], nonce) " +
+            "    redis.call('rpush', KEYS[4], 'R|' .. nonce .. '|' .. ARGV[3] .. '|' .. ARGV[2]) " +
+            "    result[i] = tonumber(nonce) " +
+            "end " +
+            "return result";
+
+    private static final String MARK_USED_SCRIPT =
+            "redis.call('zrem', KEYS[1], ARGV[1]) " +
+            "redis.call('rpush', KEYS[2], 'U|' .. ARGV[1] .. '|' .. ARGV[2] .. '|' .. ARGV[3]) " +
+            "return 1";
+
+    // 仅当 nonce 仍处于预留中才放回空洞，避免已超时回收（甚至已重发）的 nonce 被重复放入
+    private static final String MARK_RECYCLABLE_SCRIPT =
+            "local removed = redis.call('zrem', KEYS[1], ARGV[1]) " +
+            "if removed == 1 then redis.call('zadd', KEYS[2], ARGV[1], ARGV[1]) end " +
+            "redis.call('rpush', KEYS[3], 'C|' .. ARGV[1] .. '|' .. ARGV[2] .. '|' .. ARGV[3]) " +
+            "return removed";
+
+    // ARGV: next, 空洞数 h, h 个空洞, 之后为 (nonce, 到期毫秒) 对
+    private static final String REBUILD_SCRIPT =
+            "if redis.call('exists', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('del', KEYS[2], KEYS[3]) " +
+            "local h = tonumber(ARGV[2]) " +
+            "for i = 3, 2 + h do redis.call('zadd', KEYS[2], ARGV[i], ARGV[i]) end " +
+            "for i = 3 + h, #ARGV, 2 do redis.call('zadd', KEYS[3], ARGV[i + 1], ARGV[i]) end " +
+            "redis.call('hset', KEYS[1], 'next', ARGV[1]) " +
+            "return 1";
+
+    // 仍持有租约 KEYS[3] 时，原子地把至多 ARGV[1] 个事件从待落库队列移到 inflight 队列并续期租约；
+    // 租约已丢失返回 nil
+    private static final String DRAIN_SCRIPT =
+            "if redis.call('get', KEYS[3]) ~= ARGV[2] then return false end " +
+            "redis.call('pexpire', KEYS[3], ARGV[3]) " +
+            "local items = redis.call('lrange', KEYS[1], 0, tonumber(ARGV[1]) - 1) " +
+            "if #items > 0 then " +
+            "    redis.call('ltrim', KEYS[1], #items, -1) " +
+            "    redis.call('rpush', KEYS[2], unpack(items)) " +
+            "end " +
+            "return items";
+
+    // 仍持有租约 KEYS[1] 时清空 inflight 队列 KEYS[2] 并续期租约，否则不做任何修改
+    private static final String ACK_INFLIGHT_SCRIPT =
+            "if redis.call('get', KEYS[1]) ~= ARGV[1] then return 0 end " +
+            "redis.call('del', KEYS[2]) " +
+            "redis.call('pexpire', KEYS[1], ARGV[2]) " +
+            "return 1";
+
+    private static final String RELEASE_LEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('del', KEYS[1]) " +
+            "else " +
+            "    return 0 " +
+            "end";
+
+    private final NonceRedisEngineConfig config;
+    private final StringRedisTemplate redisTemplate;
+    private final NonceRepository nonceRepository;
+    private final String leaseToken = UUID.randomUUID().toString();
+
+    private final DefaultRedisScript<List> allocateScript = new DefaultRedisScript<>(ALLOCATE_SCRIPT, List.class);
+    private final DefaultRedisScript<Long> markUsedScript = new DefaultRedisScript<>(MARK_USED_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> markRecyclableScript = new DefaultRedisScript<>(MARK_RECYCLABLE_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> rebuildScript = new DefaultRedisScript<>(REBUILD_SCRIPT, Long.class);
+    private final DefaultRedisScript<List> drainScript = new DefaultRedisScript<>(DRAIN_SCRIPT, List.class);
+    private final DefaultRedisScript<Long> releaseLeaseScript = new DefaultRedisScript<>(RELEASE_LEASE_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> ackInflightScript = new DefaultRedisScript<>(ACK_INFLIGHT_SCRIPT, Long.class);
+
+    private final LongAdder allocatedCount = new LongAdder();
+    private final LongAdder rebuildCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+
+    public RedisNonceEngine(NonceRedisEngineConfig config,
+                            StringRedisTemplate redisTemplate,
+                            NonceRepository nonceRepository) {
+        this.config = requireNonNull(config, "config");
+        if (!config.isEnabled()) {
+            this.redisTemplate = null;
+            this.nonceRepository = null;
+            return;
+        }
+        this.redisTemplate = requireNonNull(redisTemplate, "redisTemplate");
+        this.nonceRepository = requireNonNull(nonceRepository, "nonceRepository");
+        for (String submitter : config.getSubmitters()) {
+            if (submitter.indexOf('|') >= 0) {
+                throw new IllegalArgumentException("Redis 引擎的 submitter 不能包含 '|': " + submitter);
+            }
+        }
+        // 启动时为缺失状态的 submitter 从 Postgres 重建（已存在的状态保持不变）
+        for (String submitter : config.getSubmitters()) {
+            try {
+                rebuild(submitter);
+            } catch (Exception e) {
+                log.warn("Redis 引擎启动重建失败，首次分配时重试, submitter={}", submitter, e);
+            }
+        }
+    }
+
+    /**
+     * 未开启 Redis 引擎时使用，所有 submitter 均走数据库分配
+     */
+    public static RedisNonceEngine disabled() {
+        return new RedisNonceEngine(NonceRedisEngineConfig.disabled(), null, null);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * submitter 是否由 Redis 引擎负责
+     */
+    public boolean handles(String submitter) {
+        return config.isEngineSubmitter(submitter);
+    }
+
+    public NonceAllocation allocate(String submitter) {
+        return allocateBatch(submitter, 1).get(0);
+    }
+
+    /**
+     * 单个 Lua 脚本内分配 count 个 nonce（空洞优先，按 nonce 升序返回）
+     */
+    public List<NonceAllocation> allocateBatch(String submitter, int count) {
+        requireNonEmpty(submitter, "submitter");
+        requirePositive(count, "count");
+
+        String lockOwner = LockOwner.ENGINE.toString();
+        List<Long> nonces = executeAllocate(submitter, count);
+        if (nonces.size() == 1 && nonces.get(0) < 0) {
+            // 状态缺失（首次使用或 Redis 数据丢失）：从 Postgres 重建后重试一次
+            rebuild(submitter);
+            nonces = executeAllocate(submitter, count);
+            if (nonces.size() == 1 && nonces.get(0) < 0) {
+                failedCount.increment();
+                throw new NonceException("Redis 引擎状态重建失败: " + submitter);
+            }
+        }
+
+        Instant lockedUntil = Instant.now().plus(config.getReservedTimeout());
+        List<NonceAllocation> result = new ArrayList<>(nonces.size());
+        for (Long nonce : nonces) {
+            result.add(NonceAllocation.pending(submitter, nonce, lockOwner, lockedUntil));
+        }
+        result.sort((a, b) -> Long.compare(a.getNonce(), b.getNonce()));
+        allocatedCount.add(result.size());
+        return result;
+    }
+
+    private List<Long> executeAllocate(String submitter, int count) {
+        long now = System.currentTimeMillis();
+        long lockedUntil = now + config.getReservedTimeout().toMillis();
+        List<?> raw;
+        try {
+            raw = redisTemplate.execute(allocateScript,
+                    Arrays.asList(stateKey(submitter), holesKey(submitter), reservationsKey(submitter),
+                            pendingKey(partitionOf(submitter))),
+                    String.valueOf(now),
+                    String.valueOf(lockedUntil),
+                    submitter,
+                    String.valueOf(count),
+                    String.valueOf(MAX_EXPIRED_PER_CALL),
+                    EXPIRED_REASON);
+        } catch (Exception e) {
+            failedCount.increment();
+            throw new NonceException("Redis 引擎分配异常: " + submitter, e);
+        }
+        if (raw == null || raw.isEmpty()) {
+            failedCount.increment();
+            throw new NonceException("Redis 引擎分配无结果: " + submitter);
+        }
+        List<Long> nonces = new ArrayList<>(raw.size());
+        for (Object value : raw) {
+            nonces.add(((Number) value).longValue());
+        }
+        return nonces;
+    }
+
+    /**
+     * 记录 USED：从预留集合移除，并追加落库事件
+     */
+    public void markUsed(String submitter, long nonce, String txHash) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(txHash, "txHash");
+        try {
+            redisTemplate.execute(markUsedScript,
+                    Arrays.asList(reservationsKey(submitter), pendingKey(partitionOf(submitter))),
+                    String.valueOf(nonce), submitter, txHash);
+        } catch (Exception e) {
+            throw new NonceException("Redis 引擎标记 USED 异常: " + submitter + "#" + nonce, e);
+        }
+    }
+
+    /**
+     * 记录 RECYCLABLE：仍在预留中的 nonce 放回空洞集合，并追加落库事件
+     */
+    public void markRecyclable(String submitter, long nonce, String reason) {
+        requireNonEmpty(submitter, "submitter");
+        try {
+            redisTemplate.execute(markRecyclableScript,
+                    Arrays.asList(reservationsKey(submitter), holesKey(submitter), pendingKey(partitionOf(submitter))),
+                    String.valueOf(nonce), submitter, reason != null ? reason : "");
+        } catch (Exception e) {
+            throw new NonceException("Redis 引擎回收异常: " + submitter + "#" + nonce, e);
+        }
+    }
+
+    /**
+     * 从 Postgres 重建 submitter 的 Redis 状态：next_local_nonce、最小的若干空洞与 RESERVED 预留。
+     * 仅当 state 键不存在时写入，返回是否实际重建
+     */
+    public boolean rebuild(String submitter) {
+        requireNonEmpty(submitter, "submitter");
+
+        Optional<SubmitterNonceState> state = nonceRepository.loadState(submitter);
+        long next = state.isPresent() ? state.get().getNextLocalNonce() : 0L;
+        List<NonceAllocation> holes = nonceRepository.findLowestRecyclable(submitter, config.getMaxLoadedHoles());
+        List<NonceAllocation> reserved = nonceRepository.findReserved(submitter, config.getMaxLoadedHoles());
+        if (holes.size() == config.getMaxLoadedHoles() || reserved.size() == config.getMaxLoadedHoles()) {
+            log.warn("Redis 引擎重建时空洞或预留数达到上限 {}，超出部分不会被 Redis 引擎复用, submitter={}",
+                    config.getMaxLoadedHoles(), submitter);
+        }
+
+        List<String> args = new ArrayList<>(2 + holes.size() + reserved.size() * 2);
+        args.add(String.valueOf(next));
+        args.add(String.valueOf(holes.size()));
+        for (NonceAllocation hole : holes) {
+            args.add(String.valueOf(hole.getNonce()));
+        }
+        long defaultUntil = System.currentTimeMillis() + config.getReservedTimeout().toMillis();
+        for (NonceAllocation allocation : reserved) {
+            args.add(String.valueOf(allocation.getNonce()));
+            args.add(String.valueOf(allocation.getLockedUntil() != null
+                    ? allocation.getLockedUntil().toEpochMilli() : defaultUntil));
+        }
+
+        Long rebuilt;
+        try {
+            rebuilt = redisTemplate.execute(rebuildScript,
+                    Arrays.asList(stateKey(submitter), holesKey(submitter), reservationsKey(submitter)),
+                    args.toArray());
+        } catch (Exception e) {
+            throw new NonceException("Redis 引擎重建异常: " + submitter, e);
+        }
+        if (rebuilt != null && rebuilt == 1) {
+            rebuildCount.increment();
+            log.info("Redis 引擎从 Postgres 重建状态, submitter={}, next={}, holes={}, reserved={}",
+                    submitter, next, holes.size(), reserved.size());
+            return true;
+        }
+        return false;
+    }
+
+    // ---------------- 待落库队列（供 RedisNoncePersister 使用） ----------------
+
+    int partitionOf(String submitter) {
+        return (int) Long.remainderUnsigned(HashUtils.fnv1a64(submitter), config.getPartitions());
+    }
+
+    /**
+     * 获取分区落库租约，同一分区同一时刻只有一个节点在落库，保证事件按写入顺序落库
+     */
+    boolean tryAcquirePartition(int partition, Duration leaseTtl) {
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(leaseKey(partition), leaseToken, leaseTtl);
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    void releasePartition(int partition) {
+        redisTemplate.execute(releaseLeaseScript,
+                Collections.singletonList(leaseKey(partition)), leaseToken);
+    }
+
+    /**
+     * 上一个租约持有者未确认的事件（崩溃遗留），需先于新事件重新落库
+     */
+    List<EngineEvent> loadInflight(int partition) {
+        List<String> items = redisTemplate.opsForList().range(INFLIGHT_KEY_PREFIX + partition, 0, -1);
+        return parse(items);
+    }
+
+    /**
+     * 原子地取出至多 limit 个待落库事件，同时放入 inflight 队列直到 {@link #ackInflight}，并续期分区租约。
+     * 租约已丢失时不移动任何事件，返回 null
+     */
+    @SuppressWarnings("unchecked")
+    List<EngineEvent> drain(int partition, int limit, Duration leaseTtl) {
+        List<String> items = redisTemplate.execute(drainScript,
+                Arrays.asList(PENDING_KEY_PREFIX + partition, INFLIGHT_KEY_PREFIX + partition, leaseKey(partition)),
+                String.valueOf(limit), leaseToken, String.valueOf(leaseTtl.toMillis()));
+        return items == null ? null : parse(items);
+    }
+
+    /**
+     * 仅在仍持有分区租约时清空 inflight 队列并续期租约；返回 false 说明租约已丢失，
+     * inflight 可能已属于新的持有者，保持原样由其重放
+     */
+    boolean ackInflight(int partition, Duration leaseTtl) {
+        Long acked = redisTemplate.execute(ackInflightScript,
+                Arrays.asList(leaseKey(partition), INFLIGHT_KEY_PREFIX + partition),
+                leaseToken, String.valueOf(leaseTtl.toMillis()));
+        return acked != null && acked == 1L;
+    }
+
+    long pendingDepth() {
+        long depth = 0;
+        for (int partition = 0; partition < config.getPartitions(); partition++) {
+            Long size = redisTemplate.opsForList().size(PENDING_KEY_PREFIX + partition);
+            depth += size != null ? size : 0;
+        }
+        return depth;
+    }
+
+    private static List<EngineEvent> parse(List<String> items) {
+        if (items == null || items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<EngineEvent> events = new ArrayList<>(items.size());
+        for (String item : items) {
+            events.add(EngineEvent.parse(item));
+        }
+        return events;
+    }
+
+    private static String stateKey(String submitter) {
+        return STATE_KEY_PREFIX + submitter;
+    }
+
+    private static String holesKey(String submitter) {
+        return HOLES_KEY_PREFIX + submitter;
+    }
+
+    private static String reservationsKey(String submitter) {
+        return RESERVATIONS_KEY_PREFIX + submitter;
+    }
+
+    private static String leaseKey(int partition) {
+        return PARTITION_LEASE_KEY_PREFIX + partition;
+    }
+
+    private static String pendingKey(int partition) {
+        return PENDING_KEY_PREFIX + partition;
+    }
+
+    public long getAllocatedCount() {
+        return allocatedCount.sum();
+    }
+
+    public long getRebuildCount() {
+        return rebuildCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+}
@@ -0,0 +1,224 @@
+package com.work.nonce.core.engine;
+
+import com.work.nonce.core.config.NonceRedisEngineConfig;
+import com.work.nonce.core.model.NonceStatusUpdate;
+import com.work.nonce.core.service.NonceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * Redis 引擎的 write-behind 落库线程：按分区把待落库事件批量写入 Postgres。
+ * <p>
+ * 每轮对每个分区：
+ * 1. 获取分区租约（Redis SET NX），拿不到说明其他节点正在落库该分区，跳过
+ * 2. 先重放 inflight 队列（上一个持有者崩溃遗留），再反复取出新事件直到队列为空或达到单轮上限
+ * 3. 事件按写入顺序处理：连续的 R 事件按 submitter 合并为一次多行 upsert，
+ *    连续的 U / C 事件合并为一次批量状态转换；全部成功后才确认（清空 inflight）
+ * 4. 每次取出事件和确认都在 Lua 中校验租约 token 并续期租约；校验失败说明租约已过期并被其他节点取得，
+ *    此时不清空 inflight（已属于新的持有者），立即停止落库该分区
+ * <p>
+ * 注意：重放是幂等的（upsert 不覆盖 USED，状态转换只作用于 RESERVED），失败时保留 inflight 等待下一轮重试；
+ * 租约过期后新旧持有者可能短暂地重复落库同一批事件，同样依赖幂等性保证正确
+ */
+public class RedisNoncePersister {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisNoncePersister.class);
+
+    private static final Duration PARTITION_LEASE_TTL = Duration.ofSeconds(30);
+    private static final int MAX_BATCHES_PER_PARTITION = 20;
+
+    private final NonceService nonceService;
+    private final RedisNonceEngine engine;
+    private final NonceRedisEngineConfig config;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder persistedReservations = new LongAdder();
+    private final LongAdder persistedUpdates = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder lostLeases = new LongAdder();
+    private final AtomicLong lastRunNanos = new AtomicLong();
+
+    public RedisNoncePersister(NonceService nonceService, RedisNonceEngine engine, NonceRedisEngineConfig config) {
+        this.nonceService = requireNonNull(nonceService, "nonceService");
+        this.engine = requireNonNull(engine, "engine");
+        this.config = requireNonNull(config, "config");
+        if (!config.isEnabled()) {
+            this.scheduler = null;
+            return;
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nonce-redis-engine-persister");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = config.getFlushInterval().toNanos();
+        this.scheduler.scheduleWithFixedDelay(this::runSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 执行一轮落库，通常由后台线程调用
+     */
+    public void runOnce() {
+        if (!isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        for (int partition = 0; partition < config.getPartitions(); partition++) {
+            if (!engine.tryAcquirePartition(partition, PARTITION_LEASE_TTL)) {
+                continue;
+            }
+            try {
+                persistPartition(partition);
+            } finally {
+                engine.releasePartition(partition);
+            }
+        }
+        lastRunNanos.set(System.nanoTime() - start);
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (Exception e) {
+            log.error("Redis 引擎落库异常", e);
+        }
+    }
+
+    private void persistPartition(int partition) {
+        List<EngineEvent> inflight = engine.loadInflight(partition);
+        if (!inflight.isEmpty() && !persistAndAck(partition, inflight)) {
+            return;
+        }
+        for (int batch = 0; batch < MAX_BATCHES_PER_PARTITION; batch++) {
+            List<EngineEvent> events = engine.drain(partition, config.getBatchSize(), PARTITION_LEASE_TTL);
+            if (events == null) {
+                leaseLost(partition);
+                return;
+            }
+            if (events.isEmpty() || !persistAndAck(partition, events)) {
+                return;
+            }
+        }
+    }
+
+    private boolean persistAndAck(int partition, List<EngineEvent> events) {
+        try {
+            persist(events);
+            if (!engine.ackInflight(partition, PARTITION_LEASE_TTL)) {
+                leaseLost(partition);
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            failedBatches.increment();
+            log.warn("Redis 引擎事件落库失败，保留 inflight 等待重试, partition={}, size={}", partition, events.size(), e);
+            return false;
+        }
+    }
+
+    private void leaseLost(int partition) {
+        lostLeases.increment();
+        log.warn("Redis 引擎分区租约已丢失，停止落库该分区, partition={}", partition);
+    }
+
+    /**
+     * 按顺序把事件切分为同类的连续片段，每个片段一次批量落库
+     */
+    private void persist(List<EngineEvent> events) {
+        int from = 0;
+        while (from < events.size()) {
+            boolean reservation = events.get(from).getType() == EngineEvent.RESERVED;
+            int to = from;
+            while (to < events.size() && (events.get(to).getType() == EngineEvent.RESERVED) == reservation) {
+                to++;
+            }
+            List<EngineEvent> run = events.subList(from, to);
+            if (reservation) {
+                persistReservations(run);
+            } else {
+                persistStatusUpdates(run);
+            }
+            from = to;
+        }
+    }
+
+    private void persistReservations(List<EngineEvent> run) {
+        Map<String, List<Long>> bySubmitter = new LinkedHashMap<>();
+        for (EngineEvent event : run) {
+            bySubmitter.computeIfAbsent(event.getSubmitter(), k -> new ArrayList<>()).add(event.getNonce());
+        }
+        for (Map.Entry<String, List<Long>> entry : bySubmitter.entrySet()) {
+            persistedReservations.add(nonceService.persistEngineReservations(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private void persistStatusUpdates(List<EngineEvent> run) {
+        List<NonceStatusUpdate> updates = new ArrayList<>(run.size());
+        for (EngineEvent event : run) {
+            if (event.getType() == EngineEvent.USED) {
+                updates.add(NonceStatusUpdate.used(event.getSubmitter(), event.getNonce(), event.getPayload()));
+            } else {
+                updates.add(NonceStatusUpdate.recyclable(event.getSubmitter(), event.getNonce(), event.getPayload()));
+            }
+        }
+        persistedUpdates.add(nonceService.persistEngineStatusUpdates(updates));
+    }
+
+    /**
+     * 停止后台线程并执行最后一轮落库，供应用关闭时调用
+     */
+    public void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(config.getFlushInterval().toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        runSafely();
+    }
+
+    public long getPendingDepth() {
+        return isEnabled() ? engine.pendingDepth() : 0;
+    }
+
+    public long getPersistedReservations() {
+        return persistedReservations.sum();
+    }
+
+    public long getPersistedUpdates() {
+        return persistedUpdates.sum();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    public long getLostLeases() {
+        return lostLeases.sum();
+    }
+
+    public double getLastRunLatencyMillis() {
+        return lastRunNanos.get() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.work.nonce.core.exception;
+
+/**
+ * 请求落到了非 owner 节点，或本节点的 owner 身份已被更新的 epoch 取代（fenced）。
+ * 携带 owner 提示，调用方可据此转发到 owner 节点重试。
+ */
+public class NonceOwnershipException extends NonceException {
+
+    private final String submitter;
+    private final String ownerNodeId;
+    private final String ownerEndpoint;
+    private final long epoch;
+
+    public NonceOwnershipException(String message, String submitter, String ownerNodeId,
+                                   String ownerEndpoint, long epoch) {
+        super(message);
+        this.submitter = submitter;
+        this.ownerNodeId = ownerNodeId;
+        this.ownerEndpoint = ownerEndpoint;
+        this.epoch = epoch;
+    }
+
+    public String getSubmitter() {
+        return submitter;
+    }
+
+    /**
+     * owner 节点标识，fenced 且本节点尚未感知新 owner 时可能为 null
+     */
+    public String getOwnerNodeId() {
+        return ownerNodeId;
+    }
+
+    public String getOwnerEndpoint() {
+        return ownerEndpoint;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+}
@@ -1,11 +1,17 @@
 package com.work.nonce.core.execution;
 
+import com.work.nonce.core.confirm.NonceConfirmationQueue;
 import com.work.nonce.core.exception.NonceException;
 import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.service.NonceAllocator;
 import com.work.nonce.core.service.NonceService;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
 import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+import static com.work.nonce.core.support.ValidationUtils.requirePositive;
 
 /**
  * 模板负责串联"获取 nonce → 执行业务 handler → 根据结果更新状态"的流程。
@@ -17,10 +23,28 @@ import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
  */
 public class NonceExecutionTemplate {
 
+    private final NonceAllocator nonceAllocator;
     private final NonceService nonceService;
+    private final NonceConfirmationQueue confirmationQueue;
 
-    public NonceExecutionTemplate(NonceService nonceService) {
+    /**
+     * @param nonceAllocator    分配入口（如租约分配器），状态流转仍由 nonceService 负责
+     * @param nonceService      领域服务
+     * @param confirmationQueue 异步确认队列，为 null 或未开启时同步落库
+     */
+    public NonceExecutionTemplate(NonceAllocator nonceAllocator,
+                                  NonceService nonceService,
+                                  NonceConfirmationQueue confirmationQueue) {
+        this.nonceAllocator = requireNonNull(nonceAllocator, "nonceAllocator");
         this.nonceService = requireNonNull(nonceService, "nonceService");
+        this.confirmationQueue = confirmationQueue;
+    }
+
+    /**
+     * 手工装配时使用：未设置分配入口时直接由 nonceService 分配，未设置确认队列时同步落库
+     */
+    public static Builder builder(NonceService nonceService) {
+        return new Builder(nonceService);
     }
 
     /**
@@ -41,10 +65,65 @@ public class NonceExecutionTemplate {
         requireNonEmpty(submitter, "submitter");
         requireNonNull(handler, "handler");
 
-        NonceAllocation allocation = null;
+        NonceAllocation allocation;
         try {
             // 分配nonce
-            allocation = nonceService.allocate(submitter);
+            allocation = nonceAllocator.allocate(submitter);
+        } catch (NonceException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new NonceException("nonce 分配失败: " + submitter, ex);
+        }
+        return executeAllocated(submitter, allocation, handler);
+    }
+
+    /**
+     * 批量版本：一次领取 count 个 nonce（同一把锁、同一个事务），再按 nonce 升序逐个执行 handler。
+     * <p>
+     * 每个 nonce 的状态流转规则与 {@link #execute(String, NonceExecutionHandler)} 相同；
+     * 任一 nonce 执行异常时，后续尚未执行的 nonce 会被回收为 RECYCLABLE，然后抛出异常。
+     * 任一 nonce 返回 RETRYABLE_FAILURE 时同样停止：该 nonce 保持 RESERVED 由业务重试，后续 nonce 回收，
+     * 避免更大的 nonce 先于它广播、在链上形成空洞；此时返回的结果数少于 count。
+     *
+     * @param submitter submitter标识
+     * @param count     需要的 nonce 数量
+     * @param handler   业务处理逻辑，每个 nonce 调用一次
+     * @return 按 nonce 升序排列的执行结果，以第一个 RETRYABLE_FAILURE 结尾（如有）
+     * @throws NonceException 如果handler返回null或执行过程中发生异常
+     */
+    public List<NonceExecutionResult> executeBatch(String submitter, int count, NonceExecutionHandler handler) {
+        requireNonEmpty(submitter, "submitter");
+        requirePositive(count, "count");
+        requireNonNull(handler, "handler");
+
+        List<NonceAllocation> allocations = nonceService.allocateBatch(submitter, count);
+        List<NonceExecutionResult> results = new ArrayList<>(allocations.size());
+
+        int index = 0;
+        try {
+            for (; index < allocations.size(); index++) {
+                NonceExecutionResult result = executeAllocated(submitter, allocations.get(index), handler);
+                results.add(result);
+                if (result.getOutcome() == NonceExecutionResult.Outcome.RETRYABLE_FAILURE) {
+                    break;
+                }
+            }
+            return results;
+        } finally {
+            // 中途失败或需重试：当前 nonce 已由 executeAllocated 处理，之后的 nonce 从未使用，直接回收
+            for (int i = index + 1; i < allocations.size(); i++) {
+                recycleSafely(submitter, allocations.get(i).getNonce(), "batch aborted");
+            }
+        }
+    }
+
+    /**
+     * 对已分配的 nonce 执行 handler，并根据结果更新状态
+     */
+    private NonceExecutionResult executeAllocated(String submitter,
+                                                  NonceAllocation allocation,
+                                                  NonceExecutionHandler handler) {
+        try {
             NonceExecutionContext ctx = new NonceExecutionContext(submitter, allocation.getNonce());
 
             // 执行业务handler
@@ -61,19 +140,28 @@ public class NonceExecutionTemplate {
             throw ex;
         } catch (Exception ex) {
             // 其他异常：标记为可回收，避免nonce泄漏
-            if (allocation != null) {
-                try {
-                    String reason = "handler exception: " + (ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName());
-                    nonceService.markRecyclable(submitter, allocation.getNonce(), reason);
-                } catch (Exception recycleEx) {
-                    // 如果回收失败，包装异常信息
-                    throw new NonceException("handler 执行异常且回收nonce失败", ex);
-                }
+            try {
+                String reason = "handler exception: " + (ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName());
+                nonceService.markRecyclable(submitter, allocation.getNonce(), reason);
+            } catch (Exception recycleEx) {
+                // 如果回收失败，包装异常信息
+                throw new NonceException("handler 执行异常且回收nonce失败", ex);
             }
             throw new NonceException("handler 执行异常", ex);
         }
     }
 
+    /**
+     * 回收未使用的 nonce，失败时不影响主流程（RESERVED 会在超时后被回收）
+     */
+    private void recycleSafely(String submitter, long nonce, String reason) {
+        try {
+            nonceService.markRecyclable(submitter, nonce, reason);
+        } catch (Exception e) {
+            // 忽略，超时回收兜底
+        }
+    }
+
     /**
      * 校验执行结果
      */
@@ -92,18 +180,29 @@ public class NonceExecutionTemplate {
 
     /**
      * 根据执行结果更新allocation状态
+     * <p>
+     * 开启异步确认时，USED / RECYCLABLE 转换进入队列批量落库，不再逐个开启事务
      */
     private void updateAllocationStatus(String submitter, NonceAllocation allocation, NonceExecutionResult result) {
+        boolean async = confirmationQueue != null && confirmationQueue.isEnabled();
         switch (result.getOutcome()) {
             case SUCCESS:
                 // 业务成功，标记为已使用
-                nonceService.markUsed(submitter, allocation.getNonce(), result.getTxHash());
+                if (async) {
+                    confirmationQueue.markUsed(submitter, allocation.getNonce(), result.getTxHash());
+                } else {
+                    nonceService.markUsed(submitter, allocation.getNonce(), result.getTxHash());
+                }
                 break;
 
             case NON_RETRYABLE_FAILURE:
                 // 不可重试的失败，回收nonce
                 String reason = result.getReason() != null ? result.getReason() : "non-retryable failure";
-                nonceService.markRecyclable(submitter, allocation.getNonce(), reason);
+                if (async) {
+                    confirmationQueue.markRecyclable(submitter, allocation.getNonce(), reason);
+                } else {
+                    nonceService.markRecyclable(submitter, allocation.getNonce(), reason);
+                }
                 break;
 
             case RETRYABLE_FAILURE:
@@ -115,5 +214,30 @@ public class NonceExecutionTemplate {
                 throw new NonceException("未知的执行结果: " + result.getOutcome());
         }
     }
-}
 
+    public static class Builder {
+
+        private final NonceService nonceService;
+        private NonceAllocator nonceAllocator;
+        private NonceConfirmationQueue confirmationQueue;
+
+        private Builder(NonceService nonceService) {
+            this.nonceService = nonceService;
+        }
+
+        public Builder nonceAllocator(NonceAllocator nonceAllocator) {
+            this.nonceAllocator = nonceAllocator;
+            return this;
+        }
+
+        public Builder confirmationQueue(NonceConfirmationQueue confirmationQueue) {
+            this.confirmationQueue = confirmationQueue;
+            return this;
+        }
+
+        public NonceExecutionTemplate build() {
+            return new NonceExecutionTemplate(nonceAllocator != null ? nonceAllocator : nonceService,
+                    nonceService, confirmationQueue);
+        }
+    }
+}
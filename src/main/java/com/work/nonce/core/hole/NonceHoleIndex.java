@@ -0,0 +1,158 @@
+package com.work.nonce.core.hole;
+
+import com.work.nonce.core.config.NonceHoleIndexConfig;
+import com.work.nonce.core.support.SortedLongSet;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * JVM 内的 per-submitter 空洞索引：缓存 RECYCLABLE 状态的 nonce，
+ * 使从未出现失败的 submitter 在分配时不再执行 RECYCLABLE 扫描。
+ * <p>
+ * 注意：
+ * 1. 索引只是提示，不是事实来源：命中的空洞必须以 RECYCLABLE 状态（status_code = 3）为条件认领，
+ *    认领失败（已被其他节点复用）时丢弃该条目，因此多节点下不会重复分配
+ * 2. 其他节点产生的空洞不会推送到本节点，依赖 refreshInterval 到期后重新加载
+ * 3. 首次访问、到期、或截断加载后被取空时，通过 loader 在 submitter 行锁内重新加载
+ * 4. 所有对单个 submitter 条目的访问都在其监视器下进行
+ */
+public class NonceHoleIndex {
+
+    private final NonceHoleIndexConfig config;
+    private final long refreshIntervalNanos;
+    private final Map<String, SubmitterHoles> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder staleCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+
+    public NonceHoleIndex(NonceHoleIndexConfig config) {
+        this.config = requireNonNull(config, "config");
+        this.refreshIntervalNanos = config.isEnabled() ? config.getRefreshInterval().toNanos() : 0L;
+    }
+
+    public static NonceHoleIndex disabled() {
+        return new NonceHoleIndex(NonceHoleIndexConfig.disabled());
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 取出 submitter 当前最小的空洞；必要时先通过 loader 从数据库加载。
+     *
+     * @param loader 入参为最大加载条数，返回按 nonce 升序的 RECYCLABLE nonce；须在 submitter 行锁内调用
+     * @return 最小的空洞，索引认为不存在空洞时返回 null
+     */
+    public Long pollLowest(String submitter, IntFunction<? extends Collection<Long>> loader) {
+        SubmitterHoles entry = entries.computeIfAbsent(submitter, key -> new SubmitterHoles());
+        synchronized (entry) {
+            if (entry.needsLoad(System.nanoTime())) {
+                load(entry, loader);
+            }
+            if (entry.holes.isEmpty()) {
+                missCount.increment();
+                return null;
+            }
+            hitCount.increment();
+            return entry.holes.pollFirst();
+        }
+    }
+
+    /**
+     * 记录一次认领失败（索引条目已过期），并丢弃该 submitter 的索引，下次分配重新加载。
+     */
+    public void reportStale(String submitter) {
+        staleCount.increment();
+        invalidate(submitter);
+    }
+
+    /**
+     * 新增空洞；仅在该 submitter 已加载时生效，未加载的 submitter 会在首次访问时从数据库读到。
+     */
+    public void add(String submitter, long nonce) {
+        SubmitterHoles entry = entries.get(submitter);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.holes.add(nonce);
+        }
+    }
+
+    public void addAll(String submitter, Collection<Long> nonces) {
+        SubmitterHoles entry = entries.get(submitter);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            for (Long nonce : nonces) {
+                entry.holes.add(nonce);
+            }
+        }
+    }
+
+    /**
+     * 丢弃 submitter 的索引，下次分配从数据库重新加载。
+     */
+    public void invalidate(String submitter) {
+        entries.remove(submitter);
+    }
+
+    private void load(SubmitterHoles entry, IntFunction<? extends Collection<Long>> loader) {
+        Collection<Long> loaded = loader.apply(config.getMaxLoadedHoles());
+        entry.holes.clear();
+        for (Long nonce : loaded) {
+            entry.holes.add(nonce);
+        }
+        entry.truncated = loaded.size() >= config.getMaxLoadedHoles();
+        entry.loadedAtNanos = System.nanoTime();
+        entry.loaded = true;
+        loadCount.increment();
+    }
+
+    public int getIndexedSubmitters() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getStaleCount() {
+        return staleCount.sum();
+    }
+
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    /**
+     * 单个 submitter 的空洞集合。
+     */
+    private final class SubmitterHoles {
+
+        private final SortedLongSet holes = new SortedLongSet();
+        private boolean loaded;
+        private boolean truncated;
+        private long loadedAtNanos;
+
+        private boolean needsLoad(long nowNanos) {
+            return !loaded
+                    || nowNanos - loadedAtNanos >= refreshIntervalNanos
+                    || (truncated && holes.isEmpty());
+        }
+    }
+}
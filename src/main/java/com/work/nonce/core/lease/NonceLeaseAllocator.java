@@ -0,0 +1,138 @@
+package com.work.nonce.core.lease;
+
+import com.work.nonce.core.config.NonceLeaseConfig;
+import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.model.NonceLease;
+import com.work.nonce.core.service.NonceAllocator;
+import com.work.nonce.core.service.NonceService;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 区间租约分配器：为热点 submitter 在一个事务内预留一段连续 nonce（RESERVED 落库），
+ * 之后在 JVM 内的 per-submitter 缓冲区逐个发放，直到缓冲区耗尽才再次访问 Redis/DB。
+ * <p>
+ * 注意：
+ * 1. 未命中租约配置的 submitter 直接委托给 delegate（默认为 {@link NonceService#allocate(String)}）
+ * 2. 租约到期后剩余 nonce 不再发放，立即回收为 RECYCLABLE；即使回收失败，
+ *    这些 RESERVED 行也会在 locked_until + reservedTimeout 后被常规超时回收逻辑处理
+ * 3. 应用关闭时调用 {@link #shutdown()} 归还所有未发放的 nonce，交由空洞复用逻辑补齐
+ */
+public class NonceLeaseAllocator implements NonceAllocator {
+
+    private final NonceService nonceService;
+    private final NonceLeaseConfig config;
+    private final NonceAllocator delegate;
+    private final Map<String, SubmitterLease> leases = new ConcurrentHashMap<>();
+
+    public NonceLeaseAllocator(NonceService nonceService, NonceLeaseConfig config) {
+        this(nonceService, config, nonceService);
+    }
+
+    /**
+     * @param delegate 未走租约的 submitter 使用的分配器
+     */
+    public NonceLeaseAllocator(NonceService nonceService, NonceLeaseConfig config, NonceAllocator delegate) {
+        this.nonceService = requireNonNull(nonceService, "nonceService");
+        this.config = requireNonNull(config, "config");
+        this.delegate = requireNonNull(delegate, "delegate");
+    }
+
+    @Override
+    public NonceAllocation allocate(String submitter) {
+        requireNonEmpty(submitter, "submitter");
+
+        if (!config.appliesTo(submitter)) {
+            return delegate.allocate(submitter);
+        }
+
+        SubmitterLease lease = leases.computeIfAbsent(submitter, SubmitterLease::new);
+        synchronized (lease) {
+            NonceAllocation next = lease.poll(Instant.now());
+            if (next != null) {
+                return next;
+            }
+            // 缓冲区耗尽或租约到期：归还剩余部分后重新租约，同 submitter 的其他线程在此等待
+            releaseRemaining(lease);
+            lease.refill(nonceService.leaseRange(submitter, config.getLeaseSize(), config.getLeaseTtl()));
+            return lease.buffer.pollFirst();
+        }
+    }
+
+    /**
+     * 归还所有租约中尚未发放的 nonce，供应用关闭时调用。
+     */
+    public void shutdown() {
+        for (SubmitterLease lease : leases.values()) {
+            synchronized (lease) {
+                try {
+                    releaseRemaining(lease);
+                } catch (Exception e) {
+                    // 归还失败不影响关闭流程，剩余 RESERVED 行会在超时后被回收
+                }
+            }
+        }
+        leases.clear();
+    }
+
+    private void releaseRemaining(SubmitterLease lease) {
+        NonceLease current = lease.current;
+        Deque<NonceAllocation> remaining = lease.buffer;
+        if (current == null || remaining.isEmpty()) {
+            lease.clear();
+            return;
+        }
+        // 缓冲区按 nonce 升序发放，剩余部分是租约的连续尾部
+        long fromNonce = remaining.peekFirst().getNonce();
+        long toNonce = remaining.peekLast().getNonce() + 1;
+        lease.clear();
+        nonceService.releaseLease(current.getSubmitter(), current.getLeaseOwner(), fromNonce, toNonce);
+    }
+
+    /**
+     * 单个 submitter 的租约缓冲区，所有访问都在其监视器下进行。
+     */
+    private static final class SubmitterLease {
+
+        private final String submitter;
+        private final Deque<NonceAllocation> buffer = new ArrayDeque<>();
+        private NonceLease current;
+
+        private SubmitterLease(String submitter) {
+            this.submitter = submitter;
+        }
+
+        /**
+         * 租约有效时发放下一个 nonce，否则返回 null。
+         */
+        private NonceAllocation poll(Instant now) {
+            if (current == null || !now.isBefore(current.getExpiresAt())) {
+                return null;
+            }
+            return buffer.pollFirst();
+        }
+
+        private void refill(NonceLease lease) {
+            this.current = lease;
+            this.buffer.clear();
+            this.buffer.addAll(lease.getAllocations());
+        }
+
+        private void clear() {
+            this.current = null;
+            this.buffer.clear();
+        }
+
+        @Override
+        public String toString() {
+            return "SubmitterLease{submitter='" + submitter + "', remaining=" + buffer.size() + '}';
+        }
+    }
+}
@@ -3,8 +3,8 @@ package com.work.nonce.core.lock;
 import java.time.Duration;
 
 /**
- * 提供 per-submitters 的分布式锁能力。默认实现使用内存 ConcurrentHashMap，
- * 真实环境中可替换为 Redisson / Lettuce 等客户端。
+ * 提供 per-submitters 的锁能力。实现包括 Redis 分布式锁、PostgreSQL advisory 锁、
+ * 进程内分段锁，以及"本地分段锁 + 分布式锁"的分层组合。
  */
 public interface RedisLockManager {
 
@@ -18,9 +18,59 @@ public interface RedisLockManager {
      */
     boolean tryLock(String submitter, String lockOwner, Duration ttl);
 
+    /**
+     * 获取 submitter 维度的锁，锁被占用时最多等待 maxWait。
+     * 默认实现不等待，等同于 {@link #tryLock}。
+     *
+     * @return true 表示加锁成功，false 表示等待超时（或等待被中断）
+     */
+    default boolean lock(String submitter, String lockOwner, Duration ttl, Duration maxWait) {
+        return tryLock(submitter, lockOwner, ttl);
+    }
+
     /**
      * 释放锁（若锁已超时/转移，实际实现需要自行判断）。
      */
     void unlock(String submitter, String lockOwner);
-}
 
+    /**
+     * 释放锁但不要求在返回前完成（事务提交后调用）。默认实现同步解锁。
+     */
+    default void unlockAsync(String submitter, String lockOwner) {
+        unlock(submitter, lockOwner);
+    }
+
+    /**
+     * 锁是否随数据库事务结束自动释放（如 PostgreSQL 事务级 advisory 锁）。
+     * 为 true 时 {@link com.work.nonce.core.support.TransactionLockSynchronizer} 不再注册 afterCommit 解锁。
+     */
+    default boolean isTransactionScoped() {
+        return false;
+    }
+
+    /**
+     * 该 submitter 对应的锁服务当前是否可用（如 Redis 熔断器未打开；分片部署下只看其所在分片）。
+     * 返回 false 时调用方应直接走不加锁的降级路径，不再为每次请求等待连接超时。
+     * 返回 true 后调用方必须紧接着发起一次加锁调用（半开状态下这就是探测请求）。
+     */
+    default boolean isAvailable(String submitter) {
+        return true;
+    }
+
+    /**
+     * 是否支持 fencing token（见 {@link #tryLockWithFence}）。
+     */
+    default boolean supportsFencing() {
+        return false;
+    }
+
+    /**
+     * 获取锁并返回该 submitter 单调递增的 fencing token。
+     * 锁过期后被他人接管的旧持有者持有较小的 token，其写入会被数据库侧的 token 比较拒绝。
+     *
+     * @return fencing token；加锁失败返回 null
+     */
+    default Long tryLockWithFence(String submitter, String lockOwner, Duration ttl) {
+        throw new UnsupportedOperationException("当前锁实现不支持 fencing token");
+    }
+}
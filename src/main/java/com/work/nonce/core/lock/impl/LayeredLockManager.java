@@ -0,0 +1,121 @@
+package com.work.nonce.core.lock.impl;
+
+import com.work.nonce.core.lock.RedisLockManager;
+
+import java.time.Duration;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 分层锁：同一节点上的线程先在本地分段锁上排队，只有拿到本地锁的线程才去获取分布式锁。
+ * <p>
+ * 解决的问题：同一节点 N 个线程并发争抢同一 submitter 时，原来全部打到 Redis 且大多失败进入降级；
+ * 分层后每个节点同一时刻最多一个线程访问 Redis，其余线程在本地等待并按顺序获得锁。
+ * <p>
+ * 注意：
+ * 1. 分布式锁获取失败或异常时立即释放本地锁，不影响降级逻辑
+ * 2. 释放时先释放分布式锁再释放本地锁，保证本地下一个线程拿到的是"干净"的分布式锁
+ * 3. 即使分布式锁是事务级的（随事务自动释放），本地锁仍需显式释放，因此本实现不是事务级的
+ */
+public class LayeredLockManager implements RedisLockManager {
+
+    private final StripedLocalLockManager localLockManager;
+    private final RedisLockManager remoteLockManager;
+    private final Duration localWait;
+
+    /**
+     * @param localWait 在本地分段锁上排队的最长时间
+     */
+    public LayeredLockManager(StripedLocalLockManager localLockManager,
+                              RedisLockManager remoteLockManager,
+                              Duration localWait) {
+        this.localLockManager = requireNonNull(localLockManager, "localLockManager");
+        this.remoteLockManager = requireNonNull(remoteLockManager, "remoteLockManager");
+        this.localWait = requireNonNull(localWait, "localWait");
+    }
+
+    @Override
+    public boolean tryLock(String submitter, String lockOwner, Duration ttl) {
+        if (!localLockManager.lock(submitter, lockOwner, ttl, localWait)) {
+            return false;
+        }
+
+        boolean remoteLocked = false;
+        try {
+            remoteLocked = remoteLockManager.tryLock(submitter, lockOwner, ttl);
+            return remoteLocked;
+        } finally {
+            if (!remoteLocked) {
+                localLockManager.unlock(submitter, lockOwner);
+            }
+        }
+    }
+
+    /**
+     * 本地排队最多 min(localWait, maxWait)，剩余时间用于等待分布式锁
+     */
+    @Override
+    public boolean lock(String submitter, String lockOwner, Duration ttl, Duration maxWait) {
+        long deadline = System.nanoTime() + Math.max(maxWait.toNanos(), 0L);
+        Duration localMaxWait = localWait.compareTo(maxWait) < 0 ? localWait : maxWait;
+        if (!localLockManager.lock(submitter, lockOwner, ttl, localMaxWait)) {
+            return false;
+        }
+
+        boolean remoteLocked = false;
+        try {
+            Duration remaining = Duration.ofNanos(Math.max(deadline - System.nanoTime(), 0L));
+            remoteLocked = remoteLockManager.lock(submitter, lockOwner, ttl, remaining);
+            return remoteLocked;
+        } finally {
+            if (!remoteLocked) {
+                localLockManager.unlock(submitter, lockOwner);
+            }
+        }
+    }
+
+    @Override
+    public boolean isAvailable(String submitter) {
+        return remoteLockManager.isAvailable(submitter);
+    }
+
+    @Override
+    public boolean supportsFencing() {
+        return remoteLockManager.supportsFencing();
+    }
+
+    @Override
+    public Long tryLockWithFence(String submitter, String lockOwner, Duration ttl) {
+        if (!localLockManager.lock(submitter, lockOwner, ttl, localWait)) {
+            return null;
+        }
+
+        Long fence = null;
+        try {
+            fence = remoteLockManager.tryLockWithFence(submitter, lockOwner, ttl);
+            return fence;
+        } finally {
+            if (fence == null) {
+                localLockManager.unlock(submitter, lockOwner);
+            }
+        }
+    }
+
+    @Override
+    public void unlock(String submitter, String lockOwner) {
+        try {
+            remoteLockManager.unlock(submitter, lockOwner);
+        } finally {
+            localLockManager.unlock(submitter, lockOwner);
+        }
+    }
+
+    @Override
+    public void unlockAsync(String submitter, String lockOwner) {
+        try {
+            remoteLockManager.unlockAsync(submitter, lockOwner);
+        } finally {
+            localLockManager.unlock(submitter, lockOwner);
+        }
+    }
+}
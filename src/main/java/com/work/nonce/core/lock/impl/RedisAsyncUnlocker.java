@@ -0,0 +1,230 @@
+package com.work.nonce.core.lock.impl;
+
+import com.work.nonce.core.config.NonceAsyncUnlockConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * Redis 异步解锁：事务提交后的解锁请求入队即返回，请求线程不再等待一次 Redis 往返。
+ * <p>
+ * 单个后台线程把队列中所有线程积累的解锁请求合并为一次 pipeline（Lettuce 下为异步命令批量 flush），
+ * 解锁脚本在首次执行前 SCRIPT LOAD 一次，之后以 EVALSHA 调用；pipeline 失败（如 Redis 重启后 NOSCRIPT）
+ * 时重新加载脚本并重试一次，仍失败则计入失败数，锁随 TTL 过期。
+ * <p>
+ * 同时负责统计同步解锁的结果（释放 / 未持有 / 失败），解锁失败不再被静默吞掉。
+ * 未开启时 {@link #submit} 返回 false，调用方走同步解锁。
+ */
+public class RedisAsyncUnlocker {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisAsyncUnlocker.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final NonceAsyncUnlockConfig config;
+    private final DefaultRedisScript<Long> unlockScript;
+    private final byte[] scriptBytes;
+    private final BlockingQueue<PendingUnlock> queue;
+    private final Thread flusher;
+
+    private volatile boolean running;
+    private volatile boolean scriptLoaded;
+
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder releasedCount = new LongAdder();
+    private final LongAdder notHeldCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder syncFallbackCount = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+
+    public RedisAsyncUnlocker(StringRedisTemplate redisTemplate, NonceAsyncUnlockConfig config) {
+        this.redisTemplate = requireNonNull(redisTemplate, "redisTemplate");
+        this.config = requireNonNull(config, "config");
+        // 与同步解锁相同的脚本：KEYS[1] 为锁键，ARGV[1] 为 owner，ARGV[2] 为解锁通知频道
+        this.unlockScript = new DefaultRedisScript<>(RedisDistributedLockManager.UNLOCK_SCRIPT, Long.class);
+        this.scriptBytes = RedisDistributedLockManager.UNLOCK_SCRIPT.getBytes(StandardCharsets.UTF_8);
+        if (!config.isEnabled()) {
+            this.queue = null;
+            this.flusher = null;
+            return;
+        }
+        this.queue = new LinkedBlockingQueue<>(config.getQueueCapacity());
+        this.running = true;
+        this.flusher = new Thread(this::runLoop, "nonce-async-unlock");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 提交一个解锁请求，不阻塞
+     *
+     * @return false 表示未开启或队列已满，调用方应同步解锁
+     */
+    boolean submit(String key, String lockOwner, String channel) {
+        if (!running) {
+            return false;
+        }
+        if (!queue.offer(new PendingUnlock(key, lockOwner, channel))) {
+            syncFallbackCount.increment();
+            return false;
+        }
+        submittedCount.increment();
+        return true;
+    }
+
+    /**
+     * 记录一次同步解锁的结果
+     */
+    void recordResult(Long result) {
+        if (result != null && result == 1L) {
+            releasedCount.increment();
+        } else {
+            notHeldCount.increment();
+        }
+    }
+
+    void recordFailure(String key, Exception e) {
+        failedCount.increment();
+        log.warn("Redis 解锁失败，锁将随 TTL 过期: {}", key, e);
+    }
+
+    private void runLoop() {
+        List<PendingUnlock> batch = new ArrayList<>(config.getBatchSize());
+        // shutdown 后继续排空队列再退出
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingUnlock first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, config.getBatchSize() - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingUnlock> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        flushCount.increment();
+        List<Object> results;
+        try {
+            results = executeBatch(batch);
+        } catch (Exception first) {
+            // 脚本缓存可能已被清空（Redis 重启 / SCRIPT FLUSH），重新加载后重试一次
+            scriptLoaded = false;
+            try {
+                results = executeBatch(batch);
+            } catch (Exception e) {
+                failedCount.add(batch.size());
+                log.warn("Redis 批量解锁失败（{} 个），锁将随 TTL 过期", batch.size(), e);
+                return;
+            }
+        }
+        for (Object result : results) {
+            if (result instanceof Exception) {
+                failedCount.increment();
+            } else {
+                recordResult(result instanceof Number ? ((Number) result).longValue() : null);
+            }
+        }
+    }
+
+    private List<Object> executeBatch(List<PendingUnlock> batch) {
+        if (!scriptLoaded) {
+            redisTemplate.execute((RedisCallback<String>) connection ->
+                    connection.scriptingCommands().scriptLoad(scriptBytes));
+            scriptLoaded = true;
+        }
+        String sha = unlockScript.getSha1();
+        return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (PendingUnlock unlock : batch) {
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 1,
+                        bytes(unlock.key), bytes(unlock.owner), bytes(unlock.channel));
+            }
+            return null;
+        });
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 停止后台线程并排空队列中剩余的解锁请求
+     */
+    public void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    public long getReleasedCount() {
+        return releasedCount.sum();
+    }
+
+    public long getNotHeldCount() {
+        return notHeldCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getSyncFallbackCount() {
+        return syncFallbackCount.sum();
+    }
+
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    private static final class PendingUnlock {
+        private final String key;
+        private final String owner;
+        private final String channel;
+
+        private PendingUnlock(String key, String owner, String channel) {
+            this.key = key;
+            this.owner = owner;
+            this.channel = channel;
+        }
+    }
+}
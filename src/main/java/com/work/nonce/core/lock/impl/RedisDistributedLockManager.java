@@ -1,14 +1,18 @@
 package com.work.nonce.core.lock.impl;
 
+import com.work.nonce.core.config.NonceAsyncUnlockConfig;
 import com.work.nonce.core.exception.NonceException;
 import com.work.nonce.core.lock.RedisLockManager;
+import com.work.nonce.core.support.RedisCircuitBreaker;
 import com.work.nonce.core.support.ValidationUtils;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
-import org.springframework.stereotype.Component;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
 import static com.work.nonce.core.support.ValidationUtils.requirePositive;
@@ -21,30 +25,94 @@ import static com.work.nonce.core.support.ValidationUtils.requirePositive;
  * 2. 支持锁超时自动释放，避免死锁
  * 3. 释放锁时验证owner，防止误释放其他实例的锁
  * 4. 异常处理完善，确保不影响主流程
+ * 5. 支持 fencing token：加锁成功时在同一脚本内对 nonce:fence:{submitter} 执行 INCR
+ * 6. 支持带等待的 {@link #lock}：解锁脚本向 nonce:unlock:{submitter} 频道发布消息，等待者收到后立即重试，
+ *    未收到消息时最多等到锁的剩余 TTL（持有者崩溃未解锁的情况），不做固定间隔轮询
+ * 7. 可选的 {@link RedisLockWatchdog}：加锁成功后登记到看门狗定期续期，解锁时注销，
+ *    锁 TTL 因此可以设置得很短，崩溃节点遗留的锁很快过期
+ * 8. 可选的 {@link RedisCircuitBreaker}：每次 Redis 调用的成败计入熔断器，熔断期间 {@link #isAvailable} 返回 false
+ * 9. {@link #unlockAsync}：解锁交给 {@link RedisAsyncUnlocker} 合并为 pipeline 执行，请求线程不等待 Redis 往返；
+ *    同步与异步解锁的结果（含失败）均由其统计
  */
-@Component
 public class RedisDistributedLockManager implements RedisLockManager {
 
     private static final String LOCK_KEY_PREFIX = "nonce:lock:";
+    private static final String FENCE_KEY_PREFIX = "nonce:fence:";
+    private static final String UNLOCK_CHANNEL_PREFIX = "nonce:unlock:";
     
     private final StringRedisTemplate redisTemplate;
     
-    // 释放锁的 Lua 脚本：只有锁的 owner 匹配时才删除
+    // 释放锁的 Lua 脚本：只有锁的 owner 匹配时才删除，并通知等待者
     // 保证原子性，避免误释放其他实例的锁
-    private static final String UNLOCK_SCRIPT = 
+    static final String UNLOCK_SCRIPT = 
             "if redis.call('get', KEYS[1]) == ARGV[1] then " +
-            "    return redis.call('del', KEYS[1]) " +
+            "    redis.call('del', KEYS[1]) " +
+            "    redis.call('publish', ARGV[2], ARGV[1]) " +
+            "    return 1 " +
             "else " +
             "    return 0 " +
             "end";
+
+    // 尝试加锁：成功返回 0，失败返回锁的剩余毫秒数（至少为 1），供等待者决定最长等待时间
+    private static final String ACQUIRE_SCRIPT =
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then " +
+            "    return 0 " +
+            "end " +
+            "local ttl = redis.call('pttl', KEYS[1]) " +
+            "if ttl < 1 then return 1 end " +
+            "return ttl";
     
+    // 加锁并发放 fencing token：SET NX PX 成功后 INCR 计数键（计数键不过期），失败返回 0
+    private static final String LOCK_WITH_FENCE_SCRIPT =
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then " +
+            "    return redis.call('incr', KEYS[2]) " +
+            "else " +
+            "    return 0 " +
+            "end";
+
     private final DefaultRedisScript<Long> unlockScript;
+    private final DefaultRedisScript<Long> lockWithFenceScript;
+    private final DefaultRedisScript<Long> acquireScript;
+    private final RedisUnlockSubscriptions unlockSubscriptions;
+    private final RedisLockWatchdog watchdog;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final RedisAsyncUnlocker asyncUnlocker;
 
     public RedisDistributedLockManager(StringRedisTemplate redisTemplate) {
+        this(redisTemplate, null);
+    }
+
+    public RedisDistributedLockManager(StringRedisTemplate redisTemplate,
+                                       RedisMessageListenerContainer listenerContainer) {
+        this(redisTemplate, listenerContainer, null, RedisCircuitBreaker.disabled(),
+                new RedisAsyncUnlocker(redisTemplate, NonceAsyncUnlockConfig.disabled()));
+    }
+
+    /**
+     * @param listenerContainer 用于订阅解锁通知；为 null 时 {@link #lock} 退化为按锁剩余 TTL 休眠重试
+     * @param watchdog          锁续期看门狗；为 null 时锁只依赖加锁时的 TTL
+     * @param circuitBreaker    Redis 熔断器
+     * @param asyncUnlocker     异步解锁器（未开启时 {@link #unlockAsync} 退化为同步解锁）
+     */
+    public RedisDistributedLockManager(StringRedisTemplate redisTemplate,
+                                       RedisMessageListenerContainer listenerContainer,
+                                       RedisLockWatchdog watchdog,
+                                       RedisCircuitBreaker circuitBreaker,
+                                       RedisAsyncUnlocker asyncUnlocker) {
         this.redisTemplate = ValidationUtils.requireNonNull(redisTemplate, "redisTemplate");
+        this.watchdog = watchdog;
+        this.circuitBreaker = ValidationUtils.requireNonNull(circuitBreaker, "circuitBreaker");
+        this.asyncUnlocker = ValidationUtils.requireNonNull(asyncUnlocker, "asyncUnlocker");
+        this.unlockSubscriptions = listenerContainer != null ? new RedisUnlockSubscriptions(listenerContainer) : null;
         this.unlockScript = new DefaultRedisScript<>();
         this.unlockScript.setScriptText(UNLOCK_SCRIPT);
         this.unlockScript.setResultType(Long.class);
+        this.lockWithFenceScript = new DefaultRedisScript<>();
+        this.lockWithFenceScript.setScriptText(LOCK_WITH_FENCE_SCRIPT);
+        this.lockWithFenceScript.setResultType(Long.class);
+        this.acquireScript = new DefaultRedisScript<>();
+        this.acquireScript.setScriptText(ACQUIRE_SCRIPT);
+        this.acquireScript.setResultType(Long.class);
     }
 
     /**
@@ -73,9 +141,147 @@ public class RedisDistributedLockManager implements RedisLockManager {
                     lockOwner, 
                     ttl
             );
+            circuitBreaker.onSuccess();
             
-            return Boolean.TRUE.equals(result);
+            if (Boolean.TRUE.equals(result)) {
+                watch(key, lockOwner, ttl);
+                return true;
+            }
+            return false;
         } catch (Exception e) {
+            circuitBreaker.onFailure();
+            throw new NonceException("Redis 加锁异常: " + submitter, e);
+        }
+    }
+
+    /**
+     * 获取分布式锁，锁被占用时最多等待 maxWait
+     * <p>
+     * 等待期间订阅 nonce:unlock:{submitter}（同节点的等待者共享订阅），收到解锁消息立即重试；
+     * 每次最多等待锁的剩余 TTL，覆盖持有者崩溃、锁自然过期而没有解锁消息的情况
+     *
+     * @return true表示加锁成功，false表示等待超时或线程被中断
+     * @throws NonceException 如果Redis操作异常
+     */
+    @Override
+    public boolean lock(String submitter, String lockOwner, Duration ttl, Duration maxWait) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(lockOwner, "lockOwner");
+        requirePositive(ttl, "ttl");
+        ValidationUtils.requireNonNull(maxWait, "maxWait");
+
+        long deadline = System.nanoTime() + Math.max(maxWait.toNanos(), 0L);
+        long remainingTtl = acquire(submitter, lockOwner, ttl);
+        if (remainingTtl == 0) {
+            return true;
+        }
+        if (deadline - System.nanoTime() <= 0) {
+            return false;
+        }
+
+        RedisUnlockSubscriptions.Subscription subscription =
+                unlockSubscriptions != null ? unlockSubscriptions.acquire(UNLOCK_CHANNEL_PREFIX + submitter) : null;
+        try {
+            while (true) {
+                // 先记录代数再重试，重试与等待之间发生的解锁不会被错过
+                long seen = subscription != null ? subscription.generation() : 0L;
+                remainingTtl = acquire(submitter, lockOwner, ttl);
+                if (remainingTtl == 0) {
+                    return true;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                long waitNanos = Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(remainingTtl));
+                if (subscription != null) {
+                    subscription.awaitChange(seen, waitNanos);
+                } else {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (subscription != null) {
+                unlockSubscriptions.release(subscription);
+            }
+        }
+    }
+
+    /**
+     * 单次加锁尝试，返回 0 表示成功，否则为锁的剩余毫秒数
+     */
+    private long acquire(String submitter, String lockOwner, Duration ttl) {
+        try {
+            Long result = redisTemplate.execute(
+                    acquireScript,
+                    Collections.singletonList(LOCK_KEY_PREFIX + submitter),
+                    lockOwner,
+                    String.valueOf(ttl.toMillis())
+            );
+            circuitBreaker.onSuccess();
+            if (result != null && result == 0) {
+                watch(LOCK_KEY_PREFIX + submitter, lockOwner, ttl);
+            }
+            return result == null ? 1L : result;
+        } catch (Exception e) {
+            circuitBreaker.onFailure();
+            throw new NonceException("Redis 加锁异常: " + submitter, e);
+        }
+    }
+
+    private void watch(String key, String lockOwner, Duration ttl) {
+        if (watchdog != null) {
+            watchdog.watch(key, lockOwner, ttl);
+        }
+    }
+
+    /**
+     * 当前节点上有等待者的 submitter 数（即活跃的解锁频道订阅数）
+     */
+    public int getActiveSubscriptions() {
+        return unlockSubscriptions != null ? unlockSubscriptions.size() : 0;
+    }
+
+    @Override
+    public boolean isAvailable(String submitter) {
+        return circuitBreaker.allowRequest();
+    }
+
+    @Override
+    public boolean supportsFencing() {
+        return true;
+    }
+
+    /**
+     * 获取分布式锁并返回 fencing token（单个 Lua 脚本内完成，加锁与发号原子）
+     *
+     * @return fencing token（从 1 开始递增）；锁已被其他实例持有时返回 null
+     * @throws NonceException 如果Redis操作异常
+     */
+    @Override
+    public Long tryLockWithFence(String submitter, String lockOwner, Duration ttl) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(lockOwner, "lockOwner");
+        requirePositive(ttl, "ttl");
+
+        try {
+            Long fence = redisTemplate.execute(
+                    lockWithFenceScript,
+                    Arrays.asList(LOCK_KEY_PREFIX + submitter, FENCE_KEY_PREFIX + submitter),
+                    lockOwner,
+                    String.valueOf(ttl.toMillis())
+            );
+            circuitBreaker.onSuccess();
+            if (fence == null || fence == 0) {
+                return null;
+            }
+            watch(LOCK_KEY_PREFIX + submitter, lockOwner, ttl);
+            return fence;
+        } catch (Exception e) {
+            circuitBreaker.onFailure();
             throw new NonceException("Redis 加锁异常: " + submitter, e);
         }
     }
@@ -96,28 +302,48 @@ public class RedisDistributedLockManager implements RedisLockManager {
         requireNonEmpty(lockOwner, "lockOwner");
 
         String key = LOCK_KEY_PREFIX + submitter;
+        // 先停止续期再删除，避免续期与删除交错
+        if (watchdog != null) {
+            watchdog.unwatch(key, lockOwner);
+        }
         
         try {
             // 使用 Lua 脚本保证原子性：只有 owner 匹配时才删除
             Long result = redisTemplate.execute(
                     unlockScript,
                     Collections.singletonList(key),
-                    lockOwner
+                    lockOwner,
+                    UNLOCK_CHANNEL_PREFIX + submitter
             );
+            circuitBreaker.onSuccess();
             
             // result == 1 表示删除成功
             // result == 0 表示锁不存在或 owner 不匹配（可能已过期或被其他实例释放）
-            // 这里不抛异常，因为锁可能已经过期或被其他实例释放（幂等性）
-            if (result == null || result == 0) {
-                // 可以记录日志，但不抛异常（幂等性）
-                // 生产环境应该使用日志框架记录：锁可能已过期或被其他实例释放
-            }
+            // 这里不抛异常，因为锁可能已经过期或被其他实例释放（幂等性），只计数
+            asyncUnlocker.recordResult(result);
         } catch (Exception e) {
-            // 记录日志但不抛异常，避免影响主流程
-            // 生产环境应该使用日志框架记录
+            circuitBreaker.onFailure();
+            // 计数并记录日志但不抛异常，避免影响主流程；锁随 TTL 过期
             // 注意：这里选择不抛异常是为了保证幂等性，即使释放失败也不影响主流程
-            // 如果确实需要严格保证锁释放，可以取消注释下面的代码
-            // throw new NonceException("Redis 释放锁异常: " + submitter, e);
+            asyncUnlocker.recordFailure(key, e);
+        }
+    }
+
+    /**
+     * 异步释放分布式锁：入队后立即返回，由后台线程与其他线程的解锁合并为一次 pipeline 执行。
+     * 未开启异步解锁或队列已满时同步解锁。
+     */
+    @Override
+    public void unlockAsync(String submitter, String lockOwner) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(lockOwner, "lockOwner");
+
+        String key = LOCK_KEY_PREFIX + submitter;
+        if (watchdog != null) {
+            watchdog.unwatch(key, lockOwner);
+        }
+        if (!asyncUnlocker.submit(key, lockOwner, UNLOCK_CHANNEL_PREFIX + submitter)) {
+            unlock(submitter, lockOwner);
         }
     }
 }
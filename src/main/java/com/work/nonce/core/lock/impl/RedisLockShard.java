@@ -0,0 +1,78 @@
+package com.work.nonce.core.lock.impl;
+
+import com.work.nonce.core.support.RedisCircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 锁分片：一个独立的 Redis 端点及其专属组件（连接池、熔断器、续期看门狗、异步解锁器）。
+ * 各分片的健康状态互不影响，一个分片故障只会让落在该分片上的 submitter 降级。
+ */
+public final class RedisLockShard {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisLockShard.class);
+
+    private final String name;
+    private final RedisDistributedLockManager lockManager;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final RedisLockWatchdog watchdog;
+    private final RedisAsyncUnlocker asyncUnlocker;
+    private final Runnable closer;
+
+    /**
+     * @param name   分片名，参与一致性哈希，调整其他分片时保持不变即可让该分片的 submitter 不迁移
+     * @param closer 关闭该分片专属的连接工厂 / 订阅容器
+     */
+    public RedisLockShard(String name,
+                          RedisDistributedLockManager lockManager,
+                          RedisCircuitBreaker circuitBreaker,
+                          RedisLockWatchdog watchdog,
+                          RedisAsyncUnlocker asyncUnlocker,
+                          Runnable closer) {
+        this.name = requireNonEmpty(name, "name");
+        this.lockManager = requireNonNull(lockManager, "lockManager");
+        this.circuitBreaker = requireNonNull(circuitBreaker, "circuitBreaker");
+        this.watchdog = requireNonNull(watchdog, "watchdog");
+        this.asyncUnlocker = requireNonNull(asyncUnlocker, "asyncUnlocker");
+        this.closer = requireNonNull(closer, "closer");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public RedisDistributedLockManager getLockManager() {
+        return lockManager;
+    }
+
+    public RedisCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public RedisLockWatchdog getWatchdog() {
+        return watchdog;
+    }
+
+    public RedisAsyncUnlocker getAsyncUnlocker() {
+        return asyncUnlocker;
+    }
+
+    /**
+     * 先停止续期与排空异步解锁，再关闭连接
+     */
+    public void shutdown() {
+        try {
+            watchdog.shutdown();
+            asyncUnlocker.shutdown();
+        } finally {
+            try {
+                closer.run();
+            } catch (Exception e) {
+                log.warn("关闭锁分片 {} 失败", name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.work.nonce.core.lock.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 已配置的锁分片集合，负责统一关闭各分片的线程与连接；未配置分片时为空。
+ */
+public final class RedisLockShards {
+
+    private final List<RedisLockShard> shards;
+
+    public RedisLockShards(List<RedisLockShard> shards) {
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+    }
+
+    public static RedisLockShards empty() {
+        return new RedisLockShards(Collections.<RedisLockShard>emptyList());
+    }
+
+    public boolean isEmpty() {
+        return shards.isEmpty();
+    }
+
+    public List<RedisLockShard> getShards() {
+        return shards;
+    }
+
+    public void shutdown() {
+        for (RedisLockShard shard : shards) {
+            shard.shutdown();
+        }
+    }
+}
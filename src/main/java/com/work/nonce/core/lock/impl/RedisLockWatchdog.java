@@ -0,0 +1,210 @@
+package com.work.nonce.core.lock.impl;
+
+import com.work.nonce.core.config.NonceLockWatchdogConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * Redis 锁续期看门狗：本节点持有的锁由一个共享的后台线程定期续期，
+ * 因此 lock-ttl 可以设置得很短（如 1s），节点崩溃后锁很快自然过期。
+ * <p>
+ * 每轮把所有持有中的锁合并为若干次 Lua 调用（每次最多 {@link #BATCH_SIZE} 个键），
+ * 只有 owner 仍匹配的键才会 PEXPIRE；不匹配说明锁已丢失（已过期并被他人获取），停止续期并计数。
+ * <p>
+ * 注意：
+ * 1. interval 应明显小于 lock-ttl（建议不超过 1/3），否则一次续期延迟就可能丢锁
+ * 2. 持有超过 maxHold 的锁不再续期（防止卡死的线程永久占用锁），随 TTL 自然过期
+ * 3. 未开启时不启动线程，{@link #watch} 为空操作
+ */
+public class RedisLockWatchdog {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisLockWatchdog.class);
+
+    private static final int BATCH_SIZE = 200;
+
+    // KEYS 为锁键，ARGV 为 (owner, ttl 毫秒) 对；返回每个键是否续期成功（1 / 0）
+    private static final String RENEW_SCRIPT =
+            "local result = {} " +
+            "for i = 1, #KEYS do " +
+            "    if redis.call('get', KEYS[i]) == ARGV[2 * i - 1] then " +
+            "        redis.call('pexpire', KEYS[i], ARGV[2 * i]) " +
+            "        result[i] = 1 " +
+            "    else " +
+            "        result[i] = 0 " +
+            "    end " +
+            "end " +
+            "return result";
+
+    private final StringRedisTemplate redisTemplate;
+    private final NonceLockWatchdogConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, HeldLock> heldLocks = new ConcurrentHashMap<>();
+    private final DefaultRedisScript<List> renewScript = new DefaultRedisScript<>(RENEW_SCRIPT, List.class);
+
+    private final LongAdder renewedCount = new LongAdder();
+    private final LongAdder lostCount = new LongAdder();
+    private final LongAdder expiredHoldCount = new LongAdder();
+    private final LongAdder failedRounds = new LongAdder();
+
+    public RedisLockWatchdog(StringRedisTemplate redisTemplate, NonceLockWatchdogConfig config) {
+        this.redisTemplate = requireNonNull(redisTemplate, "redisTemplate");
+        this.config = requireNonNull(config, "config");
+        if (!config.isEnabled()) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nonce-lock-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = config.getInterval().toNanos();
+        this.scheduler.scheduleWithFixedDelay(this::renewSafely, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 加锁成功后登记，之后由后台线程续期
+     */
+    void watch(String key, String lockOwner, Duration ttl) {
+        if (!isEnabled()) {
+            return;
+        }
+        heldLocks.put(key, new HeldLock(lockOwner, ttl.toMillis(), System.nanoTime()));
+    }
+
+    /**
+     * 解锁前注销（仅当仍由该 owner 登记时）
+     */
+    void unwatch(String key, String lockOwner) {
+        heldLocks.computeIfPresent(key, (k, held) -> held.owner.equals(lockOwner) ? null : held);
+    }
+
+    /**
+     * 执行一轮续期，通常由后台线程调用
+     */
+    public void renewOnce() {
+        if (heldLocks.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long maxHoldNanos = config.getMaxHold().toNanos();
+        List<String> keys = new ArrayList<>(Math.min(heldLocks.size(), BATCH_SIZE));
+        List<HeldLock> locks = new ArrayList<>(Math.min(heldLocks.size(), BATCH_SIZE));
+        Iterator<Map.Entry<String, HeldLock>> iterator = heldLocks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, HeldLock> entry = iterator.next();
+            HeldLock held = entry.getValue();
+            if (now - held.acquiredAtNanos > maxHoldNanos) {
+                heldLocks.remove(entry.getKey(), held);
+                expiredHoldCount.increment();
+                log.warn("锁持有超过 {}，停止续期: {}", config.getMaxHold(), entry.getKey());
+                continue;
+            }
+            keys.add(entry.getKey());
+            locks.add(held);
+            if (keys.size() == BATCH_SIZE) {
+                renewBatch(keys, locks);
+                keys.clear();
+                locks.clear();
+            }
+        }
+        if (!keys.isEmpty()) {
+            renewBatch(keys, locks);
+        }
+    }
+
+    private void renewBatch(List<String> keys, List<HeldLock> locks) {
+        Object[] args = new Object[keys.size() * 2];
+        for (int i = 0; i < locks.size(); i++) {
+            args[2 * i] = locks.get(i).owner;
+            args[2 * i + 1] = String.valueOf(locks.get(i).ttlMillis);
+        }
+        List<?> result = redisTemplate.execute(renewScript, keys, args);
+        if (result == null) {
+            return;
+        }
+        for (int i = 0; i < result.size() && i < keys.size(); i++) {
+            if (((Number) result.get(i)).longValue() == 1L) {
+                renewedCount.increment();
+            } else if (heldLocks.remove(keys.get(i), locks.get(i))) {
+                lostCount.increment();
+                log.warn("续期时发现锁已丢失（已过期或被他人持有）: {}", keys.get(i));
+            }
+        }
+    }
+
+    private void renewSafely() {
+        try {
+            renewOnce();
+        } catch (Exception e) {
+            failedRounds.increment();
+            log.warn("锁续期失败", e);
+        }
+    }
+
+    /**
+     * 停止续期线程，供应用关闭时调用；未解锁的锁随 TTL 自然过期。
+     */
+    public void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(config.getInterval().toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public int getHeldLocks() {
+        return heldLocks.size();
+    }
+
+    public long getRenewedCount() {
+        return renewedCount.sum();
+    }
+
+    public long getLostCount() {
+        return lostCount.sum();
+    }
+
+    public long getExpiredHoldCount() {
+        return expiredHoldCount.sum();
+    }
+
+    public long getFailedRounds() {
+        return failedRounds.sum();
+    }
+
+    private static final class HeldLock {
+        private final String owner;
+        private final long ttlMillis;
+        private final long acquiredAtNanos;
+
+        private HeldLock(String owner, long ttlMillis, long acquiredAtNanos) {
+            this.owner = owner;
+            this.ttlMillis = ttlMillis;
+            this.acquiredAtNanos = acquiredAtNanos;
+        }
+    }
+}
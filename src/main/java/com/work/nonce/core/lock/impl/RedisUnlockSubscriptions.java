@@ -0,0 +1,98 @@
+package com.work.nonce.core.lock.impl;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 解锁通知的订阅管理：同一节点上等待同一 submitter 的线程共享一个频道订阅（引用计数），
+ * 第一个等待者订阅，最后一个等待者离开时退订。
+ * <p>
+ * 每个订阅维护一个递增的代数（generation），收到解锁消息时加 1 并唤醒全部等待者；
+ * 等待者在重试加锁前记录代数，只要期间有过解锁消息就不会错过唤醒。
+ */
+final class RedisUnlockSubscriptions {
+
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Map<String, Subscription> subscriptions = new HashMap<>();
+
+    RedisUnlockSubscriptions(RedisMessageListenerContainer listenerContainer) {
+        this.listenerContainer = requireNonNull(listenerContainer, "listenerContainer");
+    }
+
+    Subscription acquire(String channel) {
+        synchronized (subscriptions) {
+            Subscription subscription = subscriptions.get(channel);
+            if (subscription == null) {
+                subscription = new Subscription(channel);
+                subscriptions.put(channel, subscription);
+                listenerContainer.addMessageListener(subscription, subscription.topic);
+            }
+            subscription.references++;
+            return subscription;
+        }
+    }
+
+    void release(Subscription subscription) {
+        synchronized (subscriptions) {
+            if (--subscription.references == 0) {
+                subscriptions.remove(subscription.channel);
+                listenerContainer.removeMessageListener(subscription, subscription.topic);
+            }
+        }
+    }
+
+    int size() {
+        synchronized (subscriptions) {
+            return subscriptions.size();
+        }
+    }
+
+    static final class Subscription implements MessageListener {
+
+        private final String channel;
+        private final ChannelTopic topic;
+        // 由 RedisUnlockSubscriptions.subscriptions 保护
+        private int references;
+        // 由 this 保护
+        private long generation;
+
+        private Subscription(String channel) {
+            this.channel = channel;
+            this.topic = new ChannelTopic(channel);
+        }
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            synchronized (this) {
+                generation++;
+                notifyAll();
+            }
+        }
+
+        synchronized long generation() {
+            return generation;
+        }
+
+        /**
+         * 等待代数离开 seen，最多等待 timeoutNanos
+         */
+        synchronized void awaitChange(long seen, long timeoutNanos) throws InterruptedException {
+            long deadline = System.nanoTime() + timeoutNanos;
+            while (generation == seen) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+    }
+}
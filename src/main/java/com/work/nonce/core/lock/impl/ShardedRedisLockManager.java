@@ -0,0 +1,96 @@
+package com.work.nonce.core.lock.impl;
+
+import com.work.nonce.core.lock.RedisLockManager;
+import com.work.nonce.core.support.ConsistentHashRing;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 分片 Redis 锁：按一致性哈希把 submitter 路由到多个 Redis 端点之一，
+ * 同一 submitter 的锁键、fencing 计数键与解锁频道都在同一分片上。
+ * <p>
+ * 注意：
+ * 1. 各分片有独立的熔断器，{@link #isAvailable} 只反映 submitter 所在分片的健康状态
+ * 2. 增减分片会让相邻区间的 submitter 迁移到新分片，旧分片上的锁在 TTL 内仍有效，
+ *    应在低峰期调整，并把 lock-ttl 设置得较短（配合续期看门狗）
+ * 3. fencing token 计数器按分片独立；submitter 迁移后新分片的 token 从 1 重新开始，
+ *    数据库侧的 token 比较会拒绝这些写入并回退到行锁路径（正确但变慢），直到新分片计数追上
+ */
+public class ShardedRedisLockManager implements RedisLockManager {
+
+    private final ConsistentHashRing<RedisLockShard> ring;
+
+    /**
+     * @param shards       分片列表，名称不能重复
+     * @param virtualNodes 每个分片在环上的虚拟节点数
+     */
+    public ShardedRedisLockManager(List<RedisLockShard> shards, int virtualNodes) {
+        requireNonNull(shards, "shards");
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("shards 不能为空");
+        }
+        Set<String> names = new HashSet<>();
+        for (RedisLockShard shard : shards) {
+            if (!names.add(shard.getName())) {
+                throw new IllegalArgumentException("锁分片名称重复: " + shard.getName());
+            }
+        }
+        this.ring = new ConsistentHashRing<>(shards, RedisLockShard::getName, virtualNodes);
+    }
+
+    /**
+     * submitter 所在的分片
+     */
+    public RedisLockShard shardOf(String submitter) {
+        return ring.locate(requireNonEmpty(submitter, "submitter"));
+    }
+
+    public List<RedisLockShard> getShards() {
+        return ring.getNodes();
+    }
+
+    private RedisDistributedLockManager route(String submitter) {
+        return shardOf(submitter).getLockManager();
+    }
+
+    @Override
+    public boolean tryLock(String submitter, String lockOwner, Duration ttl) {
+        return route(submitter).tryLock(submitter, lockOwner, ttl);
+    }
+
+    @Override
+    public boolean lock(String submitter, String lockOwner, Duration ttl, Duration maxWait) {
+        return route(submitter).lock(submitter, lockOwner, ttl, maxWait);
+    }
+
+    @Override
+    public void unlock(String submitter, String lockOwner) {
+        route(submitter).unlock(submitter, lockOwner);
+    }
+
+    @Override
+    public void unlockAsync(String submitter, String lockOwner) {
+        route(submitter).unlockAsync(submitter, lockOwner);
+    }
+
+    @Override
+    public boolean isAvailable(String submitter) {
+        return route(submitter).isAvailable(submitter);
+    }
+
+    @Override
+    public boolean supportsFencing() {
+        return true;
+    }
+
+    @Override
+    public Long tryLockWithFence(String submitter, String lockOwner, Duration ttl) {
+        return route(submitter).tryLockWithFence(submitter, lockOwner, ttl);
+    }
+}
@@ -0,0 +1,132 @@
+package com.work.nonce.core.lock.impl;
+
+import com.work.nonce.core.lock.RedisLockManager;
+import com.work.nonce.core.support.HashUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+import static com.work.nonce.core.support.ValidationUtils.requirePositive;
+
+/**
+ * 进程内的 submitter 锁：固定数量的锁分段（stripe），submitter 按哈希映射到分段，
+ * 不随 submitter 数量增长，也不需要清理。
+ * <p>
+ * 特性：
+ * 1. owner / TTL 语义与 {@link RedisDistributedLockManager} 一致：只有 owner 能释放，超时后可被他人获取
+ * 2. 不同 submitter 落到同一分段时会互相串行，分段数越大冲突越少
+ * 3. 除 {@link #tryLock} 外提供带等待的 {@link #lock}，等待者在分段上排队，释放时唤醒
+ * <p>
+ * 注意：只在单个 JVM 内互斥，单节点部署可直接使用，多节点时应叠加在分布式锁之前（见 {@link LayeredLockManager}）
+ */
+public class StripedLocalLockManager implements RedisLockManager {
+
+    public static final int DEFAULT_STRIPES = 1024;
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    public StripedLocalLockManager() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes 分段数，向上取整为 2 的幂
+     */
+    public StripedLocalLockManager(int stripes) {
+        if (stripes <= 0 || stripes > (1 << 30)) {
+            throw new IllegalArgumentException("stripes 超出范围: " + stripes);
+        }
+        int size = Integer.highestOneBit(stripes - 1) << 1;
+        if (stripes == 1) {
+            size = 1;
+        }
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+    }
+
+    @Override
+    public boolean tryLock(String submitter, String lockOwner, Duration ttl) {
+        return lock(submitter, lockOwner, ttl, Duration.ZERO);
+    }
+
+    /**
+     * 获取锁，分段被占用时最多等待 maxWait。
+     *
+     * @return true 表示加锁成功，false 表示等待超时或线程被中断
+     */
+    @Override
+    public boolean lock(String submitter, String lockOwner, Duration ttl, Duration maxWait) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(lockOwner, "lockOwner");
+        requirePositive(ttl, "ttl");
+        requireNonNull(maxWait, "maxWait");
+
+        Stripe stripe = stripeFor(submitter);
+        long deadline = System.nanoTime() + Math.max(maxWait.toNanos(), 0L);
+        synchronized (stripe) {
+            while (true) {
+                long now = System.nanoTime();
+                if (stripe.isFree(now)) {
+                    stripe.owner = lockOwner;
+                    stripe.expiresAtNanos = now + ttl.toNanos();
+                    return true;
+                }
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    return false;
+                }
+                // 最多等到持有者超时，超时后无需唤醒即可接管
+                long waitNanos = Math.min(remaining, stripe.expiresAtNanos - now);
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(stripe, Math.max(waitNanos, 1L));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void unlock(String submitter, String lockOwner) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(lockOwner, "lockOwner");
+
+        Stripe stripe = stripeFor(submitter);
+        synchronized (stripe) {
+            // 只有 owner 匹配时才释放，锁已超时并被他人获取时不做任何操作（幂等）
+            if (lockOwner.equals(stripe.owner)) {
+                stripe.owner = null;
+                stripe.notify();
+            }
+        }
+    }
+
+    private Stripe stripeFor(String submitter) {
+        long hash = HashUtils.fnv1a64(submitter);
+        return stripes[(int) (hash ^ (hash >>> 32)) & mask];
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * 单个分段，所有访问都在其监视器下进行。
+     */
+    private static final class Stripe {
+
+        private String owner;
+        private long expiresAtNanos;
+
+        private boolean isFree(long nowNanos) {
+            return owner == null || nowNanos - expiresAtNanos >= 0;
+        }
+    }
+}
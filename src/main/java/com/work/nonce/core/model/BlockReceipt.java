@@ -0,0 +1,49 @@
+package com.work.nonce.core.model;
+
+/**
+ * 区块中一笔已确认交易的回执：发送方（即 submitter）、nonce 与 txHash，用于按区块批量确认。
+ * <p>
+ * 注意：不可变对象，可在线程间安全传递
+ */
+public class BlockReceipt {
+
+    private final String submitter;
+    private final long nonce;
+    private final String txHash;
+
+    public BlockReceipt(String submitter, long nonce, String txHash) {
+        if (submitter == null || submitter.trim().isEmpty()) {
+            throw new IllegalArgumentException("submitter 不能为空");
+        }
+        if (nonce < 0) {
+            throw new IllegalArgumentException("nonce 不能为负数");
+        }
+        if (txHash == null || txHash.trim().isEmpty()) {
+            throw new IllegalArgumentException("txHash 不能为空");
+        }
+        this.submitter = submitter;
+        this.nonce = nonce;
+        this.txHash = txHash;
+    }
+
+    public String getSubmitter() {
+        return submitter;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    public String getTxHash() {
+        return txHash;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockReceipt{" +
+                "submitter='" + submitter + '\'' +
+                ", nonce=" + nonce +
+                ", txHash='" + txHash + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,46 @@
+package com.work.nonce.core.model;
+
+/**
+ * 一批链上对账的落库结果：推进水位的 submitter 数、被链上确认的 RESERVED 数、被链上消耗而作废的 RECYCLABLE 空洞数。
+ * <p>
+ * 注意：不可变对象
+ */
+public class ChainReconcileResult {
+
+    private static final ChainReconcileResult EMPTY = new ChainReconcileResult(0, 0, 0);
+
+    private final long advanced;
+    private final long confirmed;
+    private final long voided;
+
+    public ChainReconcileResult(long advanced, long confirmed, long voided) {
+        this.advanced = advanced;
+        this.confirmed = confirmed;
+        this.voided = voided;
+    }
+
+    public static ChainReconcileResult empty() {
+        return EMPTY;
+    }
+
+    public long getAdvanced() {
+        return advanced;
+    }
+
+    public long getConfirmed() {
+        return confirmed;
+    }
+
+    public long getVoided() {
+        return voided;
+    }
+
+    @Override
+    public String toString() {
+        return "ChainReconcileResult{" +
+                "advanced=" + advanced +
+                ", confirmed=" + confirmed +
+                ", voided=" + voided +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+package com.work.nonce.core.model;
+
+/**
+ * 锁持有者标识：(nodeId, sequence)，nodeId 来自 nonce_node 注册表，sequence 为节点内单调递增的序号。
+ * <p>
+ * 注意：
+ * 1. 分配表以 owner_node / owner_seq 两列存储，Redis 锁值与租约 owner 使用 {@link #toString()} 的 "nodeId:sequence" 形式
+ * 2. nodeId 为 0 的标识保留给 Redis 分配引擎落库的预留记录（{@link #ENGINE}）
+ * 3. 不可变对象，可在线程间安全传递
+ */
+public final class LockOwner {
+
+    /**
+     * Redis 分配引擎写入的预留记录使用的固定 owner
+     */
+    public static final LockOwner ENGINE = new LockOwner(0, 0L);
+
+    private final int nodeId;
+    private final long sequence;
+
+    public LockOwner(int nodeId, long sequence) {
+        this.nodeId = nodeId;
+        this.sequence = sequence;
+    }
+
+    /**
+     * 解析 "nodeId:sequence" 形式的标识，格式不符（如升级前节点生成的 owner）时返回 null
+     */
+    public static LockOwner parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        int separator = value.indexOf(':');
+        if (separator <= 0 || separator == value.length() - 1) {
+            return null;
+        }
+        try {
+            return new LockOwner(Integer.parseInt(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 由数据库中的两列还原标识，任一列为 null（无 owner）时返回 null
+     */
+    public static String format(Integer nodeId, Long sequence) {
+        if (nodeId == null || sequence == null) {
+            return null;
+        }
+        return nodeId + ":" + sequence;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LockOwner)) {
+            return false;
+        }
+        LockOwner other = (LockOwner) o;
+        return nodeId == other.nodeId && sequence == other.sequence;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * nodeId + Long.hashCode(sequence);
+    }
+
+    @Override
+    public String toString() {
+        return nodeId + ":" + sequence;
+    }
+}
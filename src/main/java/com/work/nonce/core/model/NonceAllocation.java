@@ -10,6 +10,7 @@ import java.util.Objects;
  * 1. id、submitter、nonce是不可变字段，创建后不能修改
  * 2. status、lockOwner、lockedUntil、txHash、updatedAt是可变字段，会在状态转换时更新
  * 3. 此对象主要在事务中使用，线程安全性由事务保证
+ * 4. id 为 0 表示尚未落库（见 {@link #pending}）
  */
 public class NonceAllocation {
 
@@ -30,7 +31,19 @@ public class NonceAllocation {
                            Instant lockedUntil,
                            String txHash,
                            Instant updatedAt) {
-        if (id <= 0) {
+        this(id, submitter, nonce, status, lockOwner, lockedUntil, txHash, updatedAt, true);
+    }
+
+    private NonceAllocation(long id,
+                            String submitter,
+                            long nonce,
+                            NonceAllocationStatus status,
+                            String lockOwner,
+                            Instant lockedUntil,
+                            String txHash,
+                            Instant updatedAt,
+                            boolean persisted) {
+        if (persisted && id <= 0) {
             throw new IllegalArgumentException("id 必须大于0");
         }
         if (submitter == null || submitter.trim().isEmpty()) {
@@ -56,6 +69,14 @@ public class NonceAllocation {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * 尚未落库的 RESERVED 分配（由 Redis 引擎发放，稍后异步写入分配表），id 为 0
+     */
+    public static NonceAllocation pending(String submitter, long nonce, String lockOwner, Instant lockedUntil) {
+        return new NonceAllocation(0L, submitter, nonce, NonceAllocationStatus.RESERVED,
+                lockOwner, lockedUntil, null, Instant.now(), false);
+    }
+
     public long getId() {
         return id;
     }
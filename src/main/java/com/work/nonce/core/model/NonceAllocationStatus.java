@@ -2,19 +2,47 @@ package com.work.nonce.core.model;
 
 /**
  * nonce 生命周期的三种状态，对应 README 中的 RESERVED / USED / RECYCLABLE。
+ * <p>
+ * 分配表以 smallint 的 status_code 存储（见 {@link #getCode()}），SQL 中直接使用对应的数字常量。
  */
 public enum NonceAllocationStatus {
     /**
      * 已分配给业务但尚未确认链上成功，调用方需要尽快执行业务操作。
      */
-    RESERVED,
+    RESERVED(1),
     /**
      * 业务流程及链上调用均成功，该 nonce 永久占⽤。
      */
-    USED,
+    USED(2),
     /**
      * 可以重新分配的 gap nonce（失败、放弃、超时都会转成此状态）。
      */
-    RECYCLABLE
-}
+    RECYCLABLE(3);
+
+    private final short code;
+
+    NonceAllocationStatus(int code) {
+        this.code = (short) code;
+    }
 
+    /**
+     * 数据库中的 status_code，发布后不可修改
+     */
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * 按 status_code 解析状态
+     *
+     * @throws IllegalArgumentException 未知的 status_code
+     */
+    public static NonceAllocationStatus fromCode(int code) {
+        for (NonceAllocationStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("未知的 status_code: " + code);
+    }
+}
@@ -0,0 +1,68 @@
+package com.work.nonce.core.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次租约的结果：某个节点在一个事务内为 submitter 预留的一段 nonce。
+ * <p>
+ * 注意：
+ * 1. allocations 按 nonce 升序排列，均已以 RESERVED 状态落库，lock_owner 为 leaseOwner
+ * 2. 存在空洞时租约只包含被复用的那一个空洞 nonce
+ * 3. 不可变对象，可在线程间安全传递
+ */
+public class NonceLease {
+
+    private final String submitter;
+    private final String leaseOwner;
+    private final List<NonceAllocation> allocations;
+    private final Instant expiresAt;
+
+    public NonceLease(String submitter, String leaseOwner, List<NonceAllocation> allocations, Instant expiresAt) {
+        if (submitter == null || submitter.trim().isEmpty()) {
+            throw new IllegalArgumentException("submitter 不能为空");
+        }
+        if (leaseOwner == null || leaseOwner.trim().isEmpty()) {
+            throw new IllegalArgumentException("leaseOwner 不能为空");
+        }
+        if (allocations == null || allocations.isEmpty()) {
+            throw new IllegalArgumentException("allocations 不能为空");
+        }
+        if (expiresAt == null) {
+            throw new IllegalArgumentException("expiresAt 不能为null");
+        }
+
+        this.submitter = submitter;
+        this.leaseOwner = leaseOwner;
+        this.allocations = Collections.unmodifiableList(new ArrayList<>(allocations));
+        this.expiresAt = expiresAt;
+    }
+
+    public String getSubmitter() {
+        return submitter;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public List<NonceAllocation> getAllocations() {
+        return allocations;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "NonceLease{" +
+                "submitter='" + submitter + '\'' +
+                ", leaseOwner='" + leaseOwner + '\'' +
+                ", size=" + allocations.size() +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
@@ -0,0 +1,71 @@
+package com.work.nonce.core.model;
+
+/**
+ * 一次待落库的状态转换（RESERVED → USED / RECYCLABLE），用于批量确认。
+ * <p>
+ * 注意：不可变对象，可在线程间安全传递
+ */
+public class NonceStatusUpdate {
+
+    private final String submitter;
+    private final long nonce;
+    private final NonceAllocationStatus targetStatus;
+    private final String txHash;
+    private final String reason;
+
+    private NonceStatusUpdate(String submitter, long nonce, NonceAllocationStatus targetStatus,
+                              String txHash, String reason) {
+        if (submitter == null || submitter.trim().isEmpty()) {
+            throw new IllegalArgumentException("submitter 不能为空");
+        }
+        if (nonce < 0) {
+            throw new IllegalArgumentException("nonce 不能为负数");
+        }
+        this.submitter = submitter;
+        this.nonce = nonce;
+        this.targetStatus = targetStatus;
+        this.txHash = txHash;
+        this.reason = reason;
+    }
+
+    public static NonceStatusUpdate used(String submitter, long nonce, String txHash) {
+        if (txHash == null || txHash.trim().isEmpty()) {
+            throw new IllegalArgumentException("txHash 不能为空");
+        }
+        return new NonceStatusUpdate(submitter, nonce, NonceAllocationStatus.USED, txHash, null);
+    }
+
+    public static NonceStatusUpdate recyclable(String submitter, long nonce, String reason) {
+        return new NonceStatusUpdate(submitter, nonce, NonceAllocationStatus.RECYCLABLE, null,
+                reason != null ? reason : "");
+    }
+
+    public String getSubmitter() {
+        return submitter;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    public NonceAllocationStatus getTargetStatus() {
+        return targetStatus;
+    }
+
+    public String getTxHash() {
+        return txHash;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "NonceStatusUpdate{" +
+                "submitter='" + submitter + '\'' +
+                ", nonce=" + nonce +
+                ", targetStatus=" + targetStatus +
+                '}';
+    }
+}
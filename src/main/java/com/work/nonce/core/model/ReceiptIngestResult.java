@@ -0,0 +1,88 @@
+package com.work.nonce.core.model;
+
+/**
+ * 一个区块回执的落库结果。
+ * <ul>
+ *   <li>confirmed：按回执转为 USED（或补写 txHash）的记录数</li>
+ *   <li>duplicated：已是 USED 且 txHash 相同的回执数（区块重放）</li>
+ *   <li>conflicted：已是 USED 但 txHash 不同的回执数（如交易被替换），记录保持不变</li>
+ *   <li>unmatched：找不到分配记录的回执数（非本组件分配、已压缩，或由 Redis 引擎负责的 submitter）</li>
+ *   <li>settled：因链上水位推进而确认或作废的其他记录数（回执之前尚未入库区块中的 nonce）</li>
+ *   <li>advanced：推进了 last_chain_nonce 的 submitter 数</li>
+ * </ul>
+ * 注意：不可变对象
+ */
+public class ReceiptIngestResult {
+
+    private static final ReceiptIngestResult EMPTY = new ReceiptIngestResult(0, 0, 0, 0, 0, 0);
+
+    private final long confirmed;
+    private final long duplicated;
+    private final long conflicted;
+    private final long unmatched;
+    private final long settled;
+    private final long advanced;
+
+    public ReceiptIngestResult(long confirmed, long duplicated, long conflicted,
+                               long unmatched, long settled, long advanced) {
+        this.confirmed = confirmed;
+        this.duplicated = duplicated;
+        this.conflicted = conflicted;
+        this.unmatched = unmatched;
+        this.settled = settled;
+        this.advanced = advanced;
+    }
+
+    public static ReceiptIngestResult empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 合并两段结果（单个区块拆成多条语句执行时使用）
+     */
+    public ReceiptIngestResult plus(ReceiptIngestResult other) {
+        return new ReceiptIngestResult(
+                confirmed + other.confirmed,
+                duplicated + other.duplicated,
+                conflicted + other.conflicted,
+                unmatched + other.unmatched,
+                settled + other.settled,
+                advanced + other.advanced);
+    }
+
+    public long getConfirmed() {
+        return confirmed;
+    }
+
+    public long getDuplicated() {
+        return duplicated;
+    }
+
+    public long getConflicted() {
+        return conflicted;
+    }
+
+    public long getUnmatched() {
+        return unmatched;
+    }
+
+    public long getSettled() {
+        return settled;
+    }
+
+    public long getAdvanced() {
+        return advanced;
+    }
+
+    @Override
+    public String toString() {
+        return "ReceiptIngestResult{" +
+                "confirmed=" + confirmed +
+                ", duplicated=" + duplicated +
+                ", conflicted=" + conflicted +
+                ", unmatched=" + unmatched +
+                ", settled=" + settled +
+                ", advanced=" + advanced +
+                '}';
+    }
+}
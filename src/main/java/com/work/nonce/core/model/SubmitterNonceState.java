@@ -9,6 +9,9 @@ import java.time.Instant;
  * 1. submitter是不可变字段，创建后不能修改
  * 2. lastChainNonce、nextLocalNonce、updatedAt是可变字段，会在状态更新时修改
  * 3. 此对象主要在事务中使用，线程安全性由事务保证
+ * 4. recyclableCount / minRecyclableNonce 为 RECYCLABLE 空洞计数与最小空洞，由仓储层各状态转换语句维护，
+ *    计数为 0 时分配路径无需查询分配表
+ * 5. ownerEpoch 为最近一次以集群 owner 身份写入该状态行时的 ring epoch，用于 fencing 旧 owner
  */
 public class SubmitterNonceState {
 
@@ -18,9 +21,17 @@ public class SubmitterNonceState {
     private final String submitter;
     private long lastChainNonce;
     private long nextLocalNonce;
+    private long recyclableCount;
+    private Long minRecyclableNonce;
+    private long ownerEpoch;
     private Instant updatedAt;
 
     public SubmitterNonceState(String submitter, long lastChainNonce, long nextLocalNonce, Instant updatedAt) {
+        this(submitter, lastChainNonce, nextLocalNonce, 0L, null, updatedAt);
+    }
+
+    public SubmitterNonceState(String submitter, long lastChainNonce, long nextLocalNonce,
+                               long recyclableCount, Long minRecyclableNonce, Instant updatedAt) {
         if (submitter == null || submitter.trim().isEmpty()) {
             throw new IllegalArgumentException("submitter 不能为空");
         }
@@ -34,6 +45,8 @@ public class SubmitterNonceState {
         this.submitter = submitter;
         this.lastChainNonce = lastChainNonce;
         this.nextLocalNonce = nextLocalNonce;
+        this.recyclableCount = Math.max(recyclableCount, 0L);
+        this.minRecyclableNonce = minRecyclableNonce;
         this.updatedAt = updatedAt;
     }
 
@@ -68,6 +81,41 @@ public class SubmitterNonceState {
         this.nextLocalNonce = nextLocalNonce;
     }
 
+    public long getRecyclableCount() {
+        return recyclableCount;
+    }
+
+    public Long getMinRecyclableNonce() {
+        return minRecyclableNonce;
+    }
+
+    /**
+     * 同步空洞计数（来自数据库的最新值）
+     */
+    public void setRecyclableCounters(long recyclableCount, Long minRecyclableNonce) {
+        this.recyclableCount = Math.max(recyclableCount, 0L);
+        this.minRecyclableNonce = recyclableCount > 0 ? minRecyclableNonce : null;
+    }
+
+    /**
+     * 记录本事务内新产生的 count 个空洞，其中最小的为 minNonce
+     */
+    public void addRecyclable(int count, long minNonce) {
+        if (count <= 0) {
+            return;
+        }
+        this.recyclableCount += count;
+        this.minRecyclableNonce = minRecyclableNonce == null ? minNonce : Math.min(minRecyclableNonce, minNonce);
+    }
+
+    public long getOwnerEpoch() {
+        return ownerEpoch;
+    }
+
+    public void setOwnerEpoch(long ownerEpoch) {
+        this.ownerEpoch = ownerEpoch;
+    }
+
     public Instant getUpdatedAt() {
         return updatedAt;
     }
@@ -85,6 +133,9 @@ public class SubmitterNonceState {
                 "submitter='" + submitter + '\'' +
                 ", lastChainNonce=" + lastChainNonce +
                 ", nextLocalNonce=" + nextLocalNonce +
+                ", recyclableCount=" + recyclableCount +
+                ", minRecyclableNonce=" + minRecyclableNonce +
+                ", ownerEpoch=" + ownerEpoch +
                 ", updatedAt=" + updatedAt +
                 '}';
     }
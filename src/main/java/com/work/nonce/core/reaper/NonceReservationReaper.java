@@ -0,0 +1,181 @@
+package com.work.nonce.core.reaper;
+
+import com.work.nonce.core.config.NonceReaperConfig;
+import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.service.NonceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 后台回收器：定时跨 submitter 把过期的 RESERVED 批量转为 RECYCLABLE，
+ * 使分配路径不必在 submitter 行锁内扫描过期记录（配合 inlineRecycleEnabled=false）。
+ * <p>
+ * 注意：
+ * 1. 按 hash(submitter) 切分为 partitions 个分区并行处理，每批一个短事务，
+ *    FOR UPDATE SKIP LOCKED 跳过正在被分配/确认事务持有的行，不与业务路径互相等待
+ * 2. 一批回收满 batchSize 说明仍有积压，继续下一批，直到不足一批或达到 maxBatchesPerRun
+ * 3. 多实例同时运行也是安全的：同一行只会被其中一个实例锁定并回收
+ */
+public class NonceReservationReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(NonceReservationReaper.class);
+
+    private final NonceService nonceService;
+    private final NonceReaperConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+
+    private final LongAdder reapedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder failedBatchCount = new LongAdder();
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong lastRunReaped = new AtomicLong();
+    private final AtomicLong lastRunNanos = new AtomicLong();
+
+    public NonceReservationReaper(NonceService nonceService, NonceReaperConfig config) {
+        this.nonceService = requireNonNull(nonceService, "nonceService");
+        this.config = requireNonNull(config, "config");
+        if (!config.isEnabled()) {
+            this.scheduler = null;
+            this.workers = null;
+            return;
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nonce-reaper-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger workerIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(config.getPartitions(), runnable -> {
+            Thread thread = new Thread(runnable, "nonce-reaper-" + workerIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = config.getInterval().toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::runSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 执行一轮回收：各分区并行，等待全部分区结束后返回本轮回收总数。
+     */
+    public int runOnce() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        List<Future<Integer>> futures = new ArrayList<>(config.getPartitions());
+        for (int partition = 0; partition < config.getPartitions(); partition++) {
+            final int p = partition;
+            futures.add(workers.submit(() -> reapPartition(p)));
+        }
+
+        int total = 0;
+        for (Future<Integer> future : futures) {
+            try {
+                total += future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                log.error("后台回收分区执行异常", e.getCause());
+            }
+        }
+
+        runCount.incrementAndGet();
+        lastRunReaped.set(total);
+        lastRunNanos.set(System.nanoTime() - start);
+        if (total > 0) {
+            log.debug("后台回收完成, reaped={}, costMs={}", total, lastRunNanos.get() / 1_000_000);
+        }
+        return total;
+    }
+
+    private int reapPartition(int partition) {
+        int reaped = 0;
+        for (int i = 0; i < config.getMaxBatchesPerRun(); i++) {
+            List<NonceAllocation> batch;
+            try {
+                batch = nonceService.reapExpiredReservations(partition, config.getPartitions(), config.getBatchSize());
+            } catch (Exception e) {
+                // 单批失败只影响本分区本轮，下一轮重试
+                failedBatchCount.increment();
+                log.warn("后台回收失败, partition={}", partition, e);
+                break;
+            }
+            batchCount.increment();
+            reaped += batch.size();
+            reapedCount.add(batch.size());
+            if (batch.size() < config.getBatchSize()) {
+                break;
+            }
+        }
+        return reaped;
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (Exception e) {
+            log.error("后台回收异常", e);
+        }
+    }
+
+    /**
+     * 停止后台线程，供应用关闭时调用；未回收的记录由下次启动或其他实例继续处理。
+     */
+    public void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        scheduler.shutdown();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(config.getInterval().toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getReapedCount() {
+        return reapedCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatchCount.sum();
+    }
+
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    public long getLastRunReaped() {
+        return lastRunReaped.get();
+    }
+
+    public double getLastRunLatencyMillis() {
+        return lastRunNanos.get() / 1_000_000.0;
+    }
+}
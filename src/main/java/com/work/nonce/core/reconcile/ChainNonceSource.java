@@ -0,0 +1,29 @@
+package com.work.nonce.core.reconcile;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 链上 nonce 查询，由业务侧适配自己的链客户端后提供给对账器。
+ * 实现须线程安全：对账器会在多个线程上并发调用。
+ */
+public interface ChainNonceSource {
+
+    /**
+     * 查询 submitter 在链上最新已使用的 nonce，尚无交易或无法确定时返回 -1。
+     */
+    long queryLatestNonce(String submitter);
+
+    /**
+     * 批量查询，返回 submitter → 链上最新 nonce，缺失的 submitter 视为本轮未知。
+     * 默认逐个查询；客户端支持批量请求（如 JSON-RPC batch）时应覆盖以减少往返。
+     */
+    default Map<String, Long> queryLatestNonces(List<String> submitters) {
+        Map<String, Long> result = new HashMap<>(submitters.size() * 2);
+        for (String submitter : submitters) {
+            result.put(submitter, queryLatestNonce(submitter));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,255 @@
+package com.work.nonce.core.reconcile;
+
+import com.work.nonce.core.config.NonceReconcilerConfig;
+import com.work.nonce.core.model.ChainReconcileResult;
+import com.work.nonce.core.model.SubmitterNonceState;
+import com.work.nonce.core.service.NonceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 链上对账器：定时遍历仍有未结算 nonce 的 submitter，向链上查询最新 nonce，批量推进 last_chain_nonce。
+ * <p>
+ * 注意：
+ * 1. 按 submitter 升序分页遍历状态表，每页的链上查询按 queryBatchSize 切块，由 concurrency 个线程并发执行
+ * 2. 一页内链上 nonce 高于当前水位的 submitter 合并为一条语句、一个事务落库：推进水位，
+ *    水位以下的 RESERVED 确认为 USED，RECYCLABLE 空洞作废为 USED（见 {@link NonceService#reconcileChainNonces}）
+ * 3. 查询失败或超时的 submitter、正在分配中被跳过的 submitter 本轮不处理，下一轮重试；水位只进不退，
+ *    多实例同时运行也是安全的
+ * 4. Redis 引擎负责的 submitter 由引擎自身维护，对账时忽略
+ */
+public class NonceChainReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(NonceChainReconciler.class);
+
+    private final NonceService nonceService;
+    private final ChainNonceSource chainSource;
+    private final NonceReconcilerConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService queryExecutor;
+
+    private final LongAdder scannedCount = new LongAdder();
+    private final LongAdder advancedCount = new LongAdder();
+    private final LongAdder confirmedCount = new LongAdder();
+    private final LongAdder voidedCount = new LongAdder();
+    private final LongAdder failedQueryCount = new LongAdder();
+    private final LongAdder failedBatchCount = new LongAdder();
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong lastRunScanned = new AtomicLong();
+    private final AtomicLong lastRunNanos = new AtomicLong();
+
+    public NonceChainReconciler(NonceService nonceService, ChainNonceSource chainSource, NonceReconcilerConfig config) {
+        this.nonceService = requireNonNull(nonceService, "nonceService");
+        this.chainSource = requireNonNull(chainSource, "chainSource");
+        this.config = requireNonNull(config, "config");
+        if (!config.isEnabled()) {
+            this.scheduler = null;
+            this.queryExecutor = null;
+            return;
+        }
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.queryExecutor = Executors.newFixedThreadPool(config.getConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "nonce-reconciler-query-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nonce-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = config.getInterval().toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::runSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 执行一轮对账：遍历全部未结算的 submitter，返回本轮推进水位的 submitter 数。
+     */
+    public long runOnce() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long scanned = 0;
+        long advanced = 0;
+        String after = null;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<SubmitterNonceState> page;
+            try {
+                page = nonceService.listUnsettledStates(after, config.getPageSize());
+            } catch (Exception e) {
+                failedBatchCount.increment();
+                log.warn("链上对账读取状态失败, after={}", after, e);
+                break;
+            }
+            if (page.isEmpty()) {
+                break;
+            }
+            scanned += page.size();
+            advanced += reconcilePage(page);
+            if (page.size() < config.getPageSize()) {
+                break;
+            }
+            after = page.get(page.size() - 1).getSubmitter();
+        }
+
+        scannedCount.add(scanned);
+        runCount.incrementAndGet();
+        lastRunScanned.set(scanned);
+        lastRunNanos.set(System.nanoTime() - start);
+        if (advanced > 0) {
+            log.debug("链上对账完成, scanned={}, advanced={}, costMs={}",
+                    scanned, advanced, lastRunNanos.get() / 1_000_000);
+        }
+        return advanced;
+    }
+
+    /**
+     * 并发查询一页 submitter 的链上 nonce，水位需要推进的部分一次落库
+     */
+    private long reconcilePage(List<SubmitterNonceState> page) {
+        Map<String, Long> watermarks = new HashMap<>(page.size() * 2);
+        List<Future<Map<String, Long>>> futures = new ArrayList<>();
+        List<Integer> chunkSizes = new ArrayList<>();
+        for (int from = 0; from < page.size(); from += config.getQueryBatchSize()) {
+            List<String> chunk = new ArrayList<>(config.getQueryBatchSize());
+            for (SubmitterNonceState state : page.subList(from, Math.min(from + config.getQueryBatchSize(), page.size()))) {
+                chunk.add(state.getSubmitter());
+                watermarks.put(state.getSubmitter(), state.getLastChainNonce());
+            }
+            futures.add(queryExecutor.submit(() -> chainSource.queryLatestNonces(chunk)));
+            chunkSizes.add(chunk.size());
+        }
+
+        Map<String, Long> chainNonces = new HashMap<>(page.size() * 2);
+        long deadline = System.nanoTime() + config.getQueryTimeout().toNanos();
+        for (int i = 0; i < futures.size(); i++) {
+            Future<Map<String, Long>> future = futures.get(i);
+            Map<String, Long> result;
+            try {
+                result = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                return 0;
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                failedQueryCount.add(chunkSizes.get(i));
+                continue;
+            } catch (ExecutionException e) {
+                failedQueryCount.add(chunkSizes.get(i));
+                log.warn("链上 nonce 查询失败, submitters={}", chunkSizes.get(i), e.getCause());
+                continue;
+            }
+            if (result == null) {
+                continue;
+            }
+            for (Map.Entry<String, Long> entry : result.entrySet()) {
+                Long watermark = watermarks.get(entry.getKey());
+                Long chainNonce = entry.getValue();
+                if (watermark != null && chainNonce != null && chainNonce > watermark) {
+                    chainNonces.put(entry.getKey(), chainNonce);
+                }
+            }
+        }
+        if (chainNonces.isEmpty()) {
+            return 0;
+        }
+
+        ChainReconcileResult result;
+        try {
+            result = nonceService.reconcileChainNonces(chainNonces);
+        } catch (Exception e) {
+            // 整页回滚，下一轮重试
+            failedBatchCount.increment();
+            log.warn("链上对账落库失败, submitters={}", chainNonces.size(), e);
+            return 0;
+        }
+        advancedCount.add(result.getAdvanced());
+        confirmedCount.add(result.getConfirmed());
+        voidedCount.add(result.getVoided());
+        return result.getAdvanced();
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (Exception e) {
+            log.error("链上对账异常", e);
+        }
+    }
+
+    /**
+     * 停止后台线程，供应用关闭时调用；未完成的对账由下次启动或其他实例继续处理。
+     */
+    public void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        scheduler.shutdown();
+        queryExecutor.shutdownNow();
+        try {
+            scheduler.awaitTermination(config.getInterval().toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getScannedCount() {
+        return scannedCount.sum();
+    }
+
+    public long getAdvancedCount() {
+        return advancedCount.sum();
+    }
+
+    public long getConfirmedCount() {
+        return confirmedCount.sum();
+    }
+
+    public long getVoidedCount() {
+        return voidedCount.sum();
+    }
+
+    public long getFailedQueryCount() {
+        return failedQueryCount.sum();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatchCount.sum();
+    }
+
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    public long getLastRunScanned() {
+        return lastRunScanned.get();
+    }
+
+    public double getLastRunLatencyMillis() {
+        return lastRunNanos.get() / 1_000_000.0;
+    }
+}
@@ -1,10 +1,15 @@
 package com.work.nonce.core.repository;
 
+import com.work.nonce.core.model.BlockReceipt;
+import com.work.nonce.core.model.ChainReconcileResult;
 import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.model.NonceStatusUpdate;
+import com.work.nonce.core.model.ReceiptIngestResult;
 import com.work.nonce.core.model.SubmitterNonceState;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -17,28 +22,145 @@ public interface NonceRepository {
      */
     SubmitterNonceState lockAndLoadState(String submitter);
 
+    /**
+     * 不加行锁读取 submitter 状态（fencing 模式下由锁持有者使用），不存在时返回 empty。
+     */
+    Optional<SubmitterNonceState> loadState(String submitter);
+
     /**
      * 更新 submitter 的 nextLocalNonce / lastChainNonce。
      */
     void updateState(SubmitterNonceState state);
 
     /**
-     * 回收该 submitter 下超时未处理的 RESERVED。
+     * fencing 模式下以乐观方式把 next_local_nonce 从 expected 推进到 next：
+     * 仅当库中 fence_token 小于 fence 且 next_local_nonce 仍为 expected 时生效，同时记录 fence。
+     *
+     * @return false 表示 token 已落后或状态已被他人推进，调用方应回退到行锁路径
+     */
+    boolean updateStateFenced(String submitter, long expectedNextLocalNonce, long nextLocalNonce, long fence);
+
+    /**
+     * 回收该 submitter 下超时未处理的 RESERVED，并累加状态行上的空洞计数。
      *
      * @return 被回收的 allocation 列表，便于记录日志。
      */
     List<NonceAllocation> recycleExpiredReservations(String submitter, Duration reservedTimeout);
 
+    /**
+     * 跨 submitter 回收一批过期的 RESERVED（FOR UPDATE SKIP LOCKED），
+     * 只处理 hash(submitter) % partitions == partition 的记录。
+     *
+     * @return 被回收的 allocation 列表，最多 limit 条
+     */
+    List<NonceAllocation> reapExpiredReservations(Duration reservedTimeout, int partition, int partitions, int limit);
+
     /**
      * 查找最小的 RECYCLABLE 空洞，供复用。
      */
     Optional<NonceAllocation> findOldestRecyclable(String submitter);
 
+    /**
+     * 按 nonce 升序查找最小的若干个 RECYCLABLE 空洞，供批量复用。
+     */
+    List<NonceAllocation> findLowestRecyclable(String submitter, int limit);
+
+    /**
+     * 按 nonce 升序查找最小的若干条 RESERVED 记录（Redis 引擎重建状态时使用）。
+     */
+    List<NonceAllocation> findReserved(String submitter, int limit);
+
+    /**
+     * 按 submitter + nonce 查找记录，分配表中不存在时回查归档表。
+     */
+    Optional<NonceAllocation> findAllocation(String submitter, long nonce);
+
+    /**
+     * 按 txHash 查找记录，分配表中不存在时回查归档表。
+     */
+    Optional<NonceAllocation> findAllocationByTxHash(String txHash);
+
+    /**
+     * 把一批已结算的 USED 记录（nonce 不大于 last_chain_nonce）移入只追加的归档表，
+     * 只处理 hash(submitter) % partitions == partition 的记录，已被其他事务锁定的行跳过。
+     *
+     * @return 本批归档的记录数，最多 limit 条
+     */
+    int archiveSettledAllocations(int partition, int partitions, int limit);
+
+    /**
+     * 水位压缩：对一批水位已推进的 submitter（最多 limit 个，跳过被锁定的状态行），
+     * 删除 nonce 不大于 last_chain_nonce 的分配记录，每个 submitter 本批最多推进 span 个 nonce。
+     * 只处理 hash(submitter) % partitions == partition 的 submitter。
+     *
+     * @return 本批删除的分配记录数
+     */
+    int compactSettledAllocations(int partition, int partitions, int limit, long span);
+
+    /**
+     * 把 last_chain_nonce 推进到 chainNonce（不回退），next_local_nonce 随之推进到水位之上；状态行不存在时先初始化。
+     *
+     * @return 推进后的 last_chain_nonce
+     */
+    long advanceLastChainNonce(String submitter, long chainNonce);
+
+    /**
+     * 按 submitter 升序分页列出仍有未结算 nonce 的状态（next_local_nonce - 1 大于 last_chain_nonce），
+     * 从 afterSubmitter 之后开始（不含），供链上对账遍历。
+     */
+    List<SubmitterNonceState> listUnsettledStates(String afterSubmitter, int limit);
+
+    /**
+     * 批量链上对账（chainNonces 为 submitter → 链上最新 nonce）：推进各 submitter 的 last_chain_nonce，
+     * 把水位以下的 RESERVED 确认为 USED、RECYCLABLE 空洞作废为 USED，并重算空洞计数。
+     * 水位无需推进或状态行正被其他事务锁定的 submitter 本批跳过。
+     */
+    ChainReconcileResult reconcileChainNonces(Map<String, Long> chainNonces);
+
+    /**
+     * 按一个区块的回执批量确认：命中的记录转为 USED 并写入 txHash，各 submitter 的链上水位推进到回执中的最大 nonce。
+     * 重放或乱序到达的区块按幂等处理。
+     */
+    ReceiptIngestResult ingestReceipts(List<BlockReceipt> receipts);
+
     /**
      * 将 nonce 标记为 RESERVED（可能是新建，也可能是复用）。
      */
     NonceAllocation reserveNonce(String submitter, long nonce, String lockOwner, Duration lockTtl);
 
+    /**
+     * 仅当 nonce 仍为 RECYCLABLE 时将其认领为 RESERVED（用于校验空洞索引给出的候选）。
+     *
+     * @return 认领成功的 allocation；该 nonce 已不是 RECYCLABLE 时返回 empty
+     */
+    Optional<NonceAllocation> claimRecyclable(String submitter, long nonce, String lockOwner, Duration lockTtl);
+
+    /**
+     * 将一组 nonce 以单条多行语句标记为 RESERVED，返回按 nonce 升序排列的结果。
+     * 任一 nonce 已为 USED 时抛出异常。
+     */
+    List<NonceAllocation> reserveNonces(String submitter, List<Long> nonces, String lockOwner, Duration lockTtl);
+
+    /**
+     * 将 [fromNonce, fromNonce + size) 整段区间标记为 RESERVED（单条语句），返回按 nonce 升序排列的结果。
+     * 区间内任一 nonce 已为 USED 时抛出异常。
+     */
+    List<NonceAllocation> reserveRange(String submitter, long fromNonce, int size, String lockOwner, Duration lockTtl);
+
+    /**
+     * 将 [fromNonce, toNonce) 中仍属于 lockOwner 的 RESERVED 记录标记为 RECYCLABLE。
+     *
+     * @return 实际回收的记录数
+     */
+    int releaseRange(String submitter, String lockOwner, long fromNonce, long toNonce, String reason);
+
+    /**
+     * 在仍为 RESERVED 的 allocation 上写入 txHash（异步确认入队前调用），此后所有回收路径都会跳过该记录。
+     *
+     * @return 记录已不是 RESERVED（或不存在）时返回 false
+     */
+    boolean attachTxHash(String submitter, long nonce, String txHash);
+
     /**
      * 成功执行业务后，标记 allocation 为 USED，并附加 txHash 等信息。
      */
@@ -48,5 +170,48 @@ public interface NonceRepository {
      * 执行失败或放弃时，将 allocation 标记为 RECYCLABLE。
      */
     void markRecyclable(String submitter, long nonce, String reason);
+
+    /**
+     * 批量应用状态转换：USED 与 RECYCLABLE 各一条语句，仅转换仍为 RESERVED 的记录。
+     *
+     * @return 实际转换的记录数
+     */
+    int applyStatusUpdates(List<NonceStatusUpdate> updates);
+
+    /**
+     * 复用 consumed 个 RECYCLABLE 空洞后扣减状态行上的空洞计数，并重新计算最小空洞。
+     * 调用方须已持有该 submitter 状态行的锁。
+     */
+    void consumeRecyclable(String submitter, int consumed);
+
+    /**
+     * 按分配表重新计算 submitter 的 recyclable_count / min_recyclable_nonce（修复计数漂移）。
+     *
+     * @return 修复后的状态
+     */
+    SubmitterNonceState repairRecyclableCounters(String submitter);
+
+    /**
+     * 把状态行上的 owner_epoch 推进到 epoch（不回退），并在当前事务内持有该状态行的行锁；状态行不存在时先初始化。
+     *
+     * @return 推进后的 owner_epoch；大于 epoch 说明已有更新 epoch 的 owner 写入过
+     */
+    long advanceOwnerEpoch(String submitter, long epoch);
+
+    /**
+     * 是否支持单次往返完成整个分配流程（见 {@link #allocateAtomically}）。
+     */
+    default boolean supportsAtomicAllocation() {
+        return false;
+    }
+
+    /**
+     * 在数据库端一次完成"锁定状态 → 回收过期 RESERVED → 复用空洞或发新号 → 预留"，
+     * 仅当 {@link #supportsAtomicAllocation()} 为 true 时调用。
+     */
+    default NonceAllocation allocateAtomically(String submitter, String lockOwner, Duration lockTtl,
+                                               Duration reservedTimeout, boolean recycleExpired) {
+        throw new UnsupportedOperationException("当前 NonceRepository 不支持单次往返分配");
+    }
 }
 
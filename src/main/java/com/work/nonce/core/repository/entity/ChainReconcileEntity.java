@@ -0,0 +1,37 @@
+package com.work.nonce.core.repository.entity;
+
+/**
+ * 批量链上对账语句的计数结果
+ */
+public class ChainReconcileEntity {
+
+    private Long advanced;
+
+    private Long confirmed;
+
+    private Long voided;
+
+    public Long getAdvanced() {
+        return advanced;
+    }
+
+    public void setAdvanced(Long advanced) {
+        this.advanced = advanced;
+    }
+
+    public Long getConfirmed() {
+        return confirmed;
+    }
+
+    public void setConfirmed(Long confirmed) {
+        this.confirmed = confirmed;
+    }
+
+    public Long getVoided() {
+        return voided;
+    }
+
+    public void setVoided(Long voided) {
+        this.voided = voided;
+    }
+}
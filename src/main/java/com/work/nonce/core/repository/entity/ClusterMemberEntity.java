@@ -0,0 +1,49 @@
+package com.work.nonce.core.repository.entity;
+
+import java.time.Instant;
+
+/**
+ * 集群成员视图查询结果：ring epoch + 成员（无成员时 nodeId 为 null）
+ */
+public class ClusterMemberEntity {
+
+    private Long epoch;
+
+    private String nodeId;
+
+    private String endpoint;
+
+    private Instant heartbeatAt;
+
+    public Long getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(Long epoch) {
+        this.epoch = epoch;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public Instant getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(Instant heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+}
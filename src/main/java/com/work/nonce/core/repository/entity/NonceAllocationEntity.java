@@ -8,6 +8,8 @@ import java.time.Instant;
 
 /**
  * Nonce 分配记录表实体类
+ * status_code 见 {@link com.work.nonce.core.model.NonceAllocationStatus#getCode()}，
+ * 锁持有者以 (owner_node, owner_seq) 存储，见 {@link com.work.nonce.core.model.LockOwner}
  */
 @TableName("submitter_nonce_allocation")
 public class NonceAllocationEntity {
@@ -19,9 +21,11 @@ public class NonceAllocationEntity {
     
     private Long nonce;
     
-    private String status;
+    private Short statusCode;
     
-    private String lockOwner;
+    private Integer ownerNode;
+    
+    private Long ownerSeq;
     
     private Instant lockedUntil;
     
@@ -60,20 +64,28 @@ public class NonceAllocationEntity {
         this.nonce = nonce;
     }
 
-    public String getStatus() {
-        return status;
+    public Short getStatusCode() {
+        return statusCode;
+    }
+
+    public void setStatusCode(Short statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public Integer getOwnerNode() {
+        return ownerNode;
     }
 
-    public void setStatus(String status) {
-        this.status = status;
+    public void setOwnerNode(Integer ownerNode) {
+        this.ownerNode = ownerNode;
     }
 
-    public String getLockOwner() {
-        return lockOwner;
+    public Long getOwnerSeq() {
+        return ownerSeq;
     }
 
-    public void setLockOwner(String lockOwner) {
-        this.lockOwner = lockOwner;
+    public void setOwnerSeq(Long ownerSeq) {
+        this.ownerSeq = ownerSeq;
     }
 
     public Instant getLockedUntil() {
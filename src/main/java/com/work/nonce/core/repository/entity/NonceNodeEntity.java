@@ -0,0 +1,59 @@
+package com.work.nonce.core.repository.entity;
+
+import java.time.Instant;
+
+/**
+ * 节点注册表（nonce_node）记录：node_name 对应的整型 node_id 与注册次数
+ */
+public class NonceNodeEntity {
+
+    private Integer nodeId;
+
+    private String nodeName;
+
+    private Long incarnation;
+
+    private Instant registeredAt;
+
+    private Instant updatedAt;
+
+    public Integer getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(Integer nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public void setNodeName(String nodeName) {
+        this.nodeName = nodeName;
+    }
+
+    public Long getIncarnation() {
+        return incarnation;
+    }
+
+    public void setIncarnation(Long incarnation) {
+        this.incarnation = incarnation;
+    }
+
+    public Instant getRegisteredAt() {
+        return registeredAt;
+    }
+
+    public void setRegisteredAt(Instant registeredAt) {
+        this.registeredAt = registeredAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
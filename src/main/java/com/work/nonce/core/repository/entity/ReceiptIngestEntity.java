@@ -0,0 +1,67 @@
+package com.work.nonce.core.repository.entity;
+
+/**
+ * 区块回执批量确认语句的计数结果
+ */
+public class ReceiptIngestEntity {
+
+    private Long confirmed;
+
+    private Long duplicated;
+
+    private Long conflicted;
+
+    private Long unmatched;
+
+    private Long settled;
+
+    private Long advanced;
+
+    public Long getConfirmed() {
+        return confirmed;
+    }
+
+    public void setConfirmed(Long confirmed) {
+        this.confirmed = confirmed;
+    }
+
+    public Long getDuplicated() {
+        return duplicated;
+    }
+
+    public void setDuplicated(Long duplicated) {
+        this.duplicated = duplicated;
+    }
+
+    public Long getConflicted() {
+        return conflicted;
+    }
+
+    public void setConflicted(Long conflicted) {
+        this.conflicted = conflicted;
+    }
+
+    public Long getUnmatched() {
+        return unmatched;
+    }
+
+    public void setUnmatched(Long unmatched) {
+        this.unmatched = unmatched;
+    }
+
+    public Long getSettled() {
+        return settled;
+    }
+
+    public void setSettled(Long settled) {
+        this.settled = settled;
+    }
+
+    public Long getAdvanced() {
+        return advanced;
+    }
+
+    public void setAdvanced(Long advanced) {
+        this.advanced = advanced;
+    }
+}
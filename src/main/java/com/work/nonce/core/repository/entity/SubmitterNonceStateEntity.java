@@ -18,6 +18,12 @@ public class SubmitterNonceStateEntity {
     private Long lastChainNonce;
     
     private Long nextLocalNonce;
+
+    private Long recyclableCount;
+
+    private Long minRecyclableNonce;
+
+    private Long ownerEpoch;
     
     private Instant updatedAt;
     
@@ -58,6 +64,30 @@ public class SubmitterNonceStateEntity {
         this.nextLocalNonce = nextLocalNonce;
     }
 
+    public Long getRecyclableCount() {
+        return recyclableCount;
+    }
+
+    public void setRecyclableCount(Long recyclableCount) {
+        this.recyclableCount = recyclableCount;
+    }
+
+    public Long getMinRecyclableNonce() {
+        return minRecyclableNonce;
+    }
+
+    public void setMinRecyclableNonce(Long minRecyclableNonce) {
+        this.minRecyclableNonce = minRecyclableNonce;
+    }
+
+    public Long getOwnerEpoch() {
+        return ownerEpoch;
+    }
+
+    public void setOwnerEpoch(Long ownerEpoch) {
+        this.ownerEpoch = ownerEpoch;
+    }
+
     public Instant getUpdatedAt() {
         return updatedAt;
     }
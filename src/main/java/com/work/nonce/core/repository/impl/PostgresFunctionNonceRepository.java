@@ -0,0 +1,55 @@
+package com.work.nonce.core.repository.impl;
+
+import com.work.nonce.core.exception.NonceException;
+import com.work.nonce.core.model.LockOwner;
+import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.repository.entity.NonceAllocationEntity;
+import com.work.nonce.core.repository.mapper.NonceAllocationMapper;
+import com.work.nonce.core.repository.mapper.SubmitterNonceStateMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
+import static com.work.nonce.core.support.ValidationUtils.requirePositive;
+
+/**
+ * 基于 PL/pgSQL 函数 {@code nonce_allocate} 的 NonceRepository 实现
+ * <p>
+ * 单个 nonce 的分配（锁定状态、回收过期、复用空洞、发新号、预留）在数据库端一次完成，
+ * submitter 行锁只在函数执行期间持有；其余操作与 {@link PostgresNonceRepository} 完全一致。
+ * <p>
+ * 注意：nonce_allocate 函数由可重复迁移 db/migration/R__nonce_allocate.sql 创建，修改函数只改该文件
+ */
+public class PostgresFunctionNonceRepository extends PostgresNonceRepository {
+
+    public PostgresFunctionNonceRepository(SubmitterNonceStateMapper stateMapper,
+                                           NonceAllocationMapper allocationMapper) {
+        super(stateMapper, allocationMapper);
+    }
+
+    @Override
+    public boolean supportsAtomicAllocation() {
+        return true;
+    }
+
+    @Override
+    public NonceAllocation allocateAtomically(String submitter, String lockOwner, Duration lockTtl,
+                                              Duration reservedTimeout, boolean recycleExpired) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(lockOwner, "lockOwner");
+        requirePositive(lockTtl, "lockTtl");
+        requirePositive(reservedTimeout, "reservedTimeout");
+
+        LockOwner owner = toOwner(lockOwner);
+        Instant now = Instant.now();
+        NonceAllocationEntity entity = allocationMapper.allocateByFunction(submitter, owner.getNodeId(), owner.getSequence(),
+                now.plus(lockTtl), now.minus(reservedTimeout), now, recycleExpired);
+
+        // 函数内 ON CONFLICT 未更新任何行，说明选中的 nonce 已为 USED
+        if (entity == null) {
+            throw new NonceException("nonce 已使用，不能重新分配: " + submitter);
+        }
+        return convertToAllocation(entity);
+    }
+}
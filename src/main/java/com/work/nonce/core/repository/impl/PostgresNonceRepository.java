@@ -1,23 +1,37 @@
 package com.work.nonce.core.repository.impl;
 
 import com.work.nonce.core.exception.NonceException;
+import com.work.nonce.core.model.BlockReceipt;
+import com.work.nonce.core.model.ChainReconcileResult;
+import com.work.nonce.core.model.LockOwner;
 import com.work.nonce.core.model.NonceAllocation;
 import com.work.nonce.core.model.NonceAllocationStatus;
+import com.work.nonce.core.model.NonceStatusUpdate;
+import com.work.nonce.core.model.ReceiptIngestResult;
 import com.work.nonce.core.model.SubmitterNonceState;
 import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.repository.entity.ChainReconcileEntity;
 import com.work.nonce.core.repository.entity.NonceAllocationEntity;
+import com.work.nonce.core.repository.entity.ReceiptIngestEntity;
 import com.work.nonce.core.repository.entity.SubmitterNonceStateEntity;
 import com.work.nonce.core.repository.mapper.NonceAllocationMapper;
 import com.work.nonce.core.repository.mapper.SubmitterNonceStateMapper;
-import org.springframework.stereotype.Repository;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
+import static com.work.nonce.core.support.ValidationUtils.requireNonNegative;
 import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
 import static com.work.nonce.core.support.ValidationUtils.requirePositive;
 
@@ -28,16 +42,20 @@ import static com.work.nonce.core.support.ValidationUtils.requirePositive;
  * 1. 所有方法都必须在事务中调用，事务边界由Service层统一管理
  * 2. 移除了@Transactional注解，避免事务嵌套问题
  * 3. 增强了参数校验和异常处理
+ * 4. 状态以 status_code 存储；lockOwner 须为 {@link LockOwner} 的 "nodeId:sequence" 形式，按 (owner_node, owner_seq) 存储
  */
-@Repository
 public class PostgresNonceRepository implements NonceRepository {
 
     private static final int MAX_RETRY_ATTEMPTS = 3;
     private static final long INITIAL_LAST_CHAIN_NONCE = -1L;
     private static final long INITIAL_NEXT_LOCAL_NONCE = 0L;
+    /**
+     * 单条回执语句最多携带的回执数（每条 3 个绑定参数，远低于 JDBC 单语句 65535 个参数的上限）
+     */
+    private static final int MAX_RECEIPTS_PER_STATEMENT = 5000;
     
-    private final SubmitterNonceStateMapper stateMapper;
-    private final NonceAllocationMapper allocationMapper;
+    protected final SubmitterNonceStateMapper stateMapper;
+    protected final NonceAllocationMapper allocationMapper;
 
     public PostgresNonceRepository(SubmitterNonceStateMapper stateMapper,
                                    NonceAllocationMapper allocationMapper) {
@@ -93,6 +111,14 @@ public class PostgresNonceRepository implements NonceRepository {
         return entity;
     }
 
+    @Override
+    public Optional<SubmitterNonceState> loadState(String submitter) {
+        requireNonEmpty(submitter, "submitter");
+
+        SubmitterNonceStateEntity entity = stateMapper.selectById(submitter);
+        return entity == null ? Optional.empty() : Optional.of(convertToState(entity));
+    }
+
     @Override
     public void updateState(SubmitterNonceState state) {
         requireNonNull(state, "state");
@@ -110,6 +136,14 @@ public class PostgresNonceRepository implements NonceRepository {
         }
     }
 
+    @Override
+    public boolean updateStateFenced(String submitter, long expectedNextLocalNonce, long nextLocalNonce, long fence) {
+        requireNonEmpty(submitter, "submitter");
+        requirePositive(fence, "fence");
+
+        return stateMapper.updateStateFenced(submitter, expectedNextLocalNonce, nextLocalNonce, fence, Instant.now()) > 0;
+    }
+
     @Override
     public List<NonceAllocation> recycleExpiredReservations(String submitter, Duration reservedTimeout) {
         requireNonEmpty(submitter, "submitter");
@@ -117,19 +151,31 @@ public class PostgresNonceRepository implements NonceRepository {
 
         Instant now = Instant.now();
         Instant expireBefore = now.minus(reservedTimeout);
-        
-        // 先查询要回收的记录（用于返回）
-        List<NonceAllocationEntity> expiredEntities = allocationMapper.findExpiredReservations(submitter, expireBefore);
-        
-        // 执行回收操作
-        allocationMapper.recycleExpiredReservations(submitter, expireBefore, now);
-        
-        // 转换为领域模型
-        List<NonceAllocation> result = new ArrayList<>(expiredEntities.size());
-        for (NonceAllocationEntity entity : expiredEntities) {
+
+        // 单条语句完成回收并累加空洞计数，RETURNING 直接返回被回收的记录
+        List<NonceAllocationEntity> recycled = allocationMapper.recycleExpiredReservations(submitter, expireBefore, now);
+
+        List<NonceAllocation> result = new ArrayList<>(recycled.size());
+        for (NonceAllocationEntity entity : recycled) {
+            result.add(convertToAllocation(entity));
+        }
+        return result;
+    }
+
+    @Override
+    public List<NonceAllocation> reapExpiredReservations(Duration reservedTimeout, int partition, int partitions, int limit) {
+        requirePositive(reservedTimeout, "reservedTimeout");
+        requirePositive(partitions, "partitions");
+        requirePositive(limit, "limit");
+
+        Instant now = Instant.now();
+        List<NonceAllocationEntity> entities = allocationMapper.reapExpiredReservations(
+                now.minus(reservedTimeout), partition, partitions, limit, now);
+
+        List<NonceAllocation> result = new ArrayList<>(entities.size());
+        for (NonceAllocationEntity entity : entities) {
             result.add(convertToAllocation(entity));
         }
-        
         return result;
     }
 
@@ -144,6 +190,156 @@ public class PostgresNonceRepository implements NonceRepository {
         return Optional.of(convertToAllocation(entity));
     }
 
+    @Override
+    public List<NonceAllocation> findLowestRecyclable(String submitter, int limit) {
+        requireNonEmpty(submitter, "submitter");
+        requirePositive(limit, "limit");
+
+        List<NonceAllocationEntity> entities = allocationMapper.findLowestRecyclable(submitter, limit);
+        List<NonceAllocation> result = new ArrayList<>(entities.size());
+        for (NonceAllocationEntity entity : entities) {
+            result.add(convertToAllocation(entity));
+        }
+        return result;
+    }
+
+    @Override
+    public List<NonceAllocation> findReserved(String submitter, int limit) {
+        requireNonEmpty(submitter, "submitter");
+        requirePositive(limit, "limit");
+
+        return toSortedAllocations(allocationMapper.findReserved(submitter, limit));
+    }
+
+    @Override
+    public Optional<NonceAllocation> findAllocation(String submitter, long nonce) {
+        requireNonEmpty(submitter, "submitter");
+
+        NonceAllocationEntity entity = allocationMapper.findBySubmitterAndNonce(submitter, nonce);
+        if (entity == null) {
+            return Optional.empty();
+        }
+        return Optional.of(convertToAllocation(entity));
+    }
+
+    @Override
+    public Optional<NonceAllocation> findAllocationByTxHash(String txHash) {
+        requireNonEmpty(txHash, "txHash");
+
+        NonceAllocationEntity entity = allocationMapper.findByTxHash(txHash);
+        if (entity == null) {
+            return Optional.empty();
+        }
+        return Optional.of(convertToAllocation(entity));
+    }
+
+    @Override
+    public int archiveSettledAllocations(int partition, int partitions, int limit) {
+        requirePositive(partitions, "partitions");
+        requirePositive(limit, "limit");
+
+        return allocationMapper.archiveSettled(partition, partitions, limit, Instant.now());
+    }
+
+    @Override
+    public int compactSettledAllocations(int partition, int partitions, int limit, long span) {
+        requirePositive(partitions, "partitions");
+        requirePositive(limit, "limit");
+        requirePositive(span, "span");
+
+        return stateMapper.compactSettled(partition, partitions, limit, span);
+    }
+
+    @Override
+    public long advanceLastChainNonce(String submitter, long chainNonce) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonNegative(chainNonce, "chainNonce");
+
+        Long current = stateMapper.advanceLastChainNonce(submitter, chainNonce, Instant.now());
+        if (current == null) {
+            // 状态行尚不存在：先初始化再推进
+            lockAndLoadState(submitter);
+            current = stateMapper.advanceLastChainNonce(submitter, chainNonce, Instant.now());
+        }
+        if (current == null) {
+            throw new NonceException("submitter 状态不存在: " + submitter);
+        }
+        return current;
+    }
+
+    @Override
+    public List<SubmitterNonceState> listUnsettledStates(String afterSubmitter, int limit) {
+        requirePositive(limit, "limit");
+
+        List<SubmitterNonceStateEntity> entities = stateMapper.findUnsettled(
+                afterSubmitter != null ? afterSubmitter : "", limit);
+        List<SubmitterNonceState> result = new ArrayList<>(entities.size());
+        for (SubmitterNonceStateEntity entity : entities) {
+            result.add(convertToState(entity));
+        }
+        return result;
+    }
+
+    @Override
+    public ReceiptIngestResult ingestReceipts(List<BlockReceipt> receipts) {
+        requireNonNull(receipts, "receipts");
+        if (receipts.isEmpty()) {
+            return ReceiptIngestResult.empty();
+        }
+
+        // 按 submitter 分组（同一 (submitter, nonce) 只保留第一条），submitter 升序即状态行的加锁顺序
+        Map<String, Map<Long, BlockReceipt>> bySubmitter = new TreeMap<>();
+        for (BlockReceipt receipt : receipts) {
+            bySubmitter.computeIfAbsent(receipt.getSubmitter(), k -> new LinkedHashMap<>())
+                    .putIfAbsent(receipt.getNonce(), receipt);
+        }
+        stateMapper.lockSubmitters(bySubmitter.keySet());
+
+        // 通常一个区块一条语句；超大区块按 submitter 整组切分，同一 submitter 的回执始终在同一条语句内
+        Instant now = Instant.now();
+        ReceiptIngestResult result = ReceiptIngestResult.empty();
+        List<BlockReceipt> chunk = new ArrayList<>(Math.min(receipts.size(), MAX_RECEIPTS_PER_STATEMENT));
+        for (Map<Long, BlockReceipt> group : bySubmitter.values()) {
+            if (!chunk.isEmpty() && chunk.size() + group.size() > MAX_RECEIPTS_PER_STATEMENT) {
+                result = result.plus(applyReceipts(chunk, now));
+                chunk = new ArrayList<>(MAX_RECEIPTS_PER_STATEMENT);
+            }
+            chunk.addAll(group.values());
+        }
+        return result.plus(applyReceipts(chunk, now));
+    }
+
+    private ReceiptIngestResult applyReceipts(List<BlockReceipt> receipts, Instant now) {
+        ReceiptIngestEntity entity = allocationMapper.ingestReceipts(receipts, now);
+        if (entity == null) {
+            return ReceiptIngestResult.empty();
+        }
+        return new ReceiptIngestResult(
+                entity.getConfirmed() != null ? entity.getConfirmed() : 0L,
+                entity.getDuplicated() != null ? entity.getDuplicated() : 0L,
+                entity.getConflicted() != null ? entity.getConflicted() : 0L,
+                entity.getUnmatched() != null ? entity.getUnmatched() : 0L,
+                entity.getSettled() != null ? entity.getSettled() : 0L,
+                entity.getAdvanced() != null ? entity.getAdvanced() : 0L);
+    }
+
+    @Override
+    public ChainReconcileResult reconcileChainNonces(Map<String, Long> chainNonces) {
+        requireNonNull(chainNonces, "chainNonces");
+        if (chainNonces.isEmpty()) {
+            return ChainReconcileResult.empty();
+        }
+
+        ChainReconcileEntity entity = stateMapper.reconcileChainNonces(chainNonces, Instant.now());
+        if (entity == null) {
+            return ChainReconcileResult.empty();
+        }
+        return new ChainReconcileResult(
+                entity.getAdvanced() != null ? entity.getAdvanced() : 0L,
+                entity.getConfirmed() != null ? entity.getConfirmed() : 0L,
+                entity.getVoided() != null ? entity.getVoided() : 0L);
+    }
+
     @Override
     public NonceAllocation reserveNonce(String submitter, long nonce, String lockOwner, Duration lockTtl) {
         requireNonEmpty(submitter, "submitter");
@@ -153,31 +349,110 @@ public class PostgresNonceRepository implements NonceRepository {
         Instant now = Instant.now();
         Instant lockedUntil = now.plus(lockTtl);
         
-        // 检查是否已存在且为 USED 状态（提前检查，避免不必要的数据库操作）
-        NonceAllocationEntity existing = allocationMapper.findBySubmitterAndNonce(submitter, nonce);
-        if (existing != null && NonceAllocationStatus.USED.name().equals(existing.getStatus())) {
+        // 单条 INSERT ... ON CONFLICT ... DO UPDATE ... WHERE status != 'USED' RETURNING 完成预留并读回结果
+        LockOwner owner = toOwner(lockOwner);
+        NonceAllocationEntity entity = allocationMapper.reserveNonce(submitter, nonce,
+                owner.getNodeId(), owner.getSequence(), lockedUntil, now, now);
+
+        // 没有返回行：插入必然冲突且冲突行未被更新，只可能是已为 USED
+        if (entity == null) {
             throw new NonceException("nonce 已使用，不能重新分配: " + submitter + "#" + nonce);
         }
-        
-        // 使用 INSERT ... ON CONFLICT 插入或更新（原子操作）
-        int updated = allocationMapper.reserveNonce(submitter, nonce, lockOwner, lockedUntil, now, now);
-        
-        if (updated == 0) {
-            // 如果更新失败，再次检查状态（可能是并发导致状态变为USED）
-            existing = allocationMapper.findBySubmitterAndNonce(submitter, nonce);
-            if (existing != null && NonceAllocationStatus.USED.name().equals(existing.getStatus())) {
-                throw new NonceException("nonce 已使用，不能重新分配: " + submitter + "#" + nonce);
-            }
-            throw new NonceException("reserve nonce 失败: " + submitter + "#" + nonce);
+
+        return convertToAllocation(entity);
+    }
+
+    @Override
+    public Optional<NonceAllocation> claimRecyclable(String submitter, long nonce, String lockOwner, Duration lockTtl) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(lockOwner, "lockOwner");
+        requirePositive(lockTtl, "lockTtl");
+
+        Instant now = Instant.now();
+        LockOwner owner = toOwner(lockOwner);
+        NonceAllocationEntity entity = allocationMapper.claimRecyclable(submitter, nonce,
+                owner.getNodeId(), owner.getSequence(), now.plus(lockTtl), now);
+        if (entity == null) {
+            return Optional.empty();
         }
-        
-        // 查询并返回最新记录
-        NonceAllocationEntity resultEntity = allocationMapper.findBySubmitterAndNonce(submitter, nonce);
-        if (resultEntity == null) {
-            throw new NonceException("reserve nonce 后查询失败: " + submitter + "#" + nonce);
+        return Optional.of(convertToAllocation(entity));
+    }
+
+    @Override
+    public List<NonceAllocation> reserveNonces(String submitter, List<Long> nonces, String lockOwner, Duration lockTtl) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonNull(nonces, "nonces");
+        requireNonEmpty(lockOwner, "lockOwner");
+        requirePositive(lockTtl, "lockTtl");
+
+        if (nonces.isEmpty()) {
+            return new ArrayList<>();
         }
-        
-        return convertToAllocation(resultEntity);
+
+        Instant now = Instant.now();
+        Instant lockedUntil = now.plus(lockTtl);
+
+        // 所有 nonce 一条多行 INSERT ... ON CONFLICT 完成
+        LockOwner owner = toOwner(lockOwner);
+        List<NonceAllocationEntity> entities = allocationMapper.reserveNonces(
+                submitter, nonces, owner.getNodeId(), owner.getSequence(), lockedUntil, now);
+
+        // 返回行数不足说明其中存在 USED 的 nonce，抛异常使事务回滚
+        if (entities.size() != nonces.size()) {
+            throw new NonceException("批量 reserve nonce 失败，存在已使用的 nonce: " + submitter + "#" + nonces);
+        }
+
+        return toSortedAllocations(entities);
+    }
+
+    @Override
+    public List<NonceAllocation> reserveRange(String submitter, long fromNonce, int size, String lockOwner, Duration lockTtl) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonNegative(fromNonce, "fromNonce");
+        requirePositive(size, "size");
+        requireNonEmpty(lockOwner, "lockOwner");
+        requirePositive(lockTtl, "lockTtl");
+
+        Instant now = Instant.now();
+        Instant lockedUntil = now.plus(lockTtl);
+        long toNonce = fromNonce + size - 1;
+
+        // 整段区间一条 INSERT ... SELECT generate_series ... ON CONFLICT 完成
+        LockOwner owner = toOwner(lockOwner);
+        List<NonceAllocationEntity> entities = allocationMapper.reserveRange(
+                submitter, fromNonce, toNonce, owner.getNodeId(), owner.getSequence(), lockedUntil, now);
+
+        // 返回行数不足说明区间内存在 USED 的 nonce，抛异常使事务回滚
+        if (entities.size() != size) {
+            throw new NonceException("reserve nonce 区间失败，区间内存在已使用的 nonce: "
+                    + submitter + "#[" + fromNonce + ", " + toNonce + "]");
+        }
+
+        return toSortedAllocations(entities);
+    }
+
+    @Override
+    public int releaseRange(String submitter, String lockOwner, long fromNonce, long toNonce, String reason) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(lockOwner, "lockOwner");
+
+        LockOwner owner = LockOwner.parse(lockOwner);
+        if (toNonce <= fromNonce || owner == null) {
+            // 无法解析的 owner（升级前节点发放的租约）不可能匹配任何记录，由超时回收处理
+            return 0;
+        }
+        // 先锁状态行再改分配记录，与分配路径加锁顺序一致
+        stateMapper.lockSubmitters(Collections.singletonList(submitter));
+        return allocationMapper.releaseRange(submitter, owner.getNodeId(), owner.getSequence(), fromNonce, toNonce,
+                reason != null ? reason : "", Instant.now());
+    }
+
+    @Override
+    public boolean attachTxHash(String submitter, long nonce, String txHash) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(txHash, "txHash");
+
+        return allocationMapper.attachTxHash(submitter, nonce, txHash, Instant.now()) > 0;
     }
 
     @Override
@@ -185,102 +460,214 @@ public class PostgresNonceRepository implements NonceRepository {
         requireNonEmpty(submitter, "submitter");
         requireNonEmpty(txHash, "txHash");
 
-        NonceAllocationEntity entity = allocationMapper.findBySubmitterAndNonce(submitter, nonce);
-        if (entity == null) {
+        // 单条语句完成"锁定 → 判断 → 更新"，返回转换前的状态
+        NonceAllocationEntity previous = allocationMapper.transitionToUsed(submitter, nonce, txHash, Instant.now());
+        if (previous == null) {
+            // 已结算的记录可能已被归档，回查归档表以保持幂等
+            previous = allocationMapper.findArchived(submitter, nonce);
+        }
+        if (previous == null && isSettled(submitter, nonce)) {
+            // 水位以下的记录可能已被压缩删除：链上已结算，按幂等处理（无法再校验 txHash）
+            return;
+        }
+        if (previous == null) {
             throw new NonceException("未找到 allocation: " + submitter + "#" + nonce);
         }
-        
+
         // 状态检查
-        String currentStatus = entity.getStatus();
-        if (NonceAllocationStatus.USED.name().equals(currentStatus)) {
-            // 幂等性：如果已经是 USED 且 txHash 相同，允许（避免重复提交）
-            if (txHash.equals(entity.getTxHash())) {
+        NonceAllocationStatus previousStatus = toStatus(previous);
+        if (previousStatus == NonceAllocationStatus.USED) {
+            // 幂等性：如果已经是 USED 且 txHash 相同，允许（避免重复提交）；
+            // txHash 为空说明由链上对账先行确认，本次已补写 txHash
+            if (previous.getTxHash() == null || txHash.equals(previous.getTxHash())) {
                 return;
             }
             throw new NonceException("nonce 已使用，不能重复标记: " + submitter + "#" + nonce);
         }
-        if (NonceAllocationStatus.RECYCLABLE.name().equals(currentStatus)) {
+        if (previousStatus == NonceAllocationStatus.RECYCLABLE) {
             throw new NonceException("nonce 已回收，不能标记为 USED: " + submitter + "#" + nonce);
         }
-        
-        // 更新状态
-        entity.setStatus(NonceAllocationStatus.USED.name());
-        entity.setTxHash(txHash);
-        entity.setLockOwner(null);
-        entity.setLockedUntil(null);
-        entity.setUpdatedAt(Instant.now());
-        
-        int updated = allocationMapper.updateById(entity);
-        if (updated == 0) {
-            throw new NonceException("标记 nonce 为 USED 失败: " + submitter + "#" + nonce);
-        }
     }
 
     @Override
     public void markRecyclable(String submitter, long nonce, String reason) {
         requireNonEmpty(submitter, "submitter");
 
-        NonceAllocationEntity entity = allocationMapper.findBySubmitterAndNonce(submitter, nonce);
-        if (entity == null) {
+        // 单条语句完成"锁定 → 判断 → 更新"，返回转换前的状态
+        NonceAllocationEntity previous = allocationMapper.transitionToRecyclable(
+                submitter, nonce, reason != null ? reason : "", Instant.now());
+        if (previous == null) {
+            // 已归档的记录一定是 USED，下面按 USED 拒绝回收
+            previous = allocationMapper.findArchived(submitter, nonce);
+        }
+        if (previous == null && isSettled(submitter, nonce)) {
+            throw new NonceException("nonce 已在链上结算，不能回收: " + submitter + "#" + nonce);
+        }
+        if (previous == null) {
             throw new NonceException("未找到 allocation: " + submitter + "#" + nonce);
         }
-        
+
         // 状态检查：USED 状态不能回收（保证数据一致性）
-        if (NonceAllocationStatus.USED.name().equals(entity.getStatus())) {
+        if (toStatus(previous) == NonceAllocationStatus.USED) {
             throw new NonceException("nonce 已使用，不能回收: " + submitter + "#" + nonce);
         }
-        
-        // 如果已经是RECYCLABLE状态，幂等处理
-        if (NonceAllocationStatus.RECYCLABLE.name().equals(entity.getStatus())) {
-            return;
+        if (toStatus(previous) == NonceAllocationStatus.RESERVED && previous.getTxHash() != null) {
+            // 已写入 txHash：交易已广播，等待确认落库，不能再发放
+            throw new NonceException("nonce 已记录 txHash，不能回收: " + submitter + "#" + nonce);
         }
-        
-        // 更新状态
-        entity.setStatus(NonceAllocationStatus.RECYCLABLE.name());
-        entity.setLockOwner(null);
-        entity.setLockedUntil(null);
-        entity.setReason(reason != null ? reason : "");
-        entity.setTxHash(null);
-        entity.setUpdatedAt(Instant.now());
-        
-        int updated = allocationMapper.updateById(entity);
-        if (updated == 0) {
-            throw new NonceException("标记 nonce 为 RECYCLABLE 失败: " + submitter + "#" + nonce);
+
+        // 已经是 RECYCLABLE 状态时语句未做任何更新，幂等返回
+    }
+
+    @Override
+    public int applyStatusUpdates(List<NonceStatusUpdate> updates) {
+        requireNonNull(updates, "updates");
+
+        List<NonceStatusUpdate> used = new ArrayList<>();
+        List<NonceStatusUpdate> recyclable = new ArrayList<>();
+        for (NonceStatusUpdate update : updates) {
+            if (update.getTargetStatus() == NonceAllocationStatus.USED) {
+                used.add(update);
+            } else if (update.getTargetStatus() == NonceAllocationStatus.RECYCLABLE) {
+                recyclable.add(update);
+            } else {
+                throw new NonceException("不支持的目标状态: " + update);
+            }
+        }
+
+        if (!recyclable.isEmpty()) {
+            // RECYCLABLE 转换要累加空洞计数：先按 submitter 升序锁状态行，再改分配记录
+            Set<String> submitters = new TreeSet<>();
+            for (NonceStatusUpdate update : recyclable) {
+                submitters.add(update.getSubmitter());
+            }
+            stateMapper.lockSubmitters(submitters);
+        }
+
+        Instant now = Instant.now();
+        int applied = 0;
+        if (!used.isEmpty()) {
+            applied += allocationMapper.markUsedBatch(used, now);
+        }
+        if (!recyclable.isEmpty()) {
+            applied += allocationMapper.markRecyclableBatch(recyclable, now);
+        }
+        return applied;
+    }
+
+    @Override
+    public void consumeRecyclable(String submitter, int consumed) {
+        requireNonEmpty(submitter, "submitter");
+        requirePositive(consumed, "consumed");
+
+        stateMapper.consumeRecyclable(submitter, consumed);
+    }
+
+    @Override
+    public SubmitterNonceState repairRecyclableCounters(String submitter) {
+        requireNonEmpty(submitter, "submitter");
+
+        SubmitterNonceStateEntity entity = stateMapper.repairRecyclableCounters(submitter);
+        if (entity == null) {
+            throw new NonceException("submitter 状态不存在: " + submitter);
+        }
+        return convertToState(entity);
+    }
+
+    @Override
+    public long advanceOwnerEpoch(String submitter, long epoch) {
+        requireNonEmpty(submitter, "submitter");
+
+        Long current = stateMapper.advanceOwnerEpoch(submitter, epoch);
+        if (current == null) {
+            // 状态行尚不存在：先初始化再推进
+            lockAndLoadState(submitter);
+            current = stateMapper.advanceOwnerEpoch(submitter, epoch);
+        }
+        if (current == null) {
+            throw new NonceException("submitter 状态不存在: " + submitter);
+        }
+        return current;
+    }
+
+    /**
+     * nonce 是否不大于链上水位（记录找不到时才调用，只读状态行）
+     */
+    private boolean isSettled(String submitter, long nonce) {
+        SubmitterNonceStateEntity entity = stateMapper.selectById(submitter);
+        return entity != null && entity.getLastChainNonce() != null && nonce <= entity.getLastChainNonce();
+    }
+
+    /**
+     * 转换为按 nonce 升序排列的领域模型（RETURNING 不保证顺序）
+     */
+    private List<NonceAllocation> toSortedAllocations(List<NonceAllocationEntity> entities) {
+        List<NonceAllocation> result = new ArrayList<>(entities.size());
+        for (NonceAllocationEntity entity : entities) {
+            result.add(convertToAllocation(entity));
         }
+        result.sort(Comparator.comparingLong(NonceAllocation::getNonce));
+        return result;
     }
 
     /**
      * 转换为领域模型
      */
     private SubmitterNonceState convertToState(SubmitterNonceStateEntity entity) {
-        return new SubmitterNonceState(
+        SubmitterNonceState state = new SubmitterNonceState(
                 entity.getSubmitter(),
                 entity.getLastChainNonce(),
                 entity.getNextLocalNonce(),
+                entity.getRecyclableCount() != null ? entity.getRecyclableCount() : 0L,
+                entity.getMinRecyclableNonce(),
                 entity.getUpdatedAt()
         );
+        if (entity.getOwnerEpoch() != null) {
+            state.setOwnerEpoch(entity.getOwnerEpoch());
+        }
+        return state;
     }
 
     /**
      * 转换为领域模型，处理状态枚举转换
      */
-    private NonceAllocation convertToAllocation(NonceAllocationEntity entity) {
+    protected NonceAllocation convertToAllocation(NonceAllocationEntity entity) {
+        return new NonceAllocation(
+                entity.getId(),
+                entity.getSubmitter(),
+                entity.getNonce(),
+                toStatus(entity),
+                LockOwner.format(entity.getOwnerNode(), entity.getOwnerSeq()),
+                entity.getLockedUntil(),
+                entity.getTxHash(),
+                entity.getUpdatedAt()
+        );
+    }
+
+    /**
+     * 解析 status_code
+     */
+    private NonceAllocationStatus toStatus(NonceAllocationEntity entity) {
+        if (entity.getStatusCode() == null) {
+            throw new NonceException("allocation 状态为空: " + entity.getSubmitter() + "#" + entity.getNonce());
+        }
         try {
-            NonceAllocationStatus status = NonceAllocationStatus.valueOf(entity.getStatus());
-            return new NonceAllocation(
-                    entity.getId(),
-                    entity.getSubmitter(),
-                    entity.getNonce(),
-                    status,
-                    entity.getLockOwner(),
-                    entity.getLockedUntil(),
-                    entity.getTxHash(),
-                    entity.getUpdatedAt()
-            );
+            return NonceAllocationStatus.fromCode(entity.getStatusCode());
         } catch (IllegalArgumentException e) {
-            throw new NonceException("无效的 allocation 状态: " + entity.getStatus() + 
+            throw new NonceException("无效的 allocation 状态: " + entity.getStatusCode() +
                                     " for " + entity.getSubmitter() + "#" + entity.getNonce(), e);
         }
     }
+
+    /**
+     * 解析写入分配表的锁持有者
+     */
+    protected LockOwner toOwner(String lockOwner) {
+        LockOwner owner = LockOwner.parse(lockOwner);
+        if (owner == null) {
+            throw new NonceException("无效的 lock owner: " + lockOwner);
+        }
+        return owner;
+    }
 }
 
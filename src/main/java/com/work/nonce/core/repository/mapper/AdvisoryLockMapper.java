@@ -0,0 +1,22 @@
+package com.work.nonce.core.repository.mapper;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * PostgreSQL advisory 锁 Mapper（事务级，提交或回滚时自动释放）
+ */
+public interface AdvisoryLockMapper {
+
+    /**
+     * 尝试获取事务级 advisory 锁，锁已被其他事务持有时立即返回 false
+     */
+    @Select("SELECT pg_try_advisory_xact_lock(#{key})")
+    boolean tryLock(@Param("key") long key);
+
+    /**
+     * 获取事务级 advisory 锁，锁已被其他事务持有时等待（受事务超时约束），返回值恒为 true
+     */
+    @Select("SELECT true FROM pg_advisory_xact_lock(#{key})")
+    boolean lock(@Param("key") long key);
+}
@@ -0,0 +1,75 @@
+package com.work.nonce.core.repository.mapper;
+
+import com.work.nonce.core.repository.entity.ClusterMemberEntity;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 集群成员表 Mapper
+ * 成员增减（加入、离开、剔除）与 ring epoch 推进在同一条语句中完成，
+ * 因此任意时刻读到的 (epoch, 成员集合) 都是一致的
+ */
+public interface ClusterMemberMapper {
+
+    /**
+     * 刷新心跳，返回 0 表示本节点已被剔除，需要重新加入
+     */
+    @Update("UPDATE nonce_cluster_member SET heartbeat_at = #{now} WHERE node_id = #{nodeId}")
+    int heartbeat(@Param("nodeId") String nodeId, @Param("now") Instant now);
+
+    /**
+     * 加入集群并推进 epoch，返回新的 epoch
+     */
+    @Select("WITH ins AS (" +
+            "  INSERT INTO nonce_cluster_member(node_id, endpoint, heartbeat_at, joined_at) " +
+            "  VALUES (#{nodeId}, #{endpoint}, #{now}, #{now}) " +
+            "  ON CONFLICT (node_id) DO UPDATE SET endpoint = EXCLUDED.endpoint, heartbeat_at = EXCLUDED.heartbeat_at " +
+            "  RETURNING node_id" +
+            ") " +
+            "UPDATE nonce_cluster_epoch SET epoch = epoch + 1, updated_at = #{now} " +
+            "WHERE id = 1 AND EXISTS (SELECT 1 FROM ins) " +
+            "RETURNING epoch")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    Long join(@Param("nodeId") String nodeId,
+              @Param("endpoint") String endpoint,
+              @Param("now") Instant now);
+
+    /**
+     * 主动离开集群并推进 epoch，本节点不在成员表中时返回 null
+     */
+    @Select("WITH del AS (" +
+            "  DELETE FROM nonce_cluster_member WHERE node_id = #{nodeId} RETURNING node_id" +
+            ") " +
+            "UPDATE nonce_cluster_epoch SET epoch = epoch + 1, updated_at = #{now} " +
+            "WHERE id = 1 AND EXISTS (SELECT 1 FROM del) " +
+            "RETURNING epoch")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    Long leave(@Param("nodeId") String nodeId, @Param("now") Instant now);
+
+    /**
+     * 剔除心跳超时的成员并推进 epoch，没有成员被剔除时返回 null
+     */
+    @Select("WITH del AS (" +
+            "  DELETE FROM nonce_cluster_member WHERE heartbeat_at < #{expireBefore} RETURNING node_id" +
+            ") " +
+            "UPDATE nonce_cluster_epoch SET epoch = epoch + 1, updated_at = #{now} " +
+            "WHERE id = 1 AND EXISTS (SELECT 1 FROM del) " +
+            "RETURNING epoch")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    Long evictExpired(@Param("expireBefore") Instant expireBefore, @Param("now") Instant now);
+
+    /**
+     * 单条语句读取 epoch 与全部成员（按 node_id 排序，保证各节点构建出相同的哈希环）
+     */
+    @Select("SELECT e.epoch, m.node_id, m.endpoint, m.heartbeat_at " +
+            "FROM nonce_cluster_epoch e " +
+            "LEFT JOIN nonce_cluster_member m ON true " +
+            "WHERE e.id = 1 " +
+            "ORDER BY m.node_id")
+    List<ClusterMemberEntity> loadView();
+}
@@ -1,7 +1,11 @@
 package com.work.nonce.core.repository.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.work.nonce.core.model.BlockReceipt;
+import com.work.nonce.core.model.NonceStatusUpdate;
 import com.work.nonce.core.repository.entity.NonceAllocationEntity;
+import com.work.nonce.core.repository.entity.ReceiptIngestEntity;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
@@ -11,64 +15,483 @@ import java.util.List;
 
 /**
  * Nonce 分配记录表 Mapper
+ * status_code：1 = RESERVED，2 = USED，3 = RECYCLABLE（见 {@link com.work.nonce.core.model.NonceAllocationStatus}）；
+ * 锁持有者为 (owner_node, owner_seq)，RESERVED / RECYCLABLE 的查询由对应的部分索引支撑
  */
 public interface NonceAllocationMapper extends BaseMapper<NonceAllocationEntity> {
 
     /**
-     * 回收过期的 RESERVED 状态记录
+     * 回收过期的 RESERVED 状态记录，同时累加 submitter 的空洞计数，返回被回收的记录
+     * 已写入 tx_hash 的 RESERVED（交易已广播、确认尚未落库）不回收
+     * 注意：调用方须已持有该 submitter 状态行的锁
      */
-    @Update("UPDATE submitter_nonce_allocation " +
-            "SET status = 'RECYCLABLE', lock_owner = NULL, locked_until = NULL, updated_at = #{now}, reason = '超时回收' " +
-            "WHERE submitter = #{submitter} " +
-            "AND status = 'RESERVED' " +
-            "AND locked_until IS NOT NULL " +
-            "AND locked_until < #{expireBefore}")
-    int recycleExpiredReservations(@Param("submitter") String submitter,
-                                   @Param("expireBefore") Instant expireBefore,
-                                   @Param("now") Instant now);
+    @Select("WITH rec AS (" +
+            "  UPDATE submitter_nonce_allocation " +
+            "  SET status_code = 3, owner_node = NULL, owner_seq = NULL, locked_until = NULL, updated_at = #{now}, reason = '超时回收' " +
+            "  WHERE submitter = #{submitter} " +
+            "  AND status_code = 1 " +
+            "  AND locked_until IS NOT NULL " +
+            "  AND locked_until < #{expireBefore} " +
+            "  AND tx_hash IS NULL " +
+            "  RETURNING id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at" +
+            "), cnt AS (" +
+            "  UPDATE submitter_nonce_state s " +
+            "  SET recyclable_count = s.recyclable_count + r.n, " +
+            "      min_recyclable_nonce = LEAST(COALESCE(s.min_recyclable_nonce, r.mn), r.mn) " +
+            "  FROM (SELECT count(*) AS n, min(nonce) AS mn FROM rec) r " +
+            "  WHERE s.submitter = #{submitter} AND r.n > 0" +
+            ") " +
+            "SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at FROM rec")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<NonceAllocationEntity> recycleExpiredReservations(@Param("submitter") String submitter,
+                                                           @Param("expireBefore") Instant expireBefore,
+                                                           @Param("now") Instant now);
+
+    /**
+     * 跨 submitter 回收一批过期的 RESERVED（后台回收使用），同时累加各 submitter 的空洞计数
+     * 按 hashtext(submitter) 分区；分配记录与其 submitter 状态行一并以 FOR UPDATE SKIP LOCKED 锁定，
+     * 正在分配中的 submitter（状态行已被锁）本批直接跳过，避免与分配事务反向加锁；已写入 tx_hash 的 RESERVED 不回收
+     */
+    @Select("WITH reaped AS (" +
+            "  UPDATE submitter_nonce_allocation a " +
+            "  SET status_code = 3, owner_node = NULL, owner_seq = NULL, locked_until = NULL, updated_at = #{now}, reason = '超时回收' " +
+            "  WHERE (a.submitter, a.id) IN (" +
+            "    SELECT x.submitter, x.id FROM submitter_nonce_allocation x " +
+            "    JOIN submitter_nonce_state s ON s.submitter = x.submitter " +
+            "    WHERE x.status_code = 1 " +
+            "    AND x.locked_until IS NOT NULL " +
+            "    AND x.locked_until < #{expireBefore} " +
+            "    AND x.tx_hash IS NULL " +
+            "    AND (hashtext(x.submitter) & 2147483647) % #{partitions} = #{partition} " +
+            "    ORDER BY x.locked_until " +
+            "    LIMIT #{limit} " +
+            "    FOR UPDATE OF x, s SKIP LOCKED" +
+            "  ) " +
+            "  RETURNING a.id, a.submitter, a.nonce, a.status_code, a.owner_node, a.owner_seq, a.locked_until, a.tx_hash, a.reason, a.updated_at, a.created_at" +
+            "), cnt AS (" +
+            "  UPDATE submitter_nonce_state s " +
+            "  SET recyclable_count = s.recyclable_count + r.n, " +
+            "      min_recyclable_nonce = LEAST(COALESCE(s.min_recyclable_nonce, r.mn), r.mn) " +
+            "  FROM (SELECT submitter, count(*) AS n, min(nonce) AS mn FROM reaped GROUP BY submitter) r " +
+            "  WHERE s.submitter = r.submitter" +
+            ") " +
+            "SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at FROM reaped")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<NonceAllocationEntity> reapExpiredReservations(@Param("expireBefore") Instant expireBefore,
+                                                        @Param("partition") int partition,
+                                                        @Param("partitions") int partitions,
+                                                        @Param("limit") int limit,
+                                                        @Param("now") Instant now);
 
     /**
      * 查找最小的 RECYCLABLE 记录
      */
-    @Select("SELECT id, submitter, nonce, status, lock_owner, locked_until, tx_hash, reason, updated_at, created_at " +
+    @Select("SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at " +
             "FROM submitter_nonce_allocation " +
-            "WHERE submitter = #{submitter} AND status = 'RECYCLABLE' " +
+            "WHERE submitter = #{submitter} AND status_code = 3 " +
             "ORDER BY nonce ASC LIMIT 1")
     NonceAllocationEntity findOldestRecyclable(@Param("submitter") String submitter);
 
     /**
-     * 查找指定 submitter 和 nonce 的记录
+     * 按 nonce 升序查找最小的若干条 RECYCLABLE 记录
      */
-    @Select("SELECT id, submitter, nonce, status, lock_owner, locked_until, tx_hash, reason, updated_at, created_at " +
+    @Select("SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at " +
             "FROM submitter_nonce_allocation " +
-            "WHERE submitter = #{submitter} AND nonce = #{nonce}")
+            "WHERE submitter = #{submitter} AND status_code = 3 " +
+            "ORDER BY nonce ASC LIMIT #{limit}")
+    List<NonceAllocationEntity> findLowestRecyclable(@Param("submitter") String submitter, @Param("limit") int limit);
+
+    /**
+     * 按 nonce 升序查找最小的若干条 RESERVED 记录
+     */
+    @Select("SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at " +
+            "FROM submitter_nonce_allocation " +
+            "WHERE submitter = #{submitter} AND status_code = 1 " +
+            "ORDER BY nonce ASC LIMIT #{limit}")
+    List<NonceAllocationEntity> findReserved(@Param("submitter") String submitter, @Param("limit") int limit);
+
+    /**
+     * 查找指定 submitter 和 nonce 的记录，分配表中不存在时回查归档表
+     * （同一 nonce 只会存在于其中一张表，归档为 DELETE + INSERT 单条语句完成）
+     */
+    @Select("SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at " +
+            "FROM submitter_nonce_allocation " +
+            "WHERE submitter = #{submitter} AND nonce = #{nonce} " +
+            "UNION ALL " +
+            "SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at " +
+            "FROM submitter_nonce_allocation_archive " +
+            "WHERE submitter = #{submitter} AND nonce = #{nonce} " +
+            "LIMIT 1")
     NonceAllocationEntity findBySubmitterAndNonce(@Param("submitter") String submitter, @Param("nonce") Long nonce);
 
     /**
-     * 插入或更新 nonce 为 RESERVED 状态（使用 ON CONFLICT）
-     * 注意：PostgreSQL 的 ON CONFLICT 语法，WHERE 子句在 DO UPDATE 中
+     * 按 txHash 查找记录（由 tx_hash 部分索引支撑），分配表中不存在时回查归档表
+     */
+    @Select("SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at " +
+            "FROM submitter_nonce_allocation WHERE tx_hash = #{txHash} " +
+            "UNION ALL " +
+            "SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at " +
+            "FROM submitter_nonce_allocation_archive WHERE tx_hash = #{txHash} " +
+            "LIMIT 1")
+    NonceAllocationEntity findByTxHash(@Param("txHash") String txHash);
+
+    /**
+     * 仅在归档表中查找指定 submitter 和 nonce 的记录（状态转换找不到记录时回查）
+     */
+    @Select("SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at " +
+            "FROM submitter_nonce_allocation_archive " +
+            "WHERE submitter = #{submitter} AND nonce = #{nonce}")
+    NonceAllocationEntity findArchived(@Param("submitter") String submitter, @Param("nonce") Long nonce);
+
+    /**
+     * 把一批已结算的 USED 记录（nonce <= last_chain_nonce）从分配表移入归档表，单条语句内 DELETE + INSERT
+     * 按 hashtext(submitter) 分区；分配记录以 FOR UPDATE SKIP LOCKED 锁定，不锁 submitter 状态行
+     * （已结算的 USED 记录不会再被分配路径修改，无需与分配事务互斥）
+     *
+     * @return 本批归档的记录数
+     */
+    @Select("WITH moved AS (" +
+            "  DELETE FROM submitter_nonce_allocation a " +
+            "  USING (" +
+            "    SELECT x.submitter, x.nonce FROM submitter_nonce_allocation x " +
+            "    JOIN submitter_nonce_state s ON s.submitter = x.submitter " +
+            "    WHERE x.status_code = 2 " +
+            "    AND x.nonce <= s.last_chain_nonce " +
+            "    AND x.nonce < s.next_local_nonce " +
+            "    AND (hashtext(x.submitter) & 2147483647) % #{partitions} = #{partition} " +
+            "    LIMIT #{limit} " +
+            "    FOR UPDATE OF x SKIP LOCKED" +
+            "  ) v " +
+            "  WHERE a.submitter = v.submitter AND a.nonce = v.nonce AND a.status_code = 2 " +
+            "  RETURNING a.id, a.submitter, a.nonce, a.status_code, a.owner_node, a.owner_seq, a.locked_until, a.tx_hash, a.reason, a.updated_at, a.created_at" +
+            "), ins AS (" +
+            "  INSERT INTO submitter_nonce_allocation_archive" +
+            "    (id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at, archived_at) " +
+            "  SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at, #{now} FROM moved " +
+            "  ON CONFLICT (submitter, nonce) DO NOTHING" +
+            ") " +
+            "SELECT count(*) FROM moved")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    int archiveSettled(@Param("partition") int partition,
+                       @Param("partitions") int partitions,
+                       @Param("limit") int limit,
+                       @Param("now") Instant now);
+
+    /**
+     * 插入或更新 nonce 为 RESERVED 状态（使用 ON CONFLICT），并通过 RETURNING 直接返回写入后的记录
+     * 注意：PostgreSQL 的 ON CONFLICT 语法，WHERE 子句在 DO UPDATE 中；
+     * 已存在且为 USED 的记录不会被更新，此时不返回任何行（结果为 null）
+     */
+    @Select("INSERT INTO submitter_nonce_allocation(submitter, nonce, status_code, owner_node, owner_seq, locked_until, updated_at, created_at) " +
+            "VALUES(#{submitter}, #{nonce}, 1, #{ownerNode}, #{ownerSeq}, #{lockedUntil}, #{updatedAt}, #{createdAt}) " +
+            "ON CONFLICT(submitter, nonce) " +
+            "DO UPDATE SET status_code = 1, owner_node = #{ownerNode}, owner_seq = #{ownerSeq}, locked_until = #{lockedUntil}, updated_at = #{updatedAt} " +
+            "WHERE submitter_nonce_allocation.status_code <> 2 " +
+            "RETURNING id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    NonceAllocationEntity reserveNonce(@Param("submitter") String submitter,
+                                       @Param("nonce") Long nonce,
+                                       @Param("ownerNode") int ownerNode,
+                                       @Param("ownerSeq") long ownerSeq,
+                                       @Param("lockedUntil") Instant lockedUntil,
+                                       @Param("updatedAt") Instant updatedAt,
+                                       @Param("createdAt") Instant createdAt);
+
+    /**
+     * 认领空洞：仅当记录仍为 RECYCLABLE 时标记为 RESERVED，否则不返回行
+     */
+    @Select("UPDATE submitter_nonce_allocation " +
+            "SET status_code = 1, owner_node = #{ownerNode}, owner_seq = #{ownerSeq}, locked_until = #{lockedUntil}, updated_at = #{now} " +
+            "WHERE submitter = #{submitter} AND nonce = #{nonce} AND status_code = 3 " +
+            "RETURNING id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    NonceAllocationEntity claimRecyclable(@Param("submitter") String submitter,
+                                          @Param("nonce") long nonce,
+                                          @Param("ownerNode") int ownerNode,
+                                          @Param("ownerSeq") long ownerSeq,
+                                          @Param("lockedUntil") Instant lockedUntil,
+                                          @Param("now") Instant now);
+
+    /**
+     * 在 RESERVED 记录上写入 txHash（异步确认入队前同步执行），记录不再是 RESERVED 时不更新。
+     * 带 tx_hash 的 RESERVED 表示交易已广播，所有回收路径都会跳过
+     *
+     * @return 更新的记录数
+     */
+    @Update("UPDATE submitter_nonce_allocation SET tx_hash = #{txHash}, updated_at = #{now} " +
+            "WHERE submitter = #{submitter} AND nonce = #{nonce} AND status_code = 1")
+    int attachTxHash(@Param("submitter") String submitter,
+                     @Param("nonce") long nonce,
+                     @Param("txHash") String txHash,
+                     @Param("now") Instant now);
+
+    /**
+     * 条件状态转换：仅当记录为 RESERVED，或已被链上对账确认为 USED 但尚无 tx_hash 时标记为 USED
+     * 单条语句内先以 FOR UPDATE 锁定并读取转换前的状态，再按条件更新；
+     * 返回转换前的 status_code / tx_hash，供调用方判断幂等，记录不存在时返回 null
+     */
+    @Select("WITH cur AS (" +
+            "  SELECT id, status_code, tx_hash FROM submitter_nonce_allocation " +
+            "  WHERE submitter = #{submitter} AND nonce = #{nonce} FOR UPDATE" +
+            "), upd AS (" +
+            "  UPDATE submitter_nonce_allocation a " +
+            "  SET status_code = 2, tx_hash = #{txHash}, owner_node = NULL, owner_seq = NULL, locked_until = NULL, updated_at = #{now} " +
+            "  FROM cur WHERE a.submitter = #{submitter} AND a.id = cur.id " +
+            "  AND (cur.status_code = 1 OR (cur.status_code = 2 AND cur.tx_hash IS NULL)) " +
+            "  RETURNING a.id" +
+            ") " +
+            "SELECT cur.status_code, cur.tx_hash FROM cur")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    NonceAllocationEntity transitionToUsed(@Param("submitter") String submitter,
+                                           @Param("nonce") Long nonce,
+                                           @Param("txHash") String txHash,
+                                           @Param("now") Instant now);
+
+    /**
+     * 条件状态转换：仅当记录为 RESERVED 且尚未写入 tx_hash 时标记为 RECYCLABLE，并累加 submitter 的空洞计数
+     * 先锁 submitter 状态行（st）再锁分配记录（cur），与分配路径的加锁顺序一致；
+     * 返回转换前的 status_code / tx_hash，供调用方判断幂等，记录不存在时返回 null
      */
-    @org.apache.ibatis.annotations.Insert("INSERT INTO submitter_nonce_allocation(submitter, nonce, status, lock_owner, locked_until, updated_at, created_at) " +
-            "VALUES(#{submitter}, #{nonce}, 'RESERVED', #{lockOwner}, #{lockedUntil}, #{updatedAt}, #{createdAt}) " +
+    @Select("WITH st AS (" +
+            "  SELECT submitter FROM submitter_nonce_state WHERE submitter = #{submitter} FOR UPDATE" +
+            "), cur AS (" +
+            "  SELECT a.id, a.nonce, a.status_code, a.tx_hash FROM submitter_nonce_allocation a " +
+            "  JOIN st ON st.submitter = a.submitter " +
+            "  WHERE a.nonce = #{nonce} FOR UPDATE OF a" +
+            "), upd AS (" +
+            "  UPDATE submitter_nonce_allocation a " +
+            "  SET status_code = 3, owner_node = NULL, owner_seq = NULL, locked_until = NULL, tx_hash = NULL, " +
+            "      reason = #{reason}, updated_at = #{now} " +
+            "  FROM cur WHERE a.submitter = #{submitter} AND a.id = cur.id AND cur.status_code = 1 AND cur.tx_hash IS NULL " +
+            "  RETURNING a.nonce" +
+            "), cnt AS (" +
+            "  UPDATE submitter_nonce_state s " +
+            "  SET recyclable_count = s.recyclable_count + 1, " +
+            "      min_recyclable_nonce = LEAST(COALESCE(s.min_recyclable_nonce, upd.nonce), upd.nonce) " +
+            "  FROM upd WHERE s.submitter = #{submitter}" +
+            ") " +
+            "SELECT cur.status_code, cur.tx_hash FROM cur")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    NonceAllocationEntity transitionToRecyclable(@Param("submitter") String submitter,
+                                                 @Param("nonce") Long nonce,
+                                                 @Param("reason") String reason,
+                                                 @Param("now") Instant now);
+
+    /**
+     * 批量 USED 转换：跨 submitter 合并为一条 UPDATE ... FROM (VALUES ...)，仅转换仍为 RESERVED 的记录
+     * （以及已被链上对账确认、尚无 tx_hash 的 USED 记录，补写 tx_hash）
+     *
+     * @return 实际转换的记录数
+     */
+    @Update({"<script>",
+            "UPDATE submitter_nonce_allocation a ",
+            "SET status_code = 2, tx_hash = v.tx_hash, owner_node = NULL, owner_seq = NULL, locked_until = NULL, updated_at = #{now} ",
+            "FROM (VALUES ",
+            "<foreach collection='updates' item='u' separator=','>",
+            "(#{u.submitter}, #{u.nonce}, #{u.txHash})",
+            "</foreach>",
+            ") AS v(submitter, nonce, tx_hash) ",
+            "WHERE a.submitter = v.submitter AND a.nonce = v.nonce ",
+            "AND (a.status_code = 1 OR (a.status_code = 2 AND a.tx_hash IS NULL))",
+            "</script>"})
+    int markUsedBatch(@Param("updates") List<NonceStatusUpdate> updates, @Param("now") Instant now);
+
+    /**
+     * 批量 RECYCLABLE 转换：跨 submitter 合并为一条 UPDATE ... FROM (VALUES ...)，仅转换仍为 RESERVED 且未写入 tx_hash 的记录，
+     * 并按 submitter 累加空洞计数
+     * 注意：调用方须先按 submitter 升序锁定相关状态行
+     *
+     * @return 实际转换的记录数
+     */
+    @Select({"<script>",
+            "WITH upd AS (",
+            "UPDATE submitter_nonce_allocation a ",
+            "SET status_code = 3, tx_hash = NULL, owner_node = NULL, owner_seq = NULL, locked_until = NULL, ",
+            "reason = v.reason, updated_at = #{now} ",
+            "FROM (VALUES ",
+            "<foreach collection='updates' item='u' separator=','>",
+            "(#{u.submitter}, #{u.nonce}, #{u.reason})",
+            "</foreach>",
+            ") AS v(submitter, nonce, reason) ",
+            "WHERE a.submitter = v.submitter AND a.nonce = v.nonce AND a.status_code = 1 AND a.tx_hash IS NULL ",
+            "RETURNING a.submitter, a.nonce",
+            "), cnt AS (",
+            "UPDATE submitter_nonce_state s ",
+            "SET recyclable_count = s.recyclable_count + r.n, ",
+            "min_recyclable_nonce = LEAST(COALESCE(s.min_recyclable_nonce, r.mn), r.mn) ",
+            "FROM (SELECT submitter, count(*) AS n, min(nonce) AS mn FROM upd GROUP BY submitter) r ",
+            "WHERE s.submitter = r.submitter",
+            ") ",
+            "SELECT count(*) FROM upd",
+            "</script>"})
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    int markRecyclableBatch(@Param("updates") List<NonceStatusUpdate> updates, @Param("now") Instant now);
+
+    /**
+     * 按区块回执批量确认，单条语句完成（r 为回执，同一 (submitter, nonce) 只出现一次）：
+     * 1. 回执命中的 RESERVED / RECYCLABLE 记录，以及已被链上对账确认、尚无 tx_hash 的 USED 记录，转为 USED 并写入回执的 txHash；
+     *    已是 USED 的记录不变，按 txHash 是否相同计为重放或冲突；分配表中没有的回查归档表
+     * 2. 回执说明链上 nonce 至少推进到该 submitter 在本批中的最大 nonce：水位需要推进的 submitter 按链上对账的规则
+     *    确认 / 作废水位以下的其他记录，推进 last_chain_nonce / next_local_nonce 并重算空洞计数
+     * 注意：调用方须先按 submitter 升序锁定相关状态行；重放与乱序到达的区块只会命中已结算的记录，结果幂等
+     */
+    @Select({"<script>",
+            "WITH r(submitter, nonce, tx_hash) AS (VALUES ",
+            "<foreach collection='receipts' item='r' separator=','>",
+            "(#{r.submitter}, #{r.nonce}::bigint, #{r.txHash})",
+            "</foreach>",
+            "), cur AS (",
+            "SELECT r.tx_hash AS receipt_hash, ",
+            "CASE WHEN a.submitter IS NOT NULL THEN a.status_code ELSE h.status_code END AS status_code, ",
+            "CASE WHEN a.submitter IS NOT NULL THEN a.tx_hash ELSE h.tx_hash END AS tx_hash ",
+            "FROM r ",
+            "LEFT JOIN submitter_nonce_allocation a ON a.submitter = r.submitter AND a.nonce = r.nonce ",
+            "LEFT JOIN submitter_nonce_allocation_archive h ON h.submitter = r.submitter AND h.nonce = r.nonce",
+            "), st AS (",
+            "SELECT s.submitter, m.chain_nonce FROM submitter_nonce_state s ",
+            "JOIN (SELECT submitter, max(nonce) AS chain_nonce FROM r GROUP BY submitter) m ON m.submitter = s.submitter ",
+            "WHERE m.chain_nonce > s.last_chain_nonce",
+            "), used AS (",
+            "UPDATE submitter_nonce_allocation a ",
+            "SET status_code = 2, tx_hash = r.tx_hash, owner_node = NULL, owner_seq = NULL, locked_until = NULL, ",
+            "reason = '区块确认', updated_at = #{now} ",
+            "FROM r WHERE a.submitter = r.submitter AND a.nonce = r.nonce ",
+            "AND (a.status_code IN (1, 3) OR (a.status_code = 2 AND a.tx_hash IS NULL)) ",
+            "RETURNING a.submitter",
+            "), settled AS (",
+            "UPDATE submitter_nonce_allocation a ",
+            "SET status_code = 2, owner_node = NULL, owner_seq = NULL, locked_until = NULL, ",
+            "reason = CASE a.status_code WHEN 1 THEN '链上确认' ELSE '空洞已被链上消耗' END, updated_at = #{now} ",
+            "FROM st WHERE a.submitter = st.submitter AND a.nonce &lt;= st.chain_nonce AND a.status_code IN (1, 3) ",
+            "AND NOT EXISTS (SELECT 1 FROM r WHERE r.submitter = a.submitter AND r.nonce = a.nonce) ",
+            "RETURNING a.submitter",
+            "), adv AS (",
+            "UPDATE submitter_nonce_state s ",
+            "SET last_chain_nonce = st.chain_nonce, ",
+            "next_local_nonce = GREATEST(s.next_local_nonce, st.chain_nonce + 1), ",
+            "recyclable_count = CASE WHEN s.min_recyclable_nonce &lt;= st.chain_nonce ",
+            "  THEN (SELECT count(*) FROM submitter_nonce_allocation x ",
+            "        WHERE x.submitter = s.submitter AND x.status_code = 3 AND x.nonce > st.chain_nonce) ",
+            "  ELSE s.recyclable_count END, ",
+            "min_recyclable_nonce = CASE WHEN s.min_recyclable_nonce &lt;= st.chain_nonce ",
+            "  THEN (SELECT min(x.nonce) FROM submitter_nonce_allocation x ",
+            "        WHERE x.submitter = s.submitter AND x.status_code = 3 AND x.nonce > st.chain_nonce) ",
+            "  ELSE s.min_recyclable_nonce END, ",
+            "updated_at = #{now} ",
+            "FROM st WHERE s.submitter = st.submitter ",
+            "RETURNING s.submitter",
+            ") ",
+            "SELECT (SELECT count(*) FROM used) AS confirmed, ",
+            "(SELECT count(*) FROM cur WHERE cur.status_code = 2 AND cur.tx_hash = cur.receipt_hash) AS duplicated, ",
+            "(SELECT count(*) FROM cur WHERE cur.status_code = 2 AND cur.tx_hash &lt;> cur.receipt_hash) AS conflicted, ",
+            "(SELECT count(*) FROM cur WHERE cur.status_code IS NULL) AS unmatched, ",
+            "(SELECT count(*) FROM settled) AS settled, ",
+            "(SELECT count(*) FROM adv) AS advanced",
+            "</script>"})
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    ReceiptIngestEntity ingestReceipts(@Param("receipts") List<BlockReceipt> receipts, @Param("now") Instant now);
+
+    /**
+     * 以单条多行 INSERT ... ON CONFLICT 将一组 nonce 写为 RESERVED，并返回写入后的记录
+     * 注意：已为 USED 的 nonce 不会被覆盖，也不会出现在返回结果中
+     */
+    @Select({"<script>",
+            "INSERT INTO submitter_nonce_allocation(submitter, nonce, status_code, owner_node, owner_seq, locked_until, updated_at, created_at) VALUES ",
+            "<foreach collection='nonces' item='nonce' separator=','>",
+            "(#{submitter}, #{nonce}, 1, #{ownerNode}, #{ownerSeq}, #{lockedUntil}, #{now}, #{now})",
+            "</foreach>",
+            "ON CONFLICT(submitter, nonce) ",
+            "DO UPDATE SET status_code = 1, owner_node = EXCLUDED.owner_node, owner_seq = EXCLUDED.owner_seq, ",
+            "locked_until = EXCLUDED.locked_until, updated_at = EXCLUDED.updated_at ",
+            "WHERE submitter_nonce_allocation.status_code &lt;> 2 ",
+            "RETURNING id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at",
+            "</script>"})
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<NonceAllocationEntity> reserveNonces(@Param("submitter") String submitter,
+                                              @Param("nonces") List<Long> nonces,
+                                              @Param("ownerNode") int ownerNode,
+                                              @Param("ownerSeq") long ownerSeq,
+                                              @Param("lockedUntil") Instant lockedUntil,
+                                              @Param("now") Instant now);
+
+    /**
+     * 以单条语句将 [fromNonce, toNonce] 整段区间写为 RESERVED，并返回写入后的记录
+     * 注意：已为 USED 的 nonce 不会被覆盖，也不会出现在返回结果中
+     */
+    @Select("INSERT INTO submitter_nonce_allocation(submitter, nonce, status_code, owner_node, owner_seq, locked_until, updated_at, created_at) " +
+            "SELECT #{submitter}, g.nonce, 1, #{ownerNode}, #{ownerSeq}, #{lockedUntil}, #{now}, #{now} " +
+            "FROM generate_series(#{fromNonce}::bigint, #{toNonce}::bigint) AS g(nonce) " +
             "ON CONFLICT(submitter, nonce) " +
-            "DO UPDATE SET status = 'RESERVED', lock_owner = #{lockOwner}, locked_until = #{lockedUntil}, updated_at = #{updatedAt} " +
-            "WHERE submitter_nonce_allocation.status != 'USED'")
-    int reserveNonce(@Param("submitter") String submitter,
-                     @Param("nonce") Long nonce,
-                     @Param("lockOwner") String lockOwner,
-                     @Param("lockedUntil") Instant lockedUntil,
-                     @Param("updatedAt") Instant updatedAt,
-                     @Param("createdAt") Instant createdAt);
+            "DO UPDATE SET status_code = 1, owner_node = EXCLUDED.owner_node, owner_seq = EXCLUDED.owner_seq, " +
+            "locked_until = EXCLUDED.locked_until, updated_at = EXCLUDED.updated_at " +
+            "WHERE submitter_nonce_allocation.status_code <> 2 " +
+            "RETURNING id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<NonceAllocationEntity> reserveRange(@Param("submitter") String submitter,
+                                             @Param("fromNonce") Long fromNonce,
+                                             @Param("toNonce") Long toNonce,
+                                             @Param("ownerNode") int ownerNode,
+                                             @Param("ownerSeq") long ownerSeq,
+                                             @Param("lockedUntil") Instant lockedUntil,
+                                             @Param("now") Instant now);
+
+    /**
+     * 将 [fromNonce, toNonce) 中仍属于 (ownerNode, ownerSeq)、且未写入 tx_hash 的 RESERVED 记录回收为 RECYCLABLE，并累加空洞计数
+     * 注意：调用方须已持有该 submitter 状态行的锁
+     *
+     * @return 实际回收的记录数
+     */
+    @Select("WITH rel AS (" +
+            "  UPDATE submitter_nonce_allocation " +
+            "  SET status_code = 3, owner_node = NULL, owner_seq = NULL, locked_until = NULL, updated_at = #{now}, reason = #{reason} " +
+            "  WHERE submitter = #{submitter} " +
+            "  AND owner_node = #{ownerNode} AND owner_seq = #{ownerSeq} " +
+            "  AND status_code = 1 " +
+            "  AND nonce >= #{fromNonce} AND nonce < #{toNonce} " +
+            "  AND tx_hash IS NULL " +
+            "  RETURNING nonce" +
+            "), cnt AS (" +
+            "  UPDATE submitter_nonce_state s " +
+            "  SET recyclable_count = s.recyclable_count + r.n, " +
+            "      min_recyclable_nonce = LEAST(COALESCE(s.min_recyclable_nonce, r.mn), r.mn) " +
+            "  FROM (SELECT count(*) AS n, min(nonce) AS mn FROM rel) r " +
+            "  WHERE s.submitter = #{submitter} AND r.n > 0" +
+            ") " +
+            "SELECT count(*) FROM rel")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    int releaseRange(@Param("submitter") String submitter,
+                     @Param("ownerNode") int ownerNode,
+                     @Param("ownerSeq") long ownerSeq,
+                     @Param("fromNonce") Long fromNonce,
+                     @Param("toNonce") Long toNonce,
+                     @Param("reason") String reason,
+                     @Param("now") Instant now);
+
+    /**
+     * 调用 nonce_allocate 存储过程，单次往返完成整个分配流程
+     * 注意：nonce 已为 USED 时返回 null
+     */
+    @Select("SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at " +
+            "FROM nonce_allocate(#{submitter}, #{ownerNode}, #{ownerSeq}, #{lockedUntil}, #{expireBefore}, #{now}, #{recycleExpired})")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    NonceAllocationEntity allocateByFunction(@Param("submitter") String submitter,
+                                             @Param("ownerNode") int ownerNode,
+                                             @Param("ownerSeq") long ownerSeq,
+                                             @Param("lockedUntil") Instant lockedUntil,
+                                             @Param("expireBefore") Instant expireBefore,
+                                             @Param("now") Instant now,
+                                             @Param("recycleExpired") boolean recycleExpired);
 
     /**
      * 查询被回收的记录（用于日志）
      */
-    @Select("SELECT id, submitter, nonce, status, lock_owner, locked_until, tx_hash, reason, updated_at, created_at " +
+    @Select("SELECT id, submitter, nonce, status_code, owner_node, owner_seq, locked_until, tx_hash, reason, updated_at, created_at " +
             "FROM submitter_nonce_allocation " +
             "WHERE submitter = #{submitter} " +
-            "AND status = 'RESERVED' " +
+            "AND status_code = 1 " +
             "AND locked_until IS NOT NULL " +
-            "AND locked_until < #{expireBefore}")
+            "AND locked_until < #{expireBefore} " +
+            "AND tx_hash IS NULL")
     List<NonceAllocationEntity> findExpiredReservations(@Param("submitter") String submitter,
                                                          @Param("expireBefore") Instant expireBefore);
 }
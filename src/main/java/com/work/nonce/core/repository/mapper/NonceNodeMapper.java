@@ -0,0 +1,24 @@
+package com.work.nonce.core.repository.mapper;
+
+import com.work.nonce.core.repository.entity.NonceNodeEntity;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.Instant;
+
+/**
+ * 节点注册表 Mapper：把节点名映射为紧凑的整型 node_id，供锁持有者标识使用
+ */
+public interface NonceNodeMapper {
+
+    /**
+     * 注册节点：首次注册分配 node_id，再次注册（重启）时 incarnation 加 1，返回注册后的记录
+     */
+    @Select("INSERT INTO nonce_node(node_name, incarnation, registered_at, updated_at) " +
+            "VALUES (#{nodeName}, 1, #{now}, #{now}) " +
+            "ON CONFLICT (node_name) DO UPDATE SET incarnation = nonce_node.incarnation + 1, updated_at = EXCLUDED.updated_at " +
+            "RETURNING node_id, node_name, incarnation, registered_at, updated_at")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    NonceNodeEntity register(@Param("nodeName") String nodeName, @Param("now") Instant now);
+}
@@ -1,11 +1,17 @@
 package com.work.nonce.core.repository.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.work.nonce.core.repository.entity.ChainReconcileEntity;
 import com.work.nonce.core.repository.entity.SubmitterNonceStateEntity;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Submitter nonce 状态表 Mapper
@@ -15,7 +21,8 @@ public interface SubmitterNonceStateMapper extends BaseMapper<SubmitterNonceStat
     /**
      * 使用 SELECT FOR UPDATE 锁定并加载状态，不存在则返回null
      */
-    @Select("SELECT submitter, last_chain_nonce, next_local_nonce, updated_at, created_at " +
+    @Select("SELECT submitter, last_chain_nonce, next_local_nonce, recyclable_count, min_recyclable_nonce, owner_epoch, " +
+            "updated_at, created_at " +
             "FROM submitter_nonce_state WHERE submitter = #{submitter} FOR UPDATE")
     SubmitterNonceStateEntity lockAndLoadBySubmitter(@Param("submitter") String submitter);
 
@@ -31,5 +38,178 @@ public interface SubmitterNonceStateMapper extends BaseMapper<SubmitterNonceStat
                           @Param("nextLocalNonce") Long nextLocalNonce,
                           @Param("updatedAt") Instant updatedAt,
                           @Param("createdAt") Instant createdAt);
-}
 
+    /**
+     * 按 submitter 升序锁定一组状态行，保证与分配路径一致的加锁顺序（先状态行、后分配记录）
+     */
+    @Select({"<script>",
+            "SELECT submitter FROM submitter_nonce_state WHERE submitter IN ",
+            "<foreach collection='submitters' item='s' open='(' separator=',' close=')'>#{s}</foreach>",
+            "ORDER BY submitter FOR UPDATE",
+            "</script>"})
+    List<String> lockSubmitters(@Param("submitters") Collection<String> submitters);
+
+    /**
+     * 复用 consumed 个空洞后扣减计数，并重新计算水位之上的最小空洞
+     */
+    @Update("UPDATE submitter_nonce_state s " +
+            "SET recyclable_count = GREATEST(s.recyclable_count - #{consumed}, 0), " +
+            "min_recyclable_nonce = (SELECT min(nonce) FROM submitter_nonce_allocation " +
+            "  WHERE submitter = #{submitter} AND status_code = 3 AND nonce > s.last_chain_nonce) " +
+            "WHERE s.submitter = #{submitter}")
+    int consumeRecyclable(@Param("submitter") String submitter, @Param("consumed") int consumed);
+
+    /**
+     * 按分配表重算空洞计数与最小空洞，返回修复后的状态，记录不存在时返回null。
+     * 只统计水位（last_chain_nonce）之上的空洞，水位以下的记录已在链上结算，等待压缩删除
+     */
+    @Select("UPDATE submitter_nonce_state s " +
+            "SET recyclable_count = (SELECT count(*) FROM submitter_nonce_allocation " +
+            "  WHERE submitter = #{submitter} AND status_code = 3 AND nonce > s.last_chain_nonce), " +
+            "min_recyclable_nonce = (SELECT min(nonce) FROM submitter_nonce_allocation " +
+            "  WHERE submitter = #{submitter} AND status_code = 3 AND nonce > s.last_chain_nonce) " +
+            "WHERE s.submitter = #{submitter} " +
+            "RETURNING s.submitter, s.last_chain_nonce, s.next_local_nonce, s.recyclable_count, s.min_recyclable_nonce, " +
+            "s.owner_epoch, s.updated_at, s.created_at")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    SubmitterNonceStateEntity repairRecyclableCounters(@Param("submitter") String submitter);
+
+    /**
+     * 把 owner_epoch 推进到 epoch（不会回退），返回推进后的值；
+     * 返回值大于 epoch 说明已有更新 epoch 的 owner 写入过，当前节点已被 fence。
+     * 语句本身对状态行加行锁，调用方随后的分配与该行锁处于同一事务中
+     */
+    @Select("UPDATE submitter_nonce_state SET owner_epoch = GREATEST(owner_epoch, #{epoch}) " +
+            "WHERE submitter = #{submitter} RETURNING owner_epoch")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    Long advanceOwnerEpoch(@Param("submitter") String submitter, @Param("epoch") long epoch);
+
+    /**
+     * fencing 模式下的乐观更新：仅当 fence_token 小于本次持锁的 token 且 next_local_nonce 未被他人推进时生效。
+     * 持有较小 token 的旧锁持有者（锁已过期）、或行锁路径已推进计数时返回 0
+     */
+    @Update("UPDATE submitter_nonce_state " +
+            "SET next_local_nonce = #{nextLocalNonce}, fence_token = #{fence}, updated_at = #{now} " +
+            "WHERE submitter = #{submitter} AND next_local_nonce = #{expectedNextLocalNonce} AND fence_token < #{fence}")
+    int updateStateFenced(@Param("submitter") String submitter,
+                          @Param("expectedNextLocalNonce") long expectedNextLocalNonce,
+                          @Param("nextLocalNonce") long nextLocalNonce,
+                          @Param("fence") long fence,
+                          @Param("now") Instant now);
+
+    /**
+     * 把链上水位 last_chain_nonce 推进到 chainNonce（不会回退），next_local_nonce 同步推进到水位之上；
+     * 最小空洞落入水位以下时重算水位之上的空洞计数。返回推进后的水位，状态行不存在时返回 null
+     */
+    @Select("UPDATE submitter_nonce_state s " +
+            "SET last_chain_nonce = GREATEST(s.last_chain_nonce, #{chainNonce}), " +
+            "next_local_nonce = GREATEST(s.next_local_nonce, #{chainNonce} + 1), " +
+            "recyclable_count = CASE WHEN s.min_recyclable_nonce <= #{chainNonce} " +
+            "  THEN (SELECT count(*) FROM submitter_nonce_allocation " +
+            "        WHERE submitter = #{submitter} AND status_code = 3 AND nonce > #{chainNonce}) " +
+            "  ELSE s.recyclable_count END, " +
+            "min_recyclable_nonce = CASE WHEN s.min_recyclable_nonce <= #{chainNonce} " +
+            "  THEN (SELECT min(nonce) FROM submitter_nonce_allocation " +
+            "        WHERE submitter = #{submitter} AND status_code = 3 AND nonce > #{chainNonce}) " +
+            "  ELSE s.min_recyclable_nonce END, " +
+            "updated_at = #{now} " +
+            "WHERE s.submitter = #{submitter} RETURNING s.last_chain_nonce")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    Long advanceLastChainNonce(@Param("submitter") String submitter,
+                               @Param("chainNonce") long chainNonce,
+                               @Param("now") Instant now);
+
+    /**
+     * 水位压缩：锁定一批 compacted_nonce < last_chain_nonce 的状态行（SKIP LOCKED，先状态行、后分配记录），
+     * 删除 (compacted_nonce, LEAST(last_chain_nonce, compacted_nonce + span)] 区间内的全部分配记录并推进 compacted_nonce。
+     * 空洞计数只统计水位之上的记录（见 {@link #advanceLastChainNonce}），删除水位以下的记录无需扣减。
+     * 只处理 hashtext(submitter) 落在指定分区的状态行
+     *
+     * @return 本批删除的分配记录数
+     */
+    @Select("WITH st AS (" +
+            "  SELECT s.submitter, s.compacted_nonce AS from_nonce, " +
+            "         LEAST(s.last_chain_nonce, s.compacted_nonce + #{span}) AS to_nonce " +
+            "  FROM submitter_nonce_state s " +
+            "  WHERE s.compacted_nonce < s.last_chain_nonce " +
+            "  AND (hashtext(s.submitter) & 2147483647) % #{partitions} = #{partition} " +
+            "  LIMIT #{limit} " +
+            "  FOR UPDATE SKIP LOCKED" +
+            "), del AS (" +
+            "  DELETE FROM submitter_nonce_allocation a USING st " +
+            "  WHERE a.submitter = st.submitter AND a.nonce > st.from_nonce AND a.nonce <= st.to_nonce " +
+            "  RETURNING a.submitter" +
+            "), upd AS (" +
+            "  UPDATE submitter_nonce_state s SET compacted_nonce = st.to_nonce " +
+            "  FROM st WHERE s.submitter = st.submitter " +
+            "  RETURNING s.submitter" +
+            ") " +
+            "SELECT count(*) FROM del")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    int compactSettled(@Param("partition") int partition,
+                       @Param("partitions") int partitions,
+                       @Param("limit") int limit,
+                       @Param("span") long span);
+
+    /**
+     * 按 submitter 升序分页列出仍有未结算 nonce（next_local_nonce - 1 > last_chain_nonce）的状态行，供链上对账遍历。
+     * 以上一页最后一个 submitter 做游标，沿主键索引扫描
+     */
+    @Select("SELECT submitter, last_chain_nonce, next_local_nonce, recyclable_count, min_recyclable_nonce, owner_epoch, " +
+            "updated_at, created_at " +
+            "FROM submitter_nonce_state " +
+            "WHERE submitter > #{after} AND next_local_nonce > last_chain_nonce + 1 " +
+            "ORDER BY submitter LIMIT #{limit}")
+    List<SubmitterNonceStateEntity> findUnsettled(@Param("after") String after, @Param("limit") int limit);
+
+    /**
+     * 批量链上对账：一条语句处理一批 submitter（chainNonces 为 submitter → 链上最新 nonce）。
+     * 先以 FOR UPDATE SKIP LOCKED 锁定水位需要推进的状态行（正在分配的 submitter 本批跳过，下一轮再处理），再改分配记录：
+     * 水位以下的 RESERVED 视为已被链上确认、RECYCLABLE 视为已被链上消耗，均转为 USED（tx_hash 为空，reason 区分来源），
+     * 随后推进 last_chain_nonce / next_local_nonce，并按 {@link #advanceLastChainNonce} 的规则重算水位之上的空洞计数
+     */
+    @Select({"<script>",
+            "WITH v(submitter, chain_nonce) AS (VALUES ",
+            "<foreach collection='chainNonces' index='submitter' item='chainNonce' separator=','>",
+            "(#{submitter}, #{chainNonce}::bigint)",
+            "</foreach>",
+            "), st AS (",
+            "SELECT s.submitter, v.chain_nonce FROM submitter_nonce_state s ",
+            "JOIN v ON v.submitter = s.submitter ",
+            "WHERE v.chain_nonce > s.last_chain_nonce ",
+            "ORDER BY s.submitter ",
+            "FOR UPDATE OF s SKIP LOCKED",
+            "), confirmed AS (",
+            "UPDATE submitter_nonce_allocation a ",
+            "SET status_code = 2, owner_node = NULL, owner_seq = NULL, locked_until = NULL, reason = '链上确认', updated_at = #{now} ",
+            "FROM st WHERE a.submitter = st.submitter AND a.nonce &lt;= st.chain_nonce AND a.status_code = 1 ",
+            "RETURNING a.submitter",
+            "), voided AS (",
+            "UPDATE submitter_nonce_allocation a ",
+            "SET status_code = 2, reason = '空洞已被链上消耗', updated_at = #{now} ",
+            "FROM st WHERE a.submitter = st.submitter AND a.nonce &lt;= st.chain_nonce AND a.status_code = 3 ",
+            "RETURNING a.submitter",
+            "), upd AS (",
+            "UPDATE submitter_nonce_state s ",
+            "SET last_chain_nonce = st.chain_nonce, ",
+            "next_local_nonce = GREATEST(s.next_local_nonce, st.chain_nonce + 1), ",
+            "recyclable_count = CASE WHEN s.min_recyclable_nonce &lt;= st.chain_nonce ",
+            "  THEN (SELECT count(*) FROM submitter_nonce_allocation x ",
+            "        WHERE x.submitter = s.submitter AND x.status_code = 3 AND x.nonce > st.chain_nonce) ",
+            "  ELSE s.recyclable_count END, ",
+            "min_recyclable_nonce = CASE WHEN s.min_recyclable_nonce &lt;= st.chain_nonce ",
+            "  THEN (SELECT min(x.nonce) FROM submitter_nonce_allocation x ",
+            "        WHERE x.submitter = s.submitter AND x.status_code = 3 AND x.nonce > st.chain_nonce) ",
+            "  ELSE s.min_recyclable_nonce END, ",
+            "updated_at = #{now} ",
+            "FROM st WHERE s.submitter = st.submitter ",
+            "RETURNING s.submitter",
+            ") ",
+            "SELECT (SELECT count(*) FROM upd) AS advanced, ",
+            "(SELECT count(*) FROM confirmed) AS confirmed, ",
+            "(SELECT count(*) FROM voided) AS voided",
+            "</script>"})
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    ChainReconcileEntity reconcileChainNonces(@Param("chainNonces") Map<String, Long> chainNonces,
+                                              @Param("now") Instant now);
+}
@@ -0,0 +1,316 @@
+package com.work.nonce.core.sequencer;
+
+import com.work.nonce.core.config.NonceSequencerConfig;
+import com.work.nonce.core.exception.NonceException;
+import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.service.NonceAllocator;
+import com.work.nonce.core.service.NonceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * 单写者合并分配器：同一 submitter 的分配请求进入该 submitter 的有界队列，
+ * 由唯一的工作线程取出当前已排队的全部请求（最多 maxBatchSize 个），
+ * 用一次加锁、一个事务（{@link NonceService#allocateBatch}）满足整批请求。
+ * <p>
+ * 竞争下的延迟从 N 个事务串行，降为每个 drain 周期约一个事务。
+ * <p>
+ * 注意：
+ * 1. 每个活跃 submitter 同一时刻只有一个工作线程；队列取空后关闭并移除，不随历史 submitter 增长
+ * 2. 工作线程每轮只处理一批，之后把该队列重新提交到线程池队尾，各 submitter 轮流占用工作线程，
+ *    持续有流量的 submitter 不会一直占住线程、饿死其他 submitter
+ * 3. 队列满时请求直接走单次分配（相当于关闭合并），不会无限堆积
+ * 4. 调用方等待超时后，若分配随后完成，则立即回收为 RECYCLABLE，避免 RESERVED 泄漏
+ * 5. 批内 nonce 按升序依次交给排队顺序上的请求
+ */
+public class NonceAllocationSequencer implements NonceAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(NonceAllocationSequencer.class);
+
+    private final NonceService nonceService;
+    private final NonceSequencerConfig config;
+    private final Map<String, SubmitterQueue> queues = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder directCount = new LongAdder();
+    private final LongAdder abandonedCount = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+
+    public NonceAllocationSequencer(NonceService nonceService, NonceSequencerConfig config) {
+        this.nonceService = requireNonNull(nonceService, "nonceService");
+        this.config = requireNonNull(config, "config");
+        if (!config.isEnabled()) {
+            this.workers = null;
+            return;
+        }
+        AtomicInteger workerIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(config.getWorkerThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "nonce-sequencer-" + workerIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    @Override
+    public NonceAllocation allocate(String submitter) {
+        requireNonEmpty(submitter, "submitter");
+
+        if (!isEnabled()) {
+            return nonceService.allocate(submitter);
+        }
+
+        requestCount.increment();
+        PendingRequest request = new PendingRequest();
+        if (!enqueue(submitter, request)) {
+            // 队列已满：不再排队，直接单次分配
+            directCount.increment();
+            return nonceService.allocate(submitter);
+        }
+        return await(submitter, request);
+    }
+
+    private boolean enqueue(String submitter, PendingRequest request) {
+        while (true) {
+            SubmitterQueue queue = queues.computeIfAbsent(submitter, SubmitterQueue::new);
+            switch (queue.offer(request, config.getQueueCapacity())) {
+                case ACCEPTED:
+                    if (queue.markStarted()) {
+                        schedule(queue);
+                    }
+                    return true;
+                case FULL:
+                    return false;
+                case CLOSED:
+                default:
+                    // 工作线程刚好取空并关闭了该队列，移除后重新创建
+                    queues.remove(submitter, queue);
+            }
+        }
+    }
+
+    private NonceAllocation await(String submitter, PendingRequest request) {
+        try {
+            return request.future.get(config.getRequestTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            request.future.cancel(false);
+            throw new NonceException("排队分配超时: " + submitter, e);
+        } catch (InterruptedException e) {
+            request.future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new NonceException("排队分配被中断: " + submitter, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NonceException) {
+                throw (NonceException) cause;
+            }
+            throw new NonceException("排队分配失败: " + submitter, cause);
+        }
+    }
+
+    /**
+     * 工作线程的一轮：取出至多 maxBatchSize 个排队请求批量分配。队列已空则关闭并移除，
+     * 否则重新提交到线程池队尾，让其他 submitter 先执行。
+     */
+    private void drain(SubmitterQueue queue) {
+        try {
+            List<PendingRequest> batch = queue.poll(config.getMaxBatchSize());
+            if (!batch.isEmpty()) {
+                process(queue.submitter, batch);
+            }
+        } finally {
+            if (queue.closeIfEmpty()) {
+                queues.remove(queue.submitter, queue);
+            } else {
+                schedule(queue);
+            }
+        }
+    }
+
+    private void schedule(SubmitterQueue queue) {
+        try {
+            workers.execute(() -> drain(queue));
+        } catch (RejectedExecutionException e) {
+            // 已关闭：关闭队列并让排队的请求立即失败，后续请求会重建队列并同样失败，不会等到超时
+            failPending(queue);
+        }
+    }
+
+    private static void failPending(SubmitterQueue queue) {
+        for (PendingRequest request : queue.closeAndDrain()) {
+            request.future.completeExceptionally(new NonceException("合并分配器已关闭"));
+        }
+    }
+
+    private void process(String submitter, List<PendingRequest> batch) {
+        batchCount.increment();
+        maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+
+        List<NonceAllocation> allocations;
+        try {
+            allocations = batch.size() == 1
+                    ? Collections.singletonList(nonceService.allocate(submitter))
+                    : nonceService.allocateBatch(submitter, batch.size());
+        } catch (Exception e) {
+            for (PendingRequest request : batch) {
+                request.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            NonceAllocation allocation = allocations.get(i);
+            if (!batch.get(i).future.complete(allocation)) {
+                // 调用方已超时放弃：立即回收，避免 RESERVED 泄漏到超时回收
+                abandonedCount.increment();
+                recycleSafely(allocation);
+            }
+        }
+    }
+
+    private void recycleSafely(NonceAllocation allocation) {
+        try {
+            nonceService.markRecyclable(allocation.getSubmitter(), allocation.getNonce(), "排队超时放弃");
+        } catch (Exception e) {
+            log.warn("回收放弃的 nonce 失败, 等待超时回收: {}", allocation, e);
+        }
+    }
+
+    /**
+     * 停止工作线程，供应用关闭时调用；仍在排队的请求以异常结束。
+     */
+    public void shutdown() {
+        if (!isEnabled()) {
+            return;
+        }
+        workers.shutdown();
+        try {
+            workers.awaitTermination(config.getRequestTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SubmitterQueue queue : queues.values()) {
+            failPending(queue);
+        }
+    }
+
+    public int getActiveSubmitters() {
+        return queues.size();
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getDirectCount() {
+        return directCount.sum();
+    }
+
+    public long getAbandonedCount() {
+        return abandonedCount.sum();
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    private enum OfferResult {
+        ACCEPTED, FULL, CLOSED
+    }
+
+    private static final class PendingRequest {
+
+        private final CompletableFuture<NonceAllocation> future = new CompletableFuture<>();
+    }
+
+    /**
+     * 单个 submitter 的有界队列（多生产者、单消费者），所有访问都在其监视器下进行。
+     */
+    private static final class SubmitterQueue {
+
+        private final String submitter;
+        private final Deque<PendingRequest> pending = new ArrayDeque<>();
+        private boolean started;
+        private boolean closed;
+
+        private SubmitterQueue(String submitter) {
+            this.submitter = submitter;
+        }
+
+        private synchronized OfferResult offer(PendingRequest request, int capacity) {
+            if (closed) {
+                return OfferResult.CLOSED;
+            }
+            if (pending.size() >= capacity) {
+                return OfferResult.FULL;
+            }
+            pending.addLast(request);
+            return OfferResult.ACCEPTED;
+        }
+
+        /**
+         * 每个队列只启动一次工作线程。
+         */
+        private synchronized boolean markStarted() {
+            if (started) {
+                return false;
+            }
+            started = true;
+            return true;
+        }
+
+        private synchronized List<PendingRequest> poll(int max) {
+            int size = Math.min(max, pending.size());
+            List<PendingRequest> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(pending.pollFirst());
+            }
+            return batch;
+        }
+
+        private synchronized List<PendingRequest> closeAndDrain() {
+            closed = true;
+            List<PendingRequest> remaining = new ArrayList<>(pending);
+            pending.clear();
+            return remaining;
+        }
+
+        private synchronized boolean closeIfEmpty() {
+            if (pending.isEmpty()) {
+                closed = true;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.work.nonce.core.service;
+
+import com.work.nonce.core.model.NonceAllocation;
+
+/**
+ * 分配入口的抽象：模板与门面只依赖该接口领取 nonce。
+ * <p>
+ * 默认实现为 {@link NonceService}（每次一个事务），租约等分配策略以装饰器形式叠加在其上。
+ */
+public interface NonceAllocator {
+
+    /**
+     * 为 submitter 分配一个 RESERVED 状态的 nonce。
+     */
+    NonceAllocation allocate(String submitter);
+}
@@ -1,22 +1,49 @@
 package com.work.nonce.core.service;
 
+import com.work.nonce.core.cluster.NonceClusterMembership;
+import com.work.nonce.core.cluster.NonceNodeRegistry;
+import com.work.nonce.core.cluster.SubmitterOwnership;
 import com.work.nonce.core.config.NonceConfig;
+import com.work.nonce.core.engine.RedisNonceEngine;
+import com.work.nonce.core.exception.NonceException;
+import com.work.nonce.core.exception.NonceOwnershipException;
+import com.work.nonce.core.hole.NonceHoleIndex;
 import com.work.nonce.core.lock.RedisLockManager;
+import com.work.nonce.core.model.BlockReceipt;
+import com.work.nonce.core.model.ChainReconcileResult;
+import com.work.nonce.core.model.LockOwner;
 import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.model.NonceAllocationStatus;
+import com.work.nonce.core.model.NonceLease;
+import com.work.nonce.core.model.NonceStatusUpdate;
+import com.work.nonce.core.model.ReceiptIngestResult;
 import com.work.nonce.core.model.SubmitterNonceState;
 import com.work.nonce.core.repository.NonceRepository;
 import com.work.nonce.core.support.TransactionLockSynchronizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.net.InetAddress;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.TreeSet;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 
 import static com.work.nonce.core.support.ValidationUtils.requireNonEmpty;
 import static com.work.nonce.core.support.ValidationUtils.requireNonNegative;
+import static com.work.nonce.core.support.ValidationUtils.requirePositive;
 
 /**
  * 负责"如何为某个 submitter 分配正确的 nonce"。
@@ -24,40 +51,120 @@ import static com.work.nonce.core.support.ValidationUtils.requireNonNegative;
  * <p>
  * 事务边界：所有数据库操作都在事务中执行，确保数据一致性
  * 锁管理：Redis锁通过事务同步机制在事务提交后释放，避免并发问题
+ * 集群归属：开启后本节点拥有的 submitter 跳过分布式锁，以 owner_epoch 做 fencing；
+ * 非本节点拥有的 submitter 抛出 {@link NonceOwnershipException}（携带 owner 提示）
+ * 分配引擎：配置为 Redis 引擎的 submitter 由 {@link RedisNonceEngine} 分配与确认，不访问数据库
+ * 链上水位：nonce 不大于 last_chain_nonce 的前缀已在链上结算，分配路径只按已加载的状态行判断，
+ * 新号从 max(next_local_nonce, last_chain_nonce + 1) 开始，水位及以下的空洞不再复用（不查询分配表）
  */
 @Service
-public class NonceService {
+public class NonceService implements NonceAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(NonceService.class);
 
     private static final int TRANSACTION_TIMEOUT_SECONDS = 5;
+    private static final String ENGINE_LOCK_OWNER = LockOwner.ENGINE.toString();
 
     private final NonceRepository nonceRepository;
     private final RedisLockManager redisLockManager;
     private final NonceConfig config;
+    private final NonceHoleIndex holeIndex;
+    private final NonceClusterMembership clusterMembership;
+    private final RedisNonceEngine redisEngine;
+    private final NonceNodeRegistry nodeRegistry;
 
+    @Autowired
     public NonceService(NonceRepository nonceRepository,
                         RedisLockManager redisLockManager,
-                        NonceConfig config) {
+                        NonceConfig config,
+                        NonceHoleIndex holeIndex,
+                        NonceClusterMembership clusterMembership,
+                        RedisNonceEngine redisEngine,
+                        NonceNodeRegistry nodeRegistry) {
         this.nonceRepository = nonceRepository;
         this.redisLockManager = redisLockManager;
         this.config = config;
+        this.holeIndex = holeIndex;
+        this.clusterMembership = clusterMembership;
+        this.redisEngine = redisEngine;
+        this.nodeRegistry = nodeRegistry;
+    }
+
+    /**
+     * 手工装配（非 Spring 容器）时使用：只需提供必选依赖，可选组件未设置时分别为关闭的空洞索引、
+     * 关闭的集群归属、关闭的 Redis 引擎和不访问数据库的节点注册
+     */
+    public static Builder builder(NonceRepository nonceRepository, RedisLockManager redisLockManager, NonceConfig config) {
+        return new Builder(nonceRepository, redisLockManager, config);
     }
 
     /**
      * 为 submitter 分配一个安全的 nonce。
      * <p>
      * 流程：
-     * 1. 可选的 Redis 锁，用来减少热点 submitter 的 DB 行锁竞争
+     * 1. 集群归属判定：本节点为 owner 时跳过 Redis 锁，否则可选的 Redis 锁，用来减少热点 submitter 的 DB 行锁竞争
      * 2. 在事务语义下锁定 submitter 状态、回收过期 RESERVED、复用空洞或生成新号
      * 3. 将最终结果以 RESERVED 状态返回
      * <p>
      * 注意：此方法必须在事务中执行，确保数据一致性
      * Redis锁会在事务提交后自动释放
      */
+    @Override
     @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
     public NonceAllocation allocate(String submitter) {
         requireNonEmpty(submitter, "submitter");
+        if (redisEngine.handles(submitter)) {
+            return redisEngine.allocate(submitter);
+        }
 
         String lockOwner = generateLockOwner();
+        return runForSubmitter(submitter, lockOwner, () -> doAllocate(submitter, lockOwner),
+                fence -> doAllocateFenced(submitter, lockOwner, fence));
+    }
+
+    /**
+     * 按集群归属选择并发控制方式后执行 operation：
+     * 1. 本节点为 owner：跳过 Redis 锁，先把状态行的 owner_epoch 推进到当前 epoch（同时持有行锁）。
+     *    若库中已是更大的 epoch，说明 owner 已移交给其他节点，本节点被 fence，拒绝写入
+     * 2. 其他节点为 owner：抛出 {@link NonceOwnershipException}，由调用方转发到 owner 节点
+     * 3. 未开启或视图不可用：回退到 Redis 锁（若启用）+ 行锁
+     */
+    private <T> T runForSubmitter(String submitter, String lockOwner, Supplier<T> operation) {
+        return runForSubmitter(submitter, lockOwner, operation, null);
+    }
+
+    /**
+     * 同 {@link #runForSubmitter(String, String, Supplier)}；fencedOperation 不为 null 且开启 fencing 时，
+     * 持锁路径改为执行 fencedOperation（参数为 fencing token），加锁失败降级或 Redis 不可用时仍执行 operation
+     */
+    private <T> T runForSubmitter(String submitter, String lockOwner, Supplier<T> operation,
+                                  LongFunction<T> fencedOperation) {
+        SubmitterOwnership ownership = clusterMembership.resolve(submitter);
+        if (ownership.isResolved()) {
+            if (!ownership.isOwned()) {
+                throw new NonceOwnershipException("submitter 由其他节点负责: " + ownership.getOwner().getNodeId(),
+                        submitter, ownership.getOwner().getNodeId(), ownership.getOwner().getEndpoint(),
+                        ownership.getEpoch());
+            }
+            long current = nonceRepository.advanceOwnerEpoch(submitter, ownership.getEpoch());
+            if (current > ownership.getEpoch()) {
+                throw new NonceOwnershipException("owner epoch 已过期: local=" + ownership.getEpoch() + ", current=" + current,
+                        submitter, null, null, current);
+            }
+            return operation.get();
+        }
+
+        if (config.isRedisEnabled() && fencedOperation != null && isFencingActive()) {
+            return TransactionLockSynchronizer.executeWithFencedLock(
+                    redisLockManager,
+                    submitter,
+                    lockOwner,
+                    config.getLockTtl(),
+                    config.isDegradeOnRedisFailure(),
+                    fencedOperation,
+                    operation
+            );
+        }
 
         // 如果启用Redis，使用事务同步机制管理锁
         if (config.isRedisEnabled()) {
@@ -66,60 +173,524 @@ public class NonceService {
                     submitter,
                     lockOwner,
                     config.getLockTtl(),
+                    config.getLockWait(),
                     config.isDegradeOnRedisFailure(),
-                    () -> doAllocate(submitter, lockOwner)
+                    operation
             );
-        } else {
-            return doAllocate(submitter, lockOwner);
         }
+        return operation.get();
     }
 
     /**
      * 执行实际的分配逻辑
      */
     private NonceAllocation doAllocate(String submitter, String lockOwner) {
+        // 数据库端实现：单次往返完成整个流程
+        if (nonceRepository.supportsAtomicAllocation()) {
+            return nonceRepository.allocateAtomically(submitter, lockOwner, config.getLockTtl(),
+                    config.getReservedTimeout(), config.isInlineRecycleEnabled());
+        }
+
         // 在事务内锁定 submitter 状态行
         SubmitterNonceState state = nonceRepository.lockAndLoadState(submitter);
 
-        // 回收过期的 RESERVED 状态
-        nonceRepository.recycleExpiredReservations(submitter, config.getReservedTimeout());
+        // 回收过期的 RESERVED 状态（由后台回收接管时跳过）
+        recycleExpiredInline(state);
 
-        // 查找可复用的空洞或生成新号
-        long targetNonce = findOrGenerateNonce(submitter, state);
+        // 查找可复用的空洞或生成新号，并预留
+        return findOrGenerateNonce(submitter, state, lockOwner);
+    }
 
-        // 预留 nonce（使用唯一约束防止重复分配）
-        return nonceRepository.reserveNonce(submitter, targetNonce, lockOwner, config.getLockTtl());
+    /**
+     * fencing 模式：statement 实现且锁实现能发放 fencing token 时生效（函数实现在库内加锁，无需 fencing）
+     */
+    private boolean isFencingActive() {
+        return config.isFencingEnabled()
+                && redisLockManager.supportsFencing()
+                && !nonceRepository.supportsAtomicAllocation();
+    }
+
+    /**
+     * 持有 fencing token 时的分配：无锁读取状态，发新号时以 token 乐观推进 next_local_nonce。
+     * <p>
+     * 以下情况回退到行锁路径（同一事务内 SELECT FOR UPDATE 后按原流程分配）：
+     * 1. 状态行尚不存在（首次分配需要初始化）
+     * 2. 存在 RECYCLABLE 空洞：复用空洞需保持"先状态行、后分配记录"的加锁顺序
+     * 3. 乐观更新失败：token 落后（锁已过期被接管、Redis 计数丢失）或计数已被行锁路径推进
+     * <p>
+     * 注意：无锁路径不做过期回收（回收要求先持有状态行锁），过期 RESERVED 由后台回收或回退后的行锁路径处理
+     */
+    private NonceAllocation doAllocateFenced(String submitter, String lockOwner, long fence) {
+        Optional<SubmitterNonceState> loaded = nonceRepository.loadState(submitter);
+        if (!loaded.isPresent()) {
+            return doAllocate(submitter, lockOwner);
+        }
+
+        SubmitterNonceState state = loaded.get();
+        if (state.getRecyclableCount() == 0) {
+            long targetNonce = freshNonce(state);
+            if (nonceRepository.updateStateFenced(submitter, state.getNextLocalNonce(), targetNonce + 1, fence)) {
+                return nonceRepository.reserveNonce(submitter, targetNonce, lockOwner, config.getLockTtl());
+            }
+        }
+
+        SubmitterNonceState locked = nonceRepository.lockAndLoadState(submitter);
+        recycleExpiredInline(locked);
+        return findOrGenerateNonce(submitter, locked, lockOwner);
+    }
+
+    /**
+     * 为 submitter 一次分配 count 个 nonce：同一把 Redis 锁（或同一次 owner 判定）、同一个 Postgres 事务内完成。
+     * <p>
+     * 流程：
+     * 1. 锁定 submitter 状态、回收过期 RESERVED
+     * 2. 先取最小的若干个 RECYCLABLE 空洞，不足部分从 next_local_nonce 连续取新号（只更新一次状态）
+     * 3. 用一条多行 INSERT ... ON CONFLICT 将全部 nonce 写为 RESERVED
+     *
+     * @return 按 nonce 升序排列的 allocation 列表
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public List<NonceAllocation> allocateBatch(String submitter, int count) {
+        requireNonEmpty(submitter, "submitter");
+        requirePositive(count, "count");
+        if (redisEngine.handles(submitter)) {
+            return redisEngine.allocateBatch(submitter, count);
+        }
+
+        String lockOwner = generateLockOwner();
+        return runForSubmitter(submitter, lockOwner, () -> doAllocateBatch(submitter, count, lockOwner));
+    }
+
+    /**
+     * 执行实际的批量分配逻辑
+     */
+    private List<NonceAllocation> doAllocateBatch(String submitter, int count, String lockOwner) {
+        SubmitterNonceState state = nonceRepository.lockAndLoadState(submitter);
+
+        recycleExpiredInline(state);
+
+        // 空洞计数为 0 时不查询分配表
+        List<Long> nonces = new ArrayList<>(count);
+        if (state.getRecyclableCount() > 0) {
+            for (NonceAllocation hole : nonceRepository.findLowestRecyclable(submitter, count)) {
+                if (hole.getNonce() > state.getLastChainNonce()) {
+                    nonces.add(hole.getNonce());
+                }
+            }
+        }
+        int holes = nonces.size();
+        if (holes > 0) {
+            // 批量路径直接读库复用空洞，索引随之失效
+            holeIndex.invalidate(submitter);
+        }
+
+        int fresh = count - nonces.size();
+        if (fresh > 0) {
+            long fromNonce = freshNonce(state);
+            for (long nonce = fromNonce; nonce < fromNonce + fresh; nonce++) {
+                nonces.add(nonce);
+            }
+            state.setNextLocalNonce(fromNonce + fresh);
+            state.setUpdatedAt(Instant.now());
+            nonceRepository.updateState(state);
+        }
+
+        List<NonceAllocation> reserved = nonceRepository.reserveNonces(submitter, nonces, lockOwner, config.getLockTtl());
+        if (holes > 0) {
+            nonceRepository.consumeRecyclable(submitter, holes);
+        }
+        return reserved;
     }
 
     /**
-     * 查找可复用的nonce或生成新的nonce
+     * 为 submitter 租约一段连续 nonce，供 JVM 内缓冲区逐个发放。
+     * <p>
+     * 与 {@link #allocate(String)} 使用同样的 Redis 锁与事务语义，区别在于：
+     * 1. 若存在 RECYCLABLE 空洞，本次只复用最小的空洞（保证 gap 优先被填上），不发放新区间
+     * 2. 否则 next_local_nonce 一次性增加 size，并用一条语句把整段区间写为 RESERVED，
+     *    lock_owner 为本次租约的 owner，locked_until 为租约到期时间
      */
-    private long findOrGenerateNonce(String submitter, SubmitterNonceState state) {
-        Optional<NonceAllocation> reusable = nonceRepository.findOldestRecyclable(submitter);
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public NonceLease leaseRange(String submitter, int size, Duration leaseTtl) {
+        requireNonEmpty(submitter, "submitter");
+        requirePositive(size, "size");
+        requirePositive(leaseTtl, "leaseTtl");
+        if (redisEngine.handles(submitter)) {
+            throw new NonceException("Redis 引擎负责的 submitter 不支持租约: " + submitter);
+        }
 
-        if (reusable.isPresent()) {
-            return reusable.get().getNonce();
+        String leaseOwner = generateLockOwner();
+        return runForSubmitter(submitter, leaseOwner, () -> doLeaseRange(submitter, size, leaseTtl, leaseOwner));
+    }
+
+    /**
+     * 执行实际的租约逻辑
+     */
+    private NonceLease doLeaseRange(String submitter, int size, Duration leaseTtl, String leaseOwner) {
+        SubmitterNonceState state = nonceRepository.lockAndLoadState(submitter);
+
+        recycleExpiredInline(state);
+
+        if (state.getRecyclableCount() > 0) {
+            NonceAllocation hole = claimCountedHole(state, leaseOwner);
+            if (hole != null) {
+                holeIndex.invalidate(submitter);
+                return new NonceLease(submitter, leaseOwner, Collections.singletonList(hole), hole.getLockedUntil());
+            }
+        }
+
+        long fromNonce = freshNonce(state);
+        state.setNextLocalNonce(fromNonce + size);
+        state.setUpdatedAt(Instant.now());
+        nonceRepository.updateState(state);
+
+        List<NonceAllocation> range = nonceRepository.reserveRange(submitter, fromNonce, size, leaseOwner, leaseTtl);
+        return new NonceLease(submitter, leaseOwner, range, range.get(0).getLockedUntil());
+    }
+
+    /**
+     * 归还租约中未发放的 [fromNonce, toNonce) 区间，仍为 RESERVED 且属于该租约的行转为 RECYCLABLE。
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public int releaseLease(String submitter, String leaseOwner, long fromNonce, long toNonce) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(leaseOwner, "leaseOwner");
+        requireNonNegative(fromNonce, "fromNonce");
+
+        int released = nonceRepository.releaseRange(submitter, leaseOwner, fromNonce, toNonce, "租约归还");
+        if (released > 0) {
+            afterCommit(() -> holeIndex.invalidate(submitter));
+        }
+        return released;
+    }
+
+    /**
+     * 分配路径上的过期回收，开启后台回收并关闭 inline 回收时直接跳过；
+     * 回收结果同步到已加载的状态（空洞计数）与空洞索引
+     */
+    private void recycleExpiredInline(SubmitterNonceState state) {
+        if (!config.isInlineRecycleEnabled()) {
+            return;
+        }
+        List<NonceAllocation> recycled = nonceRepository.recycleExpiredReservations(
+                state.getSubmitter(), config.getReservedTimeout());
+        if (recycled.isEmpty()) {
+            return;
+        }
+        long minNonce = Long.MAX_VALUE;
+        for (NonceAllocation allocation : recycled) {
+            minNonce = Math.min(minNonce, allocation.getNonce());
+        }
+        state.addRecyclable(recycled.size(), minNonce);
+        indexHolesAfterCommit(recycled);
+    }
+
+    /**
+     * 跨 submitter 回收一批过期的 RESERVED（后台回收使用）。
+     * 只处理 hash(submitter) 落在指定分区的记录，已被其他事务锁定的行直接跳过。
+     *
+     * @return 本批被回收的 allocation
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public List<NonceAllocation> reapExpiredReservations(int partition, int partitions, int batchSize) {
+        requirePositive(partitions, "partitions");
+        requirePositive(batchSize, "batchSize");
+        if (partition < 0 || partition >= partitions) {
+            throw new IllegalArgumentException("partition 超出范围: " + partition);
+        }
+
+        List<NonceAllocation> reaped = nonceRepository.reapExpiredReservations(
+                config.getReservedTimeout(), partition, partitions, batchSize);
+        indexHolesAfterCommit(reaped);
+        return reaped;
+    }
+
+    /**
+     * 把一批已结算的 USED 记录移入归档表（后台归档使用），每批一个短事务。
+     * 只处理 hash(submitter) 落在指定分区的记录，已被其他事务锁定的行直接跳过。
+     *
+     * @return 本批归档的记录数
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public int archiveSettledAllocations(int partition, int partitions, int batchSize) {
+        requirePositive(partitions, "partitions");
+        requirePositive(batchSize, "batchSize");
+        if (partition < 0 || partition >= partitions) {
+            throw new IllegalArgumentException("partition 超出范围: " + partition);
+        }
+        return nonceRepository.archiveSettledAllocations(partition, partitions, batchSize);
+    }
+
+    /**
+     * 水位压缩（后台归档的压缩模式使用）：对一批水位已推进的 submitter 删除水位以下的分配记录，每批一个短事务。
+     * 先锁状态行（SKIP LOCKED）、后删分配记录，与分配路径的加锁顺序一致。
+     *
+     * @return 本批删除的记录数
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public int compactSettledAllocations(int partition, int partitions, int batchSize, long span) {
+        requirePositive(partitions, "partitions");
+        requirePositive(batchSize, "batchSize");
+        requirePositive(span, "span");
+        if (partition < 0 || partition >= partitions) {
+            throw new IllegalArgumentException("partition 超出范围: " + partition);
+        }
+        return nonceRepository.compactSettledAllocations(partition, partitions, batchSize, span);
+    }
+
+    /**
+     * 推进 submitter 的链上水位 last_chain_nonce（只进不退）：水位及以下的 nonce 视为已在链上结算，
+     * 分配路径不再发放，markUsed 找不到记录时按幂等处理。水位推进后由压缩任务删除对应的分配记录。
+     *
+     * @return 推进后的水位
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public long advanceChainWatermark(String submitter, long chainNonce) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonNegative(chainNonce, "chainNonce");
+        if (redisEngine.handles(submitter)) {
+            throw new NonceException("Redis 引擎负责的 submitter 不支持推进链上水位: " + submitter);
+        }
+
+        long watermark = nonceRepository.advanceLastChainNonce(submitter, chainNonce);
+        afterCommit(() -> holeIndex.invalidate(submitter));
+        return watermark;
+    }
+
+    /**
+     * 分页列出仍有未结算 nonce 的 submitter 状态（链上对账遍历使用），从 afterSubmitter 之后开始（不含）。
+     */
+    public List<SubmitterNonceState> listUnsettledStates(String afterSubmitter, int limit) {
+        requirePositive(limit, "limit");
+        return nonceRepository.listUnsettledStates(afterSubmitter, limit);
+    }
+
+    /**
+     * 批量链上对账（chainNonces 为 submitter → 链上最新 nonce），一批一个事务：推进水位，
+     * 确认水位以下的 RESERVED、作废水位以下的 RECYCLABLE 空洞。Redis 引擎负责的 submitter 直接忽略；
+     * 正在分配中（状态行已被锁）的 submitter 本批跳过，由下一轮对账处理。
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public ChainReconcileResult reconcileChainNonces(Map<String, Long> chainNonces) {
+        Map<String, Long> accepted = new HashMap<>(chainNonces.size() * 2);
+        for (Map.Entry<String, Long> entry : chainNonces.entrySet()) {
+            Long chainNonce = entry.getValue();
+            if (chainNonce != null && chainNonce >= 0 && !redisEngine.handles(entry.getKey())) {
+                accepted.put(entry.getKey(), chainNonce);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return ChainReconcileResult.empty();
+        }
+
+        ChainReconcileResult result = nonceRepository.reconcileChainNonces(accepted);
+        if (holeIndex.isEnabled() && result.getAdvanced() > 0) {
+            afterCommit(() -> accepted.keySet().forEach(holeIndex::invalidate));
+        }
+        return result;
+    }
+
+    /**
+     * 按一个区块的已确认回执批量确认（替代逐笔 markUsed），一个区块一个事务：
+     * 命中的记录转为 USED 并写入 txHash，各 submitter 的链上水位推进到回执中的最大 nonce。
+     * 区块可以乱序或重复提交，已确认的记录按 txHash 计为重放或冲突，不会被改写。
+     * Redis 引擎负责的 submitter 不在此确认（仍由其 markUsed 处理），计入 unmatched。
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public ReceiptIngestResult ingestBlockReceipts(long blockNumber, List<BlockReceipt> receipts) {
+        requireNonNegative(blockNumber, "blockNumber");
+        if (receipts == null || receipts.isEmpty()) {
+            return ReceiptIngestResult.empty();
+        }
+
+        List<BlockReceipt> accepted = new ArrayList<>(receipts.size());
+        for (BlockReceipt receipt : receipts) {
+            if (!redisEngine.handles(receipt.getSubmitter())) {
+                accepted.add(receipt);
+            }
+        }
+        ReceiptIngestResult result = nonceRepository.ingestReceipts(accepted);
+        long skipped = receipts.size() - accepted.size();
+        if (skipped > 0) {
+            result = result.plus(new ReceiptIngestResult(0, 0, 0, skipped, 0, 0));
+        }
+        if (result.getConflicted() > 0) {
+            log.warn("区块回执与已记录的 txHash 不一致, block={}, conflicted={}", blockNumber, result.getConflicted());
+        }
+        log.debug("区块回执确认完成, block={}, receipts={}, result={}", blockNumber, receipts.size(), result);
+
+        if (holeIndex.isEnabled() && result.getAdvanced() > 0) {
+            afterCommit(() -> accepted.forEach(receipt -> holeIndex.invalidate(receipt.getSubmitter())));
+        }
+        return result;
+    }
+
+    /**
+     * 按 txHash 查找分配记录（含已归档的记录）。
+     */
+    public Optional<NonceAllocation> findAllocationByTxHash(String txHash) {
+        requireNonEmpty(txHash, "txHash");
+        return nonceRepository.findAllocationByTxHash(txHash);
+    }
+
+    /**
+     * 查找可复用的nonce或生成新的nonce，并预留。
+     * 是否存在空洞由已锁定状态行上的 recyclable_count 判断，计数为 0（常见情况）时不查询分配表
+     */
+    private NonceAllocation findOrGenerateNonce(String submitter, SubmitterNonceState state, String lockOwner) {
+        if (state.getRecyclableCount() > 0) {
+            NonceAllocation hole = holeIndex.isEnabled() ? claimIndexedHole(state, lockOwner) : null;
+            if (hole == null) {
+                // 索引未开启，或索引尚未感知其他节点产生的空洞：按状态行上的最小空洞认领
+                hole = claimCountedHole(state, lockOwner);
+            }
+            if (hole != null) {
+                return hole;
+            }
         }
 
         // 没有可复用的，使用新的 nonce
-        long targetNonce = state.getNextLocalNonce();
+        long targetNonce = freshNonce(state);
         state.setNextLocalNonce(targetNonce + 1);
         state.setUpdatedAt(Instant.now());
         nonceRepository.updateState(state);
 
-        return targetNonce;
+        // 预留 nonce（使用唯一约束防止重复分配）
+        return nonceRepository.reserveNonce(submitter, targetNonce, lockOwner, config.getLockTtl());
     }
 
     /**
-     * 生成锁持有者标识（包含机器标识和线程ID，便于追踪和调试）
+     * 新号的起点：不低于链上水位 + 1（水位可能由对账推进到 next_local_nonce 之上）
      */
-    private String generateLockOwner() {
-        try {
-            String hostname = InetAddress.getLocalHost().getHostName();
-            return String.format("%s-%d-%s", hostname, Thread.currentThread().getId(), UUID.randomUUID());
-        } catch (Exception e) {
-            return String.format("unknown-%d-%s", Thread.currentThread().getId(), UUID.randomUUID());
+    private long freshNonce(SubmitterNonceState state) {
+        return Math.max(state.getNextLocalNonce(), state.getLastChainNonce() + 1);
+    }
+
+    /**
+     * 按状态行上的 min_recyclable_nonce 认领空洞；认领失败说明计数已漂移，重算计数后重试一次。
+     * 最小空洞落在水位及以下（水位推进后回收的记录）同样视为漂移，重算后只统计水位之上的空洞。
+     *
+     * @return 认领成功的 allocation，修复后确认没有空洞时返回 null
+     */
+    private NonceAllocation claimCountedHole(SubmitterNonceState state, String lockOwner) {
+        String submitter = state.getSubmitter();
+        Long candidate = state.getMinRecyclableNonce();
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (candidate != null && candidate > state.getLastChainNonce()) {
+                Optional<NonceAllocation> claimed = nonceRepository.claimRecyclable(
+                        submitter, candidate, lockOwner, config.getLockTtl());
+                if (claimed.isPresent()) {
+                    nonceRepository.consumeRecyclable(submitter, 1);
+                    return claimed.get();
+                }
+            }
+            if (attempt == 0) {
+                SubmitterNonceState repaired = nonceRepository.repairRecyclableCounters(submitter);
+                state.setRecyclableCounters(repaired.getRecyclableCount(), repaired.getMinRecyclableNonce());
+                if (state.getRecyclableCount() == 0) {
+                    return null;
+                }
+                candidate = state.getMinRecyclableNonce();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按空洞索引认领最小的空洞：索引为空时不访问数据库；
+     * 候选已不是 RECYCLABLE（被其他节点复用）时丢弃索引并重新加载一次。
+     *
+     * @return 认领成功的 allocation，索引认为没有空洞时返回 null
+     */
+    private NonceAllocation claimIndexedHole(SubmitterNonceState state, String lockOwner) {
+        String submitter = state.getSubmitter();
+        long watermark = state.getLastChainNonce();
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long hole = holeIndex.pollLowest(submitter, limit -> loadHoles(submitter, watermark, limit));
+            if (hole == null) {
+                return null;
+            }
+            if (hole <= watermark) {
+                // 索引中的空洞已在链上结算，丢弃索引后按水位重新加载
+                holeIndex.reportStale(submitter);
+                continue;
+            }
+            Optional<NonceAllocation> claimed = nonceRepository.claimRecyclable(
+                    submitter, hole, lockOwner, config.getLockTtl());
+            if (claimed.isPresent()) {
+                nonceRepository.consumeRecyclable(submitter, 1);
+                // 事务回滚时该空洞仍为 RECYCLABLE，但已从索引中移除，需要重新加载
+                onRollback(() -> holeIndex.invalidate(submitter));
+                return claimed.get();
+            }
+            holeIndex.reportStale(submitter);
+        }
+        return null;
+    }
+
+    private List<Long> loadHoles(String submitter, long watermark, int limit) {
+        List<NonceAllocation> holes = nonceRepository.findLowestRecyclable(submitter, limit);
+        List<Long> nonces = new ArrayList<>(holes.size());
+        for (NonceAllocation hole : holes) {
+            if (hole.getNonce() > watermark) {
+                nonces.add(hole.getNonce());
+            }
+        }
+        return nonces;
+    }
+
+    /**
+     * 事务提交后把新产生的空洞写入索引
+     */
+    private void indexHolesAfterCommit(List<NonceAllocation> holes) {
+        if (!holeIndex.isEnabled() || holes.isEmpty()) {
+            return;
         }
+        afterCommit(() -> {
+            for (NonceAllocation hole : holes) {
+                holeIndex.add(hole.getSubmitter(), hole.getNonce());
+            }
+        });
+    }
+
+    /**
+     * 在当前事务提交后执行，没有事务同步时立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 在当前事务回滚后执行，没有事务同步时不执行
+     */
+    private void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 生成锁持有者标识：注册表分配的 node_id + 节点内自增序号（见 {@link LockOwner}），按 node_id 可追溯到节点
+     */
+    private String generateLockOwner() {
+        return nodeRegistry.nextOwner().toString();
     }
 
     /**
@@ -133,9 +704,30 @@ public class NonceService {
         requireNonEmpty(txHash, "txHash");
         requireNonNegative(nonce, "nonce");
 
+        if (redisEngine.handles(submitter)) {
+            redisEngine.markUsed(submitter, nonce, txHash);
+            return;
+        }
         nonceRepository.markUsed(submitter, nonce, txHash);
     }
 
+    /**
+     * 在 RESERVED 记录上同步写入 txHash（异步确认入队前调用）：即使刷盘前进程崩溃，
+     * 带 txHash 的 RESERVED 也不会被超时回收，由下次刷盘、链上对账或区块回执确认。
+     *
+     * @return 已写入返回 true；记录不再是 RESERVED，或由 Redis 引擎负责时返回 false，调用方应同步 markUsed
+     */
+    public boolean attachTxHash(String submitter, long nonce, String txHash) {
+        requireNonEmpty(submitter, "submitter");
+        requireNonEmpty(txHash, "txHash");
+        requireNonNegative(nonce, "nonce");
+
+        if (redisEngine.handles(submitter)) {
+            return false;
+        }
+        return nonceRepository.attachTxHash(submitter, nonce, txHash);
+    }
+
     /**
      * 标记 nonce 为可回收
      * <p>
@@ -149,7 +741,167 @@ public class NonceService {
         // reason可以为空，但统一处理为null
         String finalReason = (reason == null) ? "" : reason;
 
+        if (redisEngine.handles(submitter)) {
+            redisEngine.markRecyclable(submitter, nonce, finalReason);
+            return;
+        }
         nonceRepository.markRecyclable(submitter, nonce, finalReason);
+        if (holeIndex.isEnabled()) {
+            afterCommit(() -> holeIndex.add(submitter, nonce));
+        }
     }
-}
 
+    /**
+     * 按分配表重新计算 submitter 的空洞计数（recyclable_count / min_recyclable_nonce），
+     * 用于数据修复或运维排查；分配路径在认领失败时也会自动调用。
+     *
+     * @return 修复后的状态
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public SubmitterNonceState repairRecyclableCounters(String submitter) {
+        requireNonEmpty(submitter, "submitter");
+
+        SubmitterNonceState repaired = nonceRepository.repairRecyclableCounters(submitter);
+        afterCommit(() -> holeIndex.invalidate(submitter));
+        return repaired;
+    }
+
+    /**
+     * 批量应用状态转换（异步确认队列刷盘使用），所有转换在同一个事务中完成。
+     *
+     * @return 实际转换的记录数，未转换的记录不再是 RESERVED
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public int applyStatusUpdates(List<NonceStatusUpdate> updates) {
+        if (updates == null || updates.isEmpty()) {
+            return 0;
+        }
+        if (redisEngine.isEnabled()) {
+            // Redis 引擎负责的 submitter 交由引擎记录，随其落库队列按序写入
+            List<NonceStatusUpdate> databaseUpdates = new ArrayList<>(updates.size());
+            int queued = 0;
+            for (NonceStatusUpdate update : updates) {
+                if (!redisEngine.handles(update.getSubmitter())) {
+                    databaseUpdates.add(update);
+                } else if (update.getTargetStatus() == NonceAllocationStatus.USED) {
+                    redisEngine.markUsed(update.getSubmitter(), update.getNonce(), update.getTxHash());
+                    queued++;
+                } else {
+                    redisEngine.markRecyclable(update.getSubmitter(), update.getNonce(), update.getReason());
+                    queued++;
+                }
+            }
+            return queued + persistStatusUpdates(databaseUpdates);
+        }
+        return persistStatusUpdates(updates);
+    }
+
+    /**
+     * 把 Redis 引擎发放的预留写入分配表（引擎落库线程使用）：
+     * 必要时推进 next_local_nonce，已为 USED 的 nonce 保持不变；包含空洞复用时重算空洞计数。
+     *
+     * @return 写入的记录数
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public int persistEngineReservations(String submitter, List<Long> nonces) {
+        requireNonEmpty(submitter, "submitter");
+        if (nonces == null || nonces.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> sorted = new ArrayList<>(new TreeSet<>(nonces));
+        SubmitterNonceState state = nonceRepository.lockAndLoadState(submitter);
+        long previousNext = state.getNextLocalNonce();
+        long maxNonce = sorted.get(sorted.size() - 1);
+        if (maxNonce >= previousNext) {
+            state.setNextLocalNonce(maxNonce + 1);
+            state.setUpdatedAt(Instant.now());
+            nonceRepository.updateState(state);
+        }
+
+        int persisted;
+        try {
+            persisted = nonceRepository.reserveNonces(submitter, sorted, ENGINE_LOCK_OWNER,
+                    config.getReservedTimeout()).size();
+        } catch (NonceException e) {
+            // 语句已执行，只是部分 nonce 已为 USED（如重放已确认的事件，或 Redis 丢失后重发）；不回滚其余记录
+            log.warn("Redis 引擎预留落库时存在已使用的 nonce: {}#{}", submitter, sorted);
+            persisted = 0;
+        }
+        if (sorted.get(0) < previousNext) {
+            nonceRepository.repairRecyclableCounters(submitter);
+            afterCommit(() -> holeIndex.invalidate(submitter));
+        }
+        return persisted;
+    }
+
+    /**
+     * 把 Redis 引擎记录的状态转换写入分配表（引擎落库线程使用），不再经过引擎路由。
+     *
+     * @return 实际转换的记录数
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = TRANSACTION_TIMEOUT_SECONDS)
+    public int persistEngineStatusUpdates(List<NonceStatusUpdate> updates) {
+        return persistStatusUpdates(updates);
+    }
+
+    private int persistStatusUpdates(List<NonceStatusUpdate> updates) {
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        int applied = nonceRepository.applyStatusUpdates(updates);
+        if (holeIndex.isEnabled()) {
+            // 未实际转换的条目也写入索引无妨：认领时会以 RECYCLABLE 为条件校验
+            afterCommit(() -> {
+                for (NonceStatusUpdate update : updates) {
+                    if (update.getTargetStatus() == NonceAllocationStatus.RECYCLABLE) {
+                        holeIndex.add(update.getSubmitter(), update.getNonce());
+                    }
+                }
+            });
+        }
+        return applied;
+    }
+
+    public static class Builder {
+
+        private final NonceRepository nonceRepository;
+        private final RedisLockManager redisLockManager;
+        private final NonceConfig config;
+        private NonceHoleIndex holeIndex = NonceHoleIndex.disabled();
+        private NonceClusterMembership clusterMembership = NonceClusterMembership.disabled();
+        private RedisNonceEngine redisEngine = RedisNonceEngine.disabled();
+        private NonceNodeRegistry nodeRegistry;
+
+        private Builder(NonceRepository nonceRepository, RedisLockManager redisLockManager, NonceConfig config) {
+            this.nonceRepository = nonceRepository;
+            this.redisLockManager = redisLockManager;
+            this.config = config;
+        }
+
+        public Builder holeIndex(NonceHoleIndex holeIndex) {
+            this.holeIndex = holeIndex;
+            return this;
+        }
+
+        public Builder clusterMembership(NonceClusterMembership clusterMembership) {
+            this.clusterMembership = clusterMembership;
+            return this;
+        }
+
+        public Builder redisEngine(RedisNonceEngine redisEngine) {
+            this.redisEngine = redisEngine;
+            return this;
+        }
+
+        public Builder nodeRegistry(NonceNodeRegistry nodeRegistry) {
+            this.nodeRegistry = nodeRegistry;
+            return this;
+        }
+
+        public NonceService build() {
+            return new NonceService(nonceRepository, redisLockManager, config, holeIndex, clusterMembership,
+                    redisEngine, nodeRegistry != null ? nodeRegistry : NonceNodeRegistry.ephemeral());
+        }
+    }
+}
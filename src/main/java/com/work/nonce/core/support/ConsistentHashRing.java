@@ -0,0 +1,66 @@
+package com.work.nonce.core.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 带虚拟节点的一致性哈希环（不可变）：节点增减时只有相邻区间的 key 发生迁移。
+ * <p>
+ * 哈希使用 {@link HashUtils#fnv1a64} + {@link HashUtils#mix64}，与 JVM 无关，
+ * 相同的节点集合在所有节点上构建出完全相同的环。
+ *
+ * @param <T> 节点类型
+ */
+public final class ConsistentHashRing<T> {
+
+    private final NavigableMap<Long, T> ring = new TreeMap<>();
+    private final List<T> nodes;
+
+    /**
+     * @param nodes        节点集合
+     * @param nodeKey      节点的稳定标识，用于计算虚拟节点位置
+     * @param virtualNodes 每个节点的虚拟节点数
+     */
+    public ConsistentHashRing(Collection<T> nodes, Function<T, String> nodeKey, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes 必须大于0");
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        for (T node : nodes) {
+            String key = nodeKey.apply(node);
+            for (int i = 0; i < virtualNodes; i++) {
+                // 位置冲突时保留先放入的节点，调用方应保证 nodes 顺序稳定
+                ring.putIfAbsent(hash(key + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * 返回 key 所属的节点，环为空时返回 null
+     */
+    public T locate(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    public List<T> getNodes() {
+        return nodes;
+    }
+
+    private static long hash(String key) {
+        return HashUtils.mix64(HashUtils.fnv1a64(key));
+    }
+}
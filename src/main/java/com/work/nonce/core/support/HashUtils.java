@@ -0,0 +1,41 @@
+package com.work.nonce.core.support;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 哈希工具类：提供与 JVM 实现无关的稳定哈希，用于跨节点一致的键映射（锁 key、分片等）
+ */
+public final class HashUtils {
+
+    private static final long FNV_64_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_64_PRIME = 0x100000001b3L;
+
+    private HashUtils() {
+        throw new AssertionError("工具类不允许实例化");
+    }
+
+    /**
+     * 对字符串的 UTF-8 字节计算 64 位 FNV-1a 哈希
+     */
+    public static long fnv1a64(String value) {
+        long hash = FNV_64_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= FNV_64_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 64 位终混（MurmurHash3 fmix64），用于打散相近输入的哈希值
+     */
+    public static long mix64(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,191 @@
+package com.work.nonce.core.support;
+
+import com.work.nonce.core.config.NonceCircuitBreakerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.work.nonce.core.support.ValidationUtils.requireNonNull;
+
+/**
+ * Redis 调用熔断器（CLOSED / OPEN / HALF_OPEN）。
+ * <p>
+ * 1. CLOSED：正常放行，按时间分桶的滚动窗口统计成功 / 失败次数，
+ *    窗口内调用数不少于 minimumCalls 且错误率达到阈值时转为 OPEN
+ * 2. OPEN：直接拒绝（调用方跳过 Redis 走纯 Postgres 路径），不再为每个请求付出连接超时；
+ *    持续 openDuration 后转为 HALF_OPEN
+ * 3. HALF_OPEN：最多放行 halfOpenProbes 个并发探测请求，累计该数量的成功后转为 CLOSED，任一失败立即回到 OPEN
+ * <p>
+ * 统计与状态转换在同一把锁内完成；相对一次 Redis 往返，这点开销可以忽略。
+ */
+public class RedisCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final NonceCircuitBreakerConfig config;
+    private final long bucketNanos;
+    private final long[] bucketIds;
+    private final long[] bucketSuccesses;
+    private final long[] bucketFailures;
+
+    private volatile State state = State.CLOSED;
+    private long openedAtNanos;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder openedCount = new LongAdder();
+    private final LongAdder halfOpenedCount = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+
+    public RedisCircuitBreaker(NonceCircuitBreakerConfig config) {
+        this.config = requireNonNull(config, "config");
+        int buckets = config.isEnabled() ? config.getWindowBuckets() : 1;
+        this.bucketNanos = config.isEnabled() ? Math.max(1L, config.getWindow().toNanos() / buckets) : 1L;
+        this.bucketIds = new long[buckets];
+        this.bucketSuccesses = new long[buckets];
+        this.bucketFailures = new long[buckets];
+        Arrays.fill(bucketIds, Long.MIN_VALUE);
+    }
+
+    public static RedisCircuitBreaker disabled() {
+        return new RedisCircuitBreaker(NonceCircuitBreakerConfig.disabled());
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 是否放行本次 Redis 调用；放行后调用方必须以 {@link #onSuccess()} / {@link #onFailure()} 上报结果。
+     * HALF_OPEN 状态下放行即占用一个探测名额。
+     */
+    public boolean allowRequest() {
+        if (!isEnabled() || state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (state == State.OPEN && now - openedAtNanos >= config.getOpenDuration().toNanos()) {
+                transitionTo(State.HALF_OPEN, now);
+            }
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.HALF_OPEN && probesInFlight < config.getHalfOpenProbes()) {
+                probesInFlight++;
+                return true;
+            }
+            rejectedCount.increment();
+            return false;
+        }
+    }
+
+    public void onSuccess() {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (state == State.HALF_OPEN) {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+                if (++probeSuccesses >= config.getHalfOpenProbes()) {
+                    transitionTo(State.CLOSED, now);
+                }
+                return;
+            }
+            if (state == State.CLOSED) {
+                bucketSuccesses[bucket(now)]++;
+            }
+        }
+    }
+
+    public void onFailure() {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (state == State.HALF_OPEN) {
+                transitionTo(State.OPEN, now);
+                return;
+            }
+            if (state != State.CLOSED) {
+                return;
+            }
+            bucketFailures[bucket(now)]++;
+            long failures = 0;
+            long total = 0;
+            long currentId = now / bucketNanos;
+            for (int i = 0; i < bucketIds.length; i++) {
+                if (bucketIds[i] > currentId - bucketIds.length) {
+                    failures += bucketFailures[i];
+                    total += bucketSuccesses[i] + bucketFailures[i];
+                }
+            }
+            if (total >= config.getMinimumCalls() && failures * 100 >= total * config.getFailureRateThreshold()) {
+                transitionTo(State.OPEN, now);
+            }
+        }
+    }
+
+    /**
+     * 定位当前时间所在的桶，桶已过期时先清零
+     */
+    private int bucket(long now) {
+        long id = now / bucketNanos;
+        int index = (int) Math.floorMod(id, (long) bucketIds.length);
+        if (bucketIds[index] != id) {
+            bucketIds[index] = id;
+            bucketSuccesses[index] = 0;
+            bucketFailures[index] = 0;
+        }
+        return index;
+    }
+
+    private void transitionTo(State next, long now) {
+        State previous = state;
+        state = next;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (next == State.OPEN) {
+            openedAtNanos = now;
+            openedCount.increment();
+            log.warn("Redis 熔断器打开（{} -> OPEN），{} 内跳过 Redis", previous, config.getOpenDuration());
+        } else if (next == State.HALF_OPEN) {
+            halfOpenedCount.increment();
+            log.info("Redis 熔断器半开，放行 {} 个探测请求", config.getHalfOpenProbes());
+        } else {
+            // 重新闭合时清空窗口，避免熔断前的失败立刻再次触发熔断
+            Arrays.fill(bucketIds, Long.MIN_VALUE);
+            closedCount.increment();
+            log.info("Redis 熔断器恢复（{} -> CLOSED）", previous);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getOpenedCount() {
+        return openedCount.sum();
+    }
+
+    public long getHalfOpenedCount() {
+        return halfOpenedCount.sum();
+    }
+
+    public long getClosedCount() {
+        return closedCount.sum();
+    }
+}
@@ -0,0 +1,83 @@
+package com.work.nonce.core.support;
+
+import java.util.Arrays;
+
+/**
+ * 基于有序 long[] 的紧凑集合，避免 TreeSet&lt;Long&gt; 的装箱与节点开销。
+ * <p>
+ * 适用于元素较少、以"取最小值"为主的场景（如 nonce 空洞），插入/删除为 O(n)，查找为 O(log n)。
+ * 非线程安全，由调用方负责同步。
+ */
+public final class SortedLongSet {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private long[] values;
+    private int size;
+
+    public SortedLongSet() {
+        this.values = new long[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * @return 集合中原本不存在该值时返回 true
+     */
+    public boolean add(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+        values[insertAt] = value;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * 移除并返回最小值，集合为空时抛出异常。
+     */
+    public long pollFirst() {
+        if (size == 0) {
+            throw new IllegalStateException("集合为空");
+        }
+        long first = values[0];
+        System.arraycopy(values, 1, values, 0, size - 1);
+        size--;
+        return first;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(values, size));
+    }
+}
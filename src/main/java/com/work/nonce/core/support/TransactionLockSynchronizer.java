@@ -6,6 +6,7 @@ import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Duration;
+import java.util.function.LongFunction;
 import java.util.function.Supplier;
 
 /**
@@ -35,38 +36,49 @@ public final class TransactionLockSynchronizer {
                                         Duration lockTtl,
                                         boolean degradeOnFailure,
                                         Supplier<T> operation) {
+        return executeWithLock(lockManager, submitter, lockOwner, lockTtl, Duration.ZERO, degradeOnFailure, operation);
+    }
+
+    /**
+     * 同 {@link #executeWithLock(RedisLockManager, String, String, Duration, boolean, Supplier)}，
+     * 锁被占用时最多等待 lockWait（为 0 时只尝试一次），等待超时后再按 degradeOnFailure 处理
+     */
+    public static <T> T executeWithLock(RedisLockManager lockManager,
+                                        String submitter,
+                                        String lockOwner,
+                                        Duration lockTtl,
+                                        Duration lockWait,
+                                        boolean degradeOnFailure,
+                                        Supplier<T> operation) {
+        // 熔断中：不访问 Redis，直接按降级策略处理
+        if (!lockManager.isAvailable(submitter)) {
+            return degradeUnavailable(degradeOnFailure, operation);
+        }
+
         boolean locked = false;
         try {
-            // 尝试获取锁
-            locked = lockManager.tryLock(submitter, lockOwner, lockTtl);
+            // 尝试获取锁（配置了等待时间时阻塞等待）
+            try {
+                locked = lockWait.isZero()
+                        ? lockManager.tryLock(submitter, lockOwner, lockTtl)
+                        : lockManager.lock(submitter, lockOwner, lockTtl, lockWait);
+            } catch (Exception e) {
+                // 加锁异常（如 Redis 超时）允许降级时直接执行操作
+                if (degradeOnFailure) {
+                    return operation.get();
+                }
+                throw e;
+            }
             
             // 如果获取锁失败且不允许降级，抛出异常
             if (!locked && !degradeOnFailure) {
                 throw new NonceException("Redis 加锁失败，且未开启降级");
             }
             
-            // 如果获取到锁，注册事务同步回调
-            if (locked && TransactionSynchronizationManager.isActualTransactionActive()) {
-                final String finalSubmitter = submitter;
-                final String finalLockOwner = lockOwner;
-                
-                TransactionSynchronizationManager.registerSynchronization(
-                    new TransactionSynchronization() {
-                        @Override
-                        public void afterCommit() {
-                            // 事务提交后释放锁
-                            releaseLockSafely(lockManager, finalSubmitter, finalLockOwner);
-                        }
-                        
-                        @Override
-                        public void afterCompletion(int status) {
-                            // 如果事务回滚，也需要释放锁
-                            if (status != STATUS_COMMITTED) {
-                                releaseLockSafely(lockManager, finalSubmitter, finalLockOwner);
-                            }
-                        }
-                    }
-                );
+            // 如果获取到锁，注册事务同步回调（事务级锁随事务结束自动释放，无需注册）
+            if (locked && !lockManager.isTransactionScoped()
+                    && TransactionSynchronizationManager.isActualTransactionActive()) {
+                registerUnlock(lockManager, submitter, lockOwner);
             }
             
             // 执行操作
@@ -88,6 +100,96 @@ public final class TransactionLockSynchronizer {
         }
     }
     
+    /**
+     * 获取带 fencing token 的锁后执行 fencedOperation，锁在事务提交后释放。
+     * 加锁失败（允许降级时）或 Redis 异常（允许降级时）执行 fallbackOperation，即行锁路径。
+     *
+     * @param fencedOperation   持锁执行的操作，参数为本次加锁得到的 fencing token
+     * @param fallbackOperation 未持锁时执行的操作，必须自行保证正确性（如 SELECT FOR UPDATE）
+     */
+    public static <T> T executeWithFencedLock(RedisLockManager lockManager,
+                                              String submitter,
+                                              String lockOwner,
+                                              Duration lockTtl,
+                                              boolean degradeOnFailure,
+                                              LongFunction<T> fencedOperation,
+                                              Supplier<T> fallbackOperation) {
+        if (!lockManager.isAvailable(submitter)) {
+            return degradeUnavailable(degradeOnFailure, fallbackOperation);
+        }
+
+        Long fence;
+        try {
+            fence = lockManager.tryLockWithFence(submitter, lockOwner, lockTtl);
+        } catch (Exception e) {
+            if (degradeOnFailure) {
+                return fallbackOperation.get();
+            }
+            throw e instanceof NonceException ? (NonceException) e : new NonceException("Redis 加锁异常", e);
+        }
+
+        if (fence == null) {
+            if (!degradeOnFailure) {
+                throw new NonceException("Redis 加锁失败，且未开启降级");
+            }
+            return fallbackOperation.get();
+        }
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            try {
+                return fencedOperation.apply(fence);
+            } finally {
+                releaseLockSafely(lockManager, submitter, lockOwner);
+            }
+        }
+        registerUnlock(lockManager, submitter, lockOwner);
+        return fencedOperation.apply(fence);
+    }
+
+    /**
+     * 锁服务不可用（熔断中）时的处理：允许降级则直接执行，否则抛出异常
+     */
+    private static <T> T degradeUnavailable(boolean degradeOnFailure, Supplier<T> operation) {
+        if (!degradeOnFailure) {
+            throw new NonceException("Redis 不可用（熔断中），且未开启降级");
+        }
+        return operation.get();
+    }
+
+    /**
+     * 注册事务同步回调：提交后释放锁，回滚时同样释放（异步解锁，不占用请求线程的 Redis 往返）
+     */
+    private static void registerUnlock(RedisLockManager lockManager, String submitter, String lockOwner) {
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    // 事务提交后释放锁
+                    releaseLockAsync(lockManager, submitter, lockOwner);
+                }
+                
+                @Override
+                public void afterCompletion(int status) {
+                    // 如果事务回滚，也需要释放锁
+                    if (status != STATUS_COMMITTED) {
+                        releaseLockAsync(lockManager, submitter, lockOwner);
+                    }
+                }
+            }
+        );
+    }
+
+    /**
+     * 异步释放锁，捕获所有异常避免影响主流程
+     */
+    private static void releaseLockAsync(RedisLockManager lockManager, String submitter, String lockOwner) {
+        try {
+            lockManager.unlockAsync(submitter, lockOwner);
+        } catch (Exception e) {
+            // 失败已由锁实现计数，这里不影响主流程
+        }
+    }
+
     /**
      * 安全释放锁，捕获所有异常避免影响主流程
      */
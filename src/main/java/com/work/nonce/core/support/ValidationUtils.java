@@ -42,6 +42,16 @@ public final class ValidationUtils {
         return duration;
     }
 
+    /**
+     * 校验long值必须大于0
+     */
+    public static long requirePositive(long value, String paramName) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(paramName + " 必须大于0");
+        }
+        return value;
+    }
+
     /**
      * 校验long值必须非负
      */
@@ -1,5 +1,9 @@
 package com.work.nonce.demo.chain;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Demo 层的链上客户端抽象，组件本身不依赖该接口，纯粹由业务侧决定如何发送交易。
  */
@@ -11,10 +15,22 @@ public interface ChainClient {
     String sendTransaction(String submitter, long nonce, String payload);
 
     /**
-     * 查询链上最新 nonce（可选，用于监控或恢复示例）。
+     * 查询链上最新已使用的 nonce（链上对账使用），默认返回 -1 表示未知，对账时跳过该 submitter。
      */
     default long queryLatestNonce(String submitter) {
         return -1L;
     }
+
+    /**
+     * 批量查询链上最新 nonce（供链上对账使用），默认逐个调用 {@link #queryLatestNonce}；
+     * 节点支持批量请求（如 JSON-RPC batch）时应覆盖，一次往返查询一批 submitter。
+     */
+    default Map<String, Long> queryLatestNonces(List<String> submitters) {
+        Map<String, Long> result = new HashMap<>(submitters.size() * 2);
+        for (String submitter : submitters) {
+            result.put(submitter, queryLatestNonce(submitter));
+        }
+        return result;
+    }
 }
 
@@ -1,5 +1,7 @@
 package com.work.nonce.demo.chain;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -20,5 +22,14 @@ public class MockChainClient implements ChainClient {
     public long queryLatestNonce(String submitter) {
         return latestNonce.getOrDefault(submitter, -1L);
     }
+
+    @Override
+    public Map<String, Long> queryLatestNonces(List<String> submitters) {
+        Map<String, Long> result = new HashMap<>(submitters.size() * 2);
+        for (String submitter : submitters) {
+            result.put(submitter, latestNonce.getOrDefault(submitter, -1L));
+        }
+        return result;
+    }
 }
 
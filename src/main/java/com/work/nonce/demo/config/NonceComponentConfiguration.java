@@ -1,14 +1,72 @@
 package com.work.nonce.demo.config;
 
 import com.work.nonce.core.NonceComponent;
+import com.work.nonce.core.archive.NonceAllocationArchiver;
+import com.work.nonce.core.cluster.NonceClusterMembership;
+import com.work.nonce.core.cluster.NonceNodeRegistry;
+import com.work.nonce.core.config.NonceArchiverConfig;
+import com.work.nonce.core.config.NonceAsyncUnlockConfig;
+import com.work.nonce.core.config.NonceCircuitBreakerConfig;
+import com.work.nonce.core.config.NonceClusterConfig;
 import com.work.nonce.core.config.NonceConfig;
+import com.work.nonce.core.config.NonceConfirmationConfig;
+import com.work.nonce.core.config.NonceHoleIndexConfig;
+import com.work.nonce.core.confirm.NonceConfirmationQueue;
+import com.work.nonce.core.config.NonceLeaseConfig;
+import com.work.nonce.core.config.NonceLockWatchdogConfig;
+import com.work.nonce.core.config.NonceReaperConfig;
+import com.work.nonce.core.config.NonceReconcilerConfig;
+import com.work.nonce.core.config.NonceRedisEngineConfig;
+import com.work.nonce.core.config.NonceSequencerConfig;
+import com.work.nonce.core.engine.RedisNonceEngine;
+import com.work.nonce.core.engine.RedisNoncePersister;
 import com.work.nonce.core.execution.NonceExecutionTemplate;
+import com.work.nonce.core.hole.NonceHoleIndex;
+import com.work.nonce.core.lease.NonceLeaseAllocator;
+import com.work.nonce.core.lock.RedisLockManager;
+import com.work.nonce.core.lock.impl.LayeredLockManager;
+import com.work.nonce.core.lock.impl.PostgresAdvisoryLockManager;
+import com.work.nonce.core.lock.impl.RedisAsyncUnlocker;
+import com.work.nonce.core.lock.impl.RedisDistributedLockManager;
+import com.work.nonce.core.lock.impl.RedisLockShard;
+import com.work.nonce.core.lock.impl.RedisLockShards;
+import com.work.nonce.core.lock.impl.RedisLockWatchdog;
+import com.work.nonce.core.lock.impl.ShardedRedisLockManager;
+import com.work.nonce.core.lock.impl.StripedLocalLockManager;
+import com.work.nonce.core.reaper.NonceReservationReaper;
+import com.work.nonce.core.reconcile.ChainNonceSource;
+import com.work.nonce.core.reconcile.NonceChainReconciler;
+import com.work.nonce.core.sequencer.NonceAllocationSequencer;
+import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.repository.impl.PostgresFunctionNonceRepository;
+import com.work.nonce.core.repository.impl.PostgresNonceRepository;
+import com.work.nonce.core.repository.mapper.AdvisoryLockMapper;
+import com.work.nonce.core.repository.mapper.ClusterMemberMapper;
+import com.work.nonce.core.repository.mapper.NonceNodeMapper;
+import com.work.nonce.core.repository.mapper.NonceAllocationMapper;
+import com.work.nonce.core.repository.mapper.SubmitterNonceStateMapper;
 import com.work.nonce.core.service.NonceService;
+import com.work.nonce.core.support.RedisCircuitBreaker;
 import com.work.nonce.demo.chain.ChainClient;
 import com.work.nonce.demo.chain.MockChainClient;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 将核心组件装配为 Spring Bean，方便通过依赖注入复用。
@@ -18,8 +76,198 @@ import org.springframework.context.annotation.Configuration;
 @EnableConfigurationProperties(NonceProperties.class)
 public class NonceComponentConfiguration {
 
-    // PostgresNonceRepository 和 RedisDistributedLockManager 通过 @Repository 和 @Component 自动扫描
-    // 不需要手动创建 Bean，Spring 会自动注入
+    /**
+     * 解锁通知的订阅容器：nonce.lock-wait 大于 0 时，等待 Redis 锁的线程订阅解锁频道，
+     * 没有等待者时不建立订阅连接。
+     */
+    @Bean
+    public RedisMessageListenerContainer nonceLockListenerContainer(StringRedisTemplate redisTemplate) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisTemplate.getConnectionFactory());
+        return container;
+    }
+
+    /**
+     * Redis 锁续期看门狗：开启后持锁期间定期续期，nonce.lock-ttl 可缩短到 1s 左右，
+     * 节点崩溃遗留的锁很快过期。续期间隔必须小于 lock-ttl 的一半。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public RedisLockWatchdog nonceRedisLockWatchdog(NonceProperties properties, StringRedisTemplate redisTemplate) {
+        return new RedisLockWatchdog(redisTemplate, lockWatchdogConfig(properties));
+    }
+
+    private static NonceLockWatchdogConfig lockWatchdogConfig(NonceProperties properties) {
+        NonceProperties.LockWatchdog watchdog = properties.getLockWatchdog();
+        boolean enabled = watchdog.isEnabled() && properties.getLockType() == NonceProperties.LockType.REDIS;
+        if (!enabled) {
+            return NonceLockWatchdogConfig.disabled();
+        }
+        if (watchdog.getInterval().multipliedBy(2).compareTo(properties.getLockTtl()) >= 0) {
+            throw new IllegalArgumentException("nonce.lock-watchdog.interval 必须小于 nonce.lock-ttl 的一半");
+        }
+        return new NonceLockWatchdogConfig(true, watchdog.getInterval(), watchdog.getMaxHold());
+    }
+
+    /**
+     * Redis 熔断器：滚动窗口内错误率超过阈值后熔断，熔断期间分配直接走纯 Postgres 路径
+     * （需开启 nonce.degrade-on-redis-failure，否则直接报错），不再逐个请求等待 Redis 超时。
+     */
+    @Bean
+    public RedisCircuitBreaker nonceRedisCircuitBreaker(NonceProperties properties) {
+        return new RedisCircuitBreaker(circuitBreakerConfig(properties));
+    }
+
+    private static NonceCircuitBreakerConfig circuitBreakerConfig(NonceProperties properties) {
+        NonceProperties.RedisCircuitBreaker breaker = properties.getRedisCircuitBreaker();
+        if (!breaker.isEnabled() || properties.getLockType() != NonceProperties.LockType.REDIS) {
+            return NonceCircuitBreakerConfig.disabled();
+        }
+        return new NonceCircuitBreakerConfig(
+                true,
+                breaker.getWindow(),
+                breaker.getWindowBuckets(),
+                breaker.getMinimumCalls(),
+                breaker.getFailureRateThreshold(),
+                breaker.getOpenDuration(),
+                breaker.getHalfOpenProbes()
+        );
+    }
+
+    /**
+     * Redis 异步解锁：事务提交后的解锁入队，由后台线程合并为 pipeline（EVALSHA）执行，
+     * 同步与异步解锁的失败均计数。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public RedisAsyncUnlocker nonceRedisAsyncUnlocker(NonceProperties properties, StringRedisTemplate redisTemplate) {
+        return new RedisAsyncUnlocker(redisTemplate, asyncUnlockConfig(properties));
+    }
+
+    private static NonceAsyncUnlockConfig asyncUnlockConfig(NonceProperties properties) {
+        NonceProperties.AsyncUnlock asyncUnlock = properties.getAsyncUnlock();
+        if (!asyncUnlock.isEnabled() || properties.getLockType() != NonceProperties.LockType.REDIS) {
+            return NonceAsyncUnlockConfig.disabled();
+        }
+        return new NonceAsyncUnlockConfig(
+                true,
+                asyncUnlock.getBatchSize(),
+                asyncUnlock.getQueueCapacity()
+        );
+    }
+
+    /**
+     * Redis 锁分片：配置了 nonce.lock-sharding.shards 且 lock-type=redis 时，每个分片独立建立连接池、
+     * 订阅容器、熔断器、续期看门狗与异步解锁器（参数与单 Redis 部署相同），锁键按一致性哈希路由到分片。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public RedisLockShards nonceRedisLockShards(NonceProperties properties) {
+        NonceProperties.LockSharding sharding = properties.getLockSharding();
+        if (sharding.getShards().isEmpty() || properties.getLockType() != NonceProperties.LockType.REDIS) {
+            return RedisLockShards.empty();
+        }
+        List<RedisLockShard> shards = new ArrayList<>();
+        try {
+            for (NonceProperties.LockShard shard : sharding.getShards()) {
+                shards.add(buildLockShard(properties, sharding, shard));
+            }
+        } catch (RuntimeException e) {
+            new RedisLockShards(shards).shutdown();
+            throw e;
+        }
+        return new RedisLockShards(shards);
+    }
+
+    private static RedisLockShard buildLockShard(NonceProperties properties,
+                                                 NonceProperties.LockSharding sharding,
+                                                 NonceProperties.LockShard shard) {
+        RedisStandaloneConfiguration endpoint = new RedisStandaloneConfiguration(shard.getHost(), shard.getPort());
+        endpoint.setDatabase(shard.getDatabase());
+        if (shard.getPassword() != null && !shard.getPassword().isEmpty()) {
+            endpoint.setPassword(RedisPassword.of(shard.getPassword()));
+        }
+        GenericObjectPoolConfig<Object> pool = new GenericObjectPoolConfig<>();
+        pool.setMaxTotal(sharding.getPool().getMaxActive());
+        pool.setMaxIdle(sharding.getPool().getMaxIdle());
+        pool.setMinIdle(sharding.getPool().getMinIdle());
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(endpoint,
+                LettucePoolingClientConfiguration.builder()
+                        .poolConfig(pool)
+                        .commandTimeout(sharding.getTimeout())
+                        .build());
+        connectionFactory.afterPropertiesSet();
+
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        RedisMessageListenerContainer listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(circuitBreakerConfig(properties));
+        RedisLockWatchdog watchdog = new RedisLockWatchdog(redisTemplate, lockWatchdogConfig(properties));
+        RedisAsyncUnlocker asyncUnlocker = new RedisAsyncUnlocker(redisTemplate, asyncUnlockConfig(properties));
+        RedisDistributedLockManager lockManager = new RedisDistributedLockManager(redisTemplate, listenerContainer,
+                watchdog, circuitBreaker, asyncUnlocker);
+        return new RedisLockShard(shard.getName(), lockManager, circuitBreaker, watchdog, asyncUnlocker, () -> {
+            try {
+                listenerContainer.destroy();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            } finally {
+                connectionFactory.destroy();
+            }
+        });
+    }
+
+    /**
+     * submitter 锁实现，按 nonce.lock-type 选择：
+     * REDIS 为 Redis 分布式锁，ADVISORY 为 PostgreSQL 事务级 advisory 锁（无需 Redis，随事务自动释放），
+     * LOCAL 为进程内分段锁（仅单节点）。
+     * nonce.local-lock.layered=true 时在 REDIS / ADVISORY 之前叠加本地分段锁，同节点线程先在本地排队。
+     */
+    @Bean
+    public RedisLockManager redisLockManager(NonceProperties properties,
+                                             StringRedisTemplate redisTemplate,
+                                             AdvisoryLockMapper advisoryLockMapper,
+                                             RedisMessageListenerContainer nonceLockListenerContainer,
+                                             RedisLockWatchdog nonceRedisLockWatchdog,
+                                             RedisCircuitBreaker nonceRedisCircuitBreaker,
+                                             RedisAsyncUnlocker nonceRedisAsyncUnlocker,
+                                             RedisLockShards nonceRedisLockShards) {
+        NonceProperties.LocalLock localLock = properties.getLocalLock();
+        if (properties.getLockType() == NonceProperties.LockType.LOCAL) {
+            return new StripedLocalLockManager(localLock.getStripes());
+        }
+
+        RedisLockManager lockManager;
+        if (properties.getLockType() == NonceProperties.LockType.ADVISORY) {
+            lockManager = new PostgresAdvisoryLockManager(advisoryLockMapper, properties.isAdvisoryLockBlocking());
+        } else if (!nonceRedisLockShards.isEmpty()) {
+            lockManager = new ShardedRedisLockManager(nonceRedisLockShards.getShards(),
+                    properties.getLockSharding().getVirtualNodes());
+        } else {
+            lockManager = new RedisDistributedLockManager(redisTemplate, nonceLockListenerContainer,
+                    nonceRedisLockWatchdog, nonceRedisCircuitBreaker, nonceRedisAsyncUnlocker);
+        }
+
+        if (localLock.isLayered()) {
+            return new LayeredLockManager(new StripedLocalLockManager(localLock.getStripes()),
+                    lockManager, localLock.getMaxWait());
+        }
+        return lockManager;
+    }
+
+    /**
+     * NonceRepository 实现，按 nonce.repository 选择：
+     * STATEMENT 为逐条 SQL，FUNCTION 为 nonce_allocate 函数单次往返分配。
+     */
+    @Bean
+    public NonceRepository nonceRepository(NonceProperties properties,
+                                           SubmitterNonceStateMapper stateMapper,
+                                           NonceAllocationMapper allocationMapper) {
+        if (properties.getRepository() == NonceProperties.RepositoryType.FUNCTION) {
+            return new PostgresFunctionNonceRepository(stateMapper, allocationMapper);
+        }
+        return new PostgresNonceRepository(stateMapper, allocationMapper);
+    }
 
     /**
      * ChainClient 实现（业务方需要替换为自己的实现）
@@ -36,21 +284,259 @@ public class NonceComponentConfiguration {
                 properties.isRedisEnabled(),
                 properties.getLockTtl(),
                 properties.getReservedTimeout(),
-                properties.isDegradeOnRedisFailure()
+                properties.isDegradeOnRedisFailure(),
+                properties.isInlineRecycleEnabled(),
+                properties.isFencingEnabled(),
+                properties.getLockWait()
+        );
+    }
+
+    @Bean
+    public NonceLeaseConfig nonceLeaseConfig(NonceProperties properties) {
+        NonceProperties.Lease lease = properties.getLease();
+        return new NonceLeaseConfig(
+                lease.isEnabled(),
+                lease.getSize(),
+                lease.getTtl(),
+                lease.getSubmitters()
+        );
+    }
+
+    /**
+     * 空洞索引：未开启时 NonceService 每次分配都查询 RECYCLABLE 空洞。
+     */
+    @Bean
+    public NonceHoleIndex nonceHoleIndex(NonceProperties properties) {
+        NonceProperties.HoleIndex holeIndex = properties.getHoleIndex();
+        return new NonceHoleIndex(new NonceHoleIndexConfig(
+                holeIndex.isEnabled(),
+                holeIndex.getRefreshInterval(),
+                holeIndex.getMaxLoadedHoles()
+        ));
+    }
+
+    @Bean
+    public NonceClusterConfig nonceClusterConfig(NonceProperties properties) {
+        NonceProperties.Cluster cluster = properties.getCluster();
+        return new NonceClusterConfig(
+                cluster.isEnabled(),
+                cluster.getNodeId(),
+                cluster.getEndpoint(),
+                cluster.getHeartbeatInterval(),
+                cluster.getMemberTtl(),
+                cluster.getVirtualNodes()
+        );
+    }
+
+    /**
+     * 集群归属：开启后本节点拥有的 submitter 跳过分布式锁，其余 submitter 拒绝并返回 owner 提示；
+     * 应用关闭时主动离开集群，其他节点随即接管。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public NonceClusterMembership nonceClusterMembership(NonceClusterConfig clusterConfig,
+                                                         ClusterMemberMapper clusterMemberMapper) {
+        return new NonceClusterMembership(clusterConfig, clusterMemberMapper);
+    }
+
+    /**
+     * 节点注册：以 nonce.cluster.node-id 登记节点，锁持有者标识由 node_id + 自增序号组成（与是否开启集群归属无关）。
+     */
+    @Bean
+    public NonceNodeRegistry nonceNodeRegistry(NonceProperties properties, NonceNodeMapper nonceNodeMapper) {
+        return new NonceNodeRegistry(properties.getCluster().getNodeId(), nonceNodeMapper);
+    }
+
+    /**
+     * 启动时注册节点：全部单例（含数据库迁移）初始化完成后，在独立的 REQUIRES_NEW 事务中提交，
+     * 不依赖也不混入任何一次分配事务。
+     */
+    @Bean
+    public SmartInitializingSingleton nonceNodeRegistration(NonceNodeRegistry nonceNodeRegistry,
+                                                            PlatformTransactionManager transactionManager) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return () -> transactionTemplate.executeWithoutResult(status -> nonceNodeRegistry.register());
+    }
+
+    @Bean
+    public NonceRedisEngineConfig nonceRedisEngineConfig(NonceProperties properties) {
+        NonceProperties.RedisEngine redisEngine = properties.getRedisEngine();
+        return new NonceRedisEngineConfig(
+                redisEngine.isEnabled(),
+                redisEngine.getSubmitters(),
+                properties.getReservedTimeout(),
+                redisEngine.getFlushInterval(),
+                redisEngine.getBatchSize(),
+                redisEngine.getPartitions(),
+                redisEngine.getMaxLoadedHoles()
         );
     }
 
+    /**
+     * Redis 分配引擎：nonce.redis-engine.submitters 中的 submitter 在 Redis 内分配，其余仍走数据库；
+     * 启动时为 Redis 中缺失状态的 submitter 从 Postgres 重建。
+     */
+    @Bean
+    public RedisNonceEngine redisNonceEngine(NonceRedisEngineConfig engineConfig,
+                                             StringRedisTemplate redisTemplate,
+                                             NonceRepository nonceRepository) {
+        return new RedisNonceEngine(engineConfig, redisTemplate, nonceRepository);
+    }
+
+    /**
+     * Redis 引擎的 write-behind 落库线程；应用关闭时执行最后一轮落库。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public RedisNoncePersister redisNoncePersister(NonceService nonceService,
+                                                   RedisNonceEngine redisNonceEngine,
+                                                   NonceRedisEngineConfig engineConfig) {
+        return new RedisNoncePersister(nonceService, redisNonceEngine, engineConfig);
+    }
+
     // NonceService 通过 @Service 自动扫描，不需要手动创建 Bean
 
     @Bean
-    public NonceExecutionTemplate nonceExecutionTemplate(NonceService nonceService) {
-        return new NonceExecutionTemplate(nonceService);
+    public NonceSequencerConfig nonceSequencerConfig(NonceProperties properties) {
+        NonceProperties.Sequencer sequencer = properties.getSequencer();
+        return new NonceSequencerConfig(
+                sequencer.isEnabled(),
+                sequencer.getMaxBatchSize(),
+                sequencer.getQueueCapacity(),
+                sequencer.getWorkerThreads(),
+                sequencer.getRequestTimeout()
+        );
+    }
+
+    /**
+     * 合并分配：未开启时直接委托给 NonceService；开启后同一 submitter 的并发请求合并为一个事务。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public NonceAllocationSequencer nonceAllocationSequencer(NonceService nonceService,
+                                                             NonceSequencerConfig sequencerConfig) {
+        return new NonceAllocationSequencer(nonceService, sequencerConfig);
+    }
+
+    /**
+     * 分配入口：未开启租约或非热点 submitter 时委托给合并分配器；
+     * 应用关闭时归还租约中未发放的 nonce。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public NonceLeaseAllocator nonceLeaseAllocator(NonceService nonceService,
+                                                   NonceLeaseConfig leaseConfig,
+                                                   NonceAllocationSequencer sequencer) {
+        return new NonceLeaseAllocator(nonceService, leaseConfig, sequencer);
+    }
+
+    @Bean
+    public NonceConfirmationConfig nonceConfirmationConfig(NonceProperties properties) {
+        NonceProperties.Confirmation confirmation = properties.getConfirmation();
+        return new NonceConfirmationConfig(
+                confirmation.isEnabled(),
+                confirmation.getFlushInterval(),
+                confirmation.getBatchSize(),
+                confirmation.getQueueCapacity()
+        );
+    }
+
+    /**
+     * 异步确认队列：未开启时模板同步落库；应用关闭时把剩余状态转换刷盘。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public NonceConfirmationQueue nonceConfirmationQueue(NonceService nonceService,
+                                                         NonceConfirmationConfig confirmationConfig) {
+        return new NonceConfirmationQueue(nonceService, confirmationConfig);
+    }
+
+    @Bean
+    public NonceReaperConfig nonceReaperConfig(NonceProperties properties) {
+        NonceProperties.Reaper reaper = properties.getReaper();
+        return new NonceReaperConfig(
+                reaper.isEnabled(),
+                reaper.getInterval(),
+                reaper.getBatchSize(),
+                reaper.getPartitions(),
+                reaper.getMaxBatchesPerRun()
+        );
+    }
+
+    /**
+     * 后台回收：开启后可将 nonce.inline-recycle-enabled 置为 false，分配路径不再扫描过期记录。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public NonceReservationReaper nonceReservationReaper(NonceService nonceService,
+                                                         NonceReaperConfig reaperConfig) {
+        return new NonceReservationReaper(nonceService, reaperConfig);
+    }
+
+    @Bean
+    public NonceArchiverConfig nonceArchiverConfig(NonceProperties properties) {
+        NonceProperties.Archiver archiver = properties.getArchiver();
+        return new NonceArchiverConfig(
+                archiver.isEnabled(),
+                archiver.getInterval(),
+                archiver.getBatchSize(),
+                archiver.getPartitions(),
+                archiver.getMaxBatchesPerRun(),
+                archiver.getMode() == NonceProperties.ArchiverMode.COMPACT,
+                archiver.getCompactSpan()
+        );
+    }
+
+    /**
+     * 后台归档：把已结算的 USED 记录移入归档表，分配表只保留活跃记录。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public NonceAllocationArchiver nonceAllocationArchiver(NonceService nonceService,
+                                                           NonceArchiverConfig archiverConfig) {
+        return new NonceAllocationArchiver(nonceService, archiverConfig);
+    }
+
+    @Bean
+    public NonceReconcilerConfig nonceReconcilerConfig(NonceProperties properties) {
+        NonceProperties.Reconciler reconciler = properties.getReconciler();
+        return new NonceReconcilerConfig(
+                reconciler.isEnabled(),
+                reconciler.getInterval(),
+                reconciler.getPageSize(),
+                reconciler.getQueryBatchSize(),
+                reconciler.getConcurrency(),
+                reconciler.getQueryTimeout()
+        );
+    }
+
+    /**
+     * 链上对账：以 ChainClient 查询活跃 submitter 的链上 nonce，批量推进 last_chain_nonce。
+     */
+    @Bean(destroyMethod = "shutdown")
+    public NonceChainReconciler nonceChainReconciler(NonceService nonceService,
+                                                     ChainClient chainClient,
+                                                     NonceReconcilerConfig reconcilerConfig) {
+        ChainNonceSource chainSource = new ChainNonceSource() {
+            @Override
+            public long queryLatestNonce(String submitter) {
+                return chainClient.queryLatestNonce(submitter);
+            }
+
+            @Override
+            public Map<String, Long> queryLatestNonces(List<String> submitters) {
+                return chainClient.queryLatestNonces(submitters);
+            }
+        };
+        return new NonceChainReconciler(nonceService, chainSource, reconcilerConfig);
+    }
+
+    @Bean
+    public NonceExecutionTemplate nonceExecutionTemplate(NonceLeaseAllocator nonceAllocator,
+                                                         NonceService nonceService,
+                                                         NonceConfirmationQueue confirmationQueue) {
+        return new NonceExecutionTemplate(nonceAllocator, nonceService, confirmationQueue);
     }
 
     @Bean
     public NonceComponent nonceComponent(NonceExecutionTemplate template,
+                                         NonceLeaseAllocator nonceAllocator,
                                          NonceService nonceService) {
-        return new NonceComponent(template, nonceService);
+        return new NonceComponent(template, nonceAllocator, nonceService);
     }
 }
 
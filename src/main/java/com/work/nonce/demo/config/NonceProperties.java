@@ -3,6 +3,8 @@ package com.work.nonce.demo.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 仅存在于 demo/业务包，用于从 application.yml 读取配置。
@@ -15,6 +17,26 @@ public class NonceProperties {
     private Duration lockTtl = Duration.ofSeconds(10);
     private Duration reservedTimeout = Duration.ofSeconds(30);
     private boolean degradeOnRedisFailure = true;
+    private boolean inlineRecycleEnabled = true;
+    private boolean fencingEnabled = false;
+    private Duration lockWait = Duration.ZERO;
+    private RepositoryType repository = RepositoryType.STATEMENT;
+    private LockType lockType = LockType.REDIS;
+    private boolean advisoryLockBlocking = false;
+    private LocalLock localLock = new LocalLock();
+    private LockWatchdog lockWatchdog = new LockWatchdog();
+    private RedisCircuitBreaker redisCircuitBreaker = new RedisCircuitBreaker();
+    private AsyncUnlock asyncUnlock = new AsyncUnlock();
+    private LockSharding lockSharding = new LockSharding();
+    private Lease lease = new Lease();
+    private Confirmation confirmation = new Confirmation();
+    private Reaper reaper = new Reaper();
+    private Archiver archiver = new Archiver();
+    private Reconciler reconciler = new Reconciler();
+    private HoleIndex holeIndex = new HoleIndex();
+    private Sequencer sequencer = new Sequencer();
+    private Cluster cluster = new Cluster();
+    private RedisEngine redisEngine = new RedisEngine();
 
     public boolean isRedisEnabled() {
         return redisEnabled;
@@ -47,5 +69,988 @@ public class NonceProperties {
     public void setDegradeOnRedisFailure(boolean degradeOnRedisFailure) {
         this.degradeOnRedisFailure = degradeOnRedisFailure;
     }
-}
 
+    public boolean isInlineRecycleEnabled() {
+        return inlineRecycleEnabled;
+    }
+
+    public void setInlineRecycleEnabled(boolean inlineRecycleEnabled) {
+        this.inlineRecycleEnabled = inlineRecycleEnabled;
+    }
+
+    public boolean isFencingEnabled() {
+        return fencingEnabled;
+    }
+
+    public void setFencingEnabled(boolean fencingEnabled) {
+        this.fencingEnabled = fencingEnabled;
+    }
+
+    public Duration getLockWait() {
+        return lockWait;
+    }
+
+    public void setLockWait(Duration lockWait) {
+        this.lockWait = lockWait;
+    }
+
+    public RepositoryType getRepository() {
+        return repository;
+    }
+
+    public void setRepository(RepositoryType repository) {
+        this.repository = repository;
+    }
+
+    public LockType getLockType() {
+        return lockType;
+    }
+
+    public void setLockType(LockType lockType) {
+        this.lockType = lockType;
+    }
+
+    public boolean isAdvisoryLockBlocking() {
+        return advisoryLockBlocking;
+    }
+
+    public void setAdvisoryLockBlocking(boolean advisoryLockBlocking) {
+        this.advisoryLockBlocking = advisoryLockBlocking;
+    }
+
+    public LocalLock getLocalLock() {
+        return localLock;
+    }
+
+    public void setLocalLock(LocalLock localLock) {
+        this.localLock = localLock;
+    }
+
+    public LockWatchdog getLockWatchdog() {
+        return lockWatchdog;
+    }
+
+    public void setLockWatchdog(LockWatchdog lockWatchdog) {
+        this.lockWatchdog = lockWatchdog;
+    }
+
+    public RedisCircuitBreaker getRedisCircuitBreaker() {
+        return redisCircuitBreaker;
+    }
+
+    public void setRedisCircuitBreaker(RedisCircuitBreaker redisCircuitBreaker) {
+        this.redisCircuitBreaker = redisCircuitBreaker;
+    }
+
+    public AsyncUnlock getAsyncUnlock() {
+        return asyncUnlock;
+    }
+
+    public void setAsyncUnlock(AsyncUnlock asyncUnlock) {
+        this.asyncUnlock = asyncUnlock;
+    }
+
+    public LockSharding getLockSharding() {
+        return lockSharding;
+    }
+
+    public void setLockSharding(LockSharding lockSharding) {
+        this.lockSharding = lockSharding;
+    }
+
+    public Lease getLease() {
+        return lease;
+    }
+
+    public void setLease(Lease lease) {
+        this.lease = lease;
+    }
+
+    public Confirmation getConfirmation() {
+        return confirmation;
+    }
+
+    public void setConfirmation(Confirmation confirmation) {
+        this.confirmation = confirmation;
+    }
+
+    public Reaper getReaper() {
+        return reaper;
+    }
+
+    public void setReaper(Reaper reaper) {
+        this.reaper = reaper;
+    }
+
+    public Archiver getArchiver() {
+        return archiver;
+    }
+
+    public void setArchiver(Archiver archiver) {
+        this.archiver = archiver;
+    }
+
+    public Reconciler getReconciler() {
+        return reconciler;
+    }
+
+    public void setReconciler(Reconciler reconciler) {
+        this.reconciler = reconciler;
+    }
+
+    public HoleIndex getHoleIndex() {
+        return holeIndex;
+    }
+
+    public void setHoleIndex(HoleIndex holeIndex) {
+        this.holeIndex = holeIndex;
+    }
+
+    public Sequencer getSequencer() {
+        return sequencer;
+    }
+
+    public void setSequencer(Sequencer sequencer) {
+        this.sequencer = sequencer;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public void setCluster(Cluster cluster) {
+        this.cluster = cluster;
+    }
+
+    public RedisEngine getRedisEngine() {
+        return redisEngine;
+    }
+
+    public void setRedisEngine(RedisEngine redisEngine) {
+        this.redisEngine = redisEngine;
+    }
+
+    /**
+     * NonceRepository 实现选择（nonce.repository）
+     */
+    public enum RepositoryType {
+        /**
+         * 逐条 SQL 语句组合完成分配（PostgresNonceRepository）
+         */
+        STATEMENT,
+        /**
+         * 调用 nonce_allocate 函数单次往返完成分配（PostgresFunctionNonceRepository）
+         */
+        FUNCTION
+    }
+
+    /**
+     * submitter 锁实现选择（nonce.lock-type），redis-enabled=false 时不加锁
+     */
+    public enum LockType {
+        /**
+         * Redis SET NX + Lua 解锁（RedisDistributedLockManager）
+         */
+        REDIS,
+        /**
+         * PostgreSQL 事务级 advisory 锁（PostgresAdvisoryLockManager）
+         */
+        ADVISORY,
+        /**
+         * 进程内分段锁（StripedLocalLockManager），仅适用于单节点部署
+         */
+        LOCAL
+    }
+
+    /**
+     * 已结算记录的处理方式（nonce.archiver.mode）
+     */
+    public enum ArchiverMode {
+        /**
+         * 已结算的 USED 记录移入只追加的归档表，仍可按 submitter + nonce 回查
+         */
+        ARCHIVE,
+        /**
+         * 水位压缩：删除 nonce 不大于 last_chain_nonce 的全部分配记录，已结算前缀只由水位表示
+         */
+        COMPACT
+    }
+
+    /**
+     * 进程内分段锁配置（nonce.local-lock.*）
+     */
+    public static class LocalLock {
+
+        private int stripes = 1024;
+        private boolean layered = false;
+        private Duration maxWait = Duration.ofSeconds(2);
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        public boolean isLayered() {
+            return layered;
+        }
+
+        public void setLayered(boolean layered) {
+            this.layered = layered;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    /**
+     * Redis 锁续期看门狗配置（nonce.lock-watchdog.*），仅 lock-type=redis 生效
+     */
+    public static class LockWatchdog {
+
+        private boolean enabled = false;
+        private Duration interval = Duration.ofMillis(300);
+        private Duration maxHold = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public Duration getMaxHold() {
+            return maxHold;
+        }
+
+        public void setMaxHold(Duration maxHold) {
+            this.maxHold = maxHold;
+        }
+    }
+
+    /**
+     * Redis 熔断器配置（nonce.redis-circuit-breaker.*），仅 lock-type=redis 生效
+     */
+    public static class RedisCircuitBreaker {
+
+        private boolean enabled = false;
+        private Duration window = Duration.ofSeconds(10);
+        private int windowBuckets = 10;
+        private int minimumCalls = 20;
+        private int failureRateThreshold = 50;
+        private Duration openDuration = Duration.ofSeconds(5);
+        private int halfOpenProbes = 3;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public int getWindowBuckets() {
+            return windowBuckets;
+        }
+
+        public void setWindowBuckets(int windowBuckets) {
+            this.windowBuckets = windowBuckets;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public int getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public int getHalfOpenProbes() {
+            return halfOpenProbes;
+        }
+
+        public void setHalfOpenProbes(int halfOpenProbes) {
+            this.halfOpenProbes = halfOpenProbes;
+        }
+    }
+
+    /**
+     * Redis 异步解锁配置（nonce.async-unlock.*），仅 lock-type=redis 生效
+     */
+    public static class AsyncUnlock {
+
+        private boolean enabled = false;
+        private int batchSize = 256;
+        private int queueCapacity = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    /**
+     * Redis 锁分片配置（nonce.lock-sharding.*），仅 lock-type=redis 生效；shards 为空时使用 spring.data.redis
+     */
+    public static class LockSharding {
+
+        private int virtualNodes = 128;
+        private Duration timeout = Duration.ofMillis(500);
+        private ShardPool pool = new ShardPool();
+        private List<LockShard> shards = new ArrayList<>();
+
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public ShardPool getPool() {
+            return pool;
+        }
+
+        public void setPool(ShardPool pool) {
+            this.pool = pool;
+        }
+
+        public List<LockShard> getShards() {
+            return shards;
+        }
+
+        public void setShards(List<LockShard> shards) {
+            this.shards = shards;
+        }
+    }
+
+    /**
+     * 单个锁分片的连接池配置（nonce.lock-sharding.pool.*），每个分片各自一个连接池
+     */
+    public static class ShardPool {
+
+        private int maxActive = 8;
+        private int maxIdle = 8;
+        private int minIdle = 0;
+
+        public int getMaxActive() {
+            return maxActive;
+        }
+
+        public void setMaxActive(int maxActive) {
+            this.maxActive = maxActive;
+        }
+
+        public int getMaxIdle() {
+            return maxIdle;
+        }
+
+        public void setMaxIdle(int maxIdle) {
+            this.maxIdle = maxIdle;
+        }
+
+        public int getMinIdle() {
+            return minIdle;
+        }
+
+        public void setMinIdle(int minIdle) {
+            this.minIdle = minIdle;
+        }
+    }
+
+    /**
+     * 锁分片端点（nonce.lock-sharding.shards[*]）
+     */
+    public static class LockShard {
+
+        private String name;
+        private String host = "localhost";
+        private int port = 6379;
+        private String password;
+        private int database = 0;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getDatabase() {
+            return database;
+        }
+
+        public void setDatabase(int database) {
+            this.database = database;
+        }
+    }
+
+    /**
+     * 区间租约配置（nonce.lease.*）
+     */
+    public static class Lease {
+
+        private boolean enabled = false;
+        private int size = 64;
+        private Duration ttl = Duration.ofSeconds(60);
+        private List<String> submitters = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public List<String> getSubmitters() {
+            return submitters;
+        }
+
+        public void setSubmitters(List<String> submitters) {
+            this.submitters = submitters;
+        }
+    }
+
+    /**
+     * 异步确认队列配置（nonce.confirmation.*）
+     */
+    public static class Confirmation {
+
+        private boolean enabled = false;
+        private Duration flushInterval = Duration.ofMillis(5);
+        private int batchSize = 500;
+        private int queueCapacity = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    /**
+     * 后台回收配置（nonce.reaper.*）
+     */
+    public static class Reaper {
+
+        private boolean enabled = false;
+        private Duration interval = Duration.ofSeconds(1);
+        private int batchSize = 500;
+        private int partitions = 4;
+        private int maxBatchesPerRun = 20;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public void setPartitions(int partitions) {
+            this.partitions = partitions;
+        }
+
+        public int getMaxBatchesPerRun() {
+            return maxBatchesPerRun;
+        }
+
+        public void setMaxBatchesPerRun(int maxBatchesPerRun) {
+            this.maxBatchesPerRun = maxBatchesPerRun;
+        }
+    }
+
+    /**
+     * 后台归档配置（nonce.archiver.*）
+     */
+    public static class Archiver {
+
+        private boolean enabled = false;
+        private Duration interval = Duration.ofSeconds(30);
+        private int batchSize = 1000;
+        private int partitions = 16;
+        private int maxBatchesPerRun = 10;
+        private ArchiverMode mode = ArchiverMode.ARCHIVE;
+        private long compactSpan = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public void setPartitions(int partitions) {
+            this.partitions = partitions;
+        }
+
+        public int getMaxBatchesPerRun() {
+            return maxBatchesPerRun;
+        }
+
+        public void setMaxBatchesPerRun(int maxBatchesPerRun) {
+            this.maxBatchesPerRun = maxBatchesPerRun;
+        }
+
+        public ArchiverMode getMode() {
+            return mode;
+        }
+
+        public void setMode(ArchiverMode mode) {
+            this.mode = mode;
+        }
+
+        public long getCompactSpan() {
+            return compactSpan;
+        }
+
+        public void setCompactSpan(long compactSpan) {
+            this.compactSpan = compactSpan;
+        }
+    }
+
+    /**
+     * 链上对账配置（nonce.reconciler.*）
+     */
+    public static class Reconciler {
+
+        private boolean enabled = false;
+        private Duration interval = Duration.ofSeconds(5);
+        private int pageSize = 1000;
+        private int queryBatchSize = 100;
+        private int concurrency = 16;
+        private Duration queryTimeout = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public int getQueryBatchSize() {
+            return queryBatchSize;
+        }
+
+        public void setQueryBatchSize(int queryBatchSize) {
+            this.queryBatchSize = queryBatchSize;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public Duration getQueryTimeout() {
+            return queryTimeout;
+        }
+
+        public void setQueryTimeout(Duration queryTimeout) {
+            this.queryTimeout = queryTimeout;
+        }
+    }
+
+    /**
+     * 空洞索引配置（nonce.hole-index.*）
+     */
+    public static class HoleIndex {
+
+        private boolean enabled = false;
+        private Duration refreshInterval = Duration.ofSeconds(5);
+        private int maxLoadedHoles = 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        public int getMaxLoadedHoles() {
+            return maxLoadedHoles;
+        }
+
+        public void setMaxLoadedHoles(int maxLoadedHoles) {
+            this.maxLoadedHoles = maxLoadedHoles;
+        }
+    }
+
+    /**
+     * 合并分配配置（nonce.sequencer.*）
+     */
+    public static class Sequencer {
+
+        private boolean enabled = false;
+        private int maxBatchSize = 64;
+        private int queueCapacity = 1024;
+        private int workerThreads = 8;
+        private Duration requestTimeout = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+
+        public Duration getRequestTimeout() {
+            return requestTimeout;
+        }
+
+        public void setRequestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+        }
+    }
+
+    /**
+     * 集群归属配置（nonce.cluster.*）
+     */
+    public static class Cluster {
+
+        private boolean enabled = false;
+        private String nodeId;
+        private String endpoint;
+        private Duration heartbeatInterval = Duration.ofSeconds(1);
+        private Duration memberTtl = Duration.ofSeconds(10);
+        private int virtualNodes = 128;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public void setEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public Duration getHeartbeatInterval() {
+            return heartbeatInterval;
+        }
+
+        public void setHeartbeatInterval(Duration heartbeatInterval) {
+            this.heartbeatInterval = heartbeatInterval;
+        }
+
+        public Duration getMemberTtl() {
+            return memberTtl;
+        }
+
+        public void setMemberTtl(Duration memberTtl) {
+            this.memberTtl = memberTtl;
+        }
+
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+    }
+
+    /**
+     * Redis 分配引擎配置（nonce.redis-engine.*）
+     */
+    public static class RedisEngine {
+
+        private boolean enabled = false;
+        private List<String> submitters = new ArrayList<>();
+        private Duration flushInterval = Duration.ofMillis(20);
+        private int batchSize = 500;
+        private int partitions = 4;
+        private int maxLoadedHoles = 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getSubmitters() {
+            return submitters;
+        }
+
+        public void setSubmitters(List<String> submitters) {
+            this.submitters = submitters;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public void setPartitions(int partitions) {
+            this.partitions = partitions;
+        }
+
+        public int getMaxLoadedHoles() {
+            return maxLoadedHoles;
+        }
+
+        public void setMaxLoadedHoles(int maxLoadedHoles) {
+            this.maxLoadedHoles = maxLoadedHoles;
+        }
+    }
+}
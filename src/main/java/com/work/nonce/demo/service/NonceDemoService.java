@@ -2,11 +2,16 @@ package com.work.nonce.demo.service;
 
 import com.work.nonce.core.NonceComponent;
 import com.work.nonce.core.execution.NonceExecutionResult;
+import com.work.nonce.core.model.BlockReceipt;
+import com.work.nonce.core.model.ReceiptIngestResult;
 import com.work.nonce.demo.chain.ChainClient;
+import com.work.nonce.demo.web.dto.BlockReceiptsRequest;
 import com.work.nonce.demo.web.dto.NonceResponse;
 import com.work.nonce.demo.web.dto.SimpleNoncePayloadFF;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -33,5 +38,15 @@ public class NonceDemoService {
         SimpleNoncePayloadFF responsePayload = new SimpleNoncePayloadFF(result.getTxHash(), payload);
         return NonceResponse.of(submitter, nonceHolder.get(), responsePayload);
     }
-}
 
+    /**
+     * 区块监听示例：把一个区块的回执交给组件批量确认。
+     */
+    public ReceiptIngestResult ingestBlock(BlockReceiptsRequest request) {
+        List<BlockReceipt> receipts = new ArrayList<>(request.getReceipts().size());
+        for (BlockReceiptsRequest.Receipt receipt : request.getReceipts()) {
+            receipts.add(new BlockReceipt(receipt.getSender(), receipt.getNonce(), receipt.getTxHash()));
+        }
+        return nonceComponent.ingestBlockReceipts(request.getBlockNumber(), receipts);
+    }
+}
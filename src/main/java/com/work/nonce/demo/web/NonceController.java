@@ -1,17 +1,24 @@
 package com.work.nonce.demo.web;
 
+import com.work.nonce.core.exception.NonceOwnershipException;
+import com.work.nonce.core.model.ReceiptIngestResult;
 import com.work.nonce.demo.service.NonceDemoService;
+import com.work.nonce.demo.web.dto.BlockReceiptsRequest;
 import com.work.nonce.demo.web.dto.NonceRequest;
 import com.work.nonce.demo.web.dto.NonceResponse;
 import com.work.nonce.demo.web.dto.SimpleNoncePayloadFF;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * 提供最小可用的 REST API，启动 Spring Boot 后可直接调用验证组件行为。
  */
@@ -19,6 +26,13 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/nonces")
 public class NonceController {
 
+    /**
+     * 非 owner 节点拒绝请求时返回的 owner 地址，调用方可据此转发重试
+     */
+    static final String OWNER_HEADER = "X-Nonce-Owner";
+    // 421 Misdirected Request，Spring 5.3 的 HttpStatus 中没有该枚举
+    private static final int MISDIRECTED_REQUEST = 421;
+
     private final NonceDemoService nonceDemoService;
 
     public NonceController(NonceDemoService nonceDemoService) {
@@ -31,5 +45,31 @@ public class NonceController {
         NonceResponse<SimpleNoncePayloadFF> response = nonceDemoService.refund(submitter, request.getPayload());
         return ResponseEntity.ok(response);
     }
-}
 
+    /**
+     * 按区块回执批量确认，返回确认、重放、冲突与未匹配的回执数
+     */
+    @PostMapping("/receipts")
+    public ResponseEntity<ReceiptIngestResult> ingestReceipts(@Validated @RequestBody BlockReceiptsRequest request) {
+        return ResponseEntity.ok(nonceDemoService.ingestBlock(request));
+    }
+
+    /**
+     * submitter 不归本节点负责（或本节点已被 fence）：返回 421 与 owner 提示
+     */
+    @ExceptionHandler(NonceOwnershipException.class)
+    public ResponseEntity<Map<String, Object>> handleOwnership(NonceOwnershipException e) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", e.getMessage());
+        body.put("submitter", e.getSubmitter());
+        body.put("ownerNodeId", e.getOwnerNodeId());
+        body.put("ownerEndpoint", e.getOwnerEndpoint());
+        body.put("epoch", e.getEpoch());
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(MISDIRECTED_REQUEST);
+        if (e.getOwnerEndpoint() != null) {
+            response.header(OWNER_HEADER, e.getOwnerEndpoint());
+        }
+        return response.body(body);
+    }
+}
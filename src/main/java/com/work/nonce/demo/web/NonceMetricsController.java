@@ -0,0 +1,300 @@
+package com.work.nonce.demo.web;
+
+import com.work.nonce.core.archive.NonceAllocationArchiver;
+import com.work.nonce.core.cluster.NonceClusterMembership;
+import com.work.nonce.core.cluster.NonceNodeRegistry;
+import com.work.nonce.core.confirm.NonceConfirmationQueue;
+import com.work.nonce.core.engine.RedisNonceEngine;
+import com.work.nonce.core.engine.RedisNoncePersister;
+import com.work.nonce.core.hole.NonceHoleIndex;
+import com.work.nonce.core.lock.impl.RedisAsyncUnlocker;
+import com.work.nonce.core.lock.impl.RedisLockShard;
+import com.work.nonce.core.lock.impl.RedisLockShards;
+import com.work.nonce.core.lock.impl.RedisLockWatchdog;
+import com.work.nonce.core.reaper.NonceReservationReaper;
+import com.work.nonce.core.reconcile.NonceChainReconciler;
+import com.work.nonce.core.sequencer.NonceAllocationSequencer;
+import com.work.nonce.core.support.RedisCircuitBreaker;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 暴露组件内部指标，便于容量评估与压测观察。
+ */
+@RestController
+@RequestMapping("/api/nonces/metrics")
+public class NonceMetricsController {
+
+    private final NonceConfirmationQueue confirmationQueue;
+    private final NonceReservationReaper reservationReaper;
+    private final NonceHoleIndex holeIndex;
+    private final NonceAllocationSequencer sequencer;
+    private final NonceClusterMembership clusterMembership;
+    private final RedisNonceEngine redisEngine;
+    private final RedisNoncePersister redisPersister;
+    private final RedisLockWatchdog lockWatchdog;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final RedisAsyncUnlocker asyncUnlocker;
+    private final RedisLockShards lockShards;
+    private final NonceAllocationArchiver archiver;
+    private final NonceNodeRegistry nodeRegistry;
+    private final NonceChainReconciler reconciler;
+
+    public NonceMetricsController(NonceConfirmationQueue confirmationQueue,
+                                  NonceReservationReaper reservationReaper,
+                                  NonceHoleIndex holeIndex,
+                                  NonceAllocationSequencer sequencer,
+                                  NonceClusterMembership clusterMembership,
+                                  RedisNonceEngine redisEngine,
+                                  RedisNoncePersister redisPersister,
+                                  RedisLockWatchdog lockWatchdog,
+                                  RedisCircuitBreaker circuitBreaker,
+                                  RedisAsyncUnlocker asyncUnlocker,
+                                  RedisLockShards lockShards,
+                                  NonceAllocationArchiver archiver,
+                                  NonceNodeRegistry nodeRegistry,
+                                  NonceChainReconciler reconciler) {
+        this.confirmationQueue = confirmationQueue;
+        this.reservationReaper = reservationReaper;
+        this.holeIndex = holeIndex;
+        this.sequencer = sequencer;
+        this.clusterMembership = clusterMembership;
+        this.redisEngine = redisEngine;
+        this.redisPersister = redisPersister;
+        this.lockWatchdog = lockWatchdog;
+        this.circuitBreaker = circuitBreaker;
+        this.asyncUnlocker = asyncUnlocker;
+        this.lockShards = lockShards;
+        this.archiver = archiver;
+        this.nodeRegistry = nodeRegistry;
+        this.reconciler = reconciler;
+    }
+
+    /**
+     * 异步确认队列：队列深度、刷盘耗时与各类计数。
+     */
+    @GetMapping("/confirmation")
+    public Map<String, Object> confirmation() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", confirmationQueue.isEnabled());
+        metrics.put("queueDepth", confirmationQueue.getQueueDepth());
+        metrics.put("submitted", confirmationQueue.getSubmittedCount());
+        metrics.put("applied", confirmationQueue.getAppliedCount());
+        metrics.put("skipped", confirmationQueue.getSkippedCount());
+        metrics.put("failed", confirmationQueue.getFailedCount());
+        metrics.put("syncFallback", confirmationQueue.getSyncFallbackCount());
+        metrics.put("flushCount", confirmationQueue.getFlushCount());
+        metrics.put("lastFlushLatencyMs", confirmationQueue.getLastFlushLatencyMillis());
+        metrics.put("avgFlushLatencyMs", confirmationQueue.getAvgFlushLatencyMillis());
+        metrics.put("maxFlushLatencyMs", confirmationQueue.getMaxFlushLatencyMillis());
+        return metrics;
+    }
+
+    /**
+     * 后台回收：累计回收数、批次数与最近一轮耗时。
+     */
+    @GetMapping("/reaper")
+    public Map<String, Object> reaper() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", reservationReaper.isEnabled());
+        metrics.put("reaped", reservationReaper.getReapedCount());
+        metrics.put("batches", reservationReaper.getBatchCount());
+        metrics.put("failedBatches", reservationReaper.getFailedBatchCount());
+        metrics.put("runs", reservationReaper.getRunCount());
+        metrics.put("lastRunReaped", reservationReaper.getLastRunReaped());
+        metrics.put("lastRunLatencyMs", reservationReaper.getLastRunLatencyMillis());
+        return metrics;
+    }
+
+    /**
+     * 空洞索引：命中（复用空洞）、未命中（直接发新号）、认领失败与加载次数。
+     */
+    @GetMapping("/hole-index")
+    public Map<String, Object> holeIndex() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", holeIndex.isEnabled());
+        metrics.put("indexedSubmitters", holeIndex.getIndexedSubmitters());
+        metrics.put("hits", holeIndex.getHitCount());
+        metrics.put("misses", holeIndex.getMissCount());
+        metrics.put("stale", holeIndex.getStaleCount());
+        metrics.put("loads", holeIndex.getLoadCount());
+        return metrics;
+    }
+
+    /**
+     * 合并分配：请求数与批次数之比即平均合并度。
+     */
+    @GetMapping("/sequencer")
+    public Map<String, Object> sequencer() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", sequencer.isEnabled());
+        metrics.put("activeSubmitters", sequencer.getActiveSubmitters());
+        metrics.put("requests", sequencer.getRequestCount());
+        metrics.put("batches", sequencer.getBatchCount());
+        metrics.put("maxBatchSize", sequencer.getMaxBatchSize());
+        metrics.put("direct", sequencer.getDirectCount());
+        metrics.put("abandoned", sequencer.getAbandonedCount());
+        return metrics;
+    }
+
+    /**
+     * 集群归属：当前 epoch、成员数，以及本节点处理 / 拒绝 / 回退加锁的请求数。
+     */
+    @GetMapping("/cluster")
+    public Map<String, Object> cluster() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", clusterMembership.isEnabled());
+        metrics.put("nodeId", clusterMembership.getNodeId());
+        metrics.put("healthy", clusterMembership.isViewHealthy());
+        metrics.put("epoch", clusterMembership.getEpoch());
+        metrics.put("members", clusterMembership.getMemberCount());
+        metrics.put("owned", clusterMembership.getOwnedCount());
+        metrics.put("forwarded", clusterMembership.getForwardedCount());
+        metrics.put("unavailable", clusterMembership.getUnavailableCount());
+        metrics.put("heartbeatFailures", clusterMembership.getHeartbeatFailures());
+        metrics.put("rejoins", clusterMembership.getRejoinCount());
+        metrics.put("evictions", clusterMembership.getEvictions());
+        return metrics;
+    }
+
+    /**
+     * 节点注册：注册表分配的 node_id、incarnation 与已发放的锁持有者标识数。
+     */
+    @GetMapping("/node")
+    public Map<String, Object> node() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("registered", nodeRegistry.isRegistered());
+        metrics.put("nodeId", nodeRegistry.getNodeId());
+        metrics.put("incarnation", nodeRegistry.getIncarnation());
+        metrics.put("issuedOwners", nodeRegistry.getIssuedCount());
+        return metrics;
+    }
+
+    /**
+     * Redis 分配引擎：分配数、重建次数、待落库积压与落库计数。
+     */
+    @GetMapping("/redis-engine")
+    public Map<String, Object> redisEngine() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", redisEngine.isEnabled());
+        metrics.put("allocated", redisEngine.getAllocatedCount());
+        metrics.put("rebuilds", redisEngine.getRebuildCount());
+        metrics.put("failed", redisEngine.getFailedCount());
+        metrics.put("pendingDepth", redisPersister.getPendingDepth());
+        metrics.put("persistedReservations", redisPersister.getPersistedReservations());
+        metrics.put("persistedUpdates", redisPersister.getPersistedUpdates());
+        metrics.put("failedBatches", redisPersister.getFailedBatches());
+        metrics.put("lostLeases", redisPersister.getLostLeases());
+        metrics.put("lastRunLatencyMs", redisPersister.getLastRunLatencyMillis());
+        return metrics;
+    }
+
+    /**
+     * Redis 锁续期看门狗：持有中的锁数、续期次数与丢锁次数。
+     */
+    @GetMapping("/lock-watchdog")
+    public Map<String, Object> lockWatchdog() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", lockWatchdog.isEnabled());
+        metrics.put("heldLocks", lockWatchdog.getHeldLocks());
+        metrics.put("renewed", lockWatchdog.getRenewedCount());
+        metrics.put("lost", lockWatchdog.getLostCount());
+        metrics.put("maxHoldExceeded", lockWatchdog.getExpiredHoldCount());
+        metrics.put("failedRounds", lockWatchdog.getFailedRounds());
+        return metrics;
+    }
+
+    /**
+     * Redis 熔断器：当前状态、被熔断拒绝的请求数与各状态转换次数。
+     */
+    @GetMapping("/redis-circuit-breaker")
+    public Map<String, Object> redisCircuitBreaker() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", circuitBreaker.isEnabled());
+        metrics.put("state", circuitBreaker.getState().name());
+        metrics.put("rejected", circuitBreaker.getRejectedCount());
+        metrics.put("opened", circuitBreaker.getOpenedCount());
+        metrics.put("halfOpened", circuitBreaker.getHalfOpenedCount());
+        metrics.put("closed", circuitBreaker.getClosedCount());
+        return metrics;
+    }
+
+    /**
+     * Redis 解锁：异步队列深度、pipeline 次数与解锁结果计数（含同步解锁）。
+     */
+    @GetMapping("/redis-unlock")
+    public Map<String, Object> redisUnlock() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("asyncEnabled", asyncUnlocker.isEnabled());
+        metrics.put("queueDepth", asyncUnlocker.getQueueDepth());
+        metrics.put("submitted", asyncUnlocker.getSubmittedCount());
+        metrics.put("flushes", asyncUnlocker.getFlushCount());
+        metrics.put("released", asyncUnlocker.getReleasedCount());
+        metrics.put("notHeld", asyncUnlocker.getNotHeldCount());
+        metrics.put("failed", asyncUnlocker.getFailedCount());
+        metrics.put("syncFallback", asyncUnlocker.getSyncFallbackCount());
+        return metrics;
+    }
+
+    /**
+     * Redis 锁分片：各分片的熔断状态、持有中的锁数与解锁失败数。
+     */
+    @GetMapping("/redis-shards")
+    public Map<String, Object> redisShards() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", !lockShards.isEmpty());
+        Map<String, Object> shards = new LinkedHashMap<>();
+        for (RedisLockShard shard : lockShards.getShards()) {
+            Map<String, Object> shardMetrics = new LinkedHashMap<>();
+            shardMetrics.put("breakerState", shard.getCircuitBreaker().getState().name());
+            shardMetrics.put("rejected", shard.getCircuitBreaker().getRejectedCount());
+            shardMetrics.put("opened", shard.getCircuitBreaker().getOpenedCount());
+            shardMetrics.put("heldLocks", shard.getWatchdog().getHeldLocks());
+            shardMetrics.put("waitingSubmitters", shard.getLockManager().getActiveSubscriptions());
+            shardMetrics.put("unlockFailed", shard.getAsyncUnlocker().getFailedCount());
+            shards.put(shard.getName(), shardMetrics);
+        }
+        metrics.put("shards", shards);
+        return metrics;
+    }
+
+    /**
+     * 后台归档：累计归档数、批次与最近一轮的耗时。
+     */
+    @GetMapping("/archiver")
+    public Map<String, Object> archiver() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", archiver.isEnabled());
+        metrics.put("mode", archiver.isCompact() ? "compact" : "archive");
+        metrics.put("archived", archiver.getArchivedCount());
+        metrics.put("batches", archiver.getBatchCount());
+        metrics.put("failedBatches", archiver.getFailedBatchCount());
+        metrics.put("runs", archiver.getRunCount());
+        metrics.put("lastRunArchived", archiver.getLastRunArchived());
+        metrics.put("lastRunLatencyMs", archiver.getLastRunLatencyMillis());
+        return metrics;
+    }
+
+    /**
+     * 链上对账：累计扫描、推进水位、确认与作废的记录数，以及最近一轮的耗时。
+     */
+    @GetMapping("/reconciler")
+    public Map<String, Object> reconciler() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", reconciler.isEnabled());
+        metrics.put("scanned", reconciler.getScannedCount());
+        metrics.put("advanced", reconciler.getAdvancedCount());
+        metrics.put("confirmed", reconciler.getConfirmedCount());
+        metrics.put("voided", reconciler.getVoidedCount());
+        metrics.put("failedQueries", reconciler.getFailedQueryCount());
+        metrics.put("failedBatches", reconciler.getFailedBatchCount());
+        metrics.put("runs", reconciler.getRunCount());
+        metrics.put("lastRunScanned", reconciler.getLastRunScanned());
+        metrics.put("lastRunLatencyMs", reconciler.getLastRunLatencyMillis());
+        return metrics;
+    }
+}
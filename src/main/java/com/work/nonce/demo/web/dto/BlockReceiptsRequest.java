@@ -0,0 +1,78 @@
+package com.work.nonce.demo.web.dto;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.PositiveOrZero;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 区块回执批量确认的请求体：区块号与该区块中的回执（sender 即 submitter）。
+ */
+public class BlockReceiptsRequest {
+
+    @NotNull(message = "blockNumber 不能为空")
+    @PositiveOrZero(message = "blockNumber 不能为负数")
+    private Long blockNumber;
+
+    @Valid
+    @NotNull(message = "receipts 不能为空")
+    private List<Receipt> receipts = new ArrayList<>();
+
+    public Long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public void setBlockNumber(Long blockNumber) {
+        this.blockNumber = blockNumber;
+    }
+
+    public List<Receipt> getReceipts() {
+        return receipts;
+    }
+
+    public void setReceipts(List<Receipt> receipts) {
+        this.receipts = receipts;
+    }
+
+    /**
+     * 单笔回执
+     */
+    public static class Receipt {
+
+        @NotBlank(message = "txHash 不能为空")
+        private String txHash;
+
+        @NotBlank(message = "sender 不能为空")
+        private String sender;
+
+        @NotNull(message = "nonce 不能为空")
+        @PositiveOrZero(message = "nonce 不能为负数")
+        private Long nonce;
+
+        public String getTxHash() {
+            return txHash;
+        }
+
+        public void setTxHash(String txHash) {
+            this.txHash = txHash;
+        }
+
+        public String getSender() {
+            return sender;
+        }
+
+        public void setSender(String sender) {
+            this.sender = sender;
+        }
+
+        public Long getNonce() {
+            return nonce;
+        }
+
+        public void setNonce(Long nonce) {
+            this.nonce = nonce;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+-- nonce_allocate 分配函数：锁定状态 → 回收过期 RESERVED → 复用水位之上的最小空洞或发新号 → 预留，单次往返完成。
+-- 可重复迁移：函数只在本文件中定义，修改后 Flyway 按校验和变化在所有版本迁移之后重新执行，
+-- 版本迁移中不再复制函数体；变更表结构导致函数需要删除时（如 V7 重建分区表），由本文件重建。
+-- 已广播未确认的保护：带 txHash 的 RESERVED 说明交易已广播，内联回收跳过 tx_hash 非空的记录，
+-- 由刷盘、链上对账或区块回执确认为 USED
+
+-- 旧签名（尚未升级的节点使用，收缩阶段删除）
+CREATE OR REPLACE FUNCTION nonce_allocate(
+    p_submitter       VARCHAR,
+    p_lock_owner      VARCHAR,
+    p_locked_until    TIMESTAMPTZ,
+    p_expire_before   TIMESTAMPTZ,
+    p_now             TIMESTAMPTZ,
+    p_recycle_expired BOOLEAN
+) RETURNS SETOF submitter_nonce_allocation
+LANGUAGE plpgsql AS $$
+DECLARE
+    v_next      BIGINT;
+    v_chain     BIGINT;
+    v_count     BIGINT;
+    v_nonce     BIGINT;
+    v_rec_count BIGINT;
+    v_rec_min   BIGINT;
+    v_row       submitter_nonce_allocation%ROWTYPE;
+BEGIN
+    -- 1. 锁定 submitter 状态行，不存在则初始化（并发初始化由 ON CONFLICT 处理）
+    SELECT s.next_local_nonce, s.last_chain_nonce, s.recyclable_count INTO v_next, v_chain, v_count
+      FROM submitter_nonce_state s
+     WHERE s.submitter = p_submitter
+       FOR UPDATE;
+
+    IF NOT FOUND THEN
+        INSERT INTO submitter_nonce_state(submitter, last_chain_nonce, next_local_nonce, updated_at, created_at)
+        VALUES (p_submitter, -1, 0, p_now, p_now)
+        ON CONFLICT (submitter) DO NOTHING;
+
+        SELECT s.next_local_nonce, s.last_chain_nonce, s.recyclable_count INTO v_next, v_chain, v_count
+          FROM submitter_nonce_state s
+         WHERE s.submitter = p_submitter
+           FOR UPDATE;
+    END IF;
+
+    -- 2. 回收该 submitter 过期的 RESERVED 并累加计数（由后台回收接管时跳过）
+    IF p_recycle_expired THEN
+        WITH rec AS (
+            UPDATE submitter_nonce_allocation a
+               SET status = 'RECYCLABLE', lock_owner = NULL, locked_until = NULL, updated_at = p_now, reason = '超时回收'
+             WHERE a.submitter = p_submitter
+               AND a.status = 'RESERVED'
+               AND a.locked_until IS NOT NULL
+               AND a.locked_until < p_expire_before
+               AND a.tx_hash IS NULL
+            RETURNING a.nonce
+        )
+        SELECT count(*), min(rec.nonce) INTO v_rec_count, v_rec_min FROM rec;
+
+        IF v_rec_count > 0 THEN
+            UPDATE submitter_nonce_state
+               SET recyclable_count = recyclable_count + v_rec_count,
+                   min_recyclable_nonce = LEAST(COALESCE(min_recyclable_nonce, v_rec_min), v_rec_min)
+             WHERE submitter = p_submitter;
+            v_count := v_count + v_rec_count;
+        END IF;
+    END IF;
+
+    -- 3. 计数表明存在空洞时，复用水位之上最小的 RECYCLABLE 空洞（水位及以下已在链上结算，不再复用）
+    IF v_count > 0 THEN
+        SELECT a.nonce INTO v_nonce
+          FROM submitter_nonce_allocation a
+         WHERE a.submitter = p_submitter
+           AND a.status = 'RECYCLABLE'
+           AND a.nonce > v_chain
+         ORDER BY a.nonce
+         LIMIT 1;
+
+        IF v_nonce IS NULL THEN
+            -- 计数漂移或只剩水位以下的空洞：顺带修正（水位以下的记录由压缩删除）
+            UPDATE submitter_nonce_state
+               SET recyclable_count = 0, min_recyclable_nonce = NULL
+             WHERE submitter = p_submitter;
+        END IF;
+    END IF;
+
+    -- 4. 没有空洞则发新号：不低于水位 + 1，无需查询分配表
+    IF v_nonce IS NULL THEN
+        v_next := GREATEST(v_next, v_chain + 1);
+        v_nonce := v_next;
+        UPDATE submitter_nonce_state
+           SET next_local_nonce = v_next + 1, updated_at = p_now
+         WHERE submitter = p_submitter;
+    END IF;
+
+    -- 5. 预留（USED 的记录不会被覆盖）
+    INSERT INTO submitter_nonce_allocation(submitter, nonce, status, lock_owner, locked_until, updated_at, created_at)
+    VALUES (p_submitter, v_nonce, 'RESERVED', p_lock_owner, p_locked_until, p_now, p_now)
+    ON CONFLICT (submitter, nonce)
+    DO UPDATE SET status = 'RESERVED', lock_owner = EXCLUDED.lock_owner,
+                  locked_until = EXCLUDED.locked_until, updated_at = EXCLUDED.updated_at
+    WHERE submitter_nonce_allocation.status <> 'USED'
+    RETURNING * INTO v_row;
+
+    IF NOT FOUND THEN
+        RETURN;
+    END IF;
+
+    -- 6. 复用了空洞：扣减计数并重算最小空洞
+    IF v_nonce <> v_next THEN
+        UPDATE submitter_nonce_state
+           SET recyclable_count = GREATEST(recyclable_count - 1, 0),
+               min_recyclable_nonce = (SELECT min(a.nonce) FROM submitter_nonce_allocation a
+                                        WHERE a.submitter = p_submitter AND a.status = 'RECYCLABLE'
+                                          AND a.nonce > v_chain)
+         WHERE submitter = p_submitter;
+    END IF;
+
+    RETURN NEXT v_row;
+    RETURN;
+END;
+$$;
+
+-- 新签名
+CREATE OR REPLACE FUNCTION nonce_allocate(
+    p_submitter       VARCHAR,
+    p_owner_node      INTEGER,
+    p_owner_seq       BIGINT,
+    p_locked_until    TIMESTAMPTZ,
+    p_expire_before   TIMESTAMPTZ,
+    p_now             TIMESTAMPTZ,
+    p_recycle_expired BOOLEAN
+) RETURNS SETOF submitter_nonce_allocation
+LANGUAGE plpgsql AS $$
+DECLARE
+    v_next      BIGINT;
+    v_chain     BIGINT;
+    v_count     BIGINT;
+    v_nonce     BIGINT;
+    v_rec_count BIGINT;
+    v_rec_min   BIGINT;
+    v_row       submitter_nonce_allocation%ROWTYPE;
+BEGIN
+    -- 1. 锁定 submitter 状态行，不存在则初始化（并发初始化由 ON CONFLICT 处理）
+    SELECT s.next_local_nonce, s.last_chain_nonce, s.recyclable_count INTO v_next, v_chain, v_count
+      FROM submitter_nonce_state s
+     WHERE s.submitter = p_submitter
+       FOR UPDATE;
+
+    IF NOT FOUND THEN
+        INSERT INTO submitter_nonce_state(submitter, last_chain_nonce, next_local_nonce, updated_at, created_at)
+        VALUES (p_submitter, -1, 0, p_now, p_now)
+        ON CONFLICT (submitter) DO NOTHING;
+
+        SELECT s.next_local_nonce, s.last_chain_nonce, s.recyclable_count INTO v_next, v_chain, v_count
+          FROM submitter_nonce_state s
+         WHERE s.submitter = p_submitter
+           FOR UPDATE;
+    END IF;
+
+    -- 2. 回收该 submitter 过期的 RESERVED 并累加计数（由后台回收接管时跳过）
+    IF p_recycle_expired THEN
+        WITH rec AS (
+            UPDATE submitter_nonce_allocation a
+               SET status_code = 3, owner_node = NULL, owner_seq = NULL, locked_until = NULL, updated_at = p_now, reason = '超时回收'
+             WHERE a.submitter = p_submitter
+               AND a.status_code = 1
+               AND a.locked_until IS NOT NULL
+               AND a.locked_until < p_expire_before
+               AND a.tx_hash IS NULL
+            RETURNING a.nonce
+        )
+        SELECT count(*), min(rec.nonce) INTO v_rec_count, v_rec_min FROM rec;
+
+        IF v_rec_count > 0 THEN
+            UPDATE submitter_nonce_state
+               SET recyclable_count = recyclable_count + v_rec_count,
+                   min_recyclable_nonce = LEAST(COALESCE(min_recyclable_nonce, v_rec_min), v_rec_min)
+             WHERE submitter = p_submitter;
+            v_count := v_count + v_rec_count;
+        END IF;
+    END IF;
+
+    -- 3. 计数表明存在空洞时，复用水位之上最小的 RECYCLABLE 空洞（水位及以下已在链上结算，不再复用）
+    IF v_count > 0 THEN
+        SELECT a.nonce INTO v_nonce
+          FROM submitter_nonce_allocation a
+         WHERE a.submitter = p_submitter
+           AND a.status_code = 3
+           AND a.nonce > v_chain
+         ORDER BY a.nonce
+         LIMIT 1;
+
+        IF v_nonce IS NULL THEN
+            -- 计数漂移或只剩水位以下的空洞：顺带修正（水位以下的记录由压缩删除）
+            UPDATE submitter_nonce_state
+               SET recyclable_count = 0, min_recyclable_nonce = NULL
+             WHERE submitter = p_submitter;
+        END IF;
+    END IF;
+
+    -- 4. 没有空洞则发新号：不低于水位 + 1，无需查询分配表
+    IF v_nonce IS NULL THEN
+        v_next := GREATEST(v_next, v_chain + 1);
+        v_nonce := v_next;
+        UPDATE submitter_nonce_state
+           SET next_local_nonce = v_next + 1, updated_at = p_now
+         WHERE submitter = p_submitter;
+    END IF;
+
+    -- 5. 预留（USED 的记录不会被覆盖）
+    INSERT INTO submitter_nonce_allocation(submitter, nonce, status_code, owner_node, owner_seq, locked_until, updated_at, created_at)
+    VALUES (p_submitter, v_nonce, 1, p_owner_node, p_owner_seq, p_locked_until, p_now, p_now)
+    ON CONFLICT (submitter, nonce)
+    DO UPDATE SET status_code = 1, owner_node = EXCLUDED.owner_node, owner_seq = EXCLUDED.owner_seq,
+                  locked_until = EXCLUDED.locked_until, updated_at = EXCLUDED.updated_at
+    WHERE submitter_nonce_allocation.status_code <> 2
+    RETURNING * INTO v_row;
+
+    IF NOT FOUND THEN
+        RETURN;
+    END IF;
+
+    -- 6. 复用了空洞：扣减计数并重算最小空洞
+    IF v_nonce <> v_next THEN
+        UPDATE submitter_nonce_state
+           SET recyclable_count = GREATEST(recyclable_count - 1, 0),
+               min_recyclable_nonce = (SELECT min(a.nonce) FROM submitter_nonce_allocation a
+                                        WHERE a.submitter = p_submitter AND a.status_code = 3
+                                          AND a.nonce > v_chain)
+         WHERE submitter = p_submitter;
+    END IF;
+
+    RETURN NEXT v_row;
+    RETURN;
+END;
+$$;
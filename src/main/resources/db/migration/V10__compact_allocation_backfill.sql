@@ -0,0 +1,136 @@
+-- 紧凑存储（回填阶段）：以非事务方式执行（见同名 .conf），每批单独提交，不长时间持有锁；需要 PostgreSQL 14+（按 ctid 区间扫描）
+-- 回填期间旧节点写入的行由 V9 的触发器补齐 status_code，回填只需处理存量行
+-- 注意：中途失败后执行 flyway repair 即可直接重新执行，无需修改脚本：回填只处理 status_code 为空的行，
+-- 并发建索引失败遗留的无效分区索引会先被删除重建，已挂载的分区索引不会重复 ATTACH
+
+DO $$
+DECLARE
+    v_part  REGCLASS;
+    v_pages BIGINT;
+    v_page  BIGINT;
+    v_step  CONSTANT BIGINT := 1000;
+BEGIN
+    FOR v_part IN
+        SELECT inhrelid::REGCLASS FROM pg_inherits
+         WHERE inhparent = 'submitter_nonce_allocation'::REGCLASS
+    LOOP
+        v_pages := pg_relation_size(v_part) / current_setting('block_size')::BIGINT;
+        v_page := 0;
+        WHILE v_page <= v_pages LOOP
+            EXECUTE format('UPDATE %s SET status_code = nonce_status_code(status) '
+                           'WHERE status_code IS NULL AND ctid >= ''(%s,0)''::tid AND ctid < ''(%s,0)''::tid',
+                           v_part, v_page, v_page + v_step);
+            COMMIT;
+            v_page := v_page + v_step;
+        END LOOP;
+    END LOOP;
+END;
+$$;
+
+-- 部分索引：分区表的父表不支持 CONCURRENTLY，先在父表上建 ON ONLY 索引（挂满所有分区前为无效状态），
+-- 再逐个分区并发建索引并挂载
+-- 上次执行中途失败时 CONCURRENTLY 遗留的无效分区索引：IF NOT EXISTS 会跳过它们，需先删除
+DO $$
+DECLARE
+    v_index REGCLASS;
+BEGIN
+    FOR v_index IN
+        SELECT i.indexrelid::REGCLASS FROM pg_index i
+          JOIN pg_class c ON c.oid = i.indexrelid
+         WHERE NOT i.indisvalid
+           AND c.relname ~ '^idx_allocation_(recyclable|reserved|reserved_expiry)_p[0-9]+$'
+    LOOP
+        EXECUTE format('DROP INDEX %s', v_index);
+    END LOOP;
+END;
+$$;
+
+-- 空洞查找（findLowestRecyclable、认领与计数重算）
+CREATE INDEX IF NOT EXISTS idx_allocation_recyclable ON ONLY submitter_nonce_allocation (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p0 ON submitter_nonce_allocation_p0 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p1 ON submitter_nonce_allocation_p1 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p2 ON submitter_nonce_allocation_p2 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p3 ON submitter_nonce_allocation_p3 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p4 ON submitter_nonce_allocation_p4 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p5 ON submitter_nonce_allocation_p5 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p6 ON submitter_nonce_allocation_p6 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p7 ON submitter_nonce_allocation_p7 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p8 ON submitter_nonce_allocation_p8 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p9 ON submitter_nonce_allocation_p9 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p10 ON submitter_nonce_allocation_p10 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p11 ON submitter_nonce_allocation_p11 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p12 ON submitter_nonce_allocation_p12 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p13 ON submitter_nonce_allocation_p13 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p14 ON submitter_nonce_allocation_p14 (submitter, nonce) WHERE status_code = 3;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_recyclable_p15 ON submitter_nonce_allocation_p15 (submitter, nonce) WHERE status_code = 3;
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        IF NOT EXISTS (SELECT 1 FROM pg_inherits
+                        WHERE inhrelid = format('idx_allocation_recyclable_p%s', i)::REGCLASS
+                          AND inhparent = 'idx_allocation_recyclable'::REGCLASS) THEN
+            EXECUTE format('ALTER INDEX idx_allocation_recyclable ATTACH PARTITION idx_allocation_recyclable_p%s', i);
+        END IF;
+    END LOOP;
+END;
+$$;
+
+-- 单个 submitter 的 RESERVED 查询（inline 回收、租约归还、引擎重建）
+CREATE INDEX IF NOT EXISTS idx_allocation_reserved ON ONLY submitter_nonce_allocation (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p0 ON submitter_nonce_allocation_p0 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p1 ON submitter_nonce_allocation_p1 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p2 ON submitter_nonce_allocation_p2 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p3 ON submitter_nonce_allocation_p3 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p4 ON submitter_nonce_allocation_p4 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p5 ON submitter_nonce_allocation_p5 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p6 ON submitter_nonce_allocation_p6 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p7 ON submitter_nonce_allocation_p7 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p8 ON submitter_nonce_allocation_p8 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p9 ON submitter_nonce_allocation_p9 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p10 ON submitter_nonce_allocation_p10 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p11 ON submitter_nonce_allocation_p11 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p12 ON submitter_nonce_allocation_p12 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p13 ON submitter_nonce_allocation_p13 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p14 ON submitter_nonce_allocation_p14 (submitter, nonce) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_p15 ON submitter_nonce_allocation_p15 (submitter, nonce) WHERE status_code = 1;
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        IF NOT EXISTS (SELECT 1 FROM pg_inherits
+                        WHERE inhrelid = format('idx_allocation_reserved_p%s', i)::REGCLASS
+                          AND inhparent = 'idx_allocation_reserved'::REGCLASS) THEN
+            EXECUTE format('ALTER INDEX idx_allocation_reserved ATTACH PARTITION idx_allocation_reserved_p%s', i);
+        END IF;
+    END LOOP;
+END;
+$$;
+
+-- 后台回收按 locked_until 扫描过期预留
+CREATE INDEX IF NOT EXISTS idx_allocation_reserved_expiry ON ONLY submitter_nonce_allocation (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p0 ON submitter_nonce_allocation_p0 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p1 ON submitter_nonce_allocation_p1 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p2 ON submitter_nonce_allocation_p2 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p3 ON submitter_nonce_allocation_p3 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p4 ON submitter_nonce_allocation_p4 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p5 ON submitter_nonce_allocation_p5 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p6 ON submitter_nonce_allocation_p6 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p7 ON submitter_nonce_allocation_p7 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p8 ON submitter_nonce_allocation_p8 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p9 ON submitter_nonce_allocation_p9 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p10 ON submitter_nonce_allocation_p10 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p11 ON submitter_nonce_allocation_p11 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p12 ON submitter_nonce_allocation_p12 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p13 ON submitter_nonce_allocation_p13 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p14 ON submitter_nonce_allocation_p14 (locked_until) WHERE status_code = 1;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_reserved_expiry_p15 ON submitter_nonce_allocation_p15 (locked_until) WHERE status_code = 1;
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        IF NOT EXISTS (SELECT 1 FROM pg_inherits
+                        WHERE inhrelid = format('idx_allocation_reserved_expiry_p%s', i)::REGCLASS
+                          AND inhparent = 'idx_allocation_reserved_expiry'::REGCLASS) THEN
+            EXECUTE format('ALTER INDEX idx_allocation_reserved_expiry ATTACH PARTITION idx_allocation_reserved_expiry_p%s', i);
+        END IF;
+    END LOOP;
+END;
+$$;
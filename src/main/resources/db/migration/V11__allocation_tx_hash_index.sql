@@ -0,0 +1,51 @@
+-- tx_hash 索引：支撑按 txHash 回查分配记录（区块回执确认后的对账、重放排查）。
+-- 以非事务方式执行（见同名 .conf）：分配表逐个分区 CONCURRENTLY 建索引后挂载到父表的 ON ONLY 索引，归档表直接 CONCURRENTLY 建索引。
+-- 注意：中途失败后执行 flyway repair 即可直接重新执行，无需修改脚本：并发建索引失败遗留的无效索引会先被删除重建，
+-- 已挂载的分区索引不会重复 ATTACH
+
+-- 上次执行中途失败时 CONCURRENTLY 遗留的无效索引：IF NOT EXISTS 会跳过它们，需先删除
+DO $$
+DECLARE
+    v_index REGCLASS;
+BEGIN
+    FOR v_index IN
+        SELECT i.indexrelid::REGCLASS FROM pg_index i
+          JOIN pg_class c ON c.oid = i.indexrelid
+         WHERE NOT i.indisvalid
+           AND c.relname ~ '^idx_allocation_(tx_hash_p[0-9]+|archive_tx_hash)$'
+    LOOP
+        EXECUTE format('DROP INDEX %s', v_index);
+    END LOOP;
+END;
+$$;
+
+CREATE INDEX IF NOT EXISTS idx_allocation_tx_hash ON ONLY submitter_nonce_allocation (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p0 ON submitter_nonce_allocation_p0 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p1 ON submitter_nonce_allocation_p1 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p2 ON submitter_nonce_allocation_p2 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p3 ON submitter_nonce_allocation_p3 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p4 ON submitter_nonce_allocation_p4 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p5 ON submitter_nonce_allocation_p5 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p6 ON submitter_nonce_allocation_p6 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p7 ON submitter_nonce_allocation_p7 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p8 ON submitter_nonce_allocation_p8 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p9 ON submitter_nonce_allocation_p9 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p10 ON submitter_nonce_allocation_p10 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p11 ON submitter_nonce_allocation_p11 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p12 ON submitter_nonce_allocation_p12 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p13 ON submitter_nonce_allocation_p13 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p14 ON submitter_nonce_allocation_p14 (tx_hash) WHERE tx_hash IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_tx_hash_p15 ON submitter_nonce_allocation_p15 (tx_hash) WHERE tx_hash IS NOT NULL;
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        IF NOT EXISTS (SELECT 1 FROM pg_inherits
+                        WHERE inhrelid = format('idx_allocation_tx_hash_p%s', i)::REGCLASS
+                          AND inhparent = 'idx_allocation_tx_hash'::REGCLASS) THEN
+            EXECUTE format('ALTER INDEX idx_allocation_tx_hash ATTACH PARTITION idx_allocation_tx_hash_p%s', i);
+        END IF;
+    END LOOP;
+END;
+$$;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_allocation_archive_tx_hash ON submitter_nonce_allocation_archive (tx_hash) WHERE tx_hash IS NOT NULL;
@@ -0,0 +1,4 @@
+-- 已广播未确认的保护：异步确认开启时，SUCCESS 先同步把 txHash 写到 RESERVED 记录上再入队刷盘。
+-- 带 txHash 的 RESERVED 说明交易已广播，超时回收不得把它变为 RECYCLABLE（否则会把已上链的 nonce 再次发放），
+-- 由刷盘、链上对账或区块回执确认为 USED。
+-- 两个签名的 nonce_allocate 内联回收跳过 tx_hash 非空的记录，函数定义见 R__nonce_allocate.sql；本版本不包含其他变更
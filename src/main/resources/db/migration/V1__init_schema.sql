@@ -0,0 +1,27 @@
+-- 基线表结构：submitter 状态表与 nonce 分配记录表
+
+CREATE TABLE IF NOT EXISTS submitter_nonce_state (
+    submitter        VARCHAR(128) PRIMARY KEY,
+    last_chain_nonce BIGINT       NOT NULL DEFAULT -1,
+    next_local_nonce BIGINT       NOT NULL DEFAULT 0,
+    updated_at       TIMESTAMPTZ  NOT NULL,
+    created_at       TIMESTAMPTZ  NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS submitter_nonce_allocation (
+    id           BIGSERIAL    PRIMARY KEY,
+    submitter    VARCHAR(128) NOT NULL,
+    nonce        BIGINT       NOT NULL,
+    status       VARCHAR(16)  NOT NULL,
+    lock_owner   VARCHAR(128),
+    locked_until TIMESTAMPTZ,
+    tx_hash      VARCHAR(128),
+    reason       TEXT,
+    updated_at   TIMESTAMPTZ  NOT NULL,
+    created_at   TIMESTAMPTZ  NOT NULL,
+    CONSTRAINT uk_submitter_nonce UNIQUE (submitter, nonce)
+);
+
+-- 支撑空洞查找与过期回收
+CREATE INDEX IF NOT EXISTS idx_allocation_submitter_status_nonce
+    ON submitter_nonce_allocation (submitter, status, nonce);
@@ -0,0 +1,4 @@
+-- 单次往返的分配函数：锁定状态 → 回收过期 RESERVED → 复用最小空洞或发新号 → 预留
+-- 行锁只在函数执行期间持有，不再跨越多次网络往返。
+-- 返回预留后的 allocation 行；nonce 已为 USED 时不返回任何行。
+-- 函数定义见可重复迁移 R__nonce_allocate.sql；本版本不包含其他变更
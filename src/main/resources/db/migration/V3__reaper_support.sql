@@ -0,0 +1,7 @@
+-- 后台回收（reaper）支持：
+-- 1. 部分索引支撑跨 submitter 的过期 RESERVED 扫描
+-- 2. nonce_allocate 增加 p_recycle_expired 参数，由后台回收接管时分配路径可完全跳过回收扫描（见 R__nonce_allocate.sql）
+
+CREATE INDEX IF NOT EXISTS idx_allocation_reserved_locked_until
+    ON submitter_nonce_allocation (locked_until)
+    WHERE status = 'RESERVED';
@@ -0,0 +1,16 @@
+-- submitter 状态行上的空洞计数：分配时由已锁定的状态行判断是否存在 RECYCLABLE 空洞，
+-- 无空洞（常见情况）时不再查询分配表；nonce_allocate 同步维护计数（见 R__nonce_allocate.sql）
+
+ALTER TABLE submitter_nonce_state
+    ADD COLUMN IF NOT EXISTS recyclable_count     BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS min_recyclable_nonce BIGINT;
+
+-- 回填存量数据
+UPDATE submitter_nonce_state s
+   SET recyclable_count = c.cnt,
+       min_recyclable_nonce = c.min_nonce
+  FROM (SELECT submitter, count(*) AS cnt, min(nonce) AS min_nonce
+          FROM submitter_nonce_allocation
+         WHERE status = 'RECYCLABLE'
+         GROUP BY submitter) c
+ WHERE s.submitter = c.submitter;
@@ -0,0 +1,22 @@
+-- 集群归属：成员心跳表 + ring epoch，submitter 状态行上的 owner_epoch 用于 fencing 旧 owner
+
+CREATE TABLE IF NOT EXISTS nonce_cluster_member (
+    node_id      VARCHAR(128) PRIMARY KEY,
+    endpoint     VARCHAR(256),
+    heartbeat_at TIMESTAMPTZ NOT NULL,
+    joined_at    TIMESTAMPTZ NOT NULL
+);
+
+-- 单行表：成员集合每变化一次 epoch 加 1
+CREATE TABLE IF NOT EXISTS nonce_cluster_epoch (
+    id         SMALLINT PRIMARY KEY,
+    epoch      BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT ck_cluster_epoch_single_row CHECK (id = 1)
+);
+
+INSERT INTO nonce_cluster_epoch(id, epoch) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
+
+-- 最近一次在该 submitter 上分配的 owner 所处的 epoch，旧 epoch 的 owner 不能再写入
+ALTER TABLE submitter_nonce_state
+    ADD COLUMN IF NOT EXISTS owner_epoch BIGINT NOT NULL DEFAULT 0;
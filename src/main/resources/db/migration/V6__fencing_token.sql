@@ -0,0 +1,4 @@
+-- fencing 模式：记录最近一次乐观更新所用的 fencing token（Redis INCR 发放），
+-- 持有较小 token 的旧锁持有者不能再推进 next_local_nonce
+ALTER TABLE submitter_nonce_state
+    ADD COLUMN IF NOT EXISTS fence_token BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,170 @@
+-- 分配表按 submitter 哈希分区 + 已结算 USED 记录归档：
+-- 1. submitter_nonce_allocation 重建为 PARTITION BY HASH (submitter) 的 16 个分区，索引随分区变小
+-- 2. 新增只追加的归档表 submitter_nonce_allocation_archive，存放 nonce <= last_chain_nonce 的 USED 记录，
+--    由后台归档器分批迁移；迁移时先把存量已结算记录直接写入归档表，不再复制到新表
+-- 3. nonce_allocate 的返回类型依赖表的行类型，切换时删除，迁移结束后由 R__nonce_allocate.sql 重建
+--
+-- 在线重建：以非事务方式执行（见同名 .conf），升级前的节点在迁移期间可继续读写旧表：
+--   a. 建空的分区表 submitter_nonce_allocation_part 与归档表
+--   b. 旧表挂同步触发器，此后旧表的写入逐行同步到分区表
+--   c. 按 id 区间分批回填存量行，每批单独提交；与触发器同步的行冲突时保留触发器写入的新值
+--   d. 短事务内切换：锁旧表、删除旧表，分区表改名接管。数据已由触发器同步，切换不搬迁数据
+-- 运维说明：
+--   - b 与 d 需要旧表的表级锁，会等待进行中的写事务，并阻塞其后的写入直到拿到锁；两步都设置了 lock_timeout，
+--     存在长事务时迁移失败而不是长时间阻塞写入
+--   - 中途失败后执行 flyway repair 即可直接重新执行，无需修改脚本：建表与触发器均可重复执行，回填跳过已同步的行
+--   - 回填期间旧表的每次写入额外同步一行到分区表，大表建议在低峰执行
+--   - 切换后到 R__nonce_allocate.sql 执行前（同一次 migrate 内），使用 function 实现的节点分配会短暂报错
+
+-- a. 分区表：唯一约束必须包含分区键，主键为 (submitter, id)；id 沿用旧表序列，全局唯一。
+-- 约束与索引先以 _part 结尾命名，切换时改回原名
+CREATE TABLE IF NOT EXISTS submitter_nonce_allocation_part (
+    id           BIGINT       NOT NULL DEFAULT nextval('submitter_nonce_allocation_id_seq'),
+    submitter    VARCHAR(128) NOT NULL,
+    nonce        BIGINT       NOT NULL,
+    status       VARCHAR(16)  NOT NULL,
+    lock_owner   VARCHAR(128),
+    locked_until TIMESTAMPTZ,
+    tx_hash      VARCHAR(128),
+    reason       TEXT,
+    updated_at   TIMESTAMPTZ  NOT NULL,
+    created_at   TIMESTAMPTZ  NOT NULL,
+    CONSTRAINT pk_submitter_nonce_allocation PRIMARY KEY (submitter, id),
+    CONSTRAINT uk_submitter_nonce_part UNIQUE (submitter, nonce)
+) PARTITION BY HASH (submitter);
+
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS submitter_nonce_allocation_p%s PARTITION OF submitter_nonce_allocation_part '
+                       'FOR VALUES WITH (MODULUS 16, REMAINDER %s)', i, i);
+    END LOOP;
+END;
+$$;
+
+CREATE INDEX IF NOT EXISTS idx_allocation_submitter_status_nonce_part
+    ON submitter_nonce_allocation_part (submitter, status, nonce);
+
+CREATE INDEX IF NOT EXISTS idx_allocation_reserved_locked_until_part
+    ON submitter_nonce_allocation_part (locked_until)
+    WHERE status = 'RESERVED';
+
+-- 归档表：只追加，不分区；按 (submitter, nonce) 回查
+CREATE TABLE IF NOT EXISTS submitter_nonce_allocation_archive (
+    id           BIGINT       NOT NULL,
+    submitter    VARCHAR(128) NOT NULL,
+    nonce        BIGINT       NOT NULL,
+    status       VARCHAR(16)  NOT NULL,
+    lock_owner   VARCHAR(128),
+    locked_until TIMESTAMPTZ,
+    tx_hash      VARCHAR(128),
+    reason       TEXT,
+    updated_at   TIMESTAMPTZ  NOT NULL,
+    created_at   TIMESTAMPTZ  NOT NULL,
+    archived_at  TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    CONSTRAINT pk_submitter_nonce_allocation_archive PRIMARY KEY (submitter, nonce)
+);
+
+CREATE OR REPLACE FUNCTION nonce_allocation_archive_append_only() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    RAISE EXCEPTION 'submitter_nonce_allocation_archive 只允许追加';
+END;
+$$;
+
+CREATE OR REPLACE TRIGGER trg_allocation_archive_append_only
+    BEFORE UPDATE OR DELETE ON submitter_nonce_allocation_archive
+    FOR EACH ROW EXECUTE FUNCTION nonce_allocation_archive_append_only();
+
+-- b. 迁移期间旧表的写入同步到分区表，切换时删除
+CREATE OR REPLACE FUNCTION nonce_allocation_partition_sync() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        DELETE FROM submitter_nonce_allocation_part
+         WHERE submitter = OLD.submitter AND nonce = OLD.nonce;
+        RETURN OLD;
+    END IF;
+    INSERT INTO submitter_nonce_allocation_part
+          (id, submitter, nonce, status, lock_owner, locked_until, tx_hash, reason, updated_at, created_at)
+    VALUES (NEW.id, NEW.submitter, NEW.nonce, NEW.status, NEW.lock_owner, NEW.locked_until, NEW.tx_hash, NEW.reason,
+            NEW.updated_at, NEW.created_at)
+    ON CONFLICT (submitter, nonce)
+    DO UPDATE SET id = EXCLUDED.id, status = EXCLUDED.status, lock_owner = EXCLUDED.lock_owner,
+                  locked_until = EXCLUDED.locked_until, tx_hash = EXCLUDED.tx_hash, reason = EXCLUDED.reason,
+                  updated_at = EXCLUDED.updated_at, created_at = EXCLUDED.created_at;
+    RETURN NEW;
+END;
+$$;
+
+-- CREATE TRIGGER 等待进行中的写事务结束，此后提交的写入都会经过触发器，回填只需覆盖此刻已存在的 id
+DO $$
+BEGIN
+    PERFORM set_config('lock_timeout', '5s', true);
+    CREATE OR REPLACE TRIGGER trg_allocation_partition_sync
+        AFTER INSERT OR UPDATE OR DELETE ON submitter_nonce_allocation
+        FOR EACH ROW EXECUTE FUNCTION nonce_allocation_partition_sync();
+END;
+$$;
+
+-- c. 分批回填：已结算的 USED 直接归档（已被触发器同步到分区表的除外，由后台归档器处理），其余写入分区表
+DO $$
+DECLARE
+    v_from BIGINT;
+    v_max  BIGINT;
+    v_step CONSTANT BIGINT := 10000;
+BEGIN
+    SELECT min(id), max(id) INTO v_from, v_max FROM submitter_nonce_allocation;
+    WHILE v_from <= v_max LOOP
+        INSERT INTO submitter_nonce_allocation_archive
+              (id, submitter, nonce, status, lock_owner, locked_until, tx_hash, reason, updated_at, created_at)
+        SELECT a.id, a.submitter, a.nonce, a.status, a.lock_owner, a.locked_until, a.tx_hash, a.reason, a.updated_at, a.created_at
+          FROM submitter_nonce_allocation a
+          JOIN submitter_nonce_state s ON s.submitter = a.submitter
+         WHERE a.id >= v_from AND a.id < v_from + v_step
+           AND a.status = 'USED'
+           AND a.nonce <= s.last_chain_nonce
+           AND a.nonce < s.next_local_nonce
+           AND NOT EXISTS (SELECT 1 FROM submitter_nonce_allocation_part p
+                            WHERE p.submitter = a.submitter AND p.nonce = a.nonce)
+        ON CONFLICT (submitter, nonce) DO NOTHING;
+
+        INSERT INTO submitter_nonce_allocation_part
+              (id, submitter, nonce, status, lock_owner, locked_until, tx_hash, reason, updated_at, created_at)
+        SELECT a.id, a.submitter, a.nonce, a.status, a.lock_owner, a.locked_until, a.tx_hash, a.reason, a.updated_at, a.created_at
+          FROM submitter_nonce_allocation a
+         WHERE a.id >= v_from AND a.id < v_from + v_step
+           AND NOT EXISTS (SELECT 1 FROM submitter_nonce_allocation_archive r
+                            WHERE r.submitter = a.submitter AND r.nonce = a.nonce)
+        ON CONFLICT (submitter, nonce) DO NOTHING;
+
+        COMMIT;
+        v_from := v_from + v_step;
+    END LOOP;
+END;
+$$;
+
+-- d. 切换：单个事务内完成，只做元数据变更；拿不到锁时整体回滚
+DO $$
+DECLARE
+    v_function REGPROCEDURE;
+BEGIN
+    PERFORM set_config('lock_timeout', '5s', true);
+    LOCK TABLE submitter_nonce_allocation IN ACCESS EXCLUSIVE MODE;
+
+    -- 返回类型依赖旧表行类型的 nonce_allocate（所有签名）
+    FOR v_function IN SELECT p.oid::REGPROCEDURE FROM pg_proc p WHERE p.proname = 'nonce_allocate' LOOP
+        EXECUTE format('DROP FUNCTION %s', v_function);
+    END LOOP;
+    -- 保留 id 序列，分区表继续使用
+    ALTER SEQUENCE submitter_nonce_allocation_id_seq OWNED BY NONE;
+    DROP TABLE submitter_nonce_allocation;
+    DROP FUNCTION nonce_allocation_partition_sync();
+
+    ALTER TABLE submitter_nonce_allocation_part RENAME TO submitter_nonce_allocation;
+    ALTER TABLE submitter_nonce_allocation RENAME CONSTRAINT uk_submitter_nonce_part TO uk_submitter_nonce;
+    ALTER INDEX idx_allocation_submitter_status_nonce_part RENAME TO idx_allocation_submitter_status_nonce;
+    ALTER INDEX idx_allocation_reserved_locked_until_part RENAME TO idx_allocation_reserved_locked_until;
+    ALTER SEQUENCE submitter_nonce_allocation_id_seq OWNED BY submitter_nonce_allocation.id;
+END;
+$$;
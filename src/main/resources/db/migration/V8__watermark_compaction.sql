@@ -0,0 +1,12 @@
+-- 水位压缩：nonce <= last_chain_nonce 的连续已结算前缀只由状态行上的水位表示，分配表只保留活跃窗口
+-- （水位之上的 RESERVED / RECYCLABLE / 尚未确认的 USED）。compacted_nonce 记录已删除到的位置，
+-- 后台压缩把 (compacted_nonce, last_chain_nonce] 区间内的分配记录分批删除；
+-- nonce_allocate 的新号不低于 last_chain_nonce + 1，空洞只在水位之上选取（见 R__nonce_allocate.sql）
+
+ALTER TABLE submitter_nonce_state
+    ADD COLUMN IF NOT EXISTS compacted_nonce BIGINT NOT NULL DEFAULT -1;
+
+-- 只有水位推进后尚未压缩的状态行进入索引，压缩任务不必扫描全表
+CREATE INDEX IF NOT EXISTS idx_state_pending_compaction
+    ON submitter_nonce_state (submitter)
+    WHERE compacted_nonce < last_chain_nonce;
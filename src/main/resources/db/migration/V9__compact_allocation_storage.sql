@@ -0,0 +1,87 @@
+-- 紧凑存储（扩展阶段）：status 由 VARCHAR 改为 smallint 的 status_code（1 = RESERVED，2 = USED，3 = RECYCLABLE），
+-- 锁持有者由 "主机名-线程号-UUID" 字符串改为 (owner_node, owner_seq)，owner_node 来自节点注册表 nonce_node。
+--
+-- 在线迁移分三步，任一时刻升级前后的节点都可同时读写：
+--   V9（本脚本，扩展）：只做元数据级变更——节点注册表、新增列、双向同步触发器、新签名的 nonce_allocate（定义见 R__nonce_allocate.sql）
+--   V10（回填）：非事务执行，分批回填存量行的 status_code，并逐个分区 CONCURRENTLY 建部分索引
+--   收缩（后续版本，确认所有节点均已升级后再执行）：
+--     DROP TRIGGER trg_allocation_sync_compact / trg_allocation_archive_sync_compact 及其函数；
+--     DROP FUNCTION nonce_allocate(VARCHAR, VARCHAR, TIMESTAMPTZ, TIMESTAMPTZ, TIMESTAMPTZ, BOOLEAN)；
+--     DROP INDEX idx_allocation_submitter_status_nonce, idx_allocation_reserved_locked_until；
+--     两张表 DROP COLUMN status, lock_owner，并将 status_code 设为 NOT NULL
+
+-- 节点注册表：node_id 从 1 开始，0 保留给 Redis 分配引擎落库的预留记录
+CREATE TABLE IF NOT EXISTS nonce_node (
+    node_id       INTEGER      GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    node_name     VARCHAR(128) NOT NULL,
+    incarnation   BIGINT       NOT NULL DEFAULT 1,
+    registered_at TIMESTAMPTZ  NOT NULL,
+    updated_at    TIMESTAMPTZ  NOT NULL,
+    CONSTRAINT uk_nonce_node_name UNIQUE (node_name)
+);
+
+-- 新增列均无默认值（归档表除外），只修改系统表，不重写数据
+ALTER TABLE submitter_nonce_allocation
+    ADD COLUMN IF NOT EXISTS status_code SMALLINT,
+    ADD COLUMN IF NOT EXISTS owner_node  INTEGER,
+    ADD COLUMN IF NOT EXISTS owner_seq   BIGINT;
+
+-- 归档表只有 USED 记录且只允许追加：以常量默认值一次性补齐存量行（PG 11+ 不重写数据），随后去掉默认值
+ALTER TABLE submitter_nonce_allocation_archive
+    ADD COLUMN IF NOT EXISTS status_code SMALLINT DEFAULT 2,
+    ADD COLUMN IF NOT EXISTS owner_node  INTEGER,
+    ADD COLUMN IF NOT EXISTS owner_seq   BIGINT;
+ALTER TABLE submitter_nonce_allocation_archive ALTER COLUMN status_code DROP DEFAULT;
+
+CREATE OR REPLACE FUNCTION nonce_status_code(p_status VARCHAR) RETURNS SMALLINT
+LANGUAGE sql IMMUTABLE AS $$
+    SELECT (CASE p_status WHEN 'RESERVED' THEN 1 WHEN 'USED' THEN 2 WHEN 'RECYCLABLE' THEN 3 END)::SMALLINT
+$$;
+
+CREATE OR REPLACE FUNCTION nonce_status_name(p_code SMALLINT) RETURNS VARCHAR
+LANGUAGE sql IMMUTABLE AS $$
+    SELECT CASE p_code WHEN 1 THEN 'RESERVED' WHEN 2 THEN 'USED' WHEN 3 THEN 'RECYCLABLE' END
+$$;
+
+-- 过渡期双向同步：旧节点只写 status / lock_owner，新节点只写 status_code / (owner_node, owner_seq)，
+-- 以本次语句实际修改的一侧为准推导另一侧；旧格式的 lock_owner 无法还原为 (node, seq)，新列置空
+CREATE OR REPLACE FUNCTION nonce_allocation_sync_compact() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        IF NEW.status_code IS NULL THEN
+            NEW.status_code := nonce_status_code(NEW.status);
+        ELSIF NEW.status IS NULL THEN
+            NEW.status := nonce_status_name(NEW.status_code);
+        END IF;
+        IF NEW.owner_node IS NOT NULL AND NEW.lock_owner IS NULL THEN
+            NEW.lock_owner := NEW.owner_node || ':' || NEW.owner_seq;
+        END IF;
+        RETURN NEW;
+    END IF;
+
+    IF NEW.status IS DISTINCT FROM OLD.status AND NEW.status_code IS NOT DISTINCT FROM OLD.status_code THEN
+        NEW.status_code := nonce_status_code(NEW.status);
+    ELSIF NEW.status_code IS DISTINCT FROM OLD.status_code THEN
+        NEW.status := nonce_status_name(NEW.status_code);
+    END IF;
+
+    IF NEW.lock_owner IS DISTINCT FROM OLD.lock_owner
+       AND NEW.owner_node IS NOT DISTINCT FROM OLD.owner_node
+       AND NEW.owner_seq IS NOT DISTINCT FROM OLD.owner_seq THEN
+        NEW.owner_node := NULL;
+        NEW.owner_seq := NULL;
+    ELSIF NEW.owner_node IS DISTINCT FROM OLD.owner_node OR NEW.owner_seq IS DISTINCT FROM OLD.owner_seq THEN
+        NEW.lock_owner := CASE WHEN NEW.owner_node IS NULL THEN NULL ELSE NEW.owner_node || ':' || NEW.owner_seq END;
+    END IF;
+    RETURN NEW;
+END;
+$$;
+
+CREATE TRIGGER trg_allocation_sync_compact
+    BEFORE INSERT OR UPDATE ON submitter_nonce_allocation
+    FOR EACH ROW EXECUTE FUNCTION nonce_allocation_sync_compact();
+
+CREATE TRIGGER trg_allocation_archive_sync_compact
+    BEFORE INSERT ON submitter_nonce_allocation_archive
+    FOR EACH ROW EXECUTE FUNCTION nonce_allocation_sync_compact();
@@ -0,0 +1,71 @@
+package com.work.nonce.core.archive;
+
+import com.work.nonce.core.config.NonceArchiverConfig;
+import com.work.nonce.core.config.NonceConfig;
+import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.model.NonceAllocationStatus;
+import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.service.NonceService;
+import com.work.nonce.core.support.PostgresTestSupport;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 后台归档在真实数据库上的行为。库中可能残留其他用例已结算的记录，断言只针对本用例的 submitter。
+ */
+class NonceAllocationArchiverTest extends PostgresTestSupport {
+
+    @Test
+    void movesOnlySettledUsedAllocationsToArchive() {
+        NonceRepository repository = statementRepository();
+        NonceService service = service(repository, NonceConfig.builder().redisEnabled(false).build());
+        // 每批 1 条，积压时需要多批才能归档完
+        NonceAllocationArchiver archiver = new NonceAllocationArchiver(service,
+                new NonceArchiverConfig(true, Duration.ofHours(1), 1, 2, 100));
+        String submitter = newSubmitter("archive");
+        try {
+            for (int i = 0; i < 4; i++) {
+                inTransaction(() -> service.allocate(submitter));
+            }
+            for (long nonce = 0; nonce < 3; nonce++) {
+                long used = nonce;
+                inTransaction(() -> {
+                    service.markUsed(submitter, used, txHash(submitter, used));
+                    return null;
+                });
+            }
+            // 链上只结算到 1：2 虽为 USED 但尚未结算，3 仍为 RESERVED
+            inTransaction(() -> service.advanceChainWatermark(submitter, 1));
+
+            assertTrue(archiver.runOnce() >= 2);
+
+            assertEquals(2, jdbcTemplate.queryForList("SELECT nonce FROM submitter_nonce_allocation_archive "
+                    + "WHERE submitter = ? ORDER BY nonce", Long.class, submitter).size());
+            List<Long> active = jdbcTemplate.queryForList("SELECT nonce FROM submitter_nonce_allocation "
+                    + "WHERE submitter = ? ORDER BY nonce", Long.class, submitter);
+            assertEquals(2, active.size());
+            assertEquals(Long.valueOf(2), active.get(0));
+
+            // 归档后仍可按 (submitter, nonce) 与 txHash 回查，markUsed 重放保持幂等
+            NonceAllocation archived = repository.findAllocation(submitter, 0).orElseThrow(AssertionError::new);
+            assertEquals(NonceAllocationStatus.USED, archived.getStatus());
+            assertEquals(1, repository.findAllocationByTxHash(txHash(submitter, 1)).orElseThrow(AssertionError::new)
+                    .getNonce());
+            inTransaction(() -> {
+                service.markUsed(submitter, 0, txHash(submitter, 0));
+                return null;
+            });
+        } finally {
+            archiver.shutdown();
+        }
+    }
+
+    private static String txHash(String submitter, long nonce) {
+        return "0x" + submitter + "-" + nonce;
+    }
+}
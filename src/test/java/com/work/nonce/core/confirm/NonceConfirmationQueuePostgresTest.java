@@ -0,0 +1,57 @@
+package com.work.nonce.core.confirm;
+
+import com.work.nonce.core.config.NonceConfig;
+import com.work.nonce.core.config.NonceConfirmationConfig;
+import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.model.NonceAllocationStatus;
+import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.service.NonceService;
+import com.work.nonce.core.support.PostgresTestSupport;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 异步确认在真实数据库上的行为：txHash 同步写入、批量语句只转换仍为 RESERVED 的记录。
+ */
+class NonceConfirmationQueuePostgresTest extends PostgresTestSupport {
+
+    @Test
+    void batchCommitTransitionsOnlyReservedAllocations() {
+        NonceRepository repository = statementRepository();
+        NonceService service = service(repository, NonceConfig.builder().redisEnabled(false).build());
+        NonceConfirmationQueue queue = new NonceConfirmationQueue(service,
+                new NonceConfirmationConfig(true, Duration.ofHours(1), 10, 10));
+        String submitter = newSubmitter("confirm");
+        try {
+            for (int i = 0; i < 3; i++) {
+                inTransaction(() -> service.allocate(submitter));
+            }
+
+            queue.markUsed(submitter, 0, "0xa");
+            // 刷盘前：txHash 已落库，记录仍为 RESERVED
+            NonceAllocation attached = repository.findAllocation(submitter, 0).orElseThrow(AssertionError::new);
+            assertEquals(NonceAllocationStatus.RESERVED, attached.getStatus());
+            assertEquals("0xa", attached.getTxHash());
+
+            queue.markRecyclable(submitter, 1, "broadcast failed");
+            service.markUsed(submitter, 2, "0xc");
+            queue.markRecyclable(submitter, 2, "stale");
+            queue.flush();
+
+            assertEquals(2, queue.getAppliedCount());
+            assertEquals(1, queue.getSkippedCount());
+            assertEquals(NonceAllocationStatus.USED, status(repository, submitter, 0));
+            assertEquals(NonceAllocationStatus.RECYCLABLE, status(repository, submitter, 1));
+            assertEquals(NonceAllocationStatus.USED, status(repository, submitter, 2));
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    private static NonceAllocationStatus status(NonceRepository repository, String submitter, long nonce) {
+        return repository.findAllocation(submitter, nonce).orElseThrow(AssertionError::new).getStatus();
+    }
+}
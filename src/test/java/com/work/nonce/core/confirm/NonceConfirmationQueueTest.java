@@ -0,0 +1,141 @@
+package com.work.nonce.core.confirm;
+
+import com.work.nonce.core.config.NonceConfirmationConfig;
+import com.work.nonce.core.model.NonceAllocationStatus;
+import com.work.nonce.core.model.NonceStatusUpdate;
+import com.work.nonce.core.service.NonceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NonceConfirmationQueueTest {
+
+    private static final String SUBMITTER = "submitter";
+    // 周期刷盘间隔足够长，用例中只由显式 flush 或积压满一批触发刷盘
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final NonceService nonceService = mock(NonceService.class);
+    private NonceConfirmationQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    void usedIsAttachedSynchronouslyThenCommittedInOneBatch() {
+        queue = new NonceConfirmationQueue(nonceService, new NonceConfirmationConfig(true, NEVER, 10, 10));
+        when(nonceService.attachTxHash(anyString(), anyLong(), anyString())).thenReturn(true);
+        // 刷盘后批次列表会被复用，需在调用时复制；3 条中 1 条已不是 RESERVED，计入 skipped
+        List<NonceStatusUpdate> flushed = new ArrayList<>();
+        when(nonceService.applyStatusUpdates(anyList())).thenAnswer(invocation -> {
+            flushed.addAll(invocation.getArgument(0));
+            return 2;
+        });
+
+        queue.markUsed(SUBMITTER, 1, "0x1");
+        queue.markUsed(SUBMITTER, 2, "0x2");
+        queue.markRecyclable(SUBMITTER, 3, "broadcast failed");
+        verify(nonceService, never()).applyStatusUpdates(anyList());
+        assertEquals(3, queue.getQueueDepth());
+
+        queue.flush();
+
+        verify(nonceService).applyStatusUpdates(anyList());
+        assertEquals(3, flushed.size());
+        assertEquals(NonceAllocationStatus.USED, flushed.get(0).getTargetStatus());
+        assertEquals(NonceAllocationStatus.RECYCLABLE, flushed.get(2).getTargetStatus());
+        verify(nonceService).attachTxHash(SUBMITTER, 1, "0x1");
+        verify(nonceService, never()).markUsed(anyString(), anyLong(), anyString());
+        assertEquals(2, queue.getAppliedCount());
+        assertEquals(1, queue.getSkippedCount());
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    void usedFallsBackToSynchronousWhenTxHashCannotBeAttached() {
+        queue = new NonceConfirmationQueue(nonceService, new NonceConfirmationConfig(true, NEVER, 10, 10));
+        when(nonceService.attachTxHash(SUBMITTER, 1, "0x1")).thenReturn(false);
+
+        queue.markUsed(SUBMITTER, 1, "0x1");
+
+        verify(nonceService).markUsed(SUBMITTER, 1, "0x1");
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    void fullQueueAppliesSynchronously() throws InterruptedException {
+        queue = new NonceConfirmationQueue(nonceService, new NonceConfirmationConfig(true, NEVER, 2, 2));
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(nonceService.applyStatusUpdates(anyList())).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return ((List<?>) invocation.getArgument(0)).size();
+        });
+
+        // 积压满一批触发刷盘，刷盘线程取走 0、1 后阻塞
+        queue.markRecyclable(SUBMITTER, 0, "r");
+        queue.markRecyclable(SUBMITTER, 1, "r");
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        // 2、3 填满队列，4 只能同步落库
+        queue.markRecyclable(SUBMITTER, 2, "r");
+        queue.markRecyclable(SUBMITTER, 3, "r");
+        queue.markRecyclable(SUBMITTER, 4, "r");
+
+        verify(nonceService).markRecyclable(SUBMITTER, 4, "r");
+        verify(nonceService, never()).markRecyclable(SUBMITTER, 2, "r");
+        assertEquals(1, queue.getSyncFallbackCount());
+        release.countDown();
+    }
+
+    @Test
+    void failedBatchIsRetriedPerUpdate() {
+        queue = new NonceConfirmationQueue(nonceService, new NonceConfirmationConfig(true, NEVER, 10, 10));
+        when(nonceService.applyStatusUpdates(anyList())).thenThrow(new IllegalStateException("batch failed"));
+        doThrow(new IllegalStateException("bad row")).when(nonceService).markRecyclable(SUBMITTER, 2, "r");
+
+        queue.markRecyclable(SUBMITTER, 1, "r");
+        queue.markRecyclable(SUBMITTER, 2, "r");
+        queue.markRecyclable(SUBMITTER, 3, "r");
+        queue.flush();
+
+        verify(nonceService).markRecyclable(SUBMITTER, 1, "r");
+        verify(nonceService).markRecyclable(SUBMITTER, 3, "r");
+        assertEquals(2, queue.getAppliedCount());
+        assertEquals(1, queue.getFailedCount());
+    }
+
+    @Test
+    void shutdownFlushesPendingAndLaterUpdatesApplySynchronously() {
+        queue = new NonceConfirmationQueue(nonceService, new NonceConfirmationConfig(true, NEVER, 10, 10));
+        when(nonceService.applyStatusUpdates(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        queue.markRecyclable(SUBMITTER, 1, "r");
+        queue.shutdown();
+        verify(nonceService).applyStatusUpdates(anyList());
+        assertEquals(0, queue.getQueueDepth());
+
+        queue.markRecyclable(SUBMITTER, 2, "r");
+        verify(nonceService).markRecyclable(SUBMITTER, 2, "r");
+        assertEquals(1, queue.getSyncFallbackCount());
+    }
+}
@@ -0,0 +1,43 @@
+package com.work.nonce.core.engine;
+
+import com.work.nonce.core.config.NonceConfig;
+import com.work.nonce.core.model.NonceAllocationStatus;
+import com.work.nonce.core.model.NonceStatusUpdate;
+import com.work.nonce.core.model.SubmitterNonceState;
+import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.service.NonceService;
+import com.work.nonce.core.support.PostgresTestSupport;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Redis 引擎事件落库在真实数据库上的幂等性：崩溃后重放 inflight 中已落库的事件不会改写已确认的记录。
+ */
+class RedisNoncePersisterPostgresTest extends PostgresTestSupport {
+
+    @Test
+    void replayingPersistedEventsIsIdempotent() {
+        NonceRepository repository = statementRepository();
+        NonceService service = service(repository, NonceConfig.builder().redisEnabled(false).build());
+        String submitter = newSubmitter("engine");
+
+        assertEquals(3, (int) inTransaction(() -> service.persistEngineReservations(submitter, Arrays.asList(0L, 1L, 2L))));
+        assertEquals(1, (int) inTransaction(() -> service.persistEngineStatusUpdates(
+                Collections.singletonList(NonceStatusUpdate.used(submitter, 1, "0x1")))));
+
+        // 重放同一批事件：预留不覆盖 USED，状态转换只作用于 RESERVED
+        inTransaction(() -> service.persistEngineReservations(submitter, Arrays.asList(0L, 1L, 2L)));
+        assertEquals(0, (int) inTransaction(() -> service.persistEngineStatusUpdates(
+                Collections.singletonList(NonceStatusUpdate.used(submitter, 1, "0xother")))));
+
+        assertEquals(NonceAllocationStatus.RESERVED, repository.findAllocation(submitter, 0).orElseThrow(AssertionError::new).getStatus());
+        assertEquals("0x1", repository.findAllocation(submitter, 1).orElseThrow(AssertionError::new).getTxHash());
+        SubmitterNonceState state = repository.loadState(submitter).orElseThrow(AssertionError::new);
+        assertEquals(3, state.getNextLocalNonce());
+        assertEquals(0, state.getRecyclableCount());
+    }
+}
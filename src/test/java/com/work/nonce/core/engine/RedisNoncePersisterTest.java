@@ -0,0 +1,155 @@
+package com.work.nonce.core.engine;
+
+import com.work.nonce.core.config.NonceRedisEngineConfig;
+import com.work.nonce.core.model.NonceAllocationStatus;
+import com.work.nonce.core.model.NonceStatusUpdate;
+import com.work.nonce.core.service.NonceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Redis 引擎落库线程的调度语义：租约、inflight 重放、按类型切分批次与确认。
+ * 引擎本身以 mock 代替，Lua 脚本需要真实的 Redis，不在此覆盖。
+ */
+class RedisNoncePersisterTest {
+
+    private static final int PARTITION = 0;
+
+    private final NonceService nonceService = mock(NonceService.class);
+    private final RedisNonceEngine engine = mock(RedisNonceEngine.class);
+    private final List<List<NonceStatusUpdate>> persistedUpdates = new ArrayList<>();
+    private RedisNoncePersister persister;
+
+    @BeforeEach
+    void setUp() {
+        // 周期落库间隔足够长，用例中只由 runOnce 触发
+        NonceRedisEngineConfig config = new NonceRedisEngineConfig(true, Collections.singletonList("a"),
+                Duration.ofSeconds(30), Duration.ofHours(1), 100, 1, 100);
+        persister = new RedisNoncePersister(nonceService, engine, config);
+        when(engine.tryAcquirePartition(eq(PARTITION), any())).thenReturn(true);
+        when(engine.loadInflight(PARTITION)).thenReturn(Collections.emptyList());
+        when(engine.ackInflight(eq(PARTITION), any())).thenReturn(true);
+        // 调用方会复用批次列表，调用时复制
+        when(nonceService.persistEngineStatusUpdates(anyList())).thenAnswer(invocation -> {
+            List<NonceStatusUpdate> updates = invocation.getArgument(0);
+            persistedUpdates.add(new ArrayList<>(updates));
+            return updates.size();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        persister.shutdown();
+    }
+
+    @Test
+    void persistsRunsOfSameTypeInWriteOrder() {
+        when(engine.drain(eq(PARTITION), anyInt(), any()))
+                .thenReturn(events("R|1|a|0", "R|2|a|0", "R|5|b|0", "U|1|a|0x1", "C|2|a|timeout", "R|3|a|0"))
+                .thenReturn(Collections.emptyList());
+
+        persister.runOnce();
+
+        InOrder order = inOrder(nonceService, engine);
+        order.verify(nonceService).persistEngineReservations("a", Arrays.asList(1L, 2L));
+        order.verify(nonceService).persistEngineReservations("b", Collections.singletonList(5L));
+        order.verify(nonceService).persistEngineStatusUpdates(anyList());
+        order.verify(nonceService).persistEngineReservations("a", Collections.singletonList(3L));
+        order.verify(engine).ackInflight(eq(PARTITION), any());
+        order.verify(engine).releasePartition(PARTITION);
+
+        List<NonceStatusUpdate> updates = persistedUpdates.get(0);
+        assertEquals(2, updates.size());
+        assertEquals(NonceAllocationStatus.USED, updates.get(0).getTargetStatus());
+        assertEquals("0x1", updates.get(0).getTxHash());
+        assertEquals(NonceAllocationStatus.RECYCLABLE, updates.get(1).getTargetStatus());
+        assertEquals("timeout", updates.get(1).getReason());
+    }
+
+    @Test
+    void replaysInflightBeforeDrainingNewEvents() {
+        when(engine.loadInflight(PARTITION)).thenReturn(events("R|7|a|0"));
+        when(engine.drain(eq(PARTITION), anyInt(), any()))
+                .thenReturn(events("R|8|a|0"))
+                .thenReturn(Collections.emptyList());
+
+        persister.runOnce();
+
+        InOrder order = inOrder(nonceService);
+        order.verify(nonceService).persistEngineReservations("a", Collections.singletonList(7L));
+        order.verify(nonceService).persistEngineReservations("a", Collections.singletonList(8L));
+    }
+
+    @Test
+    void failedBatchIsLeftInflightForRetry() {
+        when(engine.drain(eq(PARTITION), anyInt(), any())).thenReturn(events("R|1|a|0"));
+        when(nonceService.persistEngineReservations(anyString(), anyList())).thenThrow(new IllegalStateException("db down"));
+
+        persister.runOnce();
+
+        verify(engine, never()).ackInflight(anyInt(), any());
+        verify(engine).releasePartition(PARTITION);
+        assertEquals(1, persister.getFailedBatches());
+    }
+
+    @Test
+    void lostLeaseStopsPartition() {
+        when(engine.drain(eq(PARTITION), anyInt(), any())).thenReturn(events("R|1|a|0"));
+        when(engine.ackInflight(eq(PARTITION), any())).thenReturn(false);
+
+        persister.runOnce();
+
+        // 确认时发现租约已被其他节点取得：不再继续取事件
+        verify(engine).drain(eq(PARTITION), anyInt(), any());
+        assertEquals(1, persister.getLostLeases());
+    }
+
+    @Test
+    void partitionHeldByAnotherNodeIsSkipped() {
+        when(engine.tryAcquirePartition(eq(PARTITION), any())).thenReturn(false);
+
+        persister.runOnce();
+
+        verify(engine, never()).loadInflight(anyInt());
+        verify(engine, never()).drain(anyInt(), anyInt(), any());
+        verify(engine, never()).releasePartition(anyInt());
+    }
+
+    @Test
+    void payloadMayContainSeparator() {
+        EngineEvent event = EngineEvent.parse("C|9|a|reason|with|bars");
+
+        assertEquals(EngineEvent.RECYCLABLE, event.getType());
+        assertEquals(9, event.getNonce());
+        assertEquals("a", event.getSubmitter());
+        assertEquals("reason|with|bars", event.getPayload());
+    }
+
+    private static List<EngineEvent> events(String... encoded) {
+        List<EngineEvent> events = new ArrayList<>(encoded.length);
+        for (String item : encoded) {
+            events.add(EngineEvent.parse(item));
+        }
+        return events;
+    }
+}
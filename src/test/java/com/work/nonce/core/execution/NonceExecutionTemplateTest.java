@@ -0,0 +1,84 @@
+package com.work.nonce.core.execution;
+
+import com.work.nonce.core.exception.NonceException;
+import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.service.NonceService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NonceExecutionTemplateTest {
+
+    private static final String SUBMITTER = "submitter";
+
+    private final NonceService nonceService = mock(NonceService.class);
+    private final NonceExecutionTemplate template = NonceExecutionTemplate.builder(nonceService).build();
+
+    @Test
+    void batchStopsAtRetryableFailureAndRecyclesTheRest() {
+        when(nonceService.allocateBatch(SUBMITTER, 4)).thenReturn(allocations(10, 11, 12, 13));
+        List<Long> handled = new ArrayList<>();
+
+        List<NonceExecutionResult> results = template.executeBatch(SUBMITTER, 4, ctx -> {
+            handled.add(ctx.getNonce());
+            return ctx.getNonce() == 10
+                    ? NonceExecutionResult.success("0x10")
+                    : NonceExecutionResult.retryableFailure("rpc timeout");
+        });
+
+        assertEquals(Arrays.asList(10L, 11L), handled);
+        assertEquals(2, results.size());
+        assertEquals(NonceExecutionResult.Outcome.RETRYABLE_FAILURE, results.get(1).getOutcome());
+        verify(nonceService).markUsed(SUBMITTER, 10, "0x10");
+        // 11 保持 RESERVED 等待重试，12、13 未使用直接回收
+        verify(nonceService, never()).markRecyclable(eq(SUBMITTER), eq(11L), anyString());
+        verify(nonceService).markRecyclable(eq(SUBMITTER), eq(12L), anyString());
+        verify(nonceService).markRecyclable(eq(SUBMITTER), eq(13L), anyString());
+    }
+
+    @Test
+    void batchRunsEveryNonceWhenNoneNeedsRetry() {
+        when(nonceService.allocateBatch(SUBMITTER, 3)).thenReturn(allocations(0, 1, 2));
+
+        List<NonceExecutionResult> results = template.executeBatch(SUBMITTER, 3,
+                ctx -> NonceExecutionResult.success("0x" + ctx.getNonce()));
+
+        assertEquals(3, results.size());
+        verify(nonceService).markUsed(SUBMITTER, 2, "0x2");
+        verify(nonceService, never()).markRecyclable(anyString(), anyLong(), anyString());
+    }
+
+    @Test
+    void allocationFailureIsNotReportedAsHandlerFailure() {
+        IllegalStateException cause = new IllegalStateException("db down");
+        when(nonceService.allocate(SUBMITTER)).thenThrow(cause);
+
+        NonceException ex = assertThrows(NonceException.class,
+                () -> template.execute(SUBMITTER, ctx -> NonceExecutionResult.success("0x0")));
+
+        assertEquals("nonce 分配失败: " + SUBMITTER, ex.getMessage());
+        assertSame(cause, ex.getCause());
+    }
+
+    private static List<NonceAllocation> allocations(long... nonces) {
+        List<NonceAllocation> allocations = new ArrayList<>(nonces.length);
+        for (long nonce : nonces) {
+            allocations.add(NonceAllocation.pending(SUBMITTER, nonce, "owner", Instant.now().plusSeconds(10)));
+        }
+        return allocations;
+    }
+}
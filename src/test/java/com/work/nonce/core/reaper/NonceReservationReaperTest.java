@@ -0,0 +1,114 @@
+package com.work.nonce.core.reaper;
+
+import com.work.nonce.core.config.NonceConfig;
+import com.work.nonce.core.config.NonceReaperConfig;
+import com.work.nonce.core.model.NonceAllocationStatus;
+import com.work.nonce.core.model.SubmitterNonceState;
+import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.service.NonceService;
+import com.work.nonce.core.support.PostgresTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 后台回收在真实数据库上的行为。库中可能残留其他用例过期的预留，断言只针对本用例的 submitter。
+ */
+class NonceReservationReaperTest extends PostgresTestSupport {
+
+    // 预留立即过期，且分配路径不做回收，过期记录只能由后台回收处理
+    private static final NonceConfig CONFIG = NonceConfig.builder()
+            .redisEnabled(false)
+            .lockTtl(Duration.ofMillis(1))
+            .reservedTimeout(Duration.ofMillis(1))
+            .inlineRecycleEnabled(false)
+            .build();
+
+    private NonceRepository repository;
+    private NonceService service;
+    private NonceReservationReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        repository = statementRepository();
+        service = service(repository, CONFIG);
+        // 每批 2 条、2 个分区，积压时需要多批才能回收完
+        reaper = new NonceReservationReaper(service, new NonceReaperConfig(true, Duration.ofHours(1), 2, 2, 100));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reaper.shutdown();
+    }
+
+    @Test
+    void reapsExpiredReservationsButKeepsBroadcastOnes() throws InterruptedException {
+        String submitter = newSubmitter("reaper");
+        for (int i = 0; i < 5; i++) {
+            inTransaction(() -> service.allocate(submitter));
+        }
+        inTransaction(() -> service.attachTxHash(submitter, 4, "0xbroadcast"));
+        Thread.sleep(50);
+
+        int reaped = reaper.runOnce();
+
+        assertTrue(reaped >= 4, "reaped=" + reaped);
+        assertTrue(reaper.getBatchCount() > 2, "积压超过一批时应继续下一批");
+        for (long nonce = 0; nonce < 4; nonce++) {
+            assertEquals(NonceAllocationStatus.RECYCLABLE, status(submitter, nonce));
+        }
+        assertEquals(NonceAllocationStatus.RESERVED, status(submitter, 4));
+        SubmitterNonceState state = repository.loadState(submitter).orElseThrow(AssertionError::new);
+        assertEquals(4, state.getRecyclableCount());
+        assertEquals(Long.valueOf(0), state.getMinRecyclableNonce());
+        // 回收的空洞按从小到大复用
+        assertEquals(0, inTransaction(() -> service.allocate(submitter)).getNonce());
+    }
+
+    @Test
+    void skipsRowsLockedByAnotherTransaction() throws InterruptedException {
+        String submitter = newSubmitter("reaper");
+        inTransaction(() -> service.allocate(submitter));
+        Thread.sleep(50);
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> inTransaction(() -> {
+            jdbcTemplate.queryForList("SELECT nonce FROM submitter_nonce_allocation "
+                    + "WHERE submitter = ? AND nonce = 0 FOR UPDATE", submitter);
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        try {
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+            // 被锁定的行直接跳过，不等待持有者
+            long start = System.nanoTime();
+            reaper.runOnce();
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+            assertEquals(NonceAllocationStatus.RESERVED, status(submitter, 0));
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        reaper.runOnce();
+        assertEquals(NonceAllocationStatus.RECYCLABLE, status(submitter, 0));
+    }
+
+    private NonceAllocationStatus status(String submitter, long nonce) {
+        return repository.findAllocation(submitter, nonce).orElseThrow(AssertionError::new).getStatus();
+    }
+}
@@ -0,0 +1,105 @@
+package com.work.nonce.core.reconcile;
+
+import com.work.nonce.core.config.NonceConfig;
+import com.work.nonce.core.config.NonceReconcilerConfig;
+import com.work.nonce.core.model.NonceAllocationStatus;
+import com.work.nonce.core.model.SubmitterNonceState;
+import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.service.NonceService;
+import com.work.nonce.core.support.PostgresTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 链上对账在真实数据库上的行为。库中其他用例的 submitter 一律返回 -1（链上未知），不会被推进，
+ * 因此计数器只反映本用例的 submitter。
+ */
+class NonceChainReconcilerTest extends PostgresTestSupport {
+
+    private final Map<String, Long> chainNonces = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> failing = new ConcurrentHashMap<>();
+    private NonceRepository repository;
+    private NonceService service;
+    private NonceChainReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        repository = statementRepository();
+        service = service(repository, NonceConfig.builder().redisEnabled(false).build());
+        ChainNonceSource source = submitter -> {
+            if (failing.containsKey(submitter)) {
+                throw new IllegalStateException("rpc unavailable");
+            }
+            return chainNonces.getOrDefault(submitter, -1L);
+        };
+        // 每页 2 个 submitter、每次查询 1 个，遍历需要跨页、跨查询批次
+        reconciler = new NonceChainReconciler(service, source,
+                new NonceReconcilerConfig(true, Duration.ofHours(1), 2, 1, 2, Duration.ofSeconds(10)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciler.shutdown();
+    }
+
+    @Test
+    void advancesWatermarkAndSettlesAllocationsBelowIt() {
+        String submitter = newSubmitter("reconcile");
+        for (int i = 0; i < 5; i++) {
+            inTransaction(() -> service.allocate(submitter));
+        }
+        inTransaction(() -> {
+            service.markRecyclable(submitter, 1, "broadcast failed");
+            return null;
+        });
+        chainNonces.put(submitter, 2L);
+
+        assertEquals(1, reconciler.runOnce());
+
+        // 水位以下：RESERVED 确认为 USED，RECYCLABLE 空洞已被链上消耗、作废为 USED
+        assertEquals(2, reconciler.getConfirmedCount());
+        assertEquals(1, reconciler.getVoidedCount());
+        for (long nonce = 0; nonce <= 2; nonce++) {
+            assertEquals(NonceAllocationStatus.USED, status(submitter, nonce));
+        }
+        assertEquals(NonceAllocationStatus.RESERVED, status(submitter, 3));
+        SubmitterNonceState state = repository.loadState(submitter).orElseThrow(AssertionError::new);
+        assertEquals(2, state.getLastChainNonce());
+        assertEquals(0, state.getRecyclableCount());
+        assertNull(state.getMinRecyclableNonce());
+        // 作废的空洞不会再被分配
+        assertEquals(5, inTransaction(() -> service.allocate(submitter)).getNonce());
+
+        // 链上 nonce 未变化：水位只进不退，再次对账不做任何事
+        assertEquals(0, reconciler.runOnce());
+        assertEquals(2, reconciler.getConfirmedCount());
+    }
+
+    @Test
+    void failedQueryLeavesSubmitterForNextRun() {
+        String submitter = newSubmitter("reconcile");
+        inTransaction(() -> service.allocate(submitter));
+        chainNonces.put(submitter, 0L);
+        failing.put(submitter, Boolean.TRUE);
+
+        assertEquals(0, reconciler.runOnce());
+        assertEquals(1, reconciler.getFailedQueryCount());
+        assertEquals(NonceAllocationStatus.RESERVED, status(submitter, 0));
+
+        failing.remove(submitter);
+        assertEquals(1, reconciler.runOnce());
+        assertEquals(NonceAllocationStatus.USED, status(submitter, 0));
+    }
+
+    private NonceAllocationStatus status(String submitter, long nonce) {
+        return repository.findAllocation(submitter, nonce).orElseThrow(AssertionError::new).getStatus();
+    }
+}
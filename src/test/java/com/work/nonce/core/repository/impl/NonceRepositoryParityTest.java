@@ -0,0 +1,140 @@
+package com.work.nonce.core.repository.impl;
+
+import com.work.nonce.core.config.NonceConfig;
+import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.model.NonceAllocationStatus;
+import com.work.nonce.core.model.SubmitterNonceState;
+import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.service.NonceService;
+import com.work.nonce.core.support.PostgresTestSupport;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * statement 实现（{@link PostgresNonceRepository}）与函数实现（{@link PostgresFunctionNonceRepository}）的行为一致性：
+ * 同一组分配 / markUsed / markRecyclable / 超时回收场景在两种实现上必须得到相同的 nonce 与状态。
+ * <p>
+ * 数据库与表结构见 {@link PostgresTestSupport}；每个用例使用独立的 submitter，互不影响。
+ */
+class NonceRepositoryParityTest extends PostgresTestSupport {
+
+    private static final NonceConfig DEFAULT_CONFIG = NonceConfig.builder()
+            .redisEnabled(false)
+            .build();
+
+    // 预留立即过期，用于覆盖分配路径上的超时回收
+    private static final NonceConfig EXPIRING_CONFIG = NonceConfig.builder()
+            .redisEnabled(false)
+            .lockTtl(Duration.ofMillis(1))
+            .reservedTimeout(Duration.ofMillis(1))
+            .build();
+
+    enum Implementation {
+        STATEMENT, FUNCTION
+    }
+
+    @ParameterizedTest
+    @EnumSource(Implementation.class)
+    void allocatesConsecutiveNoncesForNewSubmitter(Implementation implementation) {
+        NonceRepository repository = repository(implementation);
+        NonceService service = service(repository, DEFAULT_CONFIG);
+        String submitter = newSubmitter("parity");
+
+        for (long expected = 0; expected < 3; expected++) {
+            NonceAllocation allocation = inTransaction(() -> service.allocate(submitter));
+            assertEquals(expected, allocation.getNonce());
+            assertEquals(NonceAllocationStatus.RESERVED, allocation.getStatus());
+        }
+        SubmitterNonceState state = repository.loadState(submitter).orElseThrow(AssertionError::new);
+        assertEquals(3, state.getNextLocalNonce());
+        assertEquals(0, state.getRecyclableCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Implementation.class)
+    void markUsedKeepsNonceOutOfCirculation(Implementation implementation) {
+        NonceRepository repository = repository(implementation);
+        NonceService service = service(repository, DEFAULT_CONFIG);
+        String submitter = newSubmitter("parity");
+
+        long nonce = inTransaction(() -> service.allocate(submitter)).getNonce();
+        inTransaction(() -> {
+            service.markUsed(submitter, nonce, "0xparity");
+            return null;
+        });
+
+        NonceAllocation used = repository.findAllocation(submitter, nonce).orElseThrow(AssertionError::new);
+        assertEquals(NonceAllocationStatus.USED, used.getStatus());
+        assertEquals("0xparity", used.getTxHash());
+        assertEquals(nonce + 1, inTransaction(() -> service.allocate(submitter)).getNonce());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Implementation.class)
+    void markRecyclableReusesLowestHoleFirst(Implementation implementation) {
+        NonceRepository repository = repository(implementation);
+        NonceService service = service(repository, DEFAULT_CONFIG);
+        String submitter = newSubmitter("parity");
+
+        for (int i = 0; i < 4; i++) {
+            inTransaction(() -> service.allocate(submitter));
+        }
+        inTransaction(() -> {
+            service.markRecyclable(submitter, 2, "parity");
+            service.markRecyclable(submitter, 1, "parity");
+            return null;
+        });
+        SubmitterNonceState withHoles = repository.loadState(submitter).orElseThrow(AssertionError::new);
+        assertEquals(2, withHoles.getRecyclableCount());
+        assertEquals(Long.valueOf(1), withHoles.getMinRecyclableNonce());
+
+        assertEquals(1, inTransaction(() -> service.allocate(submitter)).getNonce());
+        assertEquals(2, inTransaction(() -> service.allocate(submitter)).getNonce());
+        assertEquals(4, inTransaction(() -> service.allocate(submitter)).getNonce());
+        SubmitterNonceState drained = repository.loadState(submitter).orElseThrow(AssertionError::new);
+        assertEquals(0, drained.getRecyclableCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Implementation.class)
+    void expiredReservationIsRecycledOnAllocate(Implementation implementation) throws InterruptedException {
+        NonceRepository repository = repository(implementation);
+        NonceService service = service(repository, EXPIRING_CONFIG);
+        String submitter = newSubmitter("parity");
+
+        assertEquals(0, inTransaction(() -> service.allocate(submitter)).getNonce());
+        Thread.sleep(50);
+
+        NonceAllocation reused = inTransaction(() -> service.allocate(submitter));
+        assertEquals(0, reused.getNonce());
+        assertEquals(NonceAllocationStatus.RESERVED, reused.getStatus());
+        assertEquals(1, repository.loadState(submitter).orElseThrow(AssertionError::new).getNextLocalNonce());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Implementation.class)
+    void expiredReservationWithTxHashIsNotRecycled(Implementation implementation) throws InterruptedException {
+        NonceRepository repository = repository(implementation);
+        NonceService service = service(repository, EXPIRING_CONFIG);
+        String submitter = newSubmitter("parity");
+
+        long nonce = inTransaction(() -> service.allocate(submitter)).getNonce();
+        inTransaction(() -> service.attachTxHash(submitter, nonce, "0xbroadcast"));
+        Thread.sleep(50);
+
+        assertEquals(nonce + 1, inTransaction(() -> service.allocate(submitter)).getNonce());
+        NonceAllocation broadcast = repository.findAllocation(submitter, nonce).orElseThrow(AssertionError::new);
+        assertEquals(NonceAllocationStatus.RESERVED, broadcast.getStatus());
+        assertEquals("0xbroadcast", broadcast.getTxHash());
+    }
+
+    private NonceRepository repository(Implementation implementation) {
+        return implementation == Implementation.FUNCTION
+                ? new PostgresFunctionNonceRepository(stateMapper, allocationMapper)
+                : new PostgresNonceRepository(stateMapper, allocationMapper);
+    }
+}
@@ -0,0 +1,98 @@
+package com.work.nonce.core.sequencer;
+
+import com.work.nonce.core.config.NonceSequencerConfig;
+import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.service.NonceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NonceAllocationSequencerTest {
+
+    private static final String HOT = "hot-submitter";
+    private static final String COLD = "cold-submitter";
+
+    private final Map<String, AtomicLong> nextNonces = new ConcurrentHashMap<>();
+    private final NonceService nonceService = mock(NonceService.class);
+    private final ExecutorService producers = Executors.newFixedThreadPool(4);
+    private NonceAllocationSequencer sequencer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        producers.shutdownNow();
+        producers.awaitTermination(5, TimeUnit.SECONDS);
+        if (sequencer != null) {
+            sequencer.shutdown();
+        }
+    }
+
+    @Test
+    void submittersSharingOneWorkerTakeTurns() throws Exception {
+        // 每次分配耗时 5ms，模拟一个事务
+        when(nonceService.allocate(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(5);
+            return allocate(invocation.getArgument(0));
+        });
+        when(nonceService.allocateBatch(anyString(), anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(5);
+            List<NonceAllocation> batch = new ArrayList<>();
+            for (int i = 0; i < (int) invocation.getArgument(1); i++) {
+                batch.add(allocate(invocation.getArgument(0)));
+            }
+            return batch;
+        });
+        sequencer = new NonceAllocationSequencer(nonceService,
+                new NonceSequencerConfig(true, 2, 64, 1, Duration.ofSeconds(2)));
+
+        // 4 个生产者持续为 HOT 排队，HOT 的队列始终不空
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder hotServed = new LongAdder();
+        for (int i = 0; i < 4; i++) {
+            producers.execute(() -> {
+                while (running.get() && !Thread.currentThread().isInterrupted()) {
+                    sequencer.allocate(HOT);
+                    hotServed.increment();
+                }
+            });
+        }
+        Thread.sleep(100);
+
+        try {
+            // 唯一的工作线程被 HOT 占用时，COLD 仍需在超时前得到服务
+            for (int i = 0; i < 5; i++) {
+                long start = System.nanoTime();
+                NonceAllocation allocation = sequencer.allocate(COLD);
+                long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                assertEquals(i, allocation.getNonce());
+                assertTrue(waitedMillis < 500, "COLD 等待过久: " + waitedMillis + "ms");
+            }
+        } finally {
+            running.set(false);
+        }
+        assertTrue(hotServed.sum() > 0, "HOT 也应持续得到服务");
+    }
+
+    private NonceAllocation allocate(String submitter) {
+        long nonce = nextNonces.computeIfAbsent(submitter, k -> new AtomicLong()).getAndIncrement();
+        return NonceAllocation.pending(submitter, nonce, "test", Instant.now().plusSeconds(10));
+    }
+}
@@ -0,0 +1,115 @@
+package com.work.nonce.core.service;
+
+import com.work.nonce.core.config.NonceConfig;
+import com.work.nonce.core.lock.RedisLockManager;
+import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.support.PostgresTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * fencing 模式（statement 实现 + 支持 fencing token 的锁）在真实数据库上的行为：
+ * 持有较新 token 时无锁推进 next_local_nonce，token 落后或存在空洞时回退到行锁路径，不会重复发号。
+ */
+class NonceServiceFencingTest extends PostgresTestSupport {
+
+    private final FencingLockManager lockManager = new FencingLockManager();
+    private NonceService service;
+    private String submitter;
+
+    @BeforeEach
+    void setUp() {
+        NonceRepository repository = statementRepository();
+        NonceConfig config = NonceConfig.builder()
+                .redisEnabled(true)
+                .fencingEnabled(true)
+                .build();
+        service = NonceService.builder(repository, lockManager, config).build();
+        submitter = newSubmitter("fencing");
+        // 首次分配状态行尚不存在，走行锁路径初始化
+        lockManager.nextFence = 1;
+        assertEquals(0, allocate());
+    }
+
+    @Test
+    void newerTokenAdvancesNonceAndRecordsFence() {
+        lockManager.nextFence = 5;
+        assertEquals(1, allocate());
+        assertEquals(5, fenceToken());
+
+        lockManager.nextFence = 6;
+        assertEquals(2, allocate());
+        assertEquals(6, fenceToken());
+    }
+
+    @Test
+    void staleTokenFallsBackToRowLockWithoutDuplicates() {
+        lockManager.nextFence = 5;
+        assertEquals(1, allocate());
+
+        // 锁过期后被接管的旧持有者：token 小于库中记录，乐观更新被拒绝
+        lockManager.nextFence = 3;
+        assertEquals(2, allocate());
+        assertEquals(5, fenceToken());
+        assertEquals(3, nextLocalNonce());
+    }
+
+    @Test
+    void holeIsClaimedThroughRowLockPath() {
+        lockManager.nextFence = 5;
+        assertEquals(1, allocate());
+        inTransaction(() -> {
+            service.markRecyclable(submitter, 0, "broadcast failed");
+            return null;
+        });
+
+        lockManager.nextFence = 6;
+        assertEquals(0, allocate());
+        assertEquals(2, allocate());
+    }
+
+    private long allocate() {
+        return inTransaction(() -> service.allocate(submitter)).getNonce();
+    }
+
+    private long fenceToken() {
+        return jdbcTemplate.queryForObject("SELECT fence_token FROM submitter_nonce_state WHERE submitter = ?",
+                Long.class, submitter);
+    }
+
+    private long nextLocalNonce() {
+        return jdbcTemplate.queryForObject("SELECT next_local_nonce FROM submitter_nonce_state WHERE submitter = ?",
+                Long.class, submitter);
+    }
+
+    /**
+     * 总能加锁的锁实现，下一次发放的 fencing token 由用例指定
+     */
+    private static class FencingLockManager implements RedisLockManager {
+
+        private volatile long nextFence;
+
+        @Override
+        public boolean tryLock(String submitter, String lockOwner, Duration ttl) {
+            return true;
+        }
+
+        @Override
+        public void unlock(String submitter, String lockOwner) {
+        }
+
+        @Override
+        public boolean supportsFencing() {
+            return true;
+        }
+
+        @Override
+        public Long tryLockWithFence(String submitter, String lockOwner, Duration ttl) {
+            return nextFence;
+        }
+    }
+}
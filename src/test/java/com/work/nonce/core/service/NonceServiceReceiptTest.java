@@ -0,0 +1,107 @@
+package com.work.nonce.core.service;
+
+import com.work.nonce.core.config.NonceConfig;
+import com.work.nonce.core.model.BlockReceipt;
+import com.work.nonce.core.model.NonceAllocation;
+import com.work.nonce.core.model.NonceAllocationStatus;
+import com.work.nonce.core.model.ReceiptIngestResult;
+import com.work.nonce.core.model.SubmitterNonceState;
+import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.support.PostgresTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 按区块回执批量确认在真实数据库上的行为：确认与水位推进、区块重放、txHash 冲突与未命中的回执。
+ */
+class NonceServiceReceiptTest extends PostgresTestSupport {
+
+    private NonceRepository repository;
+    private NonceService service;
+    private String submitter;
+
+    @BeforeEach
+    void setUp() {
+        repository = statementRepository();
+        service = service(repository, NonceConfig.builder().redisEnabled(false).build());
+        submitter = newSubmitter("receipt");
+        for (int i = 0; i < 5; i++) {
+            inTransaction(() -> service.allocate(submitter));
+        }
+        inTransaction(() -> {
+            service.markRecyclable(submitter, 1, "broadcast failed");
+            return null;
+        });
+    }
+
+    @Test
+    void confirmsReceiptsAndSettlesBelowWatermark() {
+        ReceiptIngestResult result = ingest(100, receipt(0, "0xa"), receipt(2, "0xc"));
+
+        assertEquals(2, result.getConfirmed());
+        // 回执之外的空洞 1 已被链上消耗
+        assertEquals(1, result.getSettled());
+        assertEquals(1, result.getAdvanced());
+        assertEquals(0, result.getUnmatched());
+        assertEquals(hash("0xc"), allocation(2).getTxHash());
+        assertEquals(NonceAllocationStatus.USED, allocation(1).getStatus());
+        assertEquals(NonceAllocationStatus.RESERVED, allocation(3).getStatus());
+        SubmitterNonceState state = repository.loadState(submitter).orElseThrow(AssertionError::new);
+        assertEquals(2, state.getLastChainNonce());
+        assertEquals(0, state.getRecyclableCount());
+        assertEquals(2, service.findAllocationByTxHash(hash("0xc")).orElseThrow(AssertionError::new).getNonce());
+    }
+
+    @Test
+    void replayedBlockIsIdempotent() {
+        ingest(100, receipt(0, "0xa"), receipt(2, "0xc"));
+
+        ReceiptIngestResult replay = ingest(100, receipt(0, "0xa"), receipt(2, "0xc"));
+
+        assertEquals(0, replay.getConfirmed());
+        assertEquals(2, replay.getDuplicated());
+        assertEquals(0, replay.getSettled());
+        assertEquals(0, replay.getAdvanced());
+    }
+
+    @Test
+    void conflictingAndUnmatchedReceiptsLeaveRecordsUnchanged() {
+        ingest(100, receipt(0, "0xa"), receipt(2, "0xc"));
+
+        // 2 的交易被替换；9 不是本组件分配的 nonce，但仍说明链上已推进到 9
+        ReceiptIngestResult result = ingest(101, receipt(2, "0xreplaced"), receipt(3, "0xd"), receipt(9, "0xz"));
+
+        assertEquals(1, result.getConfirmed());
+        assertEquals(1, result.getConflicted());
+        assertEquals(1, result.getUnmatched());
+        assertEquals(1, result.getSettled());
+        assertEquals(hash("0xc"), allocation(2).getTxHash());
+        assertEquals(3, service.findAllocationByTxHash(hash("0xd")).orElseThrow(AssertionError::new).getNonce());
+        SubmitterNonceState state = repository.loadState(submitter).orElseThrow(AssertionError::new);
+        assertEquals(9, state.getLastChainNonce());
+        assertEquals(10, state.getNextLocalNonce());
+    }
+
+    private ReceiptIngestResult ingest(long blockNumber, BlockReceipt... receipts) {
+        return inTransaction(() -> service.ingestBlockReceipts(blockNumber, Arrays.asList(receipts)));
+    }
+
+    private BlockReceipt receipt(long nonce, String txHash) {
+        return new BlockReceipt(submitter, nonce, hash(txHash));
+    }
+
+    /**
+     * 各用例的 txHash 带上 submitter 前缀，避免与库中其他用例的记录重复
+     */
+    private String hash(String txHash) {
+        return submitter + "-" + txHash;
+    }
+
+    private NonceAllocation allocation(long nonce) {
+        return repository.findAllocation(submitter, nonce).orElseThrow(AssertionError::new);
+    }
+}
@@ -0,0 +1,98 @@
+package com.work.nonce.core.support;
+
+import com.baomidou.mybatisplus.autoconfigure.MybatisPlusAutoConfiguration;
+import com.work.nonce.core.config.NonceConfig;
+import com.work.nonce.core.lock.impl.StripedLocalLockManager;
+import com.work.nonce.core.repository.NonceRepository;
+import com.work.nonce.core.repository.impl.PostgresNonceRepository;
+import com.work.nonce.core.repository.mapper.NonceAllocationMapper;
+import com.work.nonce.core.repository.mapper.SubmitterNonceStateMapper;
+import com.work.nonce.core.service.NonceService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * 访问真实数据库的测试基类：进程内启动的 PostgreSQL 14（embedded-postgres），表结构由 Flyway 按 db/migration 全量迁移，与生产一致。
+ * <p>
+ * 数据库在整个测试进程内只启动一次（随 JVM 退出关闭），各测试类共享同一个 Spring 上下文；
+ * 用例之间以独立的 submitter 隔离，互不影响。
+ */
+@SpringBootTest(classes = PostgresTestSupport.TestConfig.class)
+public abstract class PostgresTestSupport {
+
+    private static final EmbeddedPostgres POSTGRES = startPostgres();
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({
+            DataSourceAutoConfiguration.class,
+            DataSourceTransactionManagerAutoConfiguration.class,
+            TransactionAutoConfiguration.class,
+            JdbcTemplateAutoConfiguration.class,
+            FlywayAutoConfiguration.class,
+            MybatisPlusAutoConfiguration.class
+    })
+    @MapperScan("com.work.nonce.core.repository.mapper")
+    static class TestConfig {
+    }
+
+    @Autowired
+    protected SubmitterNonceStateMapper stateMapper;
+
+    @Autowired
+    protected NonceAllocationMapper allocationMapper;
+
+    @Autowired
+    protected TransactionTemplate transactionTemplate;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    protected PostgresNonceRepository statementRepository() {
+        return new PostgresNonceRepository(stateMapper, allocationMapper);
+    }
+
+    protected static NonceService service(NonceRepository repository, NonceConfig config) {
+        return NonceService.builder(repository, new StripedLocalLockManager(), config).build();
+    }
+
+    protected <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    protected static String newSubmitter(String prefix) {
+        return prefix + "-" + UUID.randomUUID();
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}